@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import java.util.List;
 import java.util.UUID;
@@ -21,6 +22,11 @@ public interface WalletServiceClient {
     @GetMapping("/api/v1/wallets/user/{userId}")
     List<WalletResponse> getUserWallets(@PathVariable UUID userId);
     
+    /**
+     * Transfers between wallets. Retries must reuse the same idempotency key so
+     * a transfer that timed out but succeeded is not executed twice.
+     */
     @PostMapping("/api/v1/wallets/transfer")
-    TransferResponse transfer(@RequestBody TransferRequest request);
+    TransferResponse transfer(@RequestHeader("Idempotency-Key") String idempotencyKey,
+                              @RequestBody TransferRequest request);
 }
\ No newline at end of file
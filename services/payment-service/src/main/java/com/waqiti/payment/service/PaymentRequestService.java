@@ -39,8 +39,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -49,6 +49,7 @@ public class PaymentRequestService {
     private final PaymentRequestRepository paymentRequestRepository;
     private final WalletServiceClient walletClient;
     private final UserServiceClient userClient;
+    private final UserDirectory userDirectory;
     private final EventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
     private final MeterRegistry meterRegistry;
@@ -175,8 +176,9 @@ public class PaymentRequestService {
 
         Page<PaymentRequest> requests = paymentRequestRepository.findByRequestorId(userId, pageable);
 
-        return requests.map(this::mapToPaymentRequestResponse)
-                .map(this::enrichWithUserInfo);
+        Page<PaymentRequestResponse> responses = requests.map(this::mapToPaymentRequestResponse);
+        enrichWithUserInfo(responses.getContent());
+        return responses;
     }
 
     /**
@@ -188,8 +190,9 @@ public class PaymentRequestService {
 
         Page<PaymentRequest> requests = paymentRequestRepository.findByRecipientId(userId, pageable);
 
-        return requests.map(this::mapToPaymentRequestResponse)
-                .map(this::enrichWithUserInfo);
+        Page<PaymentRequestResponse> responses = requests.map(this::mapToPaymentRequestResponse);
+        enrichWithUserInfo(responses.getContent());
+        return responses;
     }
 
     /**
@@ -202,8 +205,9 @@ public class PaymentRequestService {
         Page<PaymentRequest> requests = paymentRequestRepository.findByRecipientIdAndStatus(
                 userId, PaymentRequestStatus.PENDING, pageable);
 
-        return requests.map(this::mapToPaymentRequestResponse)
-                .map(this::enrichWithUserInfo);
+        Page<PaymentRequestResponse> responses = requests.map(this::mapToPaymentRequestResponse);
+        enrichWithUserInfo(responses.getContent());
+        return responses;
     }
 
     /**
@@ -252,7 +256,8 @@ public class PaymentRequestService {
                     .build();
 
             try {
-                TransferResponse transferResponse = walletClient.transfer(transferRequest);
+                TransferResponse transferResponse = walletClient.transfer(
+                        "payment-request:" + paymentRequest.getId(), transferRequest);
 
                 // Update payment request status
                 paymentRequest.approve(UUID.fromString(transferResponse.getId().toString()));
@@ -589,15 +594,22 @@ public class PaymentRequestService {
      * Enriches a payment request response with user information
      */
     private PaymentRequestResponse enrichWithUserInfo(PaymentRequestResponse response) {
-        try {
-            List<UUID> userIds = List.of(response.getRequestorId(), response.getRecipientId());
-            List<UserResponse> users = userClient.getUsers(userIds);
+        enrichWithUserInfo(List.of(response));
+        return response;
+    }
 
-            Map<UUID, UserResponse> userMap = users.stream()
-                    .collect(Collectors.toMap(UserResponse::getId, Function.identity()));
+    /**
+     * Enriches payment request responses with user information, resolving the
+     * requestors and recipients of all of them in one lookup
+     */
+    private void enrichWithUserInfo(List<PaymentRequestResponse> responses) {
+        Map<UUID, UserResponse> users = userDirectory.findUsers(responses.stream()
+                .flatMap(response -> Stream.of(response.getRequestorId(), response.getRecipientId()))
+                .toList());
 
-            UserResponse requestor = userMap.get(response.getRequestorId());
-            UserResponse recipient = userMap.get(response.getRecipientId());
+        for (PaymentRequestResponse response : responses) {
+            UserResponse requestor = users.get(response.getRequestorId());
+            UserResponse recipient = users.get(response.getRecipientId());
 
             if (requestor != null) {
                 response.setRequestorName(requestor.getDisplayName());
@@ -606,12 +618,7 @@ public class PaymentRequestService {
             if (recipient != null) {
                 response.setRecipientName(recipient.getDisplayName());
             }
-        } catch (Exception e) {
-            log.warn("Failed to enrich payment request with user info", e);
-            // Continue without user info
         }
-
-        return response;
     }
 
     /**
@@ -226,7 +226,8 @@ public class PaymentService {
                     .build();
 
             try {
-                TransferResponse transferResponse = walletClient.transfer(transferRequest);
+                TransferResponse transferResponse = walletClient.transfer(
+                        "payment-request:" + paymentRequest.getId(), transferRequest);
 
                 // Update payment request status
                 paymentRequest.approve(UUID.fromString(transferResponse.getId().toString()));
@@ -1,6 +1,5 @@
 package com.waqiti.payment.service;
 
-import com.waqiti.payment.client.UserServiceClient;
 import com.waqiti.payment.client.WalletServiceClient;
 import com.waqiti.payment.client.dto.TransferRequest;
 import com.waqiti.payment.client.dto.TransferResponse;
@@ -27,8 +26,8 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -36,7 +35,7 @@ import java.util.stream.Collectors;
 public class ScheduledPaymentService {
     private final ScheduledPaymentRepository scheduledPaymentRepository;
     private final WalletServiceClient walletClient;
-    private final UserServiceClient userClient;
+    private final UserDirectory userDirectory;
 
     /**
      * Creates a scheduled payment
@@ -93,8 +92,9 @@ public class ScheduledPaymentService {
         
         Page<ScheduledPayment> payments = scheduledPaymentRepository.findBySenderId(userId, pageable);
         
-        return payments.map(this::mapToScheduledPaymentResponse)
-                .map(this::enrichWithUserInfo);
+        Page<ScheduledPaymentResponse> responses = payments.map(this::mapToScheduledPaymentResponse);
+        enrichWithUserInfo(responses.getContent());
+        return responses;
     }
 
     /**
@@ -106,8 +106,9 @@ public class ScheduledPaymentService {
         
         Page<ScheduledPayment> payments = scheduledPaymentRepository.findByRecipientId(userId, pageable);
         
-        return payments.map(this::mapToScheduledPaymentResponse)
-                .map(this::enrichWithUserInfo);
+        Page<ScheduledPaymentResponse> responses = payments.map(this::mapToScheduledPaymentResponse);
+        enrichWithUserInfo(responses.getContent());
+        return responses;
     }
 
     /**
@@ -265,7 +266,8 @@ public class ScheduledPaymentService {
                 .build();
         
         try {
-            TransferResponse transferResponse = walletClient.transfer(transferRequest);
+            TransferResponse transferResponse = walletClient.transfer(
+                    "scheduled-payment:" + payment.getId() + ":" + payment.getNextExecutionDate(), transferRequest);
             
             // Record successful execution
             payment.recordExecution(UUID.fromString(transferResponse.getId().toString()));
@@ -326,28 +328,30 @@ public class ScheduledPaymentService {
      * Enriches a scheduled payment response with user information
      */
     private ScheduledPaymentResponse enrichWithUserInfo(ScheduledPaymentResponse response) {
-        try {
-            List<UUID> userIds = List.of(response.getSenderId(), response.getRecipientId());
-            List<UserResponse> users = userClient.getUsers(userIds);
-            
-            Map<UUID, UserResponse> userMap = users.stream()
-                    .collect(Collectors.toMap(UserResponse::getId, Function.identity()));
-            
-            UserResponse sender = userMap.get(response.getSenderId());
-            UserResponse recipient = userMap.get(response.getRecipientId());
-            
+        enrichWithUserInfo(List.of(response));
+        return response;
+    }
+
+    /**
+     * Enriches scheduled payment responses with user information, resolving
+     * the senders and recipients of all of them in one lookup
+     */
+    private void enrichWithUserInfo(List<ScheduledPaymentResponse> responses) {
+        Map<UUID, UserResponse> users = userDirectory.findUsers(responses.stream()
+                .flatMap(response -> Stream.of(response.getSenderId(), response.getRecipientId()))
+                .toList());
+
+        for (ScheduledPaymentResponse response : responses) {
+            UserResponse sender = users.get(response.getSenderId());
+            UserResponse recipient = users.get(response.getRecipientId());
+
             if (sender != null) {
                 response.setSenderName(sender.getDisplayName());
             }
-            
+
             if (recipient != null) {
                 response.setRecipientName(recipient.getDisplayName());
             }
-        } catch (Exception e) {
-            log.warn("Failed to enrich scheduled payment with user info", e);
-            // Continue without user info
         }
-        
-        return response;
     }
 }
\ No newline at end of file
@@ -29,7 +29,6 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +42,7 @@ public class SplitPaymentService {
     private final SplitPaymentParticipantRepository participantRepository;
     private final WalletServiceClient walletClient;
     private final UserServiceClient userClient;
+    private final UserDirectory userDirectory;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final ObjectMapper objectMapper;
 
@@ -192,8 +192,9 @@ public class SplitPaymentService {
 
         Page<SplitPayment> payments = splitPaymentRepository.findByOrganizerId(organizerId, pageable);
 
-        return payments.map(this::mapToSplitPaymentResponse)
-                .map(this::enrichWithUserInfo);
+        Page<SplitPaymentResponse> responses = payments.map(this::mapToSplitPaymentResponse);
+        enrichWithUserInfo(responses.getContent());
+        return responses;
     }
 
     /**
@@ -205,8 +206,9 @@ public class SplitPaymentService {
 
         Page<SplitPayment> payments = splitPaymentRepository.findByParticipantId(userId, pageable);
 
-        return payments.map(this::mapToSplitPaymentResponse)
-                .map(this::enrichWithUserInfo);
+        Page<SplitPaymentResponse> responses = payments.map(this::mapToSplitPaymentResponse);
+        enrichWithUserInfo(responses.getContent());
+        return responses;
     }
 
     /**
@@ -430,7 +432,8 @@ public class SplitPaymentService {
                 .build();
 
         try {
-            TransferResponse transferResponse = walletClient.transfer(transferRequest);
+            TransferResponse transferResponse = walletClient.transfer(
+                    "split-payment:" + participant.getId(), transferRequest);
 
             // Mark the participant as paid
             UUID transactionId = UUID.fromString(transferResponse.getId().toString());
@@ -1135,37 +1138,34 @@ public class SplitPaymentService {
      * Enriches a split payment response with user information
      */
     private SplitPaymentResponse enrichWithUserInfo(SplitPaymentResponse response) {
-        try {
-            // Get organizer details
-            UserResponse organizer = userClient.getUser(response.getOrganizerId());
+        enrichWithUserInfo(List.of(response));
+        return response;
+    }
+
+    /**
+     * Enriches split payment responses with user information, resolving the
+     * organizers and participants of all of them in one lookup
+     */
+    private void enrichWithUserInfo(List<SplitPaymentResponse> responses) {
+        List<UUID> userIds = new ArrayList<>();
+        for (SplitPaymentResponse response : responses) {
+            userIds.add(response.getOrganizerId());
+            response.getParticipants().forEach(participant -> userIds.add(participant.getUserId()));
+        }
+        Map<UUID, UserResponse> users = userDirectory.findUsers(userIds);
+
+        for (SplitPaymentResponse response : responses) {
+            UserResponse organizer = users.get(response.getOrganizerId());
             if (organizer != null) {
                 response.setOrganizerName(organizer.getDisplayName());
             }
 
-            // Get participant details
-            List<UUID> participantIds = response.getParticipants().stream()
-                    .map(SplitPaymentParticipantResponse::getUserId)
-                    .collect(Collectors.toList());
-
-            if (!participantIds.isEmpty()) {
-                List<UserResponse> users = userClient.getUsers(participantIds);
-                Map<UUID, UserResponse> userMap = users.stream()
-                        .collect(Collectors.toMap(UserResponse::getId, Function.identity()));
-
-                for (SplitPaymentParticipantResponse participant : response.getParticipants()) {
-                    UserResponse user = userMap.get(participant.getUserId());
-                    if (user != null) {
-                        participant.setUserName(user.getDisplayName());
-                    }
+            for (SplitPaymentParticipantResponse participant : response.getParticipants()) {
+                UserResponse user = users.get(participant.getUserId());
+                if (user != null) {
+                    participant.setUserName(user.getDisplayName());
                 }
             }
-        } catch (Exception e) {
-            log.warn("Failed to enrich split payment with user info", e);
-            // Continue without user info
         }
-
-        return response;
     }
-}
-
-
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.waqiti.payment.service;
+
+import com.waqiti.payment.client.UserServiceClient;
+import com.waqiti.payment.client.dto.UserResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Looks up users for enriching responses with display names. All users of a
+ * page of responses are resolved together, so a page costs one bulk call to
+ * the user service instead of one or two calls per element.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserDirectory {
+    private final UserServiceClient userClient;
+
+    // Users per bulk request; the IDs travel in the query string
+    @Value("${user-service.bulk-size:100}")
+    private int bulkSize;
+
+    /**
+     * Finds the given users, keyed by ID. Duplicate and null IDs are ignored.
+     * Enrichment is best effort: users the user service cannot return are
+     * missing from the result, and a failed lookup yields an empty map.
+     */
+    public Map<UUID, UserResponse> findUsers(Collection<UUID> userIds) {
+        List<UUID> distinct = userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (distinct.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<UUID, UserResponse> users = new HashMap<>();
+        try {
+            for (int from = 0; from < distinct.size(); from += bulkSize) {
+                List<UUID> chunk = new ArrayList<>(distinct.subList(from, Math.min(from + bulkSize, distinct.size())));
+                for (UserResponse user : userClient.getUsers(chunk)) {
+                    users.putIfAbsent(user.getId(), user);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to look up {} users for enrichment", distinct.size(), e);
+            return Map.of();
+        }
+        return users;
+    }
+}
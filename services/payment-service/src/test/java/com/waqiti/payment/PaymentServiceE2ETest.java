@@ -181,7 +181,7 @@ public class PaymentServiceE2ETest {
 
         TransferResponse transferResponse = new TransferResponse();
         transferResponse.setId(UUID.randomUUID());
-        when(walletServiceClient.transfer(any())).thenReturn(transferResponse);
+        when(walletServiceClient.transfer(any(), any())).thenReturn(transferResponse);
     }
 
     @Test
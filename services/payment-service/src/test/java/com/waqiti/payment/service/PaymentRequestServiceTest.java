@@ -22,6 +22,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import org.mockito.Spy;
@@ -32,6 +36,7 @@ import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -57,6 +62,9 @@ public class PaymentRequestServiceTest {
     @Mock
     private UserServiceClient userClient;
 
+    @Mock
+    private UserDirectory userDirectory;
+
     // Add a spy on SimpleMeterRegistry instead of a mock
     @Spy
     private MeterRegistry meterRegistry = new SimpleMeterRegistry();
@@ -156,7 +164,7 @@ public class PaymentRequestServiceTest {
 
         TransferResponse transferResponse = new TransferResponse();
         transferResponse.setId(transactionId);
-        when(walletClient.transfer(any())).thenReturn(transferResponse);
+        when(walletClient.transfer(any(), any())).thenReturn(transferResponse);
 
         when(paymentRequestRepository.save(paymentRequest)).thenReturn(paymentRequest);
 
@@ -170,7 +178,7 @@ public class PaymentRequestServiceTest {
 
         verify(paymentRequestRepository).findById(paymentRequestId);
         verify(walletClient).getUserWallets(requestorId);
-        verify(walletClient).transfer(any());
+        verify(walletClient).transfer(any(), any());
         verify(paymentRequestRepository).save(paymentRequest);
     }
 
@@ -190,4 +198,33 @@ public class PaymentRequestServiceTest {
         verify(paymentRequestRepository).findById(paymentRequestId);
         verify(paymentRequestRepository).save(paymentRequest);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetReceivedPaymentRequests_ResolvesUsersOfWholePageInOneLookup() {
+        // Arrange
+        PaymentRequest second = PaymentRequest.create(
+                requestorId, recipientId, new BigDecimal("25.00"), "USD", "Second request", 48);
+        ReflectionTestUtils.setField(second, "id", UUID.randomUUID());
+        Pageable pageable = PageRequest.of(0, 20);
+        when(paymentRequestRepository.findByRecipientId(recipientId, pageable))
+                .thenReturn(new PageImpl<>(List.of(paymentRequest, second), pageable, 2));
+
+        UserResponse requestor = new UserResponse();
+        requestor.setId(requestorId);
+        requestor.setUsername("requestor");
+        when(userDirectory.findUsers(List.of(requestorId, recipientId, requestorId, recipientId)))
+                .thenReturn(Map.of(requestorId, requestor, recipientId, userResponse));
+
+        // Act
+        Page<PaymentRequestResponse> page = paymentRequestService.getReceivedPaymentRequests(recipientId, pageable);
+
+        // Assert - both elements are enriched from the single lookup
+        assertEquals(2, page.getContent().size());
+        for (PaymentRequestResponse response : page.getContent()) {
+            assertEquals("requestor", response.getRequestorName());
+            assertEquals("testuser", response.getRecipientName());
+        }
+        verify(userDirectory, times(1)).findUsers(any());
+        verifyNoInteractions(userClient);
+    }
+}
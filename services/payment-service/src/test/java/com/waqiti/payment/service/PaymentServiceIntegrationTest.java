@@ -140,7 +140,7 @@ public class PaymentServiceIntegrationTest {
 
         TransferResponse transferResponse = new TransferResponse();
         transferResponse.setId(transactionId);
-        when(walletClient.transfer(any())).thenReturn(transferResponse);
+        when(walletClient.transfer(any(), any())).thenReturn(transferResponse);
 
         WalletResponse requestorWallet = new WalletResponse();
         requestorWallet.setId(UUID.randomUUID());
@@ -196,7 +196,7 @@ public class PaymentServiceIntegrationTest {
         assertEquals(transactionId, updatedRequest.getTransactionId());
 
         // Verify wallet service was called
-        verify(walletClient).transfer(any());
+        verify(walletClient).transfer(any(), any());
     }
 
     @Test
@@ -217,6 +217,6 @@ public class PaymentServiceIntegrationTest {
         assertEquals(PaymentRequestStatus.REJECTED, updatedRequest.getStatus());
 
         // Verify wallet service was NOT called
-        verify(walletClient, never()).transfer(any());
+        verify(walletClient, never()).transfer(any(), any());
     }
 }
\ No newline at end of file
@@ -175,7 +175,7 @@ public class SplitPaymentServiceTest {
         // Set up transfer response
         TransferResponse transferResponse = new TransferResponse();
         transferResponse.setId(transactionId);
-        when(walletClient.transfer(any())).thenReturn(transferResponse);
+        when(walletClient.transfer(any(), any())).thenReturn(transferResponse);
     }
 
     @Test
@@ -279,7 +279,7 @@ public class SplitPaymentServiceTest {
         verify(splitPaymentRepository).findById(splitPaymentId);
         verify(participantRepository).findBySplitPaymentIdAndUserId(splitPaymentId, participantId);
         verify(walletClient).getWallet(walletId);
-        verify(walletClient).transfer(any());
+        verify(walletClient).transfer(any(), any());
     }
 
     @Test
@@ -0,0 +1,82 @@
+package com.waqiti.payment.service;
+
+import com.waqiti.payment.client.UserServiceClient;
+import com.waqiti.payment.client.dto.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserDirectoryTest {
+
+    @Mock
+    private UserServiceClient userClient;
+
+    private UserDirectory userDirectory;
+
+    @BeforeEach
+    void setUp() {
+        userDirectory = new UserDirectory(userClient);
+        ReflectionTestUtils.setField(userDirectory, "bulkSize", 2);
+    }
+
+    @Test
+    void testFindUsers_LooksUpDistinctUsersInBulk() {
+        // Arrange
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        UUID carol = UUID.randomUUID();
+        when(userClient.getUsers(List.of(alice, bob))).thenReturn(List.of(user(alice, "alice"), user(bob, "bob")));
+        when(userClient.getUsers(List.of(carol))).thenReturn(List.of(user(carol, "carol")));
+
+        // Act
+        Map<UUID, UserResponse> users = userDirectory.findUsers(Arrays.asList(alice, bob, alice, null, carol, bob));
+
+        // Assert - duplicates and nulls are dropped, chunks hold at most bulkSize IDs
+        assertEquals(3, users.size());
+        assertEquals("carol", users.get(carol).getDisplayName());
+        verify(userClient, times(2)).getUsers(any());
+    }
+
+    @Test
+    void testFindUsers_SkipsCallWithoutUsers() {
+        // Act
+        Map<UUID, UserResponse> users = userDirectory.findUsers(Arrays.asList(null, null));
+
+        // Assert
+        assertTrue(users.isEmpty());
+        verifyNoInteractions(userClient);
+    }
+
+    @Test
+    void testFindUsers_ReturnsNoUsersWhenUserServiceFails() {
+        // Arrange
+        UUID alice = UUID.randomUUID();
+        when(userClient.getUsers(any())).thenThrow(new RuntimeException("user-service unavailable"));
+
+        // Act
+        Map<UUID, UserResponse> users = userDirectory.findUsers(List.of(alice));
+
+        // Assert - enrichment is best effort
+        assertTrue(users.isEmpty());
+    }
+
+    private UserResponse user(UUID id, String username) {
+        UserResponse user = new UserResponse();
+        user.setId(id);
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,59 @@
+package com.waqiti.wallet.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance arithmetic and validation on the wallet entity. Each debit is paired
+ * with a credit of the same amount, so the balance stays constant across
+ * invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WalletDomainBenchmark {
+
+    private Wallet wallet;
+    private Money amount;
+    private BigDecimal rawAmount;
+
+    @Setup
+    public void setUp() {
+        wallet = Wallet.create(UUID.randomUUID(), "ext-1", "FINERACT", "SAVINGS", "USD");
+        wallet.credit(Money.of(new BigDecimal("1000.00"), "USD"));
+        amount = Money.of(new BigDecimal("12.34"), "USD");
+        rawAmount = new BigDecimal("12.34");
+    }
+
+    @Benchmark
+    public BigDecimal creditThenDebit() {
+        wallet.credit(amount);
+        wallet.debit(amount);
+        return wallet.getBalance();
+    }
+
+    @Benchmark
+    public boolean hasSufficientBalance() {
+        return wallet.hasSufficientBalance(amount);
+    }
+
+    @Benchmark
+    public Money moneyOf() {
+        return Money.of(rawAmount, "USD");
+    }
+}
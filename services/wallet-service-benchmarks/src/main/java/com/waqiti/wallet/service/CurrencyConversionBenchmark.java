@@ -0,0 +1,86 @@
+package com.waqiti.wallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Currency conversion against a loaded rate matrix. The rate table is served
+ * by a canned response instead of the exchange rate API, so no network is
+ * needed and every run converts with the same rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyConversionBenchmark {
+
+    private static final Map<String, BigDecimal> RATES = Map.of(
+            "USD", BigDecimal.ONE,
+            "EUR", new BigDecimal("0.921350"),
+            "GBP", new BigDecimal("0.789120"),
+            "NGN", new BigDecimal("1545.250000"),
+            "KES", new BigDecimal("129.100000"));
+
+    private CurrencyConversionService currencyConversionService;
+    private BigDecimal amount;
+
+    @Setup
+    public void setUp() {
+        currencyConversionService = new CurrencyConversionService(new CannedRatesRestTemplate(),
+                new SimpleMeterRegistry(), "http://rates.invalid/latest", "benchmark", "USD",
+                List.of("USD", "EUR", "GBP", "NGN", "KES"), Duration.ofDays(1));
+        currencyConversionService.refreshRates();
+        amount = new BigDecimal("1234.56");
+    }
+
+    @Benchmark
+    public BigDecimal convertFromBase() {
+        return currencyConversionService.convert(amount, "USD", "EUR");
+    }
+
+    @Benchmark
+    public BigDecimal convertCrossRate() {
+        return currencyConversionService.convert(amount, "GBP", "NGN");
+    }
+
+    @Benchmark
+    public BigDecimal convertSameCurrency() {
+        return currencyConversionService.convert(amount, "EUR", "EUR");
+    }
+
+    /**
+     * Answers every rate request with the fixed rate table
+     */
+    private static class CannedRatesRestTemplate extends RestTemplate {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> ResponseEntity<T> getForEntity(String url, Class<T> responseType, Object... uriVariables) {
+            CurrencyConversionService.ExchangeRateResponse response =
+                    new CurrencyConversionService.ExchangeRateResponse();
+            response.setSuccess(true);
+            response.setBase("USD");
+            response.setRates(RATES);
+            return (ResponseEntity<T>) ResponseEntity.ok(response);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.dto.TransactionResponse;
+import com.waqiti.wallet.dto.WalletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping done on every wallet read and money movement. The
+ * mappers do not touch the service's collaborators, so the service is built
+ * without them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    private WalletService walletService;
+    private Wallet wallet;
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        walletService = new WalletService(null, null, null, null, null, null, null, null, null, null, null, null,
+                null, null);
+        wallet = Wallet.create(UUID.randomUUID(), "ext-1", "FINERACT", "SAVINGS", "USD");
+        wallet.updateBalance(new BigDecimal("1500.00"));
+        transaction = Transaction.createTransfer(UUID.randomUUID(), UUID.randomUUID(),
+                new BigDecimal("12.34"), "USD", "Dinner");
+        transaction.markInProgress();
+        transaction.complete();
+    }
+
+    @Benchmark
+    public WalletResponse mapToWalletResponse() {
+        return walletService.mapToWalletResponse(wallet);
+    }
+
+    @Benchmark
+    public TransactionResponse mapToTransactionResponse() {
+        return walletService.mapToTransactionResponse(transaction);
+    }
+}
@@ -0,0 +1,62 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.repository.SettlementPosting;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Integration service that answers in memory, so that benchmarks measure the
+ * wallet service and not a provider round trip. Every call succeeds and the
+ * provider always agrees with the local ledger.
+ */
+public class StubIntegrationService implements IntegrationService {
+
+    @Override
+    public String createWallet(UUID userId, String walletType, String accountType, String currency) {
+        return "stub-" + UUID.randomUUID();
+    }
+
+    @Override
+    public BigDecimal getWalletBalance(Wallet wallet) {
+        return wallet.getBalance();
+    }
+
+    @Override
+    public Map<UUID, BigDecimal> getWalletBalances(Collection<Wallet> wallets) {
+        return wallets.stream().collect(Collectors.toMap(Wallet::getId, Wallet::getBalance));
+    }
+
+    @Override
+    public String transferBetweenWallets(Wallet sourceWallet, Wallet targetWallet, BigDecimal amount,
+                                         String reference) {
+        return "stub-" + reference;
+    }
+
+    @Override
+    public Optional<String> findPostedTransaction(String reference) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Map<Long, String> postSettlement(String walletType, List<SettlementPosting> postings) {
+        return postings.stream().collect(Collectors.toMap(SettlementPosting::getId,
+                posting -> "stub-" + posting.getId(), (first, second) -> first));
+    }
+
+    @Override
+    public String depositToWallet(Wallet wallet, BigDecimal amount, String reference) {
+        return "stub-" + reference;
+    }
+
+    @Override
+    public String withdrawFromWallet(Wallet wallet, BigDecimal amount, String reference) {
+        return "stub-" + reference;
+    }
+}
@@ -0,0 +1,105 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.waqiti.wallet.domain.OutboxEvent;
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.repository.OutboxRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of the outbox events written for every booking. Outside a
+ * transaction the logger inserts each event right away; here the insert is
+ * replaced by a sink, so only building and serializing the events is
+ * measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionLoggerBenchmark {
+
+    private TransactionLogger transactionLogger;
+    private Transaction transaction;
+    private Wallet sourceWallet;
+    private Wallet targetWallet;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transactionLogger = new TransactionLogger(new SinkOutboxRepository(blackhole), null, objectMapper);
+
+        sourceWallet = wallet();
+        targetWallet = wallet();
+        transaction = Transaction.createTransfer(sourceWallet.getId(), targetWallet.getId(),
+                new BigDecimal("12.34"), "USD", "Dinner");
+        assignId(Transaction.class, transaction);
+        transaction.markInProgress();
+        transaction.complete();
+    }
+
+    @Benchmark
+    public void logTransaction() {
+        transactionLogger.logTransaction(transaction);
+    }
+
+    @Benchmark
+    public void logTransferEvents() {
+        transactionLogger.logTransferEvents(transaction, sourceWallet, targetWallet);
+    }
+
+    private Wallet wallet() {
+        Wallet wallet = Wallet.create(UUID.randomUUID(), "ext-1", "FINERACT", "SAVINGS", "USD");
+        assignId(Wallet.class, wallet);
+        return wallet;
+    }
+
+    /**
+     * Sets the generated ID that the entity would get when persisted
+     */
+    private static <T> void assignId(Class<T> type, T entity) {
+        Field id = ReflectionUtils.findField(type, "id");
+        ReflectionUtils.makeAccessible(id);
+        ReflectionUtils.setField(id, entity, UUID.randomUUID());
+    }
+
+    /**
+     * Hands inserted events to the blackhole instead of the database
+     */
+    private static class SinkOutboxRepository extends OutboxRepository {
+        private final Blackhole blackhole;
+
+        SinkOutboxRepository(Blackhole blackhole) {
+            super(null);
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void insertAll(List<OutboxEvent> events) {
+            blackhole.consume(events);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.AdvisoryLockRepository;
+import com.waqiti.wallet.repository.OutboxRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Spring context of the in-process transfer benchmark. It holds the beans on
+ * the synchronous transfer path, wired as in the service, on an embedded H2
+ * database created from the entity mappings. The integration service is
+ * stubbed, and the work that runs after commit in the service is left out:
+ * provider posting runs asynchronously there, and the balance cache needs
+ * Redis. Scheduled jobs, Kafka and the web layer are not part of the context.
+ *
+ * Configuration is read from benchmark.yml instead of the service's
+ * application.yml.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = Wallet.class)
+@EnableJpaRepositories(basePackageClasses = WalletRepository.class)
+@Import({
+        WalletService.class,
+        WalletLedger.class,
+        TransactionJournal.class,
+        TransactionLogger.class,
+        HotWalletSequencer.class,
+        IdempotencyStore.class,
+        MovementMetrics.class,
+        WalletStateFeed.class,
+        OutboxRepository.class,
+        AdvisoryLockRepository.class
+})
+public class TransferBenchmarkApplication {
+
+    static final String CONFIG_NAME = "benchmark";
+
+    @Bean
+    public IntegrationService integrationService() {
+        return new StubIntegrationService();
+    }
+
+    @Bean
+    public ExternalLedgerSync externalLedgerSync(MeterRegistry meterRegistry, MovementMetrics movementMetrics) {
+        return new SkippedLedgerSync(meterRegistry, movementMetrics);
+    }
+
+    @Bean
+    public WalletBalanceCache walletBalanceCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new LocalBalanceCache(objectMapper, meterRegistry);
+    }
+
+    /**
+     * Ledger sync that leaves booked movements unposted. In the service the
+     * posting runs on its own executor after commit and adds nothing to the
+     * transfer latency.
+     */
+    static class SkippedLedgerSync extends ExternalLedgerSync {
+
+        SkippedLedgerSync(MeterRegistry meterRegistry, MovementMetrics movementMetrics) {
+            super(null, null, null, null, meterRegistry, null, movementMetrics);
+        }
+
+        @Override
+        public void onLedgerBooked(LedgerBookedEvent event) {
+        }
+    }
+
+    /**
+     * Balance cache without the Redis tier. The benchmark never reads through
+     * the cache, so invalidations have nothing to remove.
+     */
+    static class LocalBalanceCache extends WalletBalanceCache {
+
+        LocalBalanceCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+            super(null, objectMapper, meterRegistry, Duration.ofSeconds(30), Duration.ofSeconds(5), 100_000);
+        }
+
+        @Override
+        public void evict(Collection<UUID> walletIds) {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.dto.TransactionResponse;
+import com.waqiti.wallet.dto.TransferRequest;
+import com.waqiti.wallet.repository.WalletRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A transfer through {@link WalletService#transfer}, from the idempotency
+ * check to commit, against an embedded database. Each thread moves a small
+ * amount between two wallets drawn from a pool; with a pool of two wallets
+ * every transfer contends for the same rows.
+ *
+ * The numbers are for comparing changes to the transfer path on one machine,
+ * not for sizing: H2 does not lock, log or commit like PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class WalletTransferBenchmark {
+
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"2", "1000"})
+    public int wallets;
+
+    private ConfigurableApplicationContext context;
+    private WalletService walletService;
+    private JdbcTemplate jdbcTemplate;
+    private List<UUID> walletIds;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(TransferBenchmarkApplication.class)
+                .properties("spring.config.name=" + TransferBenchmarkApplication.CONFIG_NAME)
+                .run();
+        walletService = context.getBean(WalletService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<Wallet> created = new ArrayList<>(wallets);
+        for (int i = 0; i < wallets; i++) {
+            Wallet wallet = Wallet.create(UUID.randomUUID(), "ext-" + i, "FINERACT", "SAVINGS", "USD");
+            wallet.updateBalance(OPENING_BALANCE);
+            created.add(wallet);
+        }
+        walletIds = context.getBean(WalletRepository.class).saveAll(created).stream()
+                .map(Wallet::getId)
+                .toList();
+    }
+
+    /**
+     * Clears the rows written by the iteration, so later iterations do not run
+     * against an ever larger database
+     */
+    @TearDown(Level.Iteration)
+    public void clearJournal() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        jdbcTemplate.update("DELETE FROM user_transactions");
+        jdbcTemplate.update("DELETE FROM transaction_state_log");
+        jdbcTemplate.update("DELETE FROM transactions");
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionResponse transfer(Picker picker) {
+        int source = picker.random.nextInt(walletIds.size());
+        int target = (source + 1 + picker.random.nextInt(walletIds.size() - 1)) % walletIds.size();
+        return walletService.transfer(TransferRequest.builder()
+                .sourceWalletId(walletIds.get(source))
+                .targetWalletId(walletIds.get(target))
+                .amount(AMOUNT)
+                .description("Benchmark transfer")
+                .build());
+    }
+
+    /**
+     * Wallet pair selection of one thread, seeded by the thread index so that
+     * every run draws the same sequence of pairs
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+        private SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threadParams) {
+            random = new SplittableRandom(threadParams.getThreadIndex());
+        }
+    }
+}
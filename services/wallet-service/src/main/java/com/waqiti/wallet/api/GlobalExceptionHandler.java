@@ -5,6 +5,7 @@ import com.waqiti.wallet.domain.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -20,6 +21,12 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
+    @ExceptionHandler(TransactionNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleTransactionNotFound(TransactionNotFoundException ex) {
+        log.error("Transaction not found", ex);
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
     @ExceptionHandler(InsufficientBalanceException.class)
     public ResponseEntity<ErrorResponse> handleInsufficientBalance(InsufficientBalanceException ex) {
         log.error("Insufficient balance", ex);
@@ -38,12 +45,39 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
     }
 
+    /**
+     * Answers 202 with the transaction to poll when its ID is known, and 504
+     * otherwise; a retry with the same Idempotency-Key is safe either way
+     */
+    @ExceptionHandler(TransferOutcomeUnknownException.class)
+    public ResponseEntity<ErrorResponse> handleTransferOutcomeUnknown(TransferOutcomeUnknownException ex) {
+        log.warn("Transfer outcome unknown: {}", ex.getMessage());
+        if (ex.getTransactionId() == null) {
+            return buildErrorResponse(HttpStatus.GATEWAY_TIMEOUT, ex.getMessage());
+        }
+        return ResponseEntity.accepted()
+                .location(WalletController.transactionLocation(ex.getTransactionId()))
+                .body(buildErrorResponse(HttpStatus.ACCEPTED, ex.getMessage()).getBody());
+    }
+
     @ExceptionHandler(ConcurrentModificationException.class)
     public ResponseEntity<ErrorResponse> handleConcurrentModification(ConcurrentModificationException ex) {
         log.error("Concurrent modification", ex);
         return buildErrorResponse(HttpStatus.CONFLICT, ex.getMessage());
     }
 
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        log.error("Idempotency key reused", ex);
+        return buildErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        log.error("Optimistic locking failure", ex);
+        return buildErrorResponse(HttpStatus.CONFLICT, "Wallet was modified concurrently. Please retry.");
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
         log.error("Illegal argument", ex);
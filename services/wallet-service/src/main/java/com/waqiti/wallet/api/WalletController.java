@@ -2,15 +2,26 @@ package com.waqiti.wallet.api;
 
 import com.waqiti.wallet.dto.*;
 import com.waqiti.wallet.dto.*;
+import com.waqiti.wallet.service.BalanceSnapshotService;
+import com.waqiti.wallet.service.StatementExporter;
+import com.waqiti.wallet.service.TransferStatusStream;
 import com.waqiti.wallet.service.WalletService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,6 +31,14 @@ import java.util.UUID;
 @Slf4j
 public class WalletController {
     private final WalletService walletService;
+    private final StatementExporter statementExporter;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final TransferStatusStream transferStatusStream;
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
 
     @PostMapping
     public ResponseEntity<WalletResponse> createWallet(@Valid @RequestBody CreateWalletRequest request) {
@@ -28,9 +47,20 @@ public class WalletController {
     }
 
     @GetMapping("/{walletId}")
-    public ResponseEntity<WalletResponse> getWallet(@PathVariable UUID walletId) {
+    public ResponseEntity<WalletResponse> getWallet(
+            @PathVariable UUID walletId,
+            @RequestParam(required = false) Long maxStalenessMs) {
         log.info("Getting wallet: {}", walletId);
-        return ResponseEntity.ok(walletService.getWallet(walletId));
+        return ResponseEntity.ok(walletService.getWallet(walletId,
+                maxStalenessMs == null ? null : Duration.ofMillis(maxStalenessMs)));
+    }
+
+    @GetMapping("/{walletId}/balance")
+    public ResponseEntity<BalanceAtResponse> getBalanceAt(
+            @PathVariable UUID walletId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        log.info("Getting balance of wallet {} at {}", walletId, at);
+        return ResponseEntity.ok(balanceSnapshotService.getBalanceAt(walletId, at));
     }
 
     @GetMapping("/user/{userId}")
@@ -39,37 +69,113 @@ public class WalletController {
         return ResponseEntity.ok(walletService.getUserWallets(userId));
     }
 
+    /**
+     * Transfers money between wallets. With "Prefer: respond-async" the
+     * transfer is only validated and accepted: the answer is 202 with the
+     * PENDING transaction, whose outcome can be polled or streamed.
+     */
     @PostMapping("/transfer")
-    public ResponseEntity<TransactionResponse> transfer(@Valid @RequestBody TransferRequest request) {
+    public ResponseEntity<TransactionResponse> transfer(
+            @Valid @RequestBody TransferRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
         log.info("Transferring: {}", request);
-        return ResponseEntity.ok(walletService.transfer(request));
+        if (prefer == null || !prefer.toLowerCase().contains(RESPOND_ASYNC)) {
+            return ResponseEntity.ok(walletService.transfer(request, idempotencyKey));
+        }
+
+        TransactionResponse accepted = walletService.acceptTransfer(request, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(transactionLocation(accepted.getId()))
+                .header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC)
+                .body(accepted);
+    }
+
+    @GetMapping("/transactions/{transactionId}")
+    public ResponseEntity<TransactionResponse> getTransaction(@PathVariable UUID transactionId) {
+        return ResponseEntity.ok(walletService.getTransaction(transactionId));
+    }
+
+    /**
+     * Streams the status of a transaction until it is completed or failed
+     */
+    @GetMapping(value = "/transactions/{transactionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransaction(@PathVariable UUID transactionId) {
+        log.info("Streaming status of transaction: {}", transactionId);
+        return transferStatusStream.subscribe(walletService.getTransaction(transactionId));
+    }
+
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<BatchTransferResponse> batchTransfer(@Valid @RequestBody BatchTransferRequest request) {
+        log.info("Processing batch transfer of {} transfers", request.getTransfers().size());
+        return ResponseEntity.ok(walletService.batchTransfer(request));
     }
 
     @PostMapping("/deposit")
-    public ResponseEntity<TransactionResponse> deposit(@Valid @RequestBody DepositRequest request) {
+    public ResponseEntity<TransactionResponse> deposit(
+            @Valid @RequestBody DepositRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         log.info("Depositing: {}", request);
-        return ResponseEntity.ok(walletService.deposit(request));
+        return ResponseEntity.ok(walletService.deposit(request, idempotencyKey));
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<TransactionResponse> withdraw(@Valid @RequestBody WithdrawalRequest request) {
+    public ResponseEntity<TransactionResponse> withdraw(
+            @Valid @RequestBody WithdrawalRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         log.info("Withdrawing: {}", request);
-        return ResponseEntity.ok(walletService.withdraw(request));
+        return ResponseEntity.ok(walletService.withdraw(request, idempotencyKey));
     }
 
     @GetMapping("/{walletId}/transactions")
-    public ResponseEntity<Page<TransactionResponse>> getWalletTransactions(
+    public ResponseEntity<TransactionHistoryResponse> getWalletTransactions(
             @PathVariable UUID walletId,
-            Pageable pageable) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         log.info("Getting transactions for wallet: {}", walletId);
-        return ResponseEntity.ok(walletService.getWalletTransactions(walletId, pageable));
+        return ResponseEntity.ok(walletService.getWalletTransactions(walletId, cursor, size));
     }
 
     @GetMapping("/transactions/user/{userId}")
-    public ResponseEntity<Page<TransactionResponse>> getUserTransactions(
+    public ResponseEntity<TransactionHistoryResponse> getUserTransactions(
             @PathVariable UUID userId,
-            Pageable pageable) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         log.info("Getting transactions for user: {}", userId);
-        return ResponseEntity.ok(walletService.getUserTransactions(userId, pageable));
+        return ResponseEntity.ok(walletService.getUserTransactions(userId, cursor, size));
+    }
+
+    @GetMapping("/{walletId}/statement")
+    public ResponseEntity<StreamingResponseBody> getStatement(
+            @PathVariable UUID walletId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("Exporting statement for wallet {} from {} to {}", walletId, from, to);
+        StatementFormat statementFormat = StatementFormat.from(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = statementExporter.export(walletId, from, to, statementFormat, gzip);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(statementFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("statement-" + walletId + "-" + from + "-" + to + "." +
+                                statementFormat.getFileExtension())
+                        .build()
+                        .toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Location of a transaction, where its status can be polled
+     */
+    static URI transactionLocation(UUID transactionId) {
+        return URI.create("/api/v1/wallets/transactions/" + transactionId);
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,8 @@ package com.waqiti.wallet.client;
 import com.waqiti.wallet.client.dto.*;
 import com.waqiti.wallet.client.dto.*;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
@@ -15,6 +17,9 @@ public interface IntegrationServiceClient {
     @PostMapping("/api/v1/wallets/balance")
     GetBalanceResponse getBalance(@RequestBody GetBalanceRequest request);
 
+    @PostMapping("/api/v1/wallets/balances")
+    GetBalancesResponse getBalances(@RequestBody GetBalancesRequest request);
+
     @PostMapping("/api/v1/wallets/transfer")
     TransferResponse transfer(@RequestBody TransferRequest request);
 
@@ -23,4 +28,10 @@ public interface IntegrationServiceClient {
 
     @PostMapping("/api/v1/wallets/withdraw")
     WithdrawalResponse withdraw(@RequestBody WithdrawalRequest request);
+
+    @PostMapping("/api/v1/wallets/settlements")
+    SettlementResponse settle(@RequestBody SettlementRequest request);
+
+    @GetMapping("/api/v1/transactions/reference/{reference}")
+    PostedTransactionResponse getTransactionByReference(@PathVariable("reference") String reference);
 }
\ No newline at end of file
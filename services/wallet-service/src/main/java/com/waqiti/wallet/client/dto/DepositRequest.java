@@ -17,4 +17,6 @@ public class DepositRequest {
     private String walletType;
     private BigDecimal amount;
     private String currency;
+    // Our transaction ID; the provider posts a reference at most once
+    private String reference;
 }
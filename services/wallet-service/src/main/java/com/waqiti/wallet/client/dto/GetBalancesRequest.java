@@ -0,0 +1,19 @@
+package com.waqiti.wallet.client.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request to get the balances of several wallets in one call
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetBalancesRequest {
+    private List<GetBalanceRequest> wallets;
+}
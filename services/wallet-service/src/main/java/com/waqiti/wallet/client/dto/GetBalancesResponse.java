@@ -0,0 +1,21 @@
+package com.waqiti.wallet.client.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Response with the balances of several wallets, keyed by external ID.
+ * Wallets the provider could not price are left out.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetBalancesResponse {
+    private Map<String, BigDecimal> balances;
+}
@@ -0,0 +1,19 @@
+package com.waqiti.wallet.client.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A posting found in the external system by its reference
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostedTransactionResponse {
+    private String externalId;
+    private String reference;
+    private String status;
+}
@@ -0,0 +1,23 @@
+package com.waqiti.wallet.client.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One account's net movement in a settlement; a negative amount debits the account
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementEntry {
+    private String externalId;
+    private BigDecimal amount;
+    private String currency;
+    // The provider posts a reference at most once
+    private String reference;
+}
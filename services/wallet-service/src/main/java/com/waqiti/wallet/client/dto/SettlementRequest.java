@@ -0,0 +1,20 @@
+package com.waqiti.wallet.client.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request to post the net settlement of several accounts of one provider
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementRequest {
+    private String walletType;
+    private List<SettlementEntry> entries;
+}
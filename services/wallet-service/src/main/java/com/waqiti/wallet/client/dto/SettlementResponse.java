@@ -0,0 +1,20 @@
+package com.waqiti.wallet.client.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Response from posting a settlement
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementResponse {
+    // External transaction ID keyed by entry reference; entries not posted are left out
+    private Map<String, String> externalIds;
+}
@@ -19,4 +19,6 @@ public class TransferRequest {
     private String targetWalletType;
     private BigDecimal amount;
     private String currency;
+    // Our transaction ID; the provider posts a reference at most once
+    private String reference;
 }
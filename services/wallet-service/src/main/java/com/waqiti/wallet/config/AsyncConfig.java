@@ -0,0 +1,130 @@
+package com.waqiti.wallet.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    @Value("${wallet.ledger.sync.core-pool-size:4}")
+    private int ledgerSyncCorePoolSize;
+
+    @Value("${wallet.ledger.sync.max-pool-size:16}")
+    private int ledgerSyncMaxPoolSize;
+
+    @Value("${wallet.ledger.sync.queue-capacity:10000}")
+    private int ledgerSyncQueueCapacity;
+
+    @Value("${wallet.balance-refresh.pool-size:2}")
+    private int balanceRefreshPoolSize;
+
+    @Value("${wallet.balance-refresh.queue-capacity:100}")
+    private int balanceRefreshQueueCapacity;
+
+    @Value("${wallet.recovery.workers:4}")
+    private int recoveryWorkers;
+
+    @Value("${wallet.reconciliation.workers:8}")
+    private int reconciliationWorkers;
+
+    @Value("${wallet.async-transfer.workers:4}")
+    private int transferWorkers;
+
+    /**
+     * Executor for posting booked movements to the external provider and
+     * reconciling balances, kept off the request threads
+     */
+    @Bean(name = "ledgerSyncExecutor")
+    public Executor ledgerSyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(ledgerSyncCorePoolSize);
+        executor.setMaxPoolSize(ledgerSyncMaxPoolSize);
+        executor.setQueueCapacity(ledgerSyncQueueCapacity);
+        executor.setThreadNamePrefix("ledger-sync-");
+        // Run on the caller rather than drop a posting when the queue is full
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for refreshing external balances when wallets are listed. Small
+     * and bounded: a refresh is best effort, so when the queue is full it is
+     * dropped rather than slowing down the request or piling up calls to the
+     * provider.
+     */
+    @Bean(name = "balanceRefreshExecutor")
+    public Executor balanceRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(balanceRefreshPoolSize);
+        executor.setMaxPoolSize(balanceRefreshPoolSize);
+        executor.setQueueCapacity(balanceRefreshQueueCapacity);
+        executor.setThreadNamePrefix("balance-refresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for the recovery workers. Each worker claims its own batches, so
+     * the pool never needs more threads than workers or any queue.
+     */
+    @Bean(name = "recoveryExecutor")
+    public Executor recoveryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(recoveryWorkers);
+        executor.setMaxPoolSize(recoveryWorkers);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("recovery-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for the reconciliation workers, one thread per worker
+     */
+    @Bean(name = "reconciliationExecutor")
+    public Executor reconciliationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(reconciliationWorkers);
+        executor.setMaxPoolSize(reconciliationWorkers);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("reconciliation-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for the workers that book accepted transfers. Each worker drains
+     * every pending transfer it can claim, so a full pool already covers a
+     * rejected task and no queue is needed beyond one wake-up per worker.
+     */
+    @Bean(name = "transferExecutor")
+    public Executor transferExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(transferWorkers);
+        executor.setMaxPoolSize(transferWorkers);
+        executor.setQueueCapacity(transferWorkers);
+        executor.setThreadNamePrefix("transfer-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
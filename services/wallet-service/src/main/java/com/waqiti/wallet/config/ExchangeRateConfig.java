@@ -0,0 +1,31 @@
+package com.waqiti.wallet.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class ExchangeRateConfig {
+
+    @Value("${exchange-rate.api.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${exchange-rate.api.read-timeout:5s}")
+    private Duration readTimeout;
+
+    /**
+     * Client for the exchange rate provider. Only the scheduled rate refresh
+     * uses it, so the timeouts bound how long a refresh can hang.
+     */
+    @Bean(name = "exchangeRateRestTemplate")
+    public RestTemplate exchangeRateRestTemplate(RestTemplateBuilder builder) {
+        return builder
+                .setConnectTimeout(connectTimeout)
+                .setReadTimeout(readTimeout)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.waqiti.wallet.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Pooled Reactor Netty client for the integration service, used when
+ * wallet.integration.client is set to webclient. Connections are kept alive
+ * and reused; callers wait for a free connection at most
+ * pending-acquire-timeout instead of opening new ones without bound.
+ */
+@Configuration
+@ConditionalOnProperty(name = "wallet.integration.client", havingValue = "webclient")
+public class IntegrationClientConfig {
+
+    @Value("${integration-service.url}")
+    private String baseUrl;
+
+    @Value("${wallet.integration.webclient.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${wallet.integration.webclient.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${wallet.integration.webclient.pending-acquire-timeout:2s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${wallet.integration.webclient.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${wallet.integration.webclient.max-life-time:5m}")
+    private Duration maxLifeTime;
+
+    @Value("${wallet.integration.webclient.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${wallet.integration.webclient.response-timeout:5s}")
+    private Duration responseTimeout;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider integrationConnectionProvider() {
+        return ConnectionProvider.builder("integration-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                // Closed before the server's keep-alive timeout, so a reused connection is never half-closed
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    @Bean(name = "integrationWebClient")
+    public WebClient integrationWebClient(WebClient.Builder builder, ConnectionProvider integrationConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(integrationConnectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout);
+
+        return builder
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
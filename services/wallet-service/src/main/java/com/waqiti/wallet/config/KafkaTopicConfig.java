@@ -0,0 +1,38 @@
+package com.waqiti.wallet.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.time.Duration;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${wallet.state-feed.partitions:12}")
+    private int walletStatePartitions;
+
+    @Value("${wallet.state-feed.replicas:1}")
+    private int walletStateReplicas;
+
+    @Value("${wallet.state-feed.min-compaction-lag:1h}")
+    private Duration minCompactionLag;
+
+    /**
+     * Latest state of every wallet, keyed by wallet ID. Compaction keeps the
+     * newest record per wallet, so a new consumer can build a full replica by
+     * reading the topic from the beginning.
+     */
+    @Bean
+    public NewTopic walletStateTopic() {
+        return TopicBuilder.name("wallet-state")
+                .partitions(walletStatePartitions)
+                .replicas(walletStateReplicas)
+                .compact()
+                .config(TopicConfig.MIN_COMPACTION_LAG_MS_CONFIG, String.valueOf(minCompactionLag.toMillis()))
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.waqiti.wallet.domain;
+
+/**
+ * Thrown when an idempotency key is replayed with a different request
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
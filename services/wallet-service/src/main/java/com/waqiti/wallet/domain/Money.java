@@ -0,0 +1,152 @@
+package com.waqiti.wallet.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount of money held as a whole number of the currency's minor units,
+ * e.g. cents for USD or yen for JPY. Amounts are exact to the currency's
+ * decimal places: converting an input value with more decimals is rejected
+ * rather than rounded. Comparisons work on the primitive count and never
+ * allocate.
+ *
+ * Serialized to JSON as a plain decimal number, so API responses look the
+ * same as with BigDecimal amounts. The number alone does not say which
+ * currency it is in, so DTOs holding Money read it back together with their
+ * currency field.
+ */
+@JsonSerialize(using = MoneySerializer.class)
+public final class Money implements Comparable<Money> {
+
+    private final long minorUnits;
+    private final String currency;
+    private final int scale;
+
+    private Money(long minorUnits, String currency, int scale) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+        this.scale = scale;
+    }
+
+    /**
+     * Creates an amount from a decimal value, which must be exact in the currency
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        int scale = scaleOf(currency);
+        try {
+            return new Money(amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact(),
+                    currency, scale);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(
+                    "Amount " + amount.toPlainString() + " is not a valid " + currency + " amount");
+        }
+    }
+
+    /**
+     * Creates an amount from a value read back from the database. The columns
+     * keep four decimals and rows written before amounts were exact may carry
+     * more than the currency has; those digits are dropped rather than
+     * rejected, rounding toward negative infinity so a balance is never
+     * overstated.
+     */
+    public static Money ofStored(BigDecimal amount, String currency) {
+        int scale = scaleOf(currency);
+        return new Money(amount.setScale(scale, RoundingMode.FLOOR).unscaledValue().longValueExact(),
+                currency, scale);
+    }
+
+    /**
+     * Creates an amount from a count of minor units
+     */
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, currency, scaleOf(currency));
+    }
+
+    /**
+     * Creates a zero amount
+     */
+    public static Money zero(String currency) {
+        return ofMinor(0L, currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency, scale);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency, scale);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        requireSameCurrency(other);
+        return minorUnits < other.minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    private static int scaleOf(String currency) {
+        int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+        if (digits < 0) {
+            throw new IllegalArgumentException("Currency has no minor unit: " + currency);
+        }
+        return digits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+}
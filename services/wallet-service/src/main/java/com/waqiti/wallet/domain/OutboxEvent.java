@@ -0,0 +1,31 @@
+package com.waqiti.wallet.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A Kafka message stored in the outbox table, written in the same database
+ * transaction as the change it describes and published later by the relay
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class OutboxEvent {
+    private Long id;
+    private String topic;
+    private String messageKey;
+    private String payload;
+    private LocalDateTime createdAt;
+
+    public static OutboxEvent create(String topic, String messageKey, String payload) {
+        return OutboxEvent.builder()
+                .topic(topic)
+                .messageKey(messageKey)
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
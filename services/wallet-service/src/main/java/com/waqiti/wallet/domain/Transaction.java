@@ -5,9 +5,12 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.PartitionKey;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
@@ -19,7 +22,7 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(nullable = false)
+    @Column(nullable = true)
     private String externalId;
 
     @Column(nullable = true)
@@ -48,6 +51,9 @@ public class Transaction {
     @Column(length = 100)
     private String referenceId;
 
+    // The table is partitioned by created_at, so updates name it next to the
+    // id and go to a single partition
+    @PartitionKey
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
@@ -61,6 +67,11 @@ public class Transaction {
     @Setter
     private String updatedBy;
 
+    // Status changes not yet written to the state log
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private final List<TransactionStateTransition> pendingTransitions = new ArrayList<>();
+
     /**
      * Creates a new transaction
      */
@@ -76,6 +87,7 @@ public class Transaction {
         transaction.status = TransactionStatus.PENDING;
         transaction.createdAt = LocalDateTime.now();
         transaction.updatedAt = LocalDateTime.now();
+        transaction.recordTransition(null);
         return transaction;
     }
 
@@ -103,6 +115,13 @@ public class Transaction {
         return create(sourceWalletId, targetWalletId, amount, currency, TransactionType.TRANSFER, description);
     }
 
+    /**
+     * Records the client's idempotency key for this transaction
+     */
+    public void assignReferenceId(String referenceId) {
+        this.referenceId = referenceId;
+    }
+
     /**
      * Marks the transaction as completed
      */
@@ -110,6 +129,32 @@ public class Transaction {
         this.externalId = externalId;
         this.status = TransactionStatus.COMPLETED;
         this.updatedAt = LocalDateTime.now();
+        recordTransition(null);
+    }
+
+    /**
+     * Marks the transaction as completed in the local ledger. The external
+     * posting is recorded later through {@link #recordExternalPosting(String)}.
+     */
+    public void complete() {
+        this.status = TransactionStatus.COMPLETED;
+        this.updatedAt = LocalDateTime.now();
+        recordTransition(null);
+    }
+
+    /**
+     * Records the external transaction ID once the provider has posted the movement
+     */
+    public void recordExternalPosting(String externalId) {
+        this.externalId = externalId;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Checks whether the transaction has been posted to the external provider
+     */
+    public boolean isExternallyPosted() {
+        return this.externalId != null;
     }
 
     /**
@@ -119,6 +164,7 @@ public class Transaction {
         this.status = TransactionStatus.FAILED;
         this.description = reason;
         this.updatedAt = LocalDateTime.now();
+        recordTransition(reason);
     }
 
     /**
@@ -127,5 +173,19 @@ public class Transaction {
     public void markInProgress() {
         this.status = TransactionStatus.IN_PROGRESS;
         this.updatedAt = LocalDateTime.now();
+        recordTransition(null);
+    }
+
+    /**
+     * Returns the status changes since the last call and forgets them
+     */
+    public List<TransactionStateTransition> drainStateTransitions() {
+        List<TransactionStateTransition> transitions = new ArrayList<>(pendingTransitions);
+        pendingTransitions.clear();
+        return transitions;
+    }
+
+    private void recordTransition(String reason) {
+        pendingTransitions.add(new TransactionStateTransition(status, reason, updatedAt));
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.waqiti.wallet.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One row of the append-only transaction state log. Ids come from a pooled
+ * sequence so that Hibernate can insert the entries in JDBC batches.
+ */
+@Entity
+@Table(name = "transaction_state_log")
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class TransactionStateLogEntry {
+    private static final int MAX_REASON_LENGTH = 500;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_state_log_seq")
+    @SequenceGenerator(name = "transaction_state_log_seq", sequenceName = "transaction_state_log_seq",
+            allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TransactionStatus status;
+
+    @Column(length = MAX_REASON_LENGTH)
+    private String reason;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    /**
+     * Creates a log entry for a status change of a transaction
+     */
+    public static TransactionStateLogEntry of(UUID transactionId, TransactionStateTransition transition) {
+        TransactionStateLogEntry entry = new TransactionStateLogEntry();
+        entry.transactionId = transactionId;
+        entry.status = transition.getStatus();
+        entry.reason = transition.getReason() != null && transition.getReason().length() > MAX_REASON_LENGTH
+                ? transition.getReason().substring(0, MAX_REASON_LENGTH)
+                : transition.getReason();
+        entry.occurredAt = transition.getOccurredAt();
+        return entry;
+    }
+}
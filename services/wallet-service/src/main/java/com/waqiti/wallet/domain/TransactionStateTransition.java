@@ -0,0 +1,18 @@
+package com.waqiti.wallet.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A status change of a transaction, kept in the state log instead of being
+ * written to the transactions row as it happens
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionStateTransition {
+    private final TransactionStatus status;
+    private final String reason;
+    private final LocalDateTime occurredAt;
+}
@@ -0,0 +1,25 @@
+package com.waqiti.wallet.domain;
+
+import java.util.UUID;
+
+/**
+ * Thrown when a transfer was handed over for booking but no outcome arrived
+ * in time. The booking may still commit. The transaction ID is known once the
+ * transaction row has been written, and that row only exists if the booking
+ * commits.
+ */
+public class TransferOutcomeUnknownException extends RuntimeException {
+    private final UUID transactionId;
+
+    public TransferOutcomeUnknownException(String message, UUID transactionId, Throwable cause) {
+        super(message, cause);
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * The ID of the transaction, or null if its row had not been written yet
+     */
+    public UUID getTransactionId() {
+        return transactionId;
+    }
+}
@@ -0,0 +1,88 @@
+package com.waqiti.wallet.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Per-user projection of the transactions table, keyed so that a user's
+ * history is a single range scan on the primary key. Rows are written in the
+ * same database transaction as the transaction they point to.
+ */
+@Entity
+@Table(name = "user_transactions")
+@IdClass(UserTransaction.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class UserTransaction implements Persistable<UserTransaction.Key> {
+
+    public enum Direction {
+        IN,
+        OUT
+    }
+
+    @Id
+    private UUID userId;
+
+    @Id
+    private LocalDateTime createdAt;
+
+    @Id
+    private UUID transactionId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 3)
+    private Direction direction;
+
+    // Rows are only ever inserted, so skip the lookup Spring Data does for assigned ids
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean isNew = true;
+
+    /**
+     * Creates a projection row for one side of a transaction
+     */
+    public static UserTransaction of(UUID userId, Transaction transaction, Direction direction) {
+        UserTransaction userTransaction = new UserTransaction();
+        userTransaction.userId = userId;
+        userTransaction.createdAt = transaction.getCreatedAt();
+        userTransaction.transactionId = transaction.getId();
+        userTransaction.direction = direction;
+        return userTransaction;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(userId, createdAt, transactionId, direction);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID userId;
+        private LocalDateTime createdAt;
+        private UUID transactionId;
+        private Direction direction;
+    }
+}
@@ -37,6 +37,12 @@ public class Wallet {
     @Column(nullable = false, length = 3)
     private String currency;
 
+    // Last balance reported by the external provider, kept for reconciliation only
+    @Column(precision = 19, scale = 4)
+    private BigDecimal externalBalance;
+
+    private LocalDateTime externalBalanceSyncedAt;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private WalletStatus status;
@@ -57,6 +63,15 @@ public class Wallet {
     @Setter
     private String updatedBy;
 
+    // Balance in minor units, re-derived whenever the balance column was replaced
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private Money balanceInMinorUnits;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private BigDecimal balanceInMinorUnitsSource;
+
     /**
      * Creates a new wallet
      */
@@ -80,29 +95,60 @@ public class Wallet {
      */
     public void updateBalance(BigDecimal newBalance) {
         validateWalletActive();
-        this.balance = newBalance;
-        this.updatedAt = LocalDateTime.now();
+        setBalance(Money.of(newBalance, this.currency));
     }
 
     /**
      * Credit the wallet (add funds)
      */
-    public void credit(BigDecimal amount) {
+    public void credit(Money amount) {
         validateWalletActive();
         validatePositiveAmount(amount);
-        this.balance = this.balance.add(amount);
-        this.updatedAt = LocalDateTime.now();
+        moveBalance(balanceInMinorUnits().plus(amount));
     }
 
     /**
      * Debit the wallet (remove funds)
      */
-    public void debit(BigDecimal amount) {
+    public void debit(Money amount) {
         validateWalletActive();
         validatePositiveAmount(amount);
         validateSufficientBalance(amount);
-        this.balance = this.balance.subtract(amount);
-        this.updatedAt = LocalDateTime.now();
+        moveBalance(balanceInMinorUnits().minus(amount));
+    }
+
+    /**
+     * Checks whether the wallet holds at least the given amount
+     */
+    public boolean hasSufficientBalance(Money amount) {
+        return !balanceInMinorUnits().isLessThan(amount);
+    }
+
+    /**
+     * Returns the balance in minor units of the wallet currency
+     */
+    public Money getBalanceInMinorUnits() {
+        return balanceInMinorUnits();
+    }
+
+    /**
+     * Records the balance reported by the external provider. The local balance
+     * stays authoritative; the external figure is only kept for reconciliation.
+     */
+    public void recordExternalBalance(BigDecimal externalBalance) {
+        this.externalBalance = externalBalance;
+        this.externalBalanceSyncedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Returns the difference between the local ledger and the external provider,
+     * or zero if the external balance has never been synced
+     */
+    public BigDecimal getExternalDrift() {
+        if (this.externalBalance == null) {
+            return BigDecimal.ZERO;
+        }
+        return this.balance.subtract(this.externalBalance);
     }
 
     /**
@@ -133,7 +179,7 @@ public class Wallet {
             throw new IllegalStateException("Wallet is already closed");
         }
 
-        if (this.balance.compareTo(BigDecimal.ZERO) > 0) {
+        if (balanceInMinorUnits().isPositive()) {
             throw new IllegalStateException("Cannot close wallet with positive balance");
         }
 
@@ -151,22 +197,57 @@ public class Wallet {
     }
 
     /**
-     * Validates that the amount is positive
+     * Validates that the amount is positive and in the wallet currency
      */
-    private void validatePositiveAmount(BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+    private void validatePositiveAmount(Money amount) {
+        if (amount == null || !amount.isPositive()) {
             throw new IllegalArgumentException("Amount must be positive");
         }
+        if (!this.currency.equals(amount.getCurrency())) {
+            throw new IllegalArgumentException("Amount currency " + amount.getCurrency() +
+                    " does not match wallet currency " + this.currency);
+        }
     }
 
     /**
      * Validates that the wallet has sufficient balance for a debit operation
      */
-    private void validateSufficientBalance(BigDecimal amount) {
-        if (this.balance.compareTo(amount) < 0) {
+    private void validateSufficientBalance(Money amount) {
+        if (!hasSufficientBalance(amount)) {
             throw new InsufficientBalanceException(
-                    String.format("Insufficient balance: required %s %s, available %s %s",
-                            amount, this.currency, this.balance, this.currency));
+                    String.format("Insufficient balance: required %s, available %s",
+                            amount, balanceInMinorUnits()));
+        }
+    }
+
+    private Money balanceInMinorUnits() {
+        if (this.balanceInMinorUnits == null || this.balanceInMinorUnitsSource != this.balance) {
+            this.balanceInMinorUnits = Money.ofStored(this.balance, this.currency);
+            this.balanceInMinorUnitsSource = this.balance;
         }
+        return this.balanceInMinorUnits;
+    }
+
+    /**
+     * Moves the balance to a new amount, keeping any sub-minor remainder a
+     * balance stored before amounts were exact still has
+     */
+    private void moveBalance(Money newBalance) {
+        BigDecimal remainder = this.balance.subtract(balanceInMinorUnits().toBigDecimal());
+        if (remainder.signum() == 0) {
+            setBalance(newBalance);
+            return;
+        }
+        this.balance = newBalance.toBigDecimal().add(remainder);
+        this.balanceInMinorUnits = newBalance;
+        this.balanceInMinorUnitsSource = this.balance;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    private void setBalance(Money newBalance) {
+        this.balance = newBalance.toBigDecimal();
+        this.balanceInMinorUnits = newBalance;
+        this.balanceInMinorUnitsSource = this.balance;
+        this.updatedAt = LocalDateTime.now();
     }
 }
\ No newline at end of file
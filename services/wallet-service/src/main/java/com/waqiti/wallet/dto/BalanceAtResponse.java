@@ -0,0 +1,27 @@
+package com.waqiti.wallet.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Balance of a wallet at a point in time
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceAtResponse {
+    private UUID walletId;
+    private LocalDateTime at;
+    private BigDecimal balance;
+    private String currency;
+    // End-of-day snapshot the balance was computed from, null if none was available
+    private LocalDate snapshotDate;
+}
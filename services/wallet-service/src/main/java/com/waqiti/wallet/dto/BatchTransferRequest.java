@@ -0,0 +1,25 @@
+package com.waqiti.wallet.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request to execute many transfers in grouped database transactions
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequest {
+    @NotEmpty
+    @Size(max = 10000)
+    @Valid
+    private List<TransferRequest> transfers;
+}
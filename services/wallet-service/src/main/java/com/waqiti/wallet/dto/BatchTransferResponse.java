@@ -0,0 +1,36 @@
+package com.waqiti.wallet.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response for batch transfer operations, with one result per requested transfer
+ * in request order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponse {
+    private int requested;
+    private int succeeded;
+    private int failed;
+    private List<Result> results;
+
+    /**
+     * Outcome of a single transfer within the batch
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Result {
+        private int index;
+        private TransactionResponse transaction;
+        private String error;
+    }
+}
@@ -0,0 +1,30 @@
+package com.waqiti.wallet.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * Output formats of a wallet statement export
+ */
+@Getter
+@RequiredArgsConstructor
+public enum StatementFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    /**
+     * Parses a format name, ignoring case
+     */
+    public static StatementFormat from(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported statement format: " + format);
+        }
+    }
+}
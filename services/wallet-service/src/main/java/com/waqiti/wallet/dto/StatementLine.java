@@ -0,0 +1,34 @@
+package com.waqiti.wallet.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One transaction of a wallet statement, seen from the wallet being exported
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementLine {
+    private UUID transactionId;
+    private LocalDateTime createdAt;
+    private String type;
+    private String status;
+    private Direction direction;
+    private UUID counterpartyWalletId;
+    private BigDecimal amount;
+    private String currency;
+    private String externalId;
+    private String description;
+
+    public enum Direction {
+        CREDIT, DEBIT
+    }
+}
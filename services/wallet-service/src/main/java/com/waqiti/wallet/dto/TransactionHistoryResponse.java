@@ -0,0 +1,22 @@
+package com.waqiti.wallet.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a transaction history, newest first. Pass nextCursor back to
+ * fetch the following page; it is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionHistoryResponse {
+    private List<TransactionResponse> transactions;
+    private String nextCursor;
+    private boolean hasMore;
+}
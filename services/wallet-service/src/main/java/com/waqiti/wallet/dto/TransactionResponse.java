@@ -1,8 +1,11 @@
 package com.waqiti.wallet.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import com.waqiti.wallet.domain.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,10 +27,41 @@ public class TransactionResponse {
     private String externalId;
     private UUID sourceWalletId;
     private UUID targetWalletId;
-    private BigDecimal amount;
+    private Money amount;
     private String currency;
     private String type;
     private String status;
     private String description;
     private LocalDateTime createdAt;
+
+    /**
+     * Reads a response back from JSON. The amount is written as a plain
+     * number, so it can only become {@link Money} together with the currency
+     * field, whichever order the two arrive in.
+     */
+    @JsonCreator
+    static TransactionResponse fromJson(
+            @JsonProperty("id") UUID id,
+            @JsonProperty("externalId") String externalId,
+            @JsonProperty("sourceWalletId") UUID sourceWalletId,
+            @JsonProperty("targetWalletId") UUID targetWalletId,
+            @JsonProperty("amount") BigDecimal amount,
+            @JsonProperty("currency") String currency,
+            @JsonProperty("type") String type,
+            @JsonProperty("status") String status,
+            @JsonProperty("description") String description,
+            @JsonProperty("createdAt") LocalDateTime createdAt) {
+        return TransactionResponse.builder()
+                .id(id)
+                .externalId(externalId)
+                .sourceWalletId(sourceWalletId)
+                .targetWalletId(targetWalletId)
+                .amount(amount != null ? Money.of(amount, currency) : null)
+                .currency(currency)
+                .type(type)
+                .status(status)
+                .description(description)
+                .createdAt(createdAt)
+                .build();
+    }
 }
\ No newline at end of file
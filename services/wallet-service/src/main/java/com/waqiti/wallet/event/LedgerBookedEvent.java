@@ -0,0 +1,20 @@
+package com.waqiti.wallet.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published inside the booking transaction once a movement has been applied to
+ * the local ledger. Handled after commit to post to and reconcile with the
+ * external provider.
+ */
+@Getter
+@RequiredArgsConstructor
+public class LedgerBookedEvent {
+    private final List<UUID> transactionIds;
+    private final List<UUID> walletIds;
+    private final boolean externalPostingPending;
+}
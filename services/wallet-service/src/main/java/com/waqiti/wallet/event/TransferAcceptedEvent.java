@@ -0,0 +1,16 @@
+package com.waqiti.wallet.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Published inside the accepting transaction once a transfer has been stored
+ * as PENDING. Handled after commit to book it on the transfer workers.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TransferAcceptedEvent {
+    private final UUID transactionId;
+}
@@ -0,0 +1,38 @@
+package com.waqiti.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * PostgreSQL advisory locks on string keys. Keys are hashed into a namespace
+ * of the two-key lock space, so they never collide with the single-key locks
+ * used elsewhere.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AdvisoryLockRepository {
+    /**
+     * Namespace reserved for scheduled jobs, each locking on its own name so
+     * that only one instance runs it at a time
+     */
+    public static final int JOB_LOCK_NAMESPACE = 0x6a6f62;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes a transaction-scoped advisory lock, waiting until it is granted
+     */
+    public void lock(int namespace, String key) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, hashtext(?))", rs -> null, namespace, key);
+    }
+
+    /**
+     * Takes a transaction-scoped advisory lock without waiting, returning
+     * whether it was granted
+     */
+    public boolean tryLock(int namespace, String key) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?, hashtext(?))", Boolean.class, namespace, key));
+    }
+}
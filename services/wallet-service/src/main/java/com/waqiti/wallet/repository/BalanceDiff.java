@@ -0,0 +1,25 @@
+package com.waqiti.wallet.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A wallet whose local balance does not match its provider. The external
+ * balance is null when the provider could not price the wallet.
+ */
+@Getter
+@RequiredArgsConstructor
+public class BalanceDiff {
+    private final UUID walletId;
+    private final String walletType;
+    private final String currency;
+    private final BigDecimal localBalance;
+    private final BigDecimal externalBalance;
+
+    public BigDecimal getDifference() {
+        return externalBalance == null ? null : externalBalance.subtract(localBalance);
+    }
+}
@@ -0,0 +1,17 @@
+package com.waqiti.wallet.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A wallet's balance at the end of a day
+ */
+@Getter
+@RequiredArgsConstructor
+public class BalanceSnapshot {
+    private final LocalDate asOfDate;
+    private final BigDecimal balance;
+}
@@ -0,0 +1,103 @@
+package com.waqiti.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Plain JDBC access to end-of-day balance snapshots and to the net movement
+ * of a wallet over a time range
+ */
+@Repository
+@RequiredArgsConstructor
+public class BalanceSnapshotRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // Balance at the cutoff = current balance minus everything created since and completed.
+    // Taken only once no transaction created before the cutoff is still open, so every
+    // one of those is already in the balance. Only the transactions after the cutoff are read: the newest partitions, through the created_at index.
+    private static final String SNAPSHOT_SQL =
+            "INSERT INTO wallet_balance_snapshots (wallet_id, as_of_date, balance, created_at) " +
+            "SELECT w.id, ?, w.balance - COALESCE(m.delta, 0), ? " +
+            "FROM wallets w LEFT JOIN (" +
+            "SELECT wallet_id, SUM(delta) AS delta FROM (" +
+            "SELECT target_wallet_id AS wallet_id, amount AS delta FROM transactions " +
+            "WHERE status = 'COMPLETED' AND created_at >= ? AND target_wallet_id IS NOT NULL " +
+            "UNION ALL " +
+            "SELECT source_wallet_id, -amount FROM transactions " +
+            "WHERE status = 'COMPLETED' AND created_at >= ? AND source_wallet_id IS NOT NULL" +
+            ") later GROUP BY wallet_id" +
+            ") m ON m.wallet_id = w.id " +
+            "WHERE w.created_at < ? " +
+            "ON CONFLICT (wallet_id, as_of_date) DO NOTHING";
+
+    // Each sub-select is a range scan on its (wallet, created_at, id) index
+    private static final String NET_MOVEMENT_SQL =
+            "SELECT COALESCE((SELECT SUM(amount) FROM transactions " +
+            "WHERE target_wallet_id = ? AND status = 'COMPLETED' AND created_at >= ? AND created_at < ?), 0) - " +
+            "COALESCE((SELECT SUM(amount) FROM transactions " +
+            "WHERE source_wallet_id = ? AND status = 'COMPLETED' AND created_at >= ? AND created_at < ?), 0)";
+
+    /**
+     * Writes the end-of-day balance of every wallet for the given date in a
+     * single statement, skipping wallets that already have one. Returns the
+     * number of rows written.
+     */
+    public int snapshotBalances(LocalDate asOfDate, LocalDateTime createdAt) {
+        Timestamp cutoff = Timestamp.valueOf(asOfDate.plusDays(1).atStartOfDay());
+        return jdbcTemplate.update(SNAPSHOT_SQL,
+                Date.valueOf(asOfDate), Timestamp.valueOf(createdAt), cutoff, cutoff, cutoff);
+    }
+
+    /**
+     * Tells whether any transaction created before the given time is still
+     * pending or in progress, and may yet move a balance
+     */
+    public boolean hasUnfinishedBefore(LocalDateTime before) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM transactions " +
+                "WHERE status IN ('PENDING', 'IN_PROGRESS') AND created_at < ?)",
+                Boolean.class, Timestamp.valueOf(before)));
+    }
+
+    /**
+     * Returns the most recent date any snapshot was taken for
+     */
+    public Optional<LocalDate> findLatestSnapshotDate() {
+        Date latest = jdbcTemplate.queryForObject(
+                "SELECT MAX(as_of_date) FROM wallet_balance_snapshots", Date.class);
+        return Optional.ofNullable(latest).map(Date::toLocalDate);
+    }
+
+    /**
+     * Finds the latest snapshot of a wallet taken for a day before the given date
+     */
+    public Optional<BalanceSnapshot> findLatestBefore(UUID walletId, LocalDate date) {
+        List<BalanceSnapshot> snapshots = jdbcTemplate.query(
+                "SELECT as_of_date, balance FROM wallet_balance_snapshots " +
+                "WHERE wallet_id = ? AND as_of_date < ? ORDER BY as_of_date DESC LIMIT 1",
+                (rs, rowNum) -> new BalanceSnapshot(rs.getDate("as_of_date").toLocalDate(), rs.getBigDecimal("balance")),
+                walletId, Date.valueOf(date));
+        return snapshots.stream().findFirst();
+    }
+
+    /**
+     * Returns the net amount credited to a wallet by the completed transactions
+     * created in [from, to)
+     */
+    public BigDecimal sumNetMovement(UUID walletId, LocalDateTime from, LocalDateTime to) {
+        Timestamp fromTimestamp = Timestamp.valueOf(from);
+        Timestamp toTimestamp = Timestamp.valueOf(to);
+        return jdbcTemplate.queryForObject(NET_MOVEMENT_SQL, BigDecimal.class,
+                walletId, fromTimestamp, toTimestamp, walletId, fromTimestamp, toTimestamp);
+    }
+}
@@ -0,0 +1,44 @@
+package com.waqiti.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Plain JDBC writes of external provider balances, so that a refresh of many
+ * wallets goes to the database as one batch. The wallet version is not bumped,
+ * so reconciliation never conflicts with concurrent ledger updates.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExternalBalanceRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records the given external balances in a single JDBC batch
+     */
+    public void updateExternalBalances(Map<UUID, BigDecimal> balances, LocalDateTime syncedAt) {
+        if (balances.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, BigDecimal>> entries = new ArrayList<>(balances.entrySet());
+        Timestamp timestamp = Timestamp.valueOf(syncedAt);
+        jdbcTemplate.batchUpdate(
+                "UPDATE wallets SET external_balance = ?, external_balance_synced_at = ? WHERE id = ?",
+                entries,
+                entries.size(),
+                (ps, entry) -> {
+                    ps.setBigDecimal(1, entry.getValue());
+                    ps.setTimestamp(2, timestamp);
+                    ps.setObject(3, entry.getKey());
+                });
+    }
+}
@@ -0,0 +1,75 @@
+package com.waqiti.wallet.repository;
+
+import com.waqiti.wallet.domain.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the outbox table, so that all events of a transaction
+ * are inserted in one batch and relayed rows are deleted in one statement
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, rowNum) -> OutboxEvent.builder()
+            .id(rs.getLong("id"))
+            .topic(rs.getString("topic"))
+            .messageKey(rs.getString("message_key"))
+            .payload(rs.getString("payload"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+
+    /**
+     * Inserts events in a single JDBC batch, keeping their order
+     */
+    public void insertAll(List<OutboxEvent> events) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO outbox_events (topic, message_key, payload, created_at) VALUES (?, ?, ?, ?)",
+                events,
+                events.size(),
+                (ps, event) -> {
+                    ps.setString(1, event.getTopic());
+                    ps.setString(2, event.getMessageKey());
+                    ps.setString(3, event.getPayload());
+                    ps.setTimestamp(4, Timestamp.valueOf(event.getCreatedAt()));
+                });
+    }
+
+    /**
+     * Finds the oldest unpublished events in insertion order
+     */
+    public List<OutboxEvent> findOldest(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, topic, message_key, payload, created_at FROM outbox_events ORDER BY id LIMIT ?",
+                ROW_MAPPER,
+                limit);
+    }
+
+    /**
+     * Deletes published events
+     */
+    public int deleteByIds(Collection<Long> ids) {
+        return jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ANY (?)", ps -> {
+            Array array = ps.getConnection().createArrayOf("bigint", ids.toArray());
+            ps.setArray(1, array);
+        });
+    }
+
+    /**
+     * Takes a transaction-scoped advisory lock without waiting, returning
+     * whether it was granted
+     */
+    public boolean tryAdvisoryLock(long key) {
+        return Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, key));
+    }
+}
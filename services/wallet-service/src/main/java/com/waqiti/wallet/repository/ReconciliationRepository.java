@@ -0,0 +1,142 @@
+package com.waqiti.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Plain JDBC access to reconciliation runs, their shard checkpoints and the
+ * diff report
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReconciliationRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // Takes the first shard that is not done and not leased by a live worker.
+    // Shards being claimed concurrently are skipped, not waited for.
+    private static final String CLAIM_SQL =
+            "UPDATE reconciliation_checkpoints SET leased_until = ?, updated_at = ? " +
+            "WHERE run_id = ? AND shard = (" +
+            "SELECT shard FROM reconciliation_checkpoints " +
+            "WHERE run_id = ? AND NOT done AND (leased_until IS NULL OR leased_until < ?) " +
+            "ORDER BY shard LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING shard, last_wallet_id, upper_wallet_id";
+
+    private static final String DIFF_SQL =
+            "INSERT INTO reconciliation_diffs " +
+            "(run_id, wallet_id, wallet_type, currency, local_balance, external_balance, difference, detected_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (run_id, wallet_id) DO UPDATE SET local_balance = EXCLUDED.local_balance, " +
+            "external_balance = EXCLUDED.external_balance, difference = EXCLUDED.difference, " +
+            "detected_at = EXCLUDED.detected_at";
+
+    /**
+     * Returns the run for a date, creating it and its shards if it does not
+     * exist yet. Safe to call from several instances at once.
+     *
+     * @param lowerBounds exclusive lower wallet id of each shard
+     * @param upperBounds inclusive upper wallet id of each shard
+     */
+    public long findOrCreateRun(LocalDate runDate, List<UUID> lowerBounds, List<UUID> upperBounds,
+                                LocalDateTime now) {
+        jdbcTemplate.update(
+                "INSERT INTO reconciliation_runs (run_date, shards, started_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT (run_date) DO NOTHING",
+                Date.valueOf(runDate), lowerBounds.size(), Timestamp.valueOf(now));
+        Long runId = jdbcTemplate.queryForObject(
+                "SELECT id FROM reconciliation_runs WHERE run_date = ?", Long.class, Date.valueOf(runDate));
+
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Integer> shards = IntStream.range(0, lowerBounds.size()).boxed().collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO reconciliation_checkpoints (run_id, shard, last_wallet_id, upper_wallet_id, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?) ON CONFLICT (run_id, shard) DO NOTHING",
+                shards,
+                shards.size(),
+                (ps, shard) -> {
+                    ps.setLong(1, runId);
+                    ps.setInt(2, shard);
+                    ps.setObject(3, lowerBounds.get(shard));
+                    ps.setObject(4, upperBounds.get(shard));
+                    ps.setTimestamp(5, timestamp);
+                });
+        return runId;
+    }
+
+    /**
+     * Leases the next unfinished shard of a run until the given time
+     */
+    public Optional<ReconciliationShard> claimShard(long runId, LocalDateTime leasedUntil, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<ReconciliationShard> claimed = jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new ReconciliationShard(runId, rs.getInt("shard"),
+                        rs.getObject("last_wallet_id", UUID.class), rs.getObject("upper_wallet_id", UUID.class)),
+                Timestamp.valueOf(leasedUntil), timestamp, runId, runId, timestamp);
+        return claimed.stream().findFirst();
+    }
+
+    /**
+     * Moves a shard's checkpoint past the given wallet and extends its lease
+     */
+    public void saveCheckpoint(long runId, int shard, UUID lastWalletId, boolean done,
+                               LocalDateTime leasedUntil, LocalDateTime now) {
+        jdbcTemplate.update(
+                "UPDATE reconciliation_checkpoints SET last_wallet_id = ?, done = ?, leased_until = ?, updated_at = ? " +
+                "WHERE run_id = ? AND shard = ?",
+                lastWalletId, done, done ? null : Timestamp.valueOf(leasedUntil), Timestamp.valueOf(now),
+                runId, shard);
+    }
+
+    /**
+     * Adds one page of results to the run totals
+     */
+    public void addToTotals(long runId, int walletsChecked, int mismatches) {
+        jdbcTemplate.update(
+                "UPDATE reconciliation_runs SET wallets_checked = wallets_checked + ?, mismatches = mismatches + ? " +
+                "WHERE id = ?",
+                walletsChecked, mismatches, runId);
+    }
+
+    /**
+     * Writes diffs to the report in a single batch. A page that is reconciled
+     * again after a restart overwrites its earlier rows.
+     */
+    public void insertDiffs(long runId, List<BalanceDiff> diffs, LocalDateTime detectedAt) {
+        if (diffs.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(detectedAt);
+        jdbcTemplate.batchUpdate(DIFF_SQL, diffs, diffs.size(), (ps, diff) -> {
+            ps.setLong(1, runId);
+            ps.setObject(2, diff.getWalletId());
+            ps.setString(3, diff.getWalletType());
+            ps.setString(4, diff.getCurrency());
+            ps.setBigDecimal(5, diff.getLocalBalance());
+            ps.setBigDecimal(6, diff.getExternalBalance());
+            ps.setBigDecimal(7, diff.getDifference());
+            ps.setTimestamp(8, timestamp);
+        });
+    }
+
+    /**
+     * Marks a run finished once all of its shards are done. Returns whether
+     * this call finished it.
+     */
+    public boolean finishRunIfDone(long runId, LocalDateTime now) {
+        return jdbcTemplate.update(
+                "UPDATE reconciliation_runs SET finished_at = ? WHERE id = ? AND finished_at IS NULL " +
+                "AND NOT EXISTS (SELECT 1 FROM reconciliation_checkpoints WHERE run_id = ? AND NOT done)",
+                Timestamp.valueOf(now), runId, runId) > 0;
+    }
+}
@@ -0,0 +1,18 @@
+package com.waqiti.wallet.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * A leased range of wallet ids in a reconciliation run, (lastWalletId, upperWalletId]
+ */
+@Getter
+@RequiredArgsConstructor
+public class ReconciliationShard {
+    private final long runId;
+    private final int shard;
+    private final UUID lastWalletId;
+    private final UUID upperWalletId;
+}
@@ -0,0 +1,28 @@
+package com.waqiti.wallet.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * The net movement of one external account in a settlement run. A positive
+ * amount credits the account, a negative one debits it.
+ */
+@Getter
+@RequiredArgsConstructor
+public class SettlementPosting {
+    private final long id;
+    private final long runId;
+    private final String walletType;
+    private final String externalAccountId;
+    private final String currency;
+    private final BigDecimal netAmount;
+
+    /**
+     * The reference sent with the posting; the provider posts it at most once
+     */
+    public String getReference() {
+        return "SETTLEMENT-POSTING-" + id;
+    }
+}
@@ -0,0 +1,116 @@
+package com.waqiti.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settlement runs and their net postings; see V11__create_settlement_tables.sql
+ */
+@Repository
+@RequiredArgsConstructor
+public class SettlementRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // Claims the unposted same-provider transfers of the window, skipping rows
+    // another worker holds, and nets them per external account in one statement.
+    // Accounts whose movements cancel out get no posting.
+    private static final String CLAIM_SQL =
+            "WITH claimed AS (" +
+            "UPDATE transactions t SET external_id = ?, updated_at = ? " +
+            "WHERE (t.id, t.created_at) IN (" +
+            "SELECT c.id, c.created_at FROM transactions c " +
+            "JOIN wallets s ON s.id = c.source_wallet_id " +
+            "JOIN wallets d ON d.id = c.target_wallet_id " +
+            "WHERE c.external_id IS NULL AND c.status = 'COMPLETED' AND c.type = 'TRANSFER' " +
+            "AND c.created_at >= ? AND c.created_at < ? AND s.wallet_type = d.wallet_type " +
+            "FOR UPDATE OF c SKIP LOCKED) " +
+            "RETURNING t.source_wallet_id, t.target_wallet_id, t.amount" +
+            "), counted AS (" +
+            "UPDATE settlement_runs SET transfers = (SELECT COUNT(*) FROM claimed) WHERE id = ?" +
+            "), movements AS (" +
+            "SELECT source_wallet_id AS wallet_id, -amount AS delta FROM claimed " +
+            "UNION ALL " +
+            "SELECT target_wallet_id, amount FROM claimed" +
+            ") " +
+            "INSERT INTO settlement_postings (run_id, wallet_type, external_account_id, currency, net_amount) " +
+            "SELECT ?, w.wallet_type, w.external_id, w.currency, SUM(m.delta) " +
+            "FROM movements m JOIN wallets w ON w.id = m.wallet_id " +
+            "GROUP BY w.wallet_type, w.external_id, w.currency " +
+            "HAVING SUM(m.delta) <> 0";
+
+    /**
+     * Opens a settlement run for the window ending at the given time
+     */
+    public long createRun(LocalDateTime windowEnd, LocalDateTime now) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO settlement_runs (window_end, created_at) VALUES (?, ?) RETURNING id",
+                Long.class, Timestamp.valueOf(windowEnd), Timestamp.valueOf(now));
+    }
+
+    /**
+     * Hands the unposted same-provider transfers created in [from, to) to a
+     * run and writes its net postings. Returns the number of postings.
+     */
+    public int claimTransfers(long runId, LocalDateTime from, LocalDateTime to, LocalDateTime now) {
+        return jdbcTemplate.update(CLAIM_SQL,
+                "SETTLEMENT-" + runId, Timestamp.valueOf(now),
+                Timestamp.valueOf(from), Timestamp.valueOf(to),
+                runId, runId);
+    }
+
+    /**
+     * Returns the number of transfers a run has claimed
+     */
+    public int countTransfers(long runId) {
+        Integer transfers = jdbcTemplate.queryForObject(
+                "SELECT transfers FROM settlement_runs WHERE id = ?", Integer.class, runId);
+        return transfers == null ? 0 : transfers;
+    }
+
+    /**
+     * Claims postings not yet sent, oldest first. Rows locked by another
+     * worker are skipped, not waited for.
+     */
+    public List<SettlementPosting> claimUnposted(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, run_id, wallet_type, external_account_id, currency, net_amount " +
+                "FROM settlement_postings WHERE external_id IS NULL " +
+                "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new SettlementPosting(
+                        rs.getLong("id"),
+                        rs.getLong("run_id"),
+                        rs.getString("wallet_type"),
+                        rs.getString("external_account_id"),
+                        rs.getString("currency"),
+                        rs.getBigDecimal("net_amount")),
+                limit);
+    }
+
+    /**
+     * Records the provider's transaction ID for each posted posting
+     */
+    public void markPosted(Map<Long, String> externalIds, LocalDateTime postedAt) {
+        List<Object[]> rows = new ArrayList<>(externalIds.size());
+        externalIds.forEach((id, externalId) -> rows.add(new Object[]{externalId, Timestamp.valueOf(postedAt), id}));
+        jdbcTemplate.batchUpdate(
+                "UPDATE settlement_postings SET external_id = ?, posted_at = ? WHERE id = ?", rows);
+    }
+
+    /**
+     * Closes the runs whose postings have all been sent. Returns the number of runs closed.
+     */
+    public int closeSettledRuns(LocalDateTime now) {
+        return jdbcTemplate.update(
+                "UPDATE settlement_runs r SET settled_at = ? WHERE r.settled_at IS NULL " +
+                "AND NOT EXISTS (SELECT 1 FROM settlement_postings p " +
+                "WHERE p.run_id = r.id AND p.external_id IS NULL)",
+                Timestamp.valueOf(now));
+    }
+}
@@ -0,0 +1,75 @@
+package com.waqiti.wallet.repository;
+
+import com.waqiti.wallet.dto.StatementLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reads a wallet's transactions through a forward-only JDBC cursor, so an
+ * export of any length holds only one fetch of rows in memory. PostgreSQL
+ * only honours the fetch size inside a transaction; outside one the driver
+ * reads the whole result up front.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatementRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // Each branch is a range scan on its (wallet, created_at, id) index; the
+    // outer sort is a merge of two already ordered inputs
+    private static final String STATEMENT_SQL =
+            "SELECT id, external_id, source_wallet_id, target_wallet_id, amount, currency, type, status, " +
+            "description, created_at FROM (" +
+            "(SELECT * FROM transactions WHERE source_wallet_id = ? AND created_at >= ? AND created_at < ?) " +
+            "UNION ALL " +
+            "(SELECT * FROM transactions WHERE target_wallet_id = ? AND created_at >= ? AND created_at < ?)" +
+            ") t ORDER BY created_at, id";
+
+    /**
+     * Streams the transactions of a wallet created in [from, to), oldest
+     * first, to the given consumer
+     */
+    public void streamWalletTransactions(UUID walletId, LocalDateTime from, LocalDateTime to, int fetchSize,
+                                         Consumer<StatementLine> consumer) {
+        Timestamp fromTimestamp = Timestamp.valueOf(from);
+        Timestamp toTimestamp = Timestamp.valueOf(to);
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            STATEMENT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    ps.setObject(1, walletId);
+                    ps.setTimestamp(2, fromTimestamp);
+                    ps.setTimestamp(3, toTimestamp);
+                    ps.setObject(4, walletId);
+                    ps.setTimestamp(5, fromTimestamp);
+                    ps.setTimestamp(6, toTimestamp);
+                    return ps;
+                },
+                rs -> {
+                    UUID sourceWalletId = rs.getObject("source_wallet_id", UUID.class);
+                    UUID targetWalletId = rs.getObject("target_wallet_id", UUID.class);
+                    boolean debit = walletId.equals(sourceWalletId);
+                    consumer.accept(StatementLine.builder()
+                            .transactionId(rs.getObject("id", UUID.class))
+                            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                            .type(rs.getString("type"))
+                            .status(rs.getString("status"))
+                            .direction(debit ? StatementLine.Direction.DEBIT : StatementLine.Direction.CREDIT)
+                            .counterpartyWalletId(debit ? targetWalletId : sourceWalletId)
+                            .amount(rs.getBigDecimal("amount"))
+                            .currency(rs.getString("currency"))
+                            .externalId(rs.getString("external_id"))
+                            .description(rs.getString("description"))
+                            .build());
+                });
+    }
+}
@@ -0,0 +1,74 @@
+package com.waqiti.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly partitions of the transactions table. A month's partition is named
+ * transactions_pYYYYMM; see V10__partition_transactions_by_month.sql. Rows
+ * written before partitioning stay in transactions_history, which is not one
+ * of them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPartitionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String PARTITION_PREFIX = "transactions_p";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern TABLESPACE_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final String FIND_MONTHS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'transactions'::regclass AND c.relname LIKE 'transactions\\_p%' " +
+            "ORDER BY c.relname";
+
+    /**
+     * Creates the partition of a month unless it already exists
+     */
+    public void ensurePartition(YearMonth month) {
+        jdbcTemplate.query("SELECT ensure_transactions_partition(?)", rs -> null,
+                Date.valueOf(month.atDay(1)));
+    }
+
+    /**
+     * Returns the months that have an attached partition, oldest first
+     */
+    public List<YearMonth> findPartitionMonths() {
+        return jdbcTemplate.queryForList(FIND_MONTHS_SQL, String.class).stream()
+                .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_MONTH))
+                .toList();
+    }
+
+    /**
+     * Detaches the partition of a month and moves it into the
+     * transactions_archive schema, optionally onto a cheaper tablespace. The
+     * idempotency keys and user history rows of the month go with it. Gives
+     * up rather than queue writers behind it if the parent table is busy.
+     */
+    public void archivePartition(YearMonth month, String tablespace) {
+        String partition = PARTITION_PREFIX + month.format(PARTITION_MONTH);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+        jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + partition);
+        jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA transactions_archive");
+        if (tablespace != null && !tablespace.isEmpty()) {
+            if (!TABLESPACE_NAME.matcher(tablespace).matches()) {
+                throw new IllegalArgumentException("Invalid archive tablespace: " + tablespace);
+            }
+            jdbcTemplate.execute("ALTER TABLE transactions_archive." + partition + " SET TABLESPACE " + tablespace);
+        }
+        jdbcTemplate.update("DELETE FROM transaction_references WHERE created_at >= ? AND created_at < ?", from, to);
+        jdbcTemplate.update("DELETE FROM user_transactions WHERE created_at >= ? AND created_at < ?", from, to);
+    }
+}
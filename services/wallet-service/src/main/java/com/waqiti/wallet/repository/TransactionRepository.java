@@ -5,12 +5,15 @@ import com.waqiti.wallet.domain.TransactionStatus;
 import com.waqiti.wallet.domain.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,24 +21,114 @@ import java.util.UUID;
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
 
+    /**
+     * Find a transaction created at or after the given time. The bound limits
+     * the lookup to the newest monthly partitions.
+     */
+    Optional<Transaction> findByIdAndCreatedAtGreaterThanEqual(UUID id, LocalDateTime since);
+
+    /**
+     * Find a transaction by its full key, in a single partition
+     */
+    Optional<Transaction> findByIdAndCreatedAt(UUID id, LocalDateTime createdAt);
+
+    /**
+     * Find several transactions created at or after the given time
+     */
+    List<Transaction> findByIdInAndCreatedAtGreaterThanEqual(Collection<UUID> ids, LocalDateTime since);
+
+    /**
+     * Find a transaction by its full key with pessimistic lock for write operations
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id = :id AND t.createdAt = :createdAt")
+    Optional<Transaction> findByIdAndCreatedAtWithLock(@Param("id") UUID id,
+                                                      @Param("createdAt") LocalDateTime createdAt);
+
     /**
      * Find a transaction by its external ID
      */
     Optional<Transaction> findByExternalId(String externalId);
 
     /**
-     * Find transactions for a user (either as source or target)
+     * Find the transaction holding an idempotency key: pending, in progress
+     * or completed. The key is looked up in transaction_references, whose
+     * created_at takes the lookup to a single partition.
+     */
+    @Query(value = "SELECT t.* FROM transaction_references r " +
+            "JOIN transactions t ON t.id = r.transaction_id AND t.created_at = r.created_at " +
+            "WHERE r.reference_id = :referenceId",
+            nativeQuery = true)
+    Optional<Transaction> findKeyHolder(@Param("referenceId") String referenceId);
+
+    /**
+     * Find the transactions holding several idempotency keys
      */
-    @Query("SELECT t FROM Transaction t WHERE t.sourceWalletId IN " +
-            "(SELECT w.id FROM Wallet w WHERE w.userId = :userId) OR " +
-            "t.targetWalletId IN (SELECT w.id FROM Wallet w WHERE w.userId = :userId)")
-    Page<Transaction> findByUserId(@Param("userId") UUID userId, Pageable pageable);
+    @Query(value = "SELECT t.* FROM transaction_references r " +
+            "JOIN transactions t ON t.id = r.transaction_id AND t.created_at = r.created_at " +
+            "WHERE r.reference_id IN (:referenceIds)",
+            nativeQuery = true)
+    List<Transaction> findKeyHolders(@Param("referenceIds") Collection<String> referenceIds);
 
     /**
-     * Find transactions for a specific wallet
+     * Find the newest transactions of a user through the user_transactions
+     * projection, a single range scan on its primary key. Joining on
+     * created_at as well lets each lookup go to a single partition.
      */
-    @Query("SELECT t FROM Transaction t WHERE t.sourceWalletId = :walletId OR t.targetWalletId = :walletId")
-    Page<Transaction> findByWalletId(@Param("walletId") UUID walletId, Pageable pageable);
+    @Query(value = "SELECT t.* FROM user_transactions ut " +
+            "JOIN transactions t ON t.id = ut.transaction_id AND t.created_at = ut.created_at " +
+            "WHERE ut.user_id = :userId " +
+            "ORDER BY ut.created_at DESC, ut.transaction_id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Transaction> findLatestByUserId(@Param("userId") UUID userId, @Param("limit") int limit);
+
+    /**
+     * Find the transactions of a user that come after a keyset cursor, newest first
+     */
+    @Query(value = "SELECT t.* FROM user_transactions ut " +
+            "JOIN transactions t ON t.id = ut.transaction_id AND t.created_at = ut.created_at " +
+            "WHERE ut.user_id = :userId " +
+            "AND (ut.created_at, ut.transaction_id) < (:createdAt, :id) " +
+            "ORDER BY ut.created_at DESC, ut.transaction_id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Transaction> findByUserIdBefore(@Param("userId") UUID userId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") UUID id,
+                                         @Param("limit") int limit);
+
+    /**
+     * Find the newest transactions of a wallet. Each branch of the UNION ALL is
+     * a range scan on its (wallet, created_at, id) index, so no OR is needed.
+     */
+    @Query(value = "SELECT * FROM (" +
+            "(SELECT * FROM transactions WHERE source_wallet_id = :walletId " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT * FROM transactions WHERE target_wallet_id = :walletId " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit)" +
+            ") t ORDER BY created_at DESC, id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Transaction> findLatestByWalletId(@Param("walletId") UUID walletId, @Param("limit") int limit);
+
+    /**
+     * Find the transactions of a wallet that come after a keyset cursor, newest
+     * first. The plain created_at bound prunes the partitions newer than the
+     * cursor, which the row comparison alone does not.
+     */
+    @Query(value = "SELECT * FROM (" +
+            "(SELECT * FROM transactions WHERE source_wallet_id = :walletId " +
+            "AND created_at <= :createdAt AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT * FROM transactions WHERE target_wallet_id = :walletId " +
+            "AND created_at <= :createdAt AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit)" +
+            ") t ORDER BY created_at DESC, id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Transaction> findByWalletIdBefore(@Param("walletId") UUID walletId,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") UUID id,
+                                           @Param("limit") int limit);
 
     /**
      * Find transactions by status
@@ -56,4 +149,65 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
      * Find pending transactions older than a specific time
      */
     List<Transaction> findByStatusAndCreatedAtBefore(TransactionStatus status, LocalDateTime beforeTime);
+
+    /**
+     * Claim transfers booked locally before the given time but never posted
+     * externally. Transfers between wallets of the same provider are only
+     * claimed once created before sameProviderBefore; younger ones are left
+     * to net settlement. Rows locked by another worker are skipped, not
+     * waited for.
+     */
+    @Query(value = "SELECT * FROM transactions t " +
+            "WHERE t.external_id IS NULL AND t.status = 'COMPLETED' AND t.type = 'TRANSFER' " +
+            "AND t.created_at < :before " +
+            "AND (t.created_at < :sameProviderBefore OR NOT EXISTS (" +
+            "SELECT 1 FROM wallets s JOIN wallets d ON d.id = t.target_wallet_id " +
+            "WHERE s.id = t.source_wallet_id AND s.wallet_type = d.wallet_type)) " +
+            "ORDER BY t.created_at LIMIT :limit FOR UPDATE OF t SKIP LOCKED",
+            nativeQuery = true)
+    List<Transaction> claimUnposted(@Param("before") LocalDateTime before,
+                                    @Param("sameProviderBefore") LocalDateTime sameProviderBefore,
+                                    @Param("limit") int limit);
+
+    /**
+     * Claim transactions left PENDING or IN_PROGRESS since before the given
+     * time. Rows locked by another worker are skipped, not waited for.
+     */
+    @Query(value = "SELECT * FROM transactions " +
+            "WHERE status IN ('PENDING', 'IN_PROGRESS') AND created_at < :before " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Transaction> claimAbandoned(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * Claim the oldest transfers accepted as PENDING since the given time, for
+     * the transfer workers. Older ones belong to the recovery worker. Rows
+     * locked by another worker are skipped, not waited for.
+     */
+    @Query(value = "SELECT * FROM transactions " +
+            "WHERE status = 'PENDING' AND type = 'TRANSFER' AND created_at >= :since " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Transaction> claimPendingTransfers(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
+    /**
+     * Count the transfers {@link #claimUnposted} would claim
+     */
+    @Query(value = "SELECT COUNT(*) FROM transactions t " +
+            "WHERE t.external_id IS NULL AND t.status = 'COMPLETED' AND t.type = 'TRANSFER' " +
+            "AND t.created_at < :before " +
+            "AND (t.created_at < :sameProviderBefore OR NOT EXISTS (" +
+            "SELECT 1 FROM wallets s JOIN wallets d ON d.id = t.target_wallet_id " +
+            "WHERE s.id = t.source_wallet_id AND s.wallet_type = d.wallet_type))",
+            nativeQuery = true)
+    long countUnposted(@Param("before") LocalDateTime before,
+                       @Param("sameProviderBefore") LocalDateTime sameProviderBefore);
+
+    /**
+     * Count transactions left PENDING or IN_PROGRESS since before the given time
+     */
+    @Query(value = "SELECT COUNT(*) FROM transactions " +
+            "WHERE status IN ('PENDING', 'IN_PROGRESS') AND created_at < :before",
+            nativeQuery = true)
+    long countAbandoned(@Param("before") LocalDateTime before);
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.waqiti.wallet.repository;
+
+import com.waqiti.wallet.domain.TransactionStateLogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TransactionStateLogRepository extends JpaRepository<TransactionStateLogEntry, Long> {
+
+    /**
+     * Find the status history of a transaction, oldest first
+     */
+    List<TransactionStateLogEntry> findByTransactionIdOrderByIdAsc(UUID transactionId);
+}
@@ -0,0 +1,9 @@
+package com.waqiti.wallet.repository;
+
+import com.waqiti.wallet.domain.UserTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserTransactionRepository extends JpaRepository<UserTransaction, UserTransaction.Key> {
+}
@@ -0,0 +1,16 @@
+package com.waqiti.wallet.repository;
+
+import com.waqiti.wallet.domain.WalletStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Current ledger state of a wallet, read straight from the database
+ */
+public interface WalletLedgerView {
+    BigDecimal getBalance();
+
+    WalletStatus getStatus();
+
+    Long getVersion();
+}
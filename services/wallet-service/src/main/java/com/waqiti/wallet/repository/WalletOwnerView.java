@@ -0,0 +1,12 @@
+package com.waqiti.wallet.repository;
+
+import java.util.UUID;
+
+/**
+ * Owner of a wallet, read without loading the wallet entity
+ */
+public interface WalletOwnerView {
+    UUID getId();
+
+    UUID getUserId();
+}
@@ -4,11 +4,15 @@ import com.waqiti.wallet.domain.Wallet;
 import com.waqiti.wallet.domain.WalletStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -42,4 +46,83 @@ public interface WalletRepository extends JpaRepository<Wallet, UUID> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT w FROM Wallet w WHERE w.id = :id")
     Optional<Wallet> findByIdWithLock(@Param("id") UUID id);
-}
\ No newline at end of file
+
+    /**
+     * Find several wallets with pessimistic locks taken in ascending ID order, so
+     * concurrent callers locking overlapping sets can never deadlock
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id IN :ids ORDER BY w.id")
+    List<Wallet> findAllByIdInWithLock(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Debits an active wallet in a single statement if it holds enough funds.
+     * Returns the number of rows updated: 0 means the debit was rejected.
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance - :amount, w.version = w.version + 1, " +
+            "w.updatedAt = :updatedAt, w.updatedBy = :updatedBy " +
+            "WHERE w.id = :id AND w.balance >= :amount " +
+            "AND w.status = com.waqiti.wallet.domain.WalletStatus.ACTIVE")
+    int debitIfSufficient(@Param("id") UUID id,
+                          @Param("amount") BigDecimal amount,
+                          @Param("updatedAt") LocalDateTime updatedAt,
+                          @Param("updatedBy") String updatedBy);
+
+    /**
+     * Credits an active wallet in a single statement.
+     * Returns the number of rows updated: 0 means the credit was rejected.
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount, w.version = w.version + 1, " +
+            "w.updatedAt = :updatedAt, w.updatedBy = :updatedBy " +
+            "WHERE w.id = :id AND w.status = com.waqiti.wallet.domain.WalletStatus.ACTIVE")
+    int creditIfActive(@Param("id") UUID id,
+                       @Param("amount") BigDecimal amount,
+                       @Param("updatedAt") LocalDateTime updatedAt,
+                       @Param("updatedBy") String updatedBy);
+
+    /**
+     * Credits a wallet back in a single statement whatever its status, for
+     * funds this service debited itself and never paid out.
+     * Returns the number of rows updated: 0 means the wallet does not exist.
+     */
+    @Modifying
+    @Query("UPDATE Wallet w SET w.balance = w.balance + :amount, w.version = w.version + 1, " +
+            "w.updatedAt = :updatedAt, w.updatedBy = :updatedBy " +
+            "WHERE w.id = :id")
+    int refund(@Param("id") UUID id,
+               @Param("amount") BigDecimal amount,
+               @Param("updatedAt") LocalDateTime updatedAt,
+               @Param("updatedBy") String updatedBy);
+
+    /**
+     * Reads the current ledger state of a wallet, bypassing any managed entity
+     */
+    @Query("SELECT w.balance AS balance, w.status AS status, w.version AS version " +
+            "FROM Wallet w WHERE w.id = :id")
+    Optional<WalletLedgerView> findLedgerViewById(@Param("id") UUID id);
+
+    /**
+     * Reads the current state of several wallets, bypassing any managed
+     * entity. Pending entity changes are flushed before the query runs.
+     */
+    @Query("SELECT w.id AS id, w.userId AS userId, w.balance AS balance, w.currency AS currency, " +
+            "w.status AS status, w.version AS version, w.updatedAt AS updatedAt " +
+            "FROM Wallet w WHERE w.id IN :ids")
+    List<WalletStateView> findStatesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Find the owners of the given wallets
+     */
+    @Query("SELECT w.id AS id, w.userId AS userId FROM Wallet w WHERE w.id IN :ids")
+    List<WalletOwnerView> findOwnersByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Find the next page of wallets in the id range (after, upper], in id
+     * order. A keyset scan on the primary key, used to stream all wallets.
+     */
+    @Query(value = "SELECT * FROM wallets WHERE id > :after AND id <= :upper ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<Wallet> findPageInRange(@Param("after") UUID after, @Param("upper") UUID upper, @Param("limit") int limit);
+}
@@ -0,0 +1,27 @@
+package com.waqiti.wallet.repository;
+
+import com.waqiti.wallet.domain.WalletStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * State of a wallet as published on the wallet-state feed, read straight
+ * from the database
+ */
+public interface WalletStateView {
+    UUID getId();
+
+    UUID getUserId();
+
+    BigDecimal getBalance();
+
+    String getCurrency();
+
+    WalletStatus getStatus();
+
+    Long getVersion();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,97 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.dto.TransactionResponse;
+import com.waqiti.wallet.event.TransferAcceptedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Books transfers accepted for asynchronous processing. Each acceptance wakes
+ * a worker after commit; a worker claims pending transfers one at a time with
+ * FOR UPDATE SKIP LOCKED until none is left, so workers on every instance
+ * share the queue. A periodic poll covers wake-ups that were dropped or lost
+ * with a restarted instance.
+ *
+ * Transfers still pending after recovery.stale-after are no longer claimed
+ * here; the recovery worker fails them.
+ */
+@Component
+@Slf4j
+public class AsyncTransferWorker {
+    private final WalletService walletService;
+    private final TransferStatusStream transferStatusStream;
+    private final MeterRegistry meterRegistry;
+    private final Executor transferExecutor;
+
+    @Value("${wallet.recovery.stale-after:5m}")
+    private Duration staleAfter;
+
+    public AsyncTransferWorker(
+            WalletService walletService,
+            TransferStatusStream transferStatusStream,
+            MeterRegistry meterRegistry,
+            @Qualifier("transferExecutor") Executor transferExecutor) {
+        this.walletService = walletService;
+        this.transferStatusStream = transferStatusStream;
+        this.meterRegistry = meterRegistry;
+        this.transferExecutor = transferExecutor;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTransferAccepted(TransferAcceptedEvent event) {
+        try {
+            transferExecutor.execute(this::drain);
+        } catch (TaskRejectedException | RejectedExecutionException e) {
+            // Every worker is busy draining and will reach this transfer too
+            log.debug("Transfer workers saturated; transfer {} waits for a running worker",
+                    event.getTransactionId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.async-transfer.poll-interval:1000}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * Books pending transfers until none can be claimed. Returns the number
+     * booked, failed or handed to a hot wallet. A transfer whose booking throws
+     * is failed on its own, so one bad row cannot hold up the rest of the queue.
+     */
+    int drain() {
+        int processed = 0;
+        try {
+            Optional<TransactionResponse> done;
+            while ((done = walletService.completePendingTransfer(LocalDateTime.now().minus(staleAfter))).isPresent()) {
+                record(done.get());
+                transferStatusStream.publish(done.get());
+                processed++;
+            }
+        } catch (RuntimeException e) {
+            // Nothing could be claimed or failed, so the database is unavailable; the next wake-up retries
+            log.error("Booking an accepted transfer failed", e);
+            meterRegistry.counter("wallet.transfer.async", "outcome", "error").increment();
+        }
+        return processed;
+    }
+
+    private void record(TransactionResponse transaction) {
+        meterRegistry.counter("wallet.transfer.async", "outcome", transaction.getStatus().toLowerCase())
+                .increment();
+        meterRegistry.timer("wallet.transfer.async.latency")
+                .record(Duration.between(transaction.getCreatedAt(), LocalDateTime.now()));
+    }
+}
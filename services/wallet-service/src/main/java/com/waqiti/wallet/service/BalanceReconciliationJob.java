@@ -0,0 +1,237 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.repository.BalanceDiff;
+import com.waqiti.wallet.repository.ExternalBalanceRepository;
+import com.waqiti.wallet.repository.ReconciliationRepository;
+import com.waqiti.wallet.repository.ReconciliationShard;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly reconciliation of local wallet balances against the external
+ * providers. The wallet id space is split into shards; workers on every
+ * instance lease shards, stream their wallets in id order one page at a time
+ * and price each page with bulk balance calls, at most a configured number
+ * at once per provider. Each page commits its diffs together with the shard
+ * checkpoint, so a run interrupted at any point resumes from the last page.
+ *
+ * The report lists candidates: a transfer booked locally but not yet posted
+ * shows up as a difference until its posting lands.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.reconciliation.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class BalanceReconciliationJob {
+    private final WalletRepository walletRepository;
+    private final ReconciliationRepository reconciliationRepository;
+    private final ExternalBalanceRepository externalBalanceRepository;
+    private final IntegrationService integrationService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    private final Executor reconciliationExecutor;
+
+    private static final UUID FIRST_WALLET_ID = new UUID(0L, 0L);
+
+    // Bulk balance calls in flight per provider, across all workers of this instance
+    private final Map<String, Semaphore> providerPermits = new ConcurrentHashMap<>();
+
+    @Value("${wallet.reconciliation.shards:64}")
+    private int shards;
+
+    @Value("${wallet.reconciliation.workers:8}")
+    private int workers;
+
+    @Value("${wallet.reconciliation.page-size:1000}")
+    private int pageSize;
+
+    @Value("${wallet.reconciliation.concurrency-per-provider:4}")
+    private int concurrencyPerProvider;
+
+    @Value("${wallet.reconciliation.lease:10m}")
+    private Duration lease;
+
+    public BalanceReconciliationJob(
+            WalletRepository walletRepository,
+            ReconciliationRepository reconciliationRepository,
+            ExternalBalanceRepository externalBalanceRepository,
+            IntegrationService integrationService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Qualifier("reconciliationExecutor") Executor reconciliationExecutor) {
+        this.walletRepository = walletRepository;
+        this.reconciliationRepository = reconciliationRepository;
+        this.externalBalanceRepository = externalBalanceRepository;
+        this.integrationService = integrationService;
+        this.transactionManager = transactionManager;
+        this.meterRegistry = meterRegistry;
+        this.reconciliationExecutor = reconciliationExecutor;
+    }
+
+    /**
+     * Works on tonight's run. Triggered repeatedly during the nightly window;
+     * once every shard is done the trigger finds nothing left to lease.
+     */
+    @Scheduled(cron = "${wallet.reconciliation.cron:0 */15 1-5 * * *}")
+    public void reconcile() {
+        run(LocalDate.now());
+    }
+
+    void run(LocalDate runDate) {
+        List<UUID> upperBounds = shardUpperBounds(shards);
+        List<UUID> lowerBounds = new ArrayList<>(shards);
+        lowerBounds.add(FIRST_WALLET_ID);
+        lowerBounds.addAll(upperBounds.subList(0, shards - 1));
+
+        Long runId = new TransactionTemplate(transactionManager).execute(status ->
+                reconciliationRepository.findOrCreateRun(runDate, lowerBounds, upperBounds, LocalDateTime.now()));
+
+        List<CompletableFuture<Void>> runs = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            runs.add(CompletableFuture.runAsync(() -> work(runId), reconciliationExecutor));
+        }
+        CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])).join();
+
+        if (reconciliationRepository.finishRunIfDone(runId, LocalDateTime.now())) {
+            log.info("Reconciliation run {} for {} finished", runId, runDate);
+        }
+    }
+
+    /**
+     * Leases and reconciles shards until none is left. A shard that fails
+     * keeps its checkpoint and is picked up again once its lease expires,
+     * while this worker goes on with the other shards.
+     */
+    void work(long runId) {
+        Set<Integer> failed = new HashSet<>();
+        Optional<ReconciliationShard> shard;
+        while ((shard = reconciliationRepository.claimShard(
+                runId, LocalDateTime.now().plus(lease), LocalDateTime.now())).isPresent()) {
+            if (failed.contains(shard.get().getShard())) {
+                // Its lease ran out while the other shards were reconciled; leave it to a later pass
+                return;
+            }
+            try {
+                reconcileShard(shard.get());
+            } catch (RuntimeException e) {
+                log.error("Reconciliation of shard {} in run {} failed", shard.get().getShard(), runId, e);
+                meterRegistry.counter("wallet.reconciliation.failures").increment();
+                failed.add(shard.get().getShard());
+            }
+        }
+    }
+
+    /**
+     * Reconciles a shard page by page from its checkpoint
+     */
+    void reconcileShard(ReconciliationShard shard) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        UUID after = shard.getLastWalletId();
+        boolean done;
+        do {
+            List<Wallet> page = walletRepository.findPageInRange(after, shard.getUpperWalletId(), pageSize);
+            Map<UUID, BigDecimal> externalBalances = fetchExternalBalances(page);
+            List<BalanceDiff> diffs = compare(page, externalBalances);
+
+            UUID lastWalletId = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+            done = page.size() < pageSize;
+            boolean shardDone = done;
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                reconciliationRepository.insertDiffs(shard.getRunId(), diffs, now);
+                externalBalanceRepository.updateExternalBalances(externalBalances, now);
+                reconciliationRepository.addToTotals(shard.getRunId(), page.size(), diffs.size());
+                reconciliationRepository.saveCheckpoint(shard.getRunId(), shard.getShard(), lastWalletId,
+                        shardDone, now.plus(lease), now);
+            });
+            after = lastWalletId;
+        } while (!done);
+        sample.stop(meterRegistry.timer("wallet.reconciliation.shard.time"));
+    }
+
+    /**
+     * Prices a page with one bulk call per provider, waiting for a free slot
+     * of that provider. A provider that cannot be reached throws; one that
+     * answers without a balance leaves those wallets unpriced.
+     */
+    private Map<UUID, BigDecimal> fetchExternalBalances(List<Wallet> page) {
+        Map<String, List<Wallet>> byProvider = page.stream().collect(Collectors.groupingBy(Wallet::getWalletType));
+        Map<UUID, BigDecimal> balances = new HashMap<>(page.size());
+        for (Map.Entry<String, List<Wallet>> provider : byProvider.entrySet()) {
+            Semaphore permits = providerPermits.computeIfAbsent(
+                    provider.getKey(), walletType -> new Semaphore(concurrencyPerProvider));
+            permits.acquireUninterruptibly();
+            try {
+                balances.putAll(integrationService.getWalletBalances(provider.getValue()));
+            } finally {
+                permits.release();
+            }
+        }
+        return balances;
+    }
+
+    private List<BalanceDiff> compare(List<Wallet> page, Map<UUID, BigDecimal> externalBalances) {
+        List<BalanceDiff> diffs = new ArrayList<>();
+        for (Wallet wallet : page) {
+            BigDecimal externalBalance = externalBalances.get(wallet.getId());
+            meterRegistry.counter("wallet.reconciliation.wallets", "walletType", wallet.getWalletType()).increment();
+            if (externalBalance == null) {
+                meterRegistry.counter("wallet.reconciliation.unpriced", "walletType", wallet.getWalletType())
+                        .increment();
+            } else if (externalBalance.compareTo(wallet.getBalance()) == 0) {
+                continue;
+            } else {
+                meterRegistry.counter("wallet.reconciliation.mismatches", "walletType", wallet.getWalletType())
+                        .increment();
+            }
+            diffs.add(new BalanceDiff(wallet.getId(), wallet.getWalletType(), wallet.getCurrency(),
+                    wallet.getBalance(), externalBalance));
+        }
+        return diffs;
+    }
+
+    /**
+     * Splits the UUID space into equal ranges and returns the inclusive upper
+     * bound of each. PostgreSQL orders UUIDs as unsigned 128-bit numbers.
+     */
+    static List<UUID> shardUpperBounds(int shards) {
+        BigInteger space = BigInteger.ONE.shiftLeft(128);
+        List<UUID> bounds = new ArrayList<>(shards);
+        for (int shard = 1; shard <= shards; shard++) {
+            BigInteger upper = space.multiply(BigInteger.valueOf(shard))
+                    .divide(BigInteger.valueOf(shards))
+                    .subtract(BigInteger.ONE);
+            bounds.add(new UUID(upper.shiftRight(64).longValue(), upper.longValue()));
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,135 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.domain.WalletNotFoundException;
+import com.waqiti.wallet.dto.BalanceAtResponse;
+import com.waqiti.wallet.repository.AdvisoryLockRepository;
+import com.waqiti.wallet.repository.BalanceSnapshot;
+import com.waqiti.wallet.repository.BalanceSnapshotRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Takes nightly end-of-day balance snapshots and answers point-in-time
+ * balance queries from them. A historical balance is the nearest earlier
+ * snapshot plus the movements after it, so a query reads at most one day of
+ * a wallet's transactions plus the current day.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceSnapshotService {
+    private final WalletRepository walletRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AdvisoryLockRepository advisoryLockRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${wallet.balance-snapshot.catch-up-days:7}")
+    private int catchUpDays;
+
+    /**
+     * Snapshots yesterday's closing balances, and those of any earlier days
+     * missed within the catch-up window. Runs shortly after midnight so
+     * transfers created just before it have committed. A day is deferred to the
+     * next run while transactions created before its end are still open, since
+     * a snapshot cannot account for them once they complete. Only one instance
+     * runs it; the others find the lock taken and skip.
+     */
+    @Scheduled(cron = "${wallet.balance-snapshot.cron:0 15 0 * * *}")
+    public void takeSnapshots() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate first = yesterday.minusDays(catchUpDays - 1L);
+        Optional<LocalDate> latest = balanceSnapshotRepository.findLatestSnapshotDate();
+        if (latest.isPresent() && latest.get().isAfter(first)) {
+            first = latest.get().plusDays(1);
+        }
+
+        for (LocalDate date = first; !date.isAfter(yesterday); date = date.plusDays(1)) {
+            try {
+                if (!takeSnapshot(date)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // Missing days are picked up by the next run within the catch-up window
+                log.error("Balance snapshot for {} failed", date, e);
+                meterRegistry.counter("wallet.balance.snapshot.failures").increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the closing balance of every wallet for one day in a single
+     * statement. Returns false when the day cannot be snapshotted yet.
+     */
+    boolean takeSnapshot(LocalDate asOfDate) {
+        LocalDateTime cutoff = asOfDate.plusDays(1).atStartOfDay();
+        if (balanceSnapshotRepository.hasUnfinishedBefore(cutoff)) {
+            // Recovery or the transfer workers settle them within minutes; later days wait as well
+            log.warn("Balance snapshot for {} deferred: transactions created before {} are still open", asOfDate, cutoff);
+            meterRegistry.counter("wallet.balance.snapshot.deferred").increment();
+            return false;
+        }
+        Integer written = new TransactionTemplate(transactionManager).execute(status -> {
+            if (!advisoryLockRepository.tryLock(AdvisoryLockRepository.JOB_LOCK_NAMESPACE, "balance-snapshot")) {
+                return null;
+            }
+            return balanceSnapshotRepository.snapshotBalances(asOfDate, LocalDateTime.now());
+        });
+        if (written == null) {
+            log.info("Balance snapshot for {} is being taken by another instance", asOfDate);
+            return false;
+        }
+        log.info("Wrote {} balance snapshots for {}", written, asOfDate);
+        meterRegistry.counter("wallet.balance.snapshot.rows").increment(written);
+        return true;
+    }
+
+    /**
+     * Returns the balance a wallet had at the given time: the closing balance
+     * of the last day before it plus the movements completed since
+     */
+    @Transactional(readOnly = true)
+    public BalanceAtResponse getBalanceAt(UUID walletId, LocalDateTime at) {
+        if (at.isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Balance time cannot be in the future: " + at);
+        }
+        Wallet wallet = walletRepository.findById(walletId)
+                .orElseThrow(() -> new WalletNotFoundException("Wallet not found: " + walletId));
+
+        BalanceAtResponse.BalanceAtResponseBuilder response = BalanceAtResponse.builder()
+                .walletId(walletId)
+                .at(at)
+                .currency(wallet.getCurrency());
+        if (!at.isAfter(wallet.getCreatedAt())) {
+            return response.balance(BigDecimal.ZERO).build();
+        }
+
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository.findLatestBefore(walletId, at.toLocalDate());
+        LocalDateTime from = snapshot
+                .map(s -> s.getAsOfDate().plusDays(1).atStartOfDay())
+                .orElse(wallet.getCreatedAt());
+        BigDecimal opening = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+
+        meterRegistry.counter("wallet.balance.at", "snapshot", snapshot.isPresent() ? "hit" : "miss").increment();
+        return response
+                .balance(opening.add(balanceSnapshotRepository.sumNetMovement(walletId, from, at)))
+                .snapshotDate(snapshot.map(BalanceSnapshot::getAsOfDate).orElse(null))
+                .build();
+    }
+}
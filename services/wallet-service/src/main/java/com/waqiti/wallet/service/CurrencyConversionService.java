@@ -1,17 +1,34 @@
 package com.waqiti.wallet.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Converts between currencies using a preloaded rate matrix. The full rate
+ * table for the base currency is fetched on a schedule, every cross rate is
+ * derived up front, and the new matrix replaces the old one with a single
+ * reference swap. Lookups on the request path never call the rate provider
+ * and never block; they fail once the matrix is older than the configured
+ * maximum age.
+ */
 @Service
 @Slf4j
 public class CurrencyConversionService {
@@ -19,47 +36,96 @@ public class CurrencyConversionService {
     private final RestTemplate restTemplate;
     private final String exchangeRateApiUrl;
     private final String apiKey;
+    private final String baseCurrency;
+    private final List<String> currencies;
+    private final Duration maxAge;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReference<ExchangeRateMatrix> matrix = new AtomicReference<>();
 
     public CurrencyConversionService(
-            RestTemplate restTemplate,
+            @Qualifier("exchangeRateRestTemplate") RestTemplate restTemplate,
+            MeterRegistry meterRegistry,
             @Value("${exchange-rate.api.url}") String exchangeRateApiUrl,
-            @Value("${exchange-rate.api.key}") String apiKey) {
+            @Value("${exchange-rate.api.key}") String apiKey,
+            @Value("${exchange-rate.base-currency:USD}") String baseCurrency,
+            @Value("${exchange-rate.currencies:USD,EUR,GBP}") List<String> currencies,
+            @Value("${exchange-rate.max-age:15m}") Duration maxAge) {
         this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry;
         this.exchangeRateApiUrl = exchangeRateApiUrl;
         this.apiKey = apiKey;
+        this.baseCurrency = baseCurrency;
+        this.currencies = List.copyOf(currencies);
+        this.maxAge = maxAge;
+
+        TimeGauge.builder("exchange.rates.snapshot.age", matrix, TimeUnit.MILLISECONDS, this::snapshotAgeMillis)
+                .description("Time since the current exchange rate matrix was fetched")
+                .register(meterRegistry);
     }
 
     /**
-     * Get exchange rate from source to target currency
+     * Loads the first matrix at startup. A failure is retried by the scheduled
+     * refresh.
      */
-    @Cacheable(value = "exchangeRates", key = "#sourceCurrency + '-' + #targetCurrency")
-    public BigDecimal getExchangeRate(String sourceCurrency, String targetCurrency) {
-        log.info("Fetching exchange rate from {} to {}", sourceCurrency, targetCurrency);
-
-        if (sourceCurrency.equals(targetCurrency)) {
-            return BigDecimal.ONE;
-        }
+    @PostConstruct
+    void loadRates() {
+        refreshRates();
+    }
 
+    /**
+     * Fetches the rate table for the base currency and publishes a new matrix.
+     * On failure the previous matrix stays in place until it exceeds the
+     * maximum age.
+     */
+    @Scheduled(fixedDelayString = "${exchange-rate.refresh-interval:60000}",
+            initialDelayString = "${exchange-rate.refresh-interval:60000}")
+    public void refreshRates() {
         try {
             String url = String.format("%s?base=%s&symbols=%s&access_key=%s",
-                    exchangeRateApiUrl, sourceCurrency, targetCurrency, apiKey);
+                    exchangeRateApiUrl, baseCurrency, String.join(",", currencies), apiKey);
 
             ResponseEntity<ExchangeRateResponse> response =
                     restTemplate.getForEntity(url, ExchangeRateResponse.class);
 
-            if (response.getBody() != null && response.getBody().isSuccess()) {
-                BigDecimal rate = response.getBody().getRates().get(targetCurrency);
-                if (rate != null) {
-                    return rate;
-                }
+            if (response.getBody() == null || !response.getBody().isSuccess()) {
+                throw new CurrencyConversionException("Failed to retrieve exchange rates: " + response.getBody());
             }
 
-            log.error("Could not fetch exchange rate: {}", response.getBody());
-            throw new CurrencyConversionException("Failed to retrieve exchange rate");
+            ExchangeRateMatrix next = ExchangeRateMatrix.fromBaseRates(
+                    baseCurrency, response.getBody().getRates(), currencies, Instant.now());
+            matrix.set(next);
+
+            meterRegistry.counter("exchange.rates.refresh", "outcome", "success").increment();
+            log.info("Loaded exchange rate matrix for {} currencies against {}", next.size(), baseCurrency);
         } catch (Exception e) {
-            log.error("Exchange rate API error", e);
-            throw new CurrencyConversionException("Error fetching exchange rate: " + e.getMessage(), e);
+            meterRegistry.counter("exchange.rates.refresh", "outcome", "failure").increment();
+            log.error("Exchange rate refresh failed", e);
+        }
+    }
+
+    /**
+     * Get exchange rate from source to target currency
+     */
+    public BigDecimal getExchangeRate(String sourceCurrency, String targetCurrency) {
+        if (sourceCurrency.equals(targetCurrency)) {
+            return BigDecimal.ONE;
         }
+
+        ExchangeRateMatrix current = matrix.get();
+        if (current == null) {
+            throw new CurrencyConversionException("Exchange rates are not available yet");
+        }
+        if (current.getFetchedAt().plus(maxAge).isBefore(Instant.now())) {
+            throw new CurrencyConversionException("Exchange rates are stale, last fetched at " +
+                    current.getFetchedAt());
+        }
+
+        BigDecimal rate = current.rate(sourceCurrency, targetCurrency);
+        if (rate == null) {
+            throw new CurrencyConversionException(
+                    "Unsupported currency pair: " + sourceCurrency + " to " + targetCurrency);
+        }
+        return rate;
     }
 
     /**
@@ -74,6 +140,13 @@ public class CurrencyConversionService {
         return amount.multiply(exchangeRate).setScale(2, RoundingMode.HALF_UP);
     }
 
+    private double snapshotAgeMillis(AtomicReference<ExchangeRateMatrix> reference) {
+        ExchangeRateMatrix current = reference.get();
+        return current == null
+                ? Double.NaN
+                : Duration.between(current.getFetchedAt(), Instant.now()).toMillis();
+    }
+
     /**
      * Exception for currency conversion errors
      */
@@ -90,7 +163,7 @@ public class CurrencyConversionService {
     /**
      * Response model for exchange rate API
      */
-    private static class ExchangeRateResponse {
+    static class ExchangeRateResponse {
         private boolean success;
         private String base;
         private Map<String, BigDecimal> rates = new HashMap<>();
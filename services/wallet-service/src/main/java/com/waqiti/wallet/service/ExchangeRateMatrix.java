@@ -0,0 +1,88 @@
+package com.waqiti.wallet.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table of exchange rates between every pair of supported
+ * currencies, derived from one rate table quoted against a base currency.
+ * Each currency gets an ordinal and rates are read from a plain array, so a
+ * lookup is two map reads and an array access.
+ */
+final class ExchangeRateMatrix {
+
+    // Precision of triangulated cross rates
+    private static final MathContext PRECISION = MathContext.DECIMAL64;
+
+    private final Map<String, Integer> ordinals;
+    private final BigDecimal[][] rates;
+    private final Instant fetchedAt;
+
+    private ExchangeRateMatrix(Map<String, Integer> ordinals, BigDecimal[][] rates, Instant fetchedAt) {
+        this.ordinals = ordinals;
+        this.rates = rates;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Builds the matrix from rates quoted as units of each currency per one
+     * unit of the base currency. Currencies without a quote are left out.
+     */
+    static ExchangeRateMatrix fromBaseRates(String baseCurrency, Map<String, BigDecimal> baseRates,
+                                            List<String> currencies, Instant fetchedAt) {
+        Map<String, BigDecimal> quotes = new HashMap<>(baseRates);
+        quotes.put(baseCurrency, BigDecimal.ONE);
+
+        Map<String, Integer> ordinals = new HashMap<>();
+        BigDecimal[] perBase = new BigDecimal[currencies.size() + 1];
+        for (String currency : currencies) {
+            BigDecimal quote = quotes.get(currency);
+            if (quote != null && quote.signum() > 0 && !ordinals.containsKey(currency)) {
+                perBase[ordinals.size()] = quote;
+                ordinals.put(currency, ordinals.size());
+            }
+        }
+        if (!ordinals.containsKey(baseCurrency)) {
+            perBase[ordinals.size()] = BigDecimal.ONE;
+            ordinals.put(baseCurrency, ordinals.size());
+        }
+
+        // source -> target = (base -> target) / (base -> source)
+        int size = ordinals.size();
+        BigDecimal[][] rates = new BigDecimal[size][size];
+        for (int source = 0; source < size; source++) {
+            for (int target = 0; target < size; target++) {
+                rates[source][target] = source == target
+                        ? BigDecimal.ONE
+                        : perBase[target].divide(perBase[source], PRECISION);
+            }
+        }
+
+        return new ExchangeRateMatrix(Map.copyOf(ordinals), rates, fetchedAt);
+    }
+
+    /**
+     * Returns the rate from source to target, or null if either currency is
+     * not in the matrix
+     */
+    BigDecimal rate(String sourceCurrency, String targetCurrency) {
+        Integer source = ordinals.get(sourceCurrency);
+        Integer target = ordinals.get(targetCurrency);
+        if (source == null || target == null) {
+            return null;
+        }
+        return rates[source][target];
+    }
+
+    int size() {
+        return ordinals.size();
+    }
+
+    Instant getFetchedAt() {
+        return fetchedAt;
+    }
+}
@@ -0,0 +1,210 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.ExternalBalanceRepository;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps the external providers in step with the local ledger. Runs after the
+ * booking transaction has committed, so provider latency never extends the
+ * time wallet rows are locked.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExternalLedgerSync {
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final IntegrationService integrationService;
+    private final TransactionLogger transactionLogger;
+    private final MeterRegistry meterRegistry;
+    private final ExternalBalanceRepository externalBalanceRepository;
+    private final MovementMetrics movementMetrics;
+
+    private static final String SYSTEM_USER = "SYSTEM";
+
+    // Postings follow the booking within moments; older ones are left to the recovery worker
+    private static final Duration POSTING_LOOKBACK = Duration.ofDays(1);
+
+    // Same-provider transfers are left to the NetSettlementJob
+    @Value("${wallet.settlement.enabled:false}")
+    private boolean settlementEnabled;
+
+    /**
+     * Posts booked movements to the external provider and reconciles the
+     * affected wallets
+     */
+    @Async("ledgerSyncExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onLedgerBooked(LedgerBookedEvent event) {
+        if (!event.isExternalPostingPending()) {
+            reconcile(event.getWalletIds());
+            return;
+        }
+
+        // Only wallets whose movements the provider has now seen are compared;
+        // a transfer left to settlement or not posted would show up as drift
+        Set<UUID> postedWalletIds = new LinkedHashSet<>();
+        Set<UUID> unpostedWalletIds = new HashSet<>();
+        for (UUID transactionId : event.getTransactionIds()) {
+            Posting posting = postTransfer(transactionId);
+            if (posting.posted()) {
+                postedWalletIds.addAll(posting.walletIds());
+            } else {
+                unpostedWalletIds.addAll(posting.walletIds());
+            }
+        }
+        postedWalletIds.removeAll(unpostedWalletIds);
+        if (!postedWalletIds.isEmpty()) {
+            reconcile(new ArrayList<>(postedWalletIds));
+        }
+    }
+
+    /**
+     * Posts a locally booked transfer to the external provider. Returns
+     * whether it was posted now, with the wallets it moved funds between.
+     */
+    public Posting postTransfer(UUID transactionId) {
+        Transaction transaction = transactionRepository
+                .findByIdAndCreatedAtGreaterThanEqual(transactionId, LocalDateTime.now().minus(POSTING_LOOKBACK))
+                .orElse(null);
+        if (transaction == null || transaction.isExternallyPosted()) {
+            return Posting.NONE;
+        }
+        List<UUID> walletIds = List.of(transaction.getSourceWalletId(), transaction.getTargetWalletId());
+
+        try {
+            Wallet sourceWallet = walletRepository.findById(transaction.getSourceWalletId()).orElseThrow();
+            Wallet targetWallet = walletRepository.findById(transaction.getTargetWalletId()).orElseThrow();
+            if (settlementEnabled && sourceWallet.getWalletType().equals(targetWallet.getWalletType())) {
+                // Netted with the provider's other transfers by the settlement job
+                meterRegistry.counter("wallet.ledger.postings", "outcome", "deferred").increment();
+                return new Posting(false, walletIds);
+            }
+
+            String externalId = postToProvider(sourceWallet, targetWallet, transaction);
+
+            transaction.recordExternalPosting(externalId);
+            transaction.setUpdatedBy(SYSTEM_USER);
+            transactionRepository.save(transaction);
+
+            meterRegistry.counter("wallet.ledger.postings", "outcome", "success").increment();
+            log.info("Transaction {} posted externally with ID: {}", transactionId, externalId);
+            return new Posting(true, walletIds);
+        } catch (Exception e) {
+            // Left unposted; the transaction keeps its local COMPLETED state
+            log.error("Failed to post transaction {} to external system", transactionId, e);
+            meterRegistry.counter("wallet.ledger.postings", "outcome", "failure").increment();
+            transactionLogger.logTransactionFailure(transactionId, e.getMessage(), "EXTERNAL_POSTING_FAILED");
+            return new Posting(false, walletIds);
+        }
+    }
+
+    /**
+     * Posts a transfer to the provider, timing the call as the provider stage
+     * of the transfer
+     */
+    private String postToProvider(Wallet sourceWallet, Wallet targetWallet, Transaction transaction) {
+        long startedAt = System.nanoTime();
+        String outcome = MovementMetrics.SUCCESS;
+        try {
+            return integrationService.transferBetweenWallets(
+                    sourceWallet, targetWallet, transaction.getAmount(), transaction.getId().toString());
+        } catch (RuntimeException e) {
+            outcome = MovementMetrics.outcomeOf(e);
+            throw e;
+        } finally {
+            movementMetrics.recordStage(MovementMetrics.Operation.TRANSFER, MovementMetrics.Stage.PROVIDER,
+                    sourceWallet.getWalletType(), outcome, System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Records the provider balance for each wallet and reports any drift from
+     * the local ledger
+     */
+    public void reconcile(List<UUID> walletIds) {
+        try {
+            recordExternalBalances(walletRepository.findAllById(walletIds), false);
+        } catch (Exception e) {
+            log.error("Failed to reconcile wallet balances: {}", walletIds, e);
+        }
+    }
+
+    /**
+     * Fetches the provider balances of the given wallets with one bulk call and
+     * records the ones that changed. Runs on its own bounded executor; callers
+     * must expect a rejection when it is saturated.
+     */
+    @Async("balanceRefreshExecutor")
+    public void refreshExternalBalances(List<Wallet> wallets) {
+        try {
+            recordExternalBalances(wallets, true);
+        } catch (Exception e) {
+            log.error("Failed to refresh external balances for {} wallets", wallets.size(), e);
+        }
+    }
+
+    private void recordExternalBalances(Collection<Wallet> wallets, boolean changedOnly) {
+        if (wallets.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, BigDecimal> externalBalances = integrationService.getWalletBalances(wallets);
+        Map<UUID, BigDecimal> updates = new HashMap<>(externalBalances.size());
+        for (Wallet wallet : wallets) {
+            BigDecimal externalBalance = externalBalances.get(wallet.getId());
+            if (externalBalance == null) {
+                continue;
+            }
+            if (!changedOnly || wallet.getExternalBalance() == null
+                    || wallet.getExternalBalance().compareTo(externalBalance) != 0) {
+                updates.put(wallet.getId(), externalBalance);
+            }
+            if (wallet.getBalance().compareTo(externalBalance) != 0) {
+                log.warn("Wallet {} drifted from external provider: local {}, external {}",
+                        wallet.getId(), wallet.getBalance(), externalBalance);
+                meterRegistry.counter("wallet.ledger.drift", "walletType", wallet.getWalletType())
+                        .increment();
+            }
+        }
+
+        // Written as one batch so managed entities stay clean and the version is untouched
+        externalBalanceRepository.updateExternalBalances(updates, LocalDateTime.now());
+        meterRegistry.counter("wallet.external.balance.updates").increment(updates.size());
+    }
+
+    /**
+     * Result of posting one transfer to the provider
+     */
+    public record Posting(boolean posted, List<UUID> walletIds) {
+        static final Posting NONE = new Posting(false, List.of());
+    }
+}
@@ -5,21 +5,36 @@ import com.waqiti.wallet.client.dto.*;
 import com.waqiti.wallet.client.dto.*;
 import com.waqiti.wallet.domain.Wallet;
 import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.repository.SettlementPosting;
+import feign.FeignException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
+@ConditionalOnProperty(name = "wallet.integration.client", havingValue = "feign", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class FeignIntegrationService implements IntegrationService {
     private final IntegrationServiceClient integrationClient;
 
+    @Value("${wallet.balance-refresh.request-size:100}")
+    private int balanceRequestSize;
+
     @Override
     @CircuitBreaker(name = "integrationService", fallbackMethod = "createWalletFallback")
     @Retry(name = "integrationService")
@@ -81,10 +96,53 @@ public class FeignIntegrationService implements IntegrationService {
         return wallet.getBalance();
     }
 
+    @Override
+    @CircuitBreaker(name = "integrationService", fallbackMethod = "getWalletBalancesFallback")
+    @Retry(name = "integrationService")
+    public Map<UUID, BigDecimal> getWalletBalances(Collection<Wallet> wallets) {
+        log.info("Getting balances from external system for {} wallets", wallets.size());
+
+        Map<String, Wallet> walletsByExternalId = wallets.stream()
+                .collect(Collectors.toMap(Wallet::getExternalId, wallet -> wallet, (first, second) -> first));
+        List<GetBalanceRequest> requests = walletsByExternalId.values().stream()
+                .map(wallet -> GetBalanceRequest.builder()
+                        .externalId(wallet.getExternalId())
+                        .walletType(wallet.getWalletType())
+                        .build())
+                .collect(Collectors.toList());
+
+        Map<UUID, BigDecimal> balances = new HashMap<>(requests.size());
+        for (int from = 0; from < requests.size(); from += balanceRequestSize) {
+            List<GetBalanceRequest> chunk =
+                    new ArrayList<>(requests.subList(from, Math.min(from + balanceRequestSize, requests.size())));
+            GetBalancesResponse response = integrationClient.getBalances(
+                    GetBalancesRequest.builder().wallets(chunk).build());
+            if (response == null || response.getBalances() == null) {
+                continue;
+            }
+            response.getBalances().forEach((externalId, balance) -> {
+                Wallet wallet = walletsByExternalId.get(externalId);
+                if (wallet != null && balance != null) {
+                    balances.put(wallet.getId(), balance);
+                }
+            });
+        }
+
+        log.info("Retrieved {} of {} balances from external system", balances.size(), wallets.size());
+        return balances;
+    }
+
+    private Map<UUID, BigDecimal> getWalletBalancesFallback(Collection<Wallet> wallets, Throwable t) {
+        log.warn("Fallback for getWalletBalances executed due to: {}", t.getMessage());
+        // Not an empty answer, which would read as every wallet being unpriced
+        throw new TransactionFailedException("External service unavailable. Please try again later.");
+    }
+
     @Override
     @CircuitBreaker(name = "integrationService", fallbackMethod = "transferBetweenWalletsFallback")
     @Retry(name = "integrationService")
-    public String transferBetweenWallets(Wallet sourceWallet, Wallet targetWallet, BigDecimal amount) {
+    public String transferBetweenWallets(Wallet sourceWallet, Wallet targetWallet, BigDecimal amount,
+                                         String reference) {
         log.info("Transferring {} {} from wallet {} to wallet {} in external system",
                 amount, sourceWallet.getCurrency(), sourceWallet.getId(), targetWallet.getId());
 
@@ -96,6 +154,7 @@ public class FeignIntegrationService implements IntegrationService {
                     .targetWalletType(targetWallet.getWalletType())
                     .amount(amount)
                     .currency(sourceWallet.getCurrency())
+                    .reference(reference)
                     .build();
 
             TransferResponse response = integrationClient.transfer(request);
@@ -109,15 +168,81 @@ public class FeignIntegrationService implements IntegrationService {
     }
 
     private String transferBetweenWalletsFallback(Wallet sourceWallet, Wallet targetWallet,
-                                                  BigDecimal amount, Throwable t) {
+                                                  BigDecimal amount, String reference, Throwable t) {
         log.warn("Fallback for transferBetweenWallets executed due to: {}", t.getMessage());
         throw new TransactionFailedException("External service unavailable. Please try again later.");
     }
 
+    @Override
+    @CircuitBreaker(name = "integrationService", fallbackMethod = "findPostedTransactionFallback")
+    @Retry(name = "integrationService")
+    public Optional<String> findPostedTransaction(String reference) {
+        log.info("Looking up posting {} in external system", reference);
+
+        try {
+            PostedTransactionResponse response = integrationClient.getTransactionByReference(reference);
+            return Optional.ofNullable(response).map(PostedTransactionResponse::getExternalId);
+        } catch (FeignException.NotFound e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("Error looking up posting {} in external system", reference, e);
+            throw new TransactionFailedException("Failed to look up posting in external system", e);
+        }
+    }
+
+    private Optional<String> findPostedTransactionFallback(String reference, Throwable t) {
+        log.warn("Fallback for findPostedTransaction executed due to: {}", t.getMessage());
+        // An unknown outcome must not be mistaken for a missing posting
+        throw new TransactionFailedException("External service unavailable. Please try again later.");
+    }
+
+    @Override
+    @CircuitBreaker(name = "integrationService", fallbackMethod = "postSettlementFallback")
+    @Retry(name = "integrationService")
+    public Map<Long, String> postSettlement(String walletType, List<SettlementPosting> postings) {
+        log.info("Posting settlement of {} accounts to external system, type: {}", postings.size(), walletType);
+
+        try {
+            List<SettlementEntry> entries = postings.stream()
+                    .map(posting -> SettlementEntry.builder()
+                            .externalId(posting.getExternalAccountId())
+                            .amount(posting.getNetAmount())
+                            .currency(posting.getCurrency())
+                            .reference(posting.getReference())
+                            .build())
+                    .collect(Collectors.toList());
+
+            SettlementResponse response = integrationClient.settle(
+                    SettlementRequest.builder().walletType(walletType).entries(entries).build());
+
+            Map<Long, String> externalIds = new HashMap<>(postings.size());
+            if (response != null && response.getExternalIds() != null) {
+                for (SettlementPosting posting : postings) {
+                    String externalId = response.getExternalIds().get(posting.getReference());
+                    if (externalId != null) {
+                        externalIds.put(posting.getId(), externalId);
+                    }
+                }
+            }
+            log.info("Settlement posted {} of {} accounts in external system", externalIds.size(), postings.size());
+
+            return externalIds;
+        } catch (Exception e) {
+            log.error("Error posting settlement to external system", e);
+            throw new TransactionFailedException("Failed to post settlement to external system", e);
+        }
+    }
+
+    private Map<Long, String> postSettlementFallback(String walletType, List<SettlementPosting> postings,
+                                                     Throwable t) {
+        log.warn("Fallback for postSettlement executed due to: {}", t.getMessage());
+        throw new TransactionFailedException("External service unavailable. Please try again later.");
+    }
+
     @Override
     @CircuitBreaker(name = "integrationService", fallbackMethod = "depositToWalletFallback")
     @Retry(name = "integrationService")
-    public String depositToWallet(Wallet wallet, BigDecimal amount) {
+    public String depositToWallet(Wallet wallet, BigDecimal amount, String reference) {
         log.info("Depositing {} {} to wallet {} in external system",
                 amount, wallet.getCurrency(), wallet.getId());
 
@@ -127,6 +252,7 @@ public class FeignIntegrationService implements IntegrationService {
                     .walletType(wallet.getWalletType())
                     .amount(amount)
                     .currency(wallet.getCurrency())
+                    .reference(reference)
                     .build();
 
             DepositResponse response = integrationClient.deposit(request);
@@ -139,7 +265,7 @@ public class FeignIntegrationService implements IntegrationService {
         }
     }
 
-    private String depositToWalletFallback(Wallet wallet, BigDecimal amount, Throwable t) {
+    private String depositToWalletFallback(Wallet wallet, BigDecimal amount, String reference, Throwable t) {
         log.warn("Fallback for depositToWallet executed due to: {}", t.getMessage());
         throw new TransactionFailedException("External service unavailable. Please try again later.");
     }
@@ -147,7 +273,7 @@ public class FeignIntegrationService implements IntegrationService {
     @Override
     @CircuitBreaker(name = "integrationService", fallbackMethod = "withdrawFromWalletFallback")
     @Retry(name = "integrationService")
-    public String withdrawFromWallet(Wallet wallet, BigDecimal amount) {
+    public String withdrawFromWallet(Wallet wallet, BigDecimal amount, String reference) {
         log.info("Withdrawing {} {} from wallet {} in external system",
                 amount, wallet.getCurrency(), wallet.getId());
 
@@ -157,6 +283,7 @@ public class FeignIntegrationService implements IntegrationService {
                     .walletType(wallet.getWalletType())
                     .amount(amount)
                     .currency(wallet.getCurrency())
+                    .reference(reference)
                     .build();
 
             WithdrawalResponse response = integrationClient.withdraw(request);
@@ -169,7 +296,8 @@ public class FeignIntegrationService implements IntegrationService {
         }
     }
 
-    private String withdrawFromWalletFallback(Wallet wallet, BigDecimal amount, Throwable t) {
+    private String withdrawFromWalletFallback(Wallet wallet, BigDecimal amount, String reference,
+                                              Throwable t) {
         log.warn("Fallback for withdrawFromWallet executed due to: {}", t.getMessage());
         throw new TransactionFailedException("External service unavailable. Please try again later.");
     }
@@ -0,0 +1,574 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.IdempotencyKeyReusedException;
+import com.waqiti.wallet.domain.InsufficientBalanceException;
+import com.waqiti.wallet.domain.Money;
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.domain.TransactionStatus;
+import com.waqiti.wallet.domain.TransactionType;
+import com.waqiti.wallet.domain.TransferOutcomeUnknownException;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.domain.WalletNotActiveException;
+import com.waqiti.wallet.domain.WalletNotFoundException;
+import com.waqiti.wallet.domain.WalletStatus;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Single writer for wallets that receive a very high rate of incoming
+ * transfers. Transfers into a configured hot wallet are queued to a dedicated
+ * thread, which books them in micro-batches: the hot wallet row is credited
+ * once per batch instead of once per transfer, and all transaction rows of the
+ * batch are inserted together. A caller is acknowledged only after the batch
+ * holding its transfer has committed.
+ *
+ * All transfers with the same idempotency key end up on the same writer
+ * thread, so a key is checked against the batch and the stored transactions
+ * without any further locking.
+ *
+ * Transfers accepted for asynchronous booking are queued with their stored
+ * IN_PROGRESS row, which the batch completes or fails instead of inserting a
+ * new one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotWalletSequencer {
+    private final WalletRepository walletRepository;
+    private final TransactionJournal transactionJournal;
+    private final TransactionLogger transactionLogger;
+    private final WalletLedger walletLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    private final TransactionRepository transactionRepository;
+
+    private static final String SYSTEM_USER = "SYSTEM";
+
+    @Value("${wallet.hot-wallets.wallet-ids:}")
+    private List<UUID> hotWalletIds;
+
+    @Value("${wallet.hot-wallets.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${wallet.hot-wallets.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${wallet.hot-wallets.ack-timeout:5s}")
+    private Duration ackTimeout;
+
+    private final Map<UUID, Lane> lanes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void start() {
+        for (UUID walletId : hotWalletIds) {
+            Lane lane = new Lane(walletId, new LinkedBlockingQueue<>(queueCapacity));
+            meterRegistry.gauge("wallet.hot.queue.depth", Tags.of("walletId", walletId.toString()),
+                    lane.queue, BlockingQueue::size);
+            lanes.put(walletId, lane);
+            lane.start();
+            log.info("Started hot wallet sequencer for wallet {}", walletId);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        lanes.values().forEach(Lane::shutdown);
+    }
+
+    /**
+     * Checks whether transfers into a wallet are routed through the sequencer
+     */
+    public boolean isHot(UUID walletId) {
+        return lanes.containsKey(walletId);
+    }
+
+    /**
+     * Queues a transfer into a hot wallet and waits for its batch to commit.
+     * A transfer whose idempotency key is already held is answered with the
+     * stored transaction.
+     *
+     * A transfer still queued when the acknowledgement times out is withdrawn
+     * and fails. Once the writer has taken it, the outcome is unknown and
+     * TransferOutcomeUnknownException carries the transaction ID if its row
+     * has been written.
+     */
+    public Transaction transfer(UUID sourceWalletId, UUID targetWalletId, BigDecimal amount, String description,
+                                String referenceId) {
+        Lane lane = lanes.get(targetWalletId);
+        if (lane == null) {
+            throw new IllegalArgumentException("Wallet is not configured as a hot wallet: " + targetWalletId);
+        }
+
+        return submit(lane, targetWalletId,
+                new TransferCommand(sourceWalletId, amount, description, referenceId));
+    }
+
+    /**
+     * Queues a transfer accepted earlier, whose IN_PROGRESS row has been
+     * committed, and waits for its batch to commit. The returned transaction
+     * is COMPLETED, or FAILED if the batch rejected it; when the batch itself
+     * fails the row is left to the recovery worker.
+     */
+    public Transaction completeAccepted(Transaction accepted) {
+        Lane lane = lanes.get(accepted.getTargetWalletId());
+        if (lane == null) {
+            throw new IllegalArgumentException("Wallet is not configured as a hot wallet: " +
+                    accepted.getTargetWalletId());
+        }
+
+        return submit(lane, accepted.getTargetWalletId(), new TransferCommand(accepted.getSourceWalletId(),
+                accepted.getAmount(), accepted.getDescription(), accepted.getReferenceId(), accepted.getId(),
+                accepted.getCreatedAt()));
+    }
+
+    private Transaction submit(Lane lane, UUID targetWalletId, TransferCommand command) {
+        if (!lane.queue.offer(command)) {
+            meterRegistry.counter("wallet.hot.rejected", "reason", "queue_full").increment();
+            throw new TransactionFailedException("Hot wallet is busy, try again later: " + targetWalletId);
+        }
+
+        try {
+            return command.result.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new TransactionFailedException("Transfer failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            if (lane.queue.remove(command)) {
+                // Never taken by the writer, so nothing was booked
+                meterRegistry.counter("wallet.hot.rejected", "reason", "ack_timeout").increment();
+                throw new TransactionFailedException("Timed out waiting for hot wallet: " + targetWalletId, e);
+            }
+            // The batch holding the transfer may still commit
+            Transaction transaction = command.transaction;
+            throw new TransferOutcomeUnknownException(
+                    "Timed out waiting for hot wallet acknowledgement: " + targetWalletId,
+                    transaction != null ? transaction.getId() : command.acceptedTransactionId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransactionFailedException("Interrupted waiting for hot wallet acknowledgement", e);
+        }
+    }
+
+    /**
+     * Books one batch of transfers into a hot wallet and acknowledges the
+     * callers once it has committed
+     */
+    void flush(UUID hotWalletId, List<TransferCommand> batch) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        meterRegistry.summary("wallet.hot.batch.size").record(batch.size());
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            List<TransferCommand> booked = transactionTemplate.execute(status -> book(hotWalletId, batch));
+
+            // Only acknowledge after commit
+            booked.forEach(command -> command.result.complete(command.transaction));
+            sample.stop(meterRegistry.timer("wallet.hot.flush.time", "outcome", "committed"));
+        } catch (RuntimeException e) {
+            log.error("Hot wallet batch of {} transfers into {} failed", batch.size(), hotWalletId, e);
+            batch.forEach(command -> command.result.completeExceptionally(
+                    new TransactionFailedException("Transfer failed: " + e.getMessage(), e)));
+            sample.stop(meterRegistry.timer("wallet.hot.flush.time", "outcome", "failed"));
+        }
+    }
+
+    /**
+     * Applies a batch inside the current transaction. Rejected transfers are
+     * completed right away and left out of the returned list, except accepted
+     * ones: their rows are failed with the batch and acknowledged after commit.
+     */
+    private List<TransferCommand> book(UUID hotWalletId, List<TransferCommand> batch) {
+        Wallet hotWallet = walletRepository.findById(hotWalletId)
+                .orElseThrow(() -> new WalletNotFoundException("Target wallet not found: " + hotWalletId));
+        if (hotWallet.getStatus() != WalletStatus.ACTIVE) {
+            throw new WalletNotActiveException("Wallet is not active: " + hotWalletId +
+                    ", status: " + hotWallet.getStatus());
+        }
+
+        Map<UUID, Wallet> sourceWallets = walletRepository.findAllById(batch.stream()
+                        .map(command -> command.sourceWalletId)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+
+        // Group the valid transfers by source, keeping arrival order within a source
+        Map<UUID, List<TransferCommand>> bySource = new LinkedHashMap<>();
+        Map<String, Transaction> stored = findKeyHolders(batch);
+        Map<UUID, Transaction> accepted = findAccepted(batch);
+        Map<String, TransferCommand> firstByKey = new HashMap<>();
+        List<TransferCommand> failed = new ArrayList<>();
+        BigDecimal requested = BigDecimal.ZERO;
+        for (TransferCommand command : batch) {
+            if (command.acceptedTransactionId != null) {
+                // The idempotency key is held by the accepted row itself
+                Transaction transaction = accepted.get(command.acceptedTransactionId);
+                if (transaction == null || transaction.getStatus() != TransactionStatus.IN_PROGRESS) {
+                    command.result.completeExceptionally(new IllegalStateException(
+                            "Accepted transfer is no longer in progress: " + command.acceptedTransactionId));
+                    continue;
+                }
+                command.transaction = transaction;
+            } else if (command.referenceId != null && replay(command, stored, firstByKey, hotWalletId)) {
+                continue;
+            }
+            RuntimeException rejection = validate(command, sourceWallets.get(command.sourceWalletId), hotWallet);
+            if (rejection != null) {
+                reject(command, rejection, failed);
+                continue;
+            }
+            bySource.computeIfAbsent(command.sourceWalletId, id -> new ArrayList<>()).add(command);
+            requested = requested.add(command.amount);
+        }
+
+        if (bySource.isEmpty()) {
+            return finish(hotWallet, List.of(), failed, sourceWallets, List.of());
+        }
+
+        // Touch the rows in the same order as every other ledger update so the
+        // batch cannot deadlock with regular transfers
+        Set<UUID> updateOrder = new TreeSet<>(WalletLedger.UPDATE_ORDER);
+        updateOrder.addAll(bySource.keySet());
+        updateOrder.add(hotWalletId);
+
+        List<TransferCommand> booked = new ArrayList<>();
+        BigDecimal rejectedTotal = BigDecimal.ZERO;
+        for (UUID walletId : updateOrder) {
+            if (walletId.equals(hotWalletId)) {
+                // One credit for the whole batch; debits rejected below are
+                // taken back while this transaction still holds the row
+                if (!walletLedger.tryCredit(hotWalletId, requested)) {
+                    throw walletLedger.rejected("credit", hotWalletId, requested);
+                }
+                continue;
+            }
+
+            for (TransferCommand command : bySource.get(walletId)) {
+                if (walletLedger.tryDebit(walletId, command.amount)) {
+                    booked.add(command);
+                } else {
+                    reject(command, walletLedger.rejected("debit", walletId, command.amount), failed);
+                    rejectedTotal = rejectedTotal.add(command.amount);
+                }
+            }
+        }
+
+        if (rejectedTotal.signum() > 0 && !walletLedger.tryDebit(hotWalletId, rejectedTotal)) {
+            throw walletLedger.rejected("debit", hotWalletId, rejectedTotal);
+        }
+
+        List<UUID> walletIds = new ArrayList<>(bySource.keySet());
+        walletIds.add(hotWalletId);
+        return finish(hotWallet, booked, failed, sourceWallets, walletIds);
+    }
+
+    /**
+     * Writes the transactions of a batch: new rows for the booked transfers,
+     * and the final status of the accepted ones. Returns the commands to
+     * acknowledge after commit.
+     */
+    private List<TransferCommand> finish(Wallet hotWallet, List<TransferCommand> booked, List<TransferCommand> failed,
+                                         Map<UUID, Wallet> sourceWallets, List<UUID> walletIds) {
+        List<Transaction> transactions = new ArrayList<>(booked.size());
+        List<TransferCommand> created = new ArrayList<>(booked.size());
+        List<Transaction> finished = new ArrayList<>(failed.size());
+        for (TransferCommand command : booked) {
+            if (command.acceptedTransactionId != null) {
+                command.transaction.complete();
+                command.transaction.setUpdatedBy(SYSTEM_USER);
+                finished.add(command.transaction);
+                continue;
+            }
+            Transaction transaction = transactionLogger.createTransactionAudit(
+                    command.sourceWalletId,
+                    hotWallet.getId(),
+                    command.amount,
+                    hotWallet.getCurrency(),
+                    TransactionType.TRANSFER,
+                    command.description);
+            transaction.setCreatedBy(SYSTEM_USER);
+            transaction.assignReferenceId(command.referenceId);
+            transaction.complete();
+            transactions.add(transaction);
+            created.add(command);
+        }
+        for (TransferCommand command : failed) {
+            command.transaction.setUpdatedBy(SYSTEM_USER);
+            finished.add(command.transaction);
+        }
+
+        if (!transactions.isEmpty()) {
+            List<Transaction> saved = transactionJournal.appendAll(transactions);
+            for (int i = 0; i < saved.size(); i++) {
+                created.get(i).transaction = saved.get(i);
+            }
+        }
+        if (!finished.isEmpty()) {
+            transactionJournal.appendTransitions(finished);
+        }
+
+        if (!booked.isEmpty()) {
+            for (TransferCommand command : booked) {
+                transactionLogger.logTransferEvents(command.transaction,
+                        sourceWallets.get(command.sourceWalletId), hotWallet);
+            }
+            eventPublisher.publishEvent(new LedgerBookedEvent(
+                    booked.stream().map(command -> command.transaction.getId()).collect(Collectors.toList()),
+                    walletIds,
+                    true));
+        }
+
+        List<TransferCommand> acknowledged = new ArrayList<>(booked);
+        acknowledged.addAll(failed);
+        return acknowledged;
+    }
+
+    /**
+     * Completes a rejected transfer right away, or fails the row of an
+     * accepted one so the rejection commits with the batch
+     */
+    private void reject(TransferCommand command, RuntimeException rejection, List<TransferCommand> failed) {
+        if (command.acceptedTransactionId == null) {
+            command.result.completeExceptionally(rejection);
+            return;
+        }
+        command.transaction.fail(rejection.getMessage());
+        failed.add(command);
+        transactionLogger.logTransactionFailure(
+                command.transaction.getId(),
+                rejection.getMessage(),
+                rejection instanceof InsufficientBalanceException ? "INSUFFICIENT_FUNDS" : "TRANSFER_FAILED");
+    }
+
+    /**
+     * Loads the stored rows of the accepted transfers in a batch, from the
+     * partitions since the oldest of them was created
+     */
+    private Map<UUID, Transaction> findAccepted(List<TransferCommand> batch) {
+        List<TransferCommand> acceptedCommands = batch.stream()
+                .filter(command -> command.acceptedTransactionId != null)
+                .toList();
+        if (acceptedCommands.isEmpty()) {
+            return Map.of();
+        }
+        Set<UUID> ids = acceptedCommands.stream()
+                .map(command -> command.acceptedTransactionId)
+                .collect(Collectors.toSet());
+        LocalDateTime since = acceptedCommands.stream()
+                .map(command -> command.acceptedCreatedAt)
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+        return transactionRepository.findByIdInAndCreatedAtGreaterThanEqual(ids, since).stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+    }
+
+    /**
+     * Finds the transactions already holding the idempotency keys of a batch,
+     * pending or completed
+     */
+    private Map<String, Transaction> findKeyHolders(List<TransferCommand> batch) {
+        Set<String> keys = batch.stream()
+                .filter(command -> command.acceptedTransactionId == null)
+                .map(command -> command.referenceId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        return transactionRepository.findKeyHolders(keys).stream()
+                .collect(Collectors.toMap(Transaction::getReferenceId, Function.identity()));
+    }
+
+    /**
+     * Answers a transfer whose key is already held by a stored transaction or
+     * appears earlier in the batch. Returns false if the transfer has to be booked.
+     */
+    private boolean replay(TransferCommand command, Map<String, Transaction> keyHolders,
+                           Map<String, TransferCommand> firstByKey, UUID hotWalletId) {
+        Transaction stored = keyHolders.get(command.referenceId);
+        if (stored != null) {
+            if (stored.getType() == TransactionType.TRANSFER
+                    && hotWalletId.equals(stored.getTargetWalletId())
+                    && command.sameRequest(stored.getSourceWalletId(), stored.getAmount())) {
+                command.result.complete(stored);
+            } else {
+                command.result.completeExceptionally(keyReused(command));
+            }
+            return true;
+        }
+
+        TransferCommand first = firstByKey.putIfAbsent(command.referenceId, command);
+        if (first == null) {
+            return false;
+        }
+        if (!command.sameRequest(first.sourceWalletId, first.amount)) {
+            command.result.completeExceptionally(keyReused(command));
+            return true;
+        }
+        first.result.whenComplete((transaction, error) -> {
+            if (error != null) {
+                command.result.completeExceptionally(error);
+            } else {
+                command.result.complete(transaction);
+            }
+        });
+        return true;
+    }
+
+    private RuntimeException keyReused(TransferCommand command) {
+        return new IdempotencyKeyReusedException(
+                "Idempotency key was already used for a different request: " + command.referenceId);
+    }
+
+    /**
+     * Checks a queued transfer against the wallets read for its batch
+     */
+    private RuntimeException validate(TransferCommand command, Wallet sourceWallet, Wallet hotWallet) {
+        if (sourceWallet == null) {
+            return new WalletNotFoundException("Source wallet not found: " + command.sourceWalletId);
+        }
+        if (sourceWallet.getStatus() != WalletStatus.ACTIVE) {
+            return new WalletNotActiveException("Wallet is not active: " + sourceWallet.getId() +
+                    ", status: " + sourceWallet.getStatus());
+        }
+        if (!sourceWallet.getCurrency().equals(hotWallet.getCurrency())) {
+            return new IllegalArgumentException(
+                    "Currency mismatch: source wallet currency is " + sourceWallet.getCurrency() +
+                            ", target wallet currency is " + hotWallet.getCurrency());
+        }
+        try {
+            Money.of(command.amount, hotWallet.getCurrency());
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+        return null;
+    }
+
+    /**
+     * A transfer waiting in a hot wallet queue
+     */
+    static class TransferCommand {
+        final UUID sourceWalletId;
+        final BigDecimal amount;
+        final String description;
+        final String referenceId;
+        final UUID acceptedTransactionId;
+        final LocalDateTime acceptedCreatedAt;
+        final CompletableFuture<Transaction> result = new CompletableFuture<>();
+        // Set by the writer once the row is loaded or written; read by a caller that timed out
+        volatile Transaction transaction;
+
+        TransferCommand(UUID sourceWalletId, BigDecimal amount, String description, String referenceId) {
+            this(sourceWalletId, amount, description, referenceId, null, null);
+        }
+
+        TransferCommand(UUID sourceWalletId, BigDecimal amount, String description, String referenceId,
+                        UUID acceptedTransactionId, LocalDateTime acceptedCreatedAt) {
+            this.sourceWalletId = sourceWalletId;
+            this.amount = amount;
+            this.description = description;
+            this.referenceId = referenceId;
+            this.acceptedTransactionId = acceptedTransactionId;
+            this.acceptedCreatedAt = acceptedCreatedAt;
+        }
+
+        boolean sameRequest(UUID otherSourceWalletId, BigDecimal otherAmount) {
+            return sourceWalletId.equals(otherSourceWalletId) && amount.compareTo(otherAmount) == 0;
+        }
+    }
+
+    /**
+     * The queue and writer thread of one hot wallet
+     */
+    private class Lane implements Runnable {
+        private final UUID walletId;
+        private final BlockingQueue<TransferCommand> queue;
+        private final Thread writer;
+        private volatile boolean running = true;
+
+        Lane(UUID walletId, BlockingQueue<TransferCommand> queue) {
+            this.walletId = walletId;
+            this.queue = queue;
+            this.writer = new Thread(this, "hot-wallet-" + walletId);
+            this.writer.setDaemon(true);
+        }
+
+        void start() {
+            writer.start();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    TransferCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+
+                    List<TransferCommand> batch = new ArrayList<>(maxBatchSize);
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    flush(walletId, batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (RuntimeException e) {
+                    log.error("Hot wallet writer for {} hit an unexpected error", walletId, e);
+                }
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            try {
+                writer.join(ackTimeout.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            List<TransferCommand> pending = new ArrayList<>();
+            queue.drainTo(pending);
+            pending.forEach(command -> command.result.completeExceptionally(
+                    new TransactionFailedException("Wallet service is shutting down")));
+        }
+    }
+}
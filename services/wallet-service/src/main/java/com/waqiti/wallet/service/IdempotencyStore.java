@@ -0,0 +1,94 @@
+package com.waqiti.wallet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.waqiti.wallet.dto.TransactionResponse;
+import com.waqiti.wallet.repository.AdvisoryLockRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Remembers the outcome of wallet mutations by the client's idempotency key.
+ * A bounded in-process cache answers replays without touching the database;
+ * behind it, the key is stored as the transaction's reference ID under a
+ * unique index, and first attempts with the same key are serialized by an
+ * advisory lock on the key rather than by wallet locks.
+ */
+@Component
+public class IdempotencyStore {
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    // Namespace of the two-key advisory lock space reserved for idempotency keys
+    private static final int LOCK_NAMESPACE = 0x69646b;
+
+    private final AdvisoryLockRepository advisoryLockRepository;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, TransactionResponse> responses;
+
+    public IdempotencyStore(
+            AdvisoryLockRepository advisoryLockRepository,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.idempotency.local-max-size:100000}") long localMaxSize,
+            @Value("${wallet.idempotency.local-retention:24h}") Duration localRetention) {
+        this.advisoryLockRepository = advisoryLockRepository;
+        this.meterRegistry = meterRegistry;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterAccess(localRetention)
+                .build();
+    }
+
+    /**
+     * Gets the remembered response for a key from the local cache. A null key
+     * never matches.
+     */
+    public Optional<TransactionResponse> get(String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Idempotency key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        TransactionResponse response = responses.getIfPresent(key);
+        meterRegistry.counter("wallet.idempotency.cache", "result", response != null ? "hit" : "miss")
+                .increment();
+        return Optional.ofNullable(response);
+    }
+
+    /**
+     * Serializes first attempts with the same key until the current
+     * transaction ends
+     */
+    public void lock(String key) {
+        advisoryLockRepository.lock(LOCK_NAMESPACE, key);
+    }
+
+    /**
+     * Remembers a response once the current transaction commits, or right away
+     * when there is none
+     */
+    public void putAfterCommit(String key, TransactionResponse response) {
+        if (key == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            responses.put(key, response);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                responses.put(key, response);
+            }
+        });
+    }
+}
@@ -1,7 +1,12 @@
 package com.waqiti.wallet.service;
 
 import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.repository.SettlementPosting;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -28,31 +33,62 @@ public interface IntegrationService {
      */
     BigDecimal getWalletBalance(Wallet wallet);
 
+    /**
+     * Retrieves the current balances for several wallets from the external system
+     * in as few calls as possible
+     *
+     * @param wallets The wallet entities
+     * @return The balances keyed by wallet ID; wallets that could not be priced are left out
+     * @throws com.waqiti.wallet.domain.TransactionFailedException if the provider could not be reached
+     */
+    Map<UUID, BigDecimal> getWalletBalances(Collection<Wallet> wallets);
+
     /**
      * Transfers money between wallets
      *
      * @param sourceWallet The source wallet
      * @param targetWallet The target wallet
      * @param amount       The amount to transfer
+     * @param reference    Our transaction ID; the provider posts it at most once
      * @return The external transaction ID
      */
-    String transferBetweenWallets(Wallet sourceWallet, Wallet targetWallet, BigDecimal amount);
+    String transferBetweenWallets(Wallet sourceWallet, Wallet targetWallet, BigDecimal amount, String reference);
+
+    /**
+     * Looks up a posting in the external system by the reference it was sent with
+     *
+     * @param reference Our transaction ID
+     * @return The external transaction ID, or empty if the provider has no such posting
+     */
+    Optional<String> findPostedTransaction(String reference);
+
+    /**
+     * Posts the net settlement of several accounts of one provider, one
+     * posting per account
+     *
+     * @param walletType The provider the accounts belong to
+     * @param postings   The net movements; each carries its own reference
+     * @return The external transaction ID keyed by posting ID; postings not posted are left out
+     */
+    Map<Long, String> postSettlement(String walletType, List<SettlementPosting> postings);
 
     /**
      * Deposits money into a wallet
      *
-     * @param wallet The target wallet
-     * @param amount The amount to deposit
+     * @param wallet    The target wallet
+     * @param amount    The amount to deposit
+     * @param reference Our transaction ID; the provider posts it at most once
      * @return The external transaction ID
      */
-    String depositToWallet(Wallet wallet, BigDecimal amount);
+    String depositToWallet(Wallet wallet, BigDecimal amount, String reference);
 
     /**
      * Withdraws money from a wallet
      *
-     * @param wallet The source wallet
-     * @param amount The amount to withdraw
+     * @param wallet    The source wallet
+     * @param amount    The amount to withdraw
+     * @param reference Our transaction ID; the provider posts it at most once
      * @return The external transaction ID
      */
-    String withdrawFromWallet(Wallet wallet, BigDecimal amount);
+    String withdrawFromWallet(Wallet wallet, BigDecimal amount, String reference);
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.InsufficientBalanceException;
+import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.domain.TransferOutcomeUnknownException;
+import com.waqiti.wallet.domain.WalletNotActiveException;
+import com.waqiti.wallet.domain.WalletNotFoundException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency of money movements, broken down by stage. A transfer, deposit or
+ * withdrawal is timed stage by stage and recorded when it finishes, tagged
+ * with the operation, the wallet type and the outcome, so a slow percentile
+ * can be traced to the stage that caused it.
+ *
+ * Meters are resolved once per tag combination and kept, so timing a stage
+ * costs a clock read and, at the end, a histogram update.
+ */
+@Component
+public class MovementMetrics {
+
+    public enum Operation {
+        TRANSFER, DEPOSIT, WITHDRAWAL;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Stage {
+        /** Idempotency check, wallet reads and validation */
+        LOOKUP,
+        /** Balance updates in the local ledger, including the row lock wait */
+        LEDGER,
+        /** Calls to the external provider */
+        PROVIDER,
+        /** Writing the transaction row */
+        JOURNAL,
+        /** Queueing the booking events */
+        EVENTS,
+        /** Commit, which also flushes the buffered outbox events */
+        COMMIT,
+        /** Waiting for a hot wallet's writer to book and commit the transfer in its batch */
+        SEQUENCER;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    static final String SUCCESS = "success";
+    static final String REPLAYED = "replayed";
+    static final String UNKNOWN_WALLET_TYPE = "unknown";
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(100_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Operation, AtomicInteger> inFlight = new EnumMap<>(Operation.class);
+    private final ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> lockWaitTimers = new ConcurrentHashMap<>();
+
+    public MovementMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Operation operation : Operation.values()) {
+            AtomicInteger count = new AtomicInteger();
+            inFlight.put(operation, count);
+            Gauge.builder("wallet.movement.in_flight", count, AtomicInteger::get)
+                    .description("Money movements currently being processed")
+                    .tag("operation", operation.tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Starts timing a money movement. The first stage starts now.
+     */
+    public Movement start(Operation operation) {
+        inFlight.get(operation).incrementAndGet();
+        return new Movement(operation, System.nanoTime());
+    }
+
+    /**
+     * Records a stage that runs outside the movement it belongs to, such as a
+     * provider posting made after commit
+     */
+    public void recordStage(Operation operation, Stage stage, String walletType, String outcome, long nanos) {
+        timer(operation, stage, walletType, outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Histogram of the time spent acquiring wallet row locks, by the statement
+     * that takes them
+     */
+    public Timer lockWait(String statement) {
+        Timer timer = lockWaitTimers.get(statement);
+        if (timer == null) {
+            timer = lockWaitTimers.computeIfAbsent(statement, key -> Timer.builder("wallet.lock.wait")
+                    .description("Time spent acquiring wallet row locks")
+                    .tag("statement", key)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_EXPECTED)
+                    .maximumExpectedValue(MAX_EXPECTED)
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+
+    /**
+     * Maps a failure to the outcome tag of the movement it ended
+     */
+    static String outcomeOf(Throwable failure) {
+        Throwable cause = failure instanceof TransactionFailedException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        if (cause instanceof InsufficientBalanceException) {
+            return "insufficient_funds";
+        }
+        if (cause instanceof TransferOutcomeUnknownException) {
+            return "unknown";
+        }
+        if (cause instanceof WalletNotFoundException || cause instanceof WalletNotActiveException
+                || cause instanceof IllegalArgumentException) {
+            return "rejected";
+        }
+        return "failed";
+    }
+
+    private Timer timer(Operation operation, Stage stage, String walletType, String outcome) {
+        TimerKey key = new TimerKey(operation, stage, walletType, outcome);
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, this::register);
+        }
+        return timer;
+    }
+
+    private Timer register(TimerKey key) {
+        Timer.Builder builder = key.stage() == null
+                ? Timer.builder("wallet.movement.time")
+                        .description("End-to-end time of a money movement")
+                : Timer.builder("wallet.movement.stage.time")
+                        .description("Time spent in one stage of a money movement")
+                        .tag("stage", key.stage().tag);
+        return builder
+                .tag("operation", key.operation().tag)
+                .tag("walletType", key.walletType())
+                .tag("outcome", key.outcome())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+
+    private record TimerKey(Operation operation, Stage stage, String walletType, String outcome) {
+    }
+
+    /**
+     * Timing of one money movement. Not thread-safe; it belongs to the thread
+     * that processes the movement.
+     */
+    public final class Movement {
+        private final Operation operation;
+        private final long startedAt;
+        private final long[] stageNanos = new long[STAGES.length];
+        private int timedStages;
+        private long mark;
+        private String walletType = UNKNOWN_WALLET_TYPE;
+        private String outcome = SUCCESS;
+        private boolean finished;
+
+        private Movement(Operation operation, long startedAt) {
+            this.operation = operation;
+            this.startedAt = startedAt;
+            this.mark = startedAt;
+        }
+
+        /**
+         * Sets the wallet type tag, once the wallet is known
+         */
+        public void walletType(String walletType) {
+            if (walletType != null) {
+                this.walletType = walletType;
+            }
+        }
+
+        /**
+         * Ends the given stage, attributing to it the time since the previous
+         * stage ended
+         */
+        public void stage(Stage stage) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - mark;
+            timedStages |= 1 << stage.ordinal();
+            mark = now;
+        }
+
+        /**
+         * Marks the movement as answered from a stored result
+         */
+        public void replayed() {
+            outcome = REPLAYED;
+        }
+
+        /**
+         * Records the movement and its stages. A null failure means it succeeded.
+         */
+        public void finish(Throwable failure) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            inFlight.get(operation).decrementAndGet();
+
+            String tag = failure == null ? outcome : outcomeOf(failure);
+            timer(operation, null, walletType, tag).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            for (Stage stage : STAGES) {
+                if ((timedStages & (1 << stage.ordinal())) != 0) {
+                    timer(operation, stage, walletType, tag).record(stageNanos[stage.ordinal()], TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+}
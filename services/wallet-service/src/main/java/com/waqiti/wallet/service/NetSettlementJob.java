@@ -0,0 +1,126 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.repository.SettlementPosting;
+import com.waqiti.wallet.repository.SettlementRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Settles transfers between wallets of the same provider in bulk. In
+ * settlement mode such transfers are booked in the local ledger only; every
+ * window this job nets the movements of the window per external account and
+ * sends one posting per account, in one call per provider, instead of one
+ * provider call per transfer.
+ *
+ * A window is claimed in a single transaction that marks its transfers as
+ * settled by the run and writes the run's net postings, so every transfer is
+ * netted exactly once. Postings are then sent with their own reference and
+ * kept until the provider has them, so a failed call is simply retried in the
+ * next window.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.settlement.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class NetSettlementJob {
+    private final SettlementRepository settlementRepository;
+    private final IntegrationService integrationService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    // Transfers older than this are no longer netted; the recovery worker posts them one by
+    // one, and leaves younger same-provider transfers to this job
+    @Value("${wallet.settlement.lookback:1h}")
+    private Duration lookback;
+
+    @Value("${wallet.settlement.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${wallet.settlement.interval:60000}")
+    public void settle() {
+        try {
+            closeWindow(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // The transfers stay unclaimed and are netted in the next window
+            log.error("Closing the settlement window failed", e);
+            meterRegistry.counter("wallet.settlement.failures", "stage", "net").increment();
+        }
+
+        int posted;
+        do {
+            posted = postBatch();
+        } while (posted == batchSize);
+
+        int settled = settlementRepository.closeSettledRuns(LocalDateTime.now());
+        if (settled > 0) {
+            log.info("Closed {} settlement runs", settled);
+        }
+    }
+
+    /**
+     * Nets the unposted same-provider transfers created up to the end of the
+     * window into a new run. A window without transfers leaves no run behind.
+     */
+    void closeWindow(LocalDateTime windowEnd) {
+        Integer transfers = new TransactionTemplate(transactionManager).execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            long runId = settlementRepository.createRun(windowEnd, now);
+            int postings = settlementRepository.claimTransfers(runId, windowEnd.minus(lookback), windowEnd, now);
+            int claimed = settlementRepository.countTransfers(runId);
+            if (claimed == 0) {
+                status.setRollbackOnly();
+                return 0;
+            }
+            log.info("Settlement run {} nets {} transfers into {} postings", runId, claimed, postings);
+            return claimed;
+        });
+        meterRegistry.counter("wallet.settlement.transfers").increment(transfers == null ? 0 : transfers);
+    }
+
+    /**
+     * Sends a batch of pending postings, one call per provider, and records
+     * the ones the provider accepted. Returns the number recorded as posted.
+     */
+    int postBatch() {
+        Integer posted = new TransactionTemplate(transactionManager).execute(status -> {
+            List<SettlementPosting> claimed = settlementRepository.claimUnposted(batchSize);
+            Map<String, List<SettlementPosting>> byProvider = claimed.stream()
+                    .collect(Collectors.groupingBy(SettlementPosting::getWalletType, LinkedHashMap::new,
+                            Collectors.toList()));
+
+            Map<Long, String> externalIds = new HashMap<>(claimed.size());
+            for (Map.Entry<String, List<SettlementPosting>> provider : byProvider.entrySet()) {
+                try {
+                    externalIds.putAll(integrationService.postSettlement(provider.getKey(), provider.getValue()));
+                } catch (RuntimeException e) {
+                    // Left unposted; the reference keeps a retry from posting twice
+                    log.error("Settlement posting to provider {} failed", provider.getKey(), e);
+                    meterRegistry.counter("wallet.settlement.failures", "stage", "post").increment();
+                }
+            }
+
+            if (!externalIds.isEmpty()) {
+                settlementRepository.markPosted(externalIds, LocalDateTime.now());
+            }
+            return externalIds.size();
+        });
+        int count = posted == null ? 0 : posted;
+        meterRegistry.counter("wallet.settlement.postings").increment(count);
+        return count;
+    }
+}
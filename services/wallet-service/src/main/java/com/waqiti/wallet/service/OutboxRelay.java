@@ -0,0 +1,116 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.OutboxEvent;
+import com.waqiti.wallet.repository.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes outbox events to Kafka in insertion order. Only one instance
+ * relays at a time, guarded by a PostgreSQL advisory lock, and a batch is
+ * deleted only after every message in it has been acknowledged. Together with
+ * the idempotent producer this keeps messages with the same key in order; a
+ * crash between send and delete can redeliver a batch, so consumers should
+ * de-duplicate on the outbox-id header.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    static final String OUTBOX_ID_HEADER = "outbox-id";
+
+    // Advisory lock key shared by every wallet-service instance
+    private static final long RELAY_LOCK_KEY = 0x77616c6c65744fL;
+
+    @Value("${wallet.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${wallet.outbox.relay.send-timeout:30s}")
+    private Duration sendTimeout;
+
+    /**
+     * Drains the outbox until it is empty or another instance holds the relay lock
+     */
+    @Scheduled(fixedDelayString = "${wallet.outbox.relay.poll-interval:200}")
+    public void relay() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed != null && relayed == batchSize);
+        } catch (RuntimeException e) {
+            // The batch stays in the outbox and is retried on the next poll
+            log.error("Outbox relay failed", e);
+            meterRegistry.counter("wallet.outbox.relay.failures").increment();
+        }
+    }
+
+    /**
+     * Sends one batch of outbox events and deletes them once Kafka has
+     * acknowledged all of them
+     */
+    int relayBatch() {
+        if (!outboxRepository.tryAdvisoryLock(RELAY_LOCK_KEY)) {
+            return 0;
+        }
+
+        List<OutboxEvent> events = outboxRepository.findOldest(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ProducerRecord<String, String> record =
+                    new ProducerRecord<>(event.getTopic(), event.getMessageKey(), event.getPayload());
+            record.headers().add(OUTBOX_ID_HEADER, event.getId().toString().getBytes(StandardCharsets.UTF_8));
+            sends.add(kafkaTemplate.send(record));
+        }
+        kafkaTemplate.flush();
+
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to publish outbox batch of " + events.size() + " events", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing outbox batch", e);
+        }
+
+        outboxRepository.deleteByIds(events.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+
+        meterRegistry.counter("wallet.outbox.relayed").increment(events.size());
+        meterRegistry.timer("wallet.outbox.relay.lag")
+                .record(Duration.between(events.get(0).getCreatedAt(), LocalDateTime.now()));
+        return events.size();
+    }
+}
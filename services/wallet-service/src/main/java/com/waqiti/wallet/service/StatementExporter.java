@@ -0,0 +1,201 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.waqiti.wallet.domain.WalletNotFoundException;
+import com.waqiti.wallet.dto.StatementFormat;
+import com.waqiti.wallet.dto.StatementLine;
+import com.waqiti.wallet.repository.StatementRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports wallet statements as CSV or NDJSON. Rows are read through a
+ * forward-only cursor and written straight to the response, so memory use
+ * does not depend on the length of the statement.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatementExporter {
+    private final WalletRepository walletRepository;
+    private final StatementRepository statementRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final String CSV_HEADER =
+            "transaction_id,created_at,type,status,direction,counterparty_wallet_id,amount,currency,external_id,description";
+
+    @Value("${wallet.statement.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${wallet.statement.max-days:366}")
+    private long maxDays;
+
+    /**
+     * Validates a statement request and returns a body that streams it. The
+     * checks run before the response is committed, so a bad request still
+     * gets an error status.
+     *
+     * @param from first day of the statement, inclusive
+     * @param to   last day of the statement, inclusive
+     */
+    public StreamingResponseBody export(UUID walletId, LocalDate from, LocalDate to,
+                                        StatementFormat format, boolean gzip) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Statement end date is before its start date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new IllegalArgumentException("Statement period cannot exceed " + maxDays + " days");
+        }
+        if (!walletRepository.existsById(walletId)) {
+            throw new WalletNotFoundException("Wallet not found: " + walletId);
+        }
+
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        return out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, BUFFER_SIZE);
+                write(walletId, start, end, format, compressed);
+                compressed.finish();
+            } else {
+                write(walletId, start, end, format, out);
+            }
+        };
+    }
+
+    /**
+     * Writes the transactions of a wallet created in [from, to) to the stream.
+     * The cursor needs a transaction to fetch in chunks; it is read-only.
+     */
+    void write(UUID walletId, LocalDateTime from, LocalDateTime to, StatementFormat format,
+               OutputStream out) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        LineWriter lineWriter = format == StatementFormat.CSV ? csvWriter(writer) : ndjsonWriter(writer);
+        AtomicLong rows = new AtomicLong();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        try {
+            transactionTemplate.executeWithoutResult(status -> statementRepository.streamWalletTransactions(
+                    walletId, from, to, fetchSize, line -> {
+                        try {
+                            lineWriter.write(line);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        rows.incrementAndGet();
+                    }));
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor has been closed by now
+            log.warn("Statement export for wallet {} aborted after {} rows", walletId, rows.get());
+            throw e.getCause();
+        } finally {
+            meterRegistry.counter("wallet.statement.rows", "format", format.name()).increment(rows.get());
+            sample.stop(meterRegistry.timer("wallet.statement.export", "format", format.name()));
+        }
+        writer.flush();
+
+        log.info("Exported {} statement rows for wallet {}", rows.get(), walletId);
+    }
+
+    private LineWriter csvWriter(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        return line -> {
+            writer.write(line.getTransactionId().toString());
+            writer.write(',');
+            writer.write(line.getCreatedAt().toString());
+            writer.write(',');
+            writer.write(line.getType());
+            writer.write(',');
+            writer.write(line.getStatus());
+            writer.write(',');
+            writer.write(line.getDirection().name());
+            writer.write(',');
+            if (line.getCounterpartyWalletId() != null) {
+                writer.write(line.getCounterpartyWalletId().toString());
+            }
+            writer.write(',');
+            writer.write(line.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(line.getCurrency());
+            writer.write(',');
+            writeCsvField(writer, line.getExternalId());
+            writer.write(',');
+            writeCsvField(writer, line.getDescription());
+            writer.write('\n');
+        };
+    }
+
+    private LineWriter ndjsonWriter(Writer writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        generator.setRootValueSeparator(null);
+        ObjectWriter valueWriter = objectMapper.writerFor(StatementLine.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return line -> {
+            valueWriter.writeValue(generator, line);
+            generator.writeRaw('\n');
+            // Moves the line into the buffered writer, which decides when to send it
+            generator.flush();
+        };
+    }
+
+    /**
+     * Writes a free-text CSV field, quoted when it contains a separator, quote
+     * or line break
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @FunctionalInterface
+    private interface LineWriter {
+        void write(StatementLine line) throws IOException;
+    }
+}
@@ -0,0 +1,151 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.TransactionStateLogEntry;
+import com.waqiti.wallet.domain.TransactionStateTransition;
+import com.waqiti.wallet.domain.UserTransaction;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.TransactionStateLogRepository;
+import com.waqiti.wallet.repository.UserTransactionRepository;
+import com.waqiti.wallet.repository.WalletOwnerView;
+import com.waqiti.wallet.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only journal of wallet transactions. A transaction row is inserted
+ * once, in its final state, and the status changes that led there are
+ * appended to the transaction_state_log table, which Hibernate inserts in
+ * JDBC batches. Each side of a transaction is also indexed by wallet owner in
+ * the user_transactions projection.
+ *
+ * Deposits and withdrawals call the provider between two database
+ * transactions, so their row is inserted IN_PROGRESS first and its final
+ * status is written by {@link #appendStatus}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionJournal {
+    private final TransactionRepository transactionRepository;
+    private final TransactionStateLogRepository stateLogRepository;
+    private final UserTransactionRepository userTransactionRepository;
+    private final WalletRepository walletRepository;
+
+    /**
+     * Writes a transaction and its status changes in the current transaction
+     */
+    @Transactional
+    public Transaction append(Transaction transaction) {
+        return appendAll(List.of(transaction)).get(0);
+    }
+
+    /**
+     * Writes transactions and their status changes in the current transaction
+     */
+    @Transactional
+    public List<Transaction> appendAll(List<Transaction> transactions) {
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+
+        // Take the transitions from the given instances; a merged copy does not carry them
+        List<TransactionStateLogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            UUID transactionId = saved.get(i).getId();
+            for (TransactionStateTransition transition : transactions.get(i).drainStateTransitions()) {
+                entries.add(TransactionStateLogEntry.of(transactionId, transition));
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            stateLogRepository.saveAll(entries);
+        }
+
+        userTransactionRepository.saveAll(projectByUser(saved));
+        return saved;
+    }
+
+    /**
+     * Builds the user_transactions rows for the owners of the wallets on
+     * either side of the transactions, one row per owner and transaction
+     */
+    private List<UserTransaction> projectByUser(List<Transaction> transactions) {
+        Set<UUID> walletIds = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getSourceWalletId() != null) {
+                walletIds.add(transaction.getSourceWalletId());
+            }
+            if (transaction.getTargetWalletId() != null) {
+                walletIds.add(transaction.getTargetWalletId());
+            }
+        }
+
+        Map<UUID, UUID> owners = walletRepository.findOwnersByIdIn(walletIds).stream()
+                .collect(Collectors.toMap(WalletOwnerView::getId, WalletOwnerView::getUserId));
+
+        List<UserTransaction> rows = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            UUID sourceOwner = owners.get(transaction.getSourceWalletId());
+            UUID targetOwner = owners.get(transaction.getTargetWalletId());
+            if (sourceOwner != null) {
+                rows.add(UserTransaction.of(sourceOwner, transaction, UserTransaction.Direction.OUT));
+            }
+            // A transfer between two wallets of one user is listed once in their history
+            if (targetOwner != null && !targetOwner.equals(sourceOwner)) {
+                rows.add(UserTransaction.of(targetOwner, transaction, UserTransaction.Direction.IN));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the status changes of transactions that are already stored.
+     * The rows themselves are updated by the persistence context.
+     */
+    @Transactional
+    public void appendTransitions(List<Transaction> transactions) {
+        List<TransactionStateLogEntry> entries = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            for (TransactionStateTransition transition : transaction.drainStateTransitions()) {
+                entries.add(TransactionStateLogEntry.of(transaction.getId(), transition));
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            stateLogRepository.saveAll(entries);
+        }
+    }
+
+    /**
+     * Writes the new status of a transaction inserted by an earlier database
+     * transaction, with the status changes made since
+     */
+    @Transactional
+    public Transaction appendStatus(Transaction transaction) {
+        // Loaded by its full key first, so the merge finds the row in the
+        // persistence context rather than looking for it in every partition
+        transactionRepository.findByIdAndCreatedAt(transaction.getId(), transaction.getCreatedAt());
+        Transaction saved = transactionRepository.save(transaction);
+        appendTransitions(List.of(transaction));
+        return saved;
+    }
+
+    /**
+     * Writes a failed transaction in a transaction of its own, so the record
+     * survives the rollback of the operation that failed
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Transaction appendFailed(Transaction transaction) {
+        return append(transaction);
+    }
+}
@@ -4,28 +4,40 @@
 package com.waqiti.wallet.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waqiti.wallet.domain.OutboxEvent;
 import com.waqiti.wallet.domain.Transaction;
 import com.waqiti.wallet.domain.TransactionType;
+import com.waqiti.wallet.domain.Wallet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import com.waqiti.wallet.repository.OutboxRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 /**
- * Service for logging transaction events
+ * Service for logging transaction events. Events are written to the outbox
+ * table in the caller's transaction, so they are published only if it
+ * commits; the {@link OutboxRelay} sends them to Kafka afterwards.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionLogger {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxRepository outboxRepository;
+    private final PlatformTransactionManager transactionManager;
     private final ObjectMapper objectMapper;
 
     private static final String TRANSACTION_TOPIC = "wallet-transactions";
@@ -51,7 +63,7 @@ public class TransactionLogger {
             transactionEvent.put("timestamp", LocalDateTime.now().toString());
 
             String eventJson = objectMapper.writeValueAsString(transactionEvent);
-            kafkaTemplate.send(TRANSACTION_TOPIC, transaction.getId().toString(), eventJson);
+            append(OutboxEvent.create(TRANSACTION_TOPIC, transaction.getId().toString(), eventJson));
 
             log.info("Transaction event logged: {}", transaction.getId());
         } catch (Exception e) {
@@ -76,7 +88,7 @@ public class TransactionLogger {
             walletEvent.put("timestamp", LocalDateTime.now().toString());
 
             String eventJson = objectMapper.writeValueAsString(walletEvent);
-            kafkaTemplate.send(WALLET_EVENTS_TOPIC, userId.toString(), eventJson);
+            append(OutboxEvent.create(WALLET_EVENTS_TOPIC, userId.toString(), eventJson));
 
             log.info("Wallet event logged for user: {}, transaction: {}", userId, transactionId);
         } catch (Exception e) {
@@ -85,7 +97,31 @@ public class TransactionLogger {
     }
 
     /**
-     * Logs a transaction failure
+     * Logs a completed transfer and the notification events for both wallets
+     */
+    public void logTransferEvents(Transaction transaction, Wallet sourceWallet, Wallet targetWallet) {
+        logTransaction(transaction);
+
+        logWalletEvent(
+                sourceWallet.getUserId(),
+                sourceWallet.getId(),
+                "TRANSFER_OUT",
+                transaction.getAmount(),
+                sourceWallet.getCurrency(),
+                transaction.getId());
+
+        logWalletEvent(
+                targetWallet.getUserId(),
+                targetWallet.getId(),
+                "TRANSFER_IN",
+                transaction.getAmount(),
+                targetWallet.getCurrency(),
+                transaction.getId());
+    }
+
+    /**
+     * Logs a transaction failure. The failing transaction is usually about to
+     * roll back, so the event is written in a transaction of its own.
      */
     public void logTransactionFailure(UUID transactionId, String errorMessage, String errorCode) {
         try {
@@ -97,7 +133,10 @@ public class TransactionLogger {
             failureEvent.put("timestamp", LocalDateTime.now().toString());
 
             String eventJson = objectMapper.writeValueAsString(failureEvent);
-            kafkaTemplate.send(TRANSACTION_TOPIC, transactionId.toString(), eventJson);
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.insertAll(
+                    List.of(OutboxEvent.create(TRANSACTION_TOPIC, transactionId.toString(), eventJson))));
 
             log.info("Transaction failure logged: {}", transactionId);
         } catch (Exception e) {
@@ -117,4 +156,43 @@ public class TransactionLogger {
         log.info("Created transaction audit: {}", transaction.getId());
         return transaction;
     }
-}
\ No newline at end of file
+
+    /**
+     * Queues an event for the outbox. Inside a transaction the events are
+     * collected and inserted in one batch just before commit; otherwise the
+     * event is inserted right away.
+     */
+    private void append(OutboxEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxRepository.insertAll(List.of(event));
+            return;
+        }
+
+        // Synchronizations are suspended with their transaction, so a nested
+        // REQUIRES_NEW transaction gets a buffer of its own
+        OutboxFlush flush = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(OutboxFlush.class::isInstance)
+                .map(OutboxFlush.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    OutboxFlush created = new OutboxFlush();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+        flush.events.add(event);
+    }
+
+    /**
+     * Writes the outbox events buffered for one transaction before it commits
+     */
+    private class OutboxFlush implements TransactionSynchronization {
+        private final List<OutboxEvent> events = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!events.isEmpty()) {
+                outboxRepository.insertAll(events);
+            }
+        }
+    }
+}
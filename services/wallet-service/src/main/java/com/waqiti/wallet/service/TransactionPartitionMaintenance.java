@@ -0,0 +1,93 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.repository.AdvisoryLockRepository;
+import com.waqiti.wallet.repository.TransactionPartitionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+
+/**
+ * Keeps the monthly partitions of the transactions table in shape: creates
+ * the partitions of the coming months ahead of time, so rows never land in
+ * the default partition, and archives the months past the retention period.
+ * Only one instance runs it; the others find the lock taken and skip.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.transactions.partitions.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionPartitionMaintenance {
+    private final TransactionPartitionRepository partitionRepository;
+    private final AdvisoryLockRepository advisoryLockRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${wallet.transactions.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${wallet.transactions.partitions.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${wallet.transactions.partitions.archive-tablespace:}")
+    private String archiveTablespace;
+
+    @Scheduled(cron = "${wallet.transactions.partitions.cron:0 30 0 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Boolean created = transactionTemplate.execute(status -> {
+            if (!advisoryLockRepository.tryLock(AdvisoryLockRepository.JOB_LOCK_NAMESPACE, "transaction-partitions")) {
+                return false;
+            }
+            for (int ahead = 0; ahead <= monthsAhead; ahead++) {
+                partitionRepository.ensurePartition(current.plusMonths(ahead));
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(created)) {
+            log.info("Transaction partitions are being maintained by another instance");
+            return;
+        }
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (YearMonth month : partitionRepository.findPartitionMonths()) {
+            if (!month.isBefore(oldestKept)) {
+                break;
+            }
+            archive(transactionTemplate, month);
+        }
+    }
+
+    /**
+     * Archives one month in its own transaction, so a month that cannot get
+     * its lock does not hold back the others. It is retried on the next run.
+     */
+    private void archive(TransactionTemplate transactionTemplate, YearMonth month) {
+        try {
+            Boolean archived = transactionTemplate.execute(status -> {
+                if (!advisoryLockRepository.tryLock(
+                        AdvisoryLockRepository.JOB_LOCK_NAMESPACE, "transaction-partitions")) {
+                    return false;
+                }
+                partitionRepository.archivePartition(month, archiveTablespace);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(archived)) {
+                return;
+            }
+            log.info("Archived transactions of {}", month);
+            meterRegistry.counter("wallet.transactions.partitions.archived").increment();
+        } catch (RuntimeException e) {
+            log.error("Archiving transactions of {} failed", month, e);
+            meterRegistry.counter("wallet.transactions.partitions.failures").increment();
+        }
+    }
+}
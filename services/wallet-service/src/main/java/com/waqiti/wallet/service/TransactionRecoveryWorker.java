@@ -0,0 +1,290 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.TransactionStatus;
+import com.waqiti.wallet.domain.TransactionType;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finishes transactions that a crashed or timed-out instance left behind:
+ * transfers booked locally but never posted to the provider, and rows still
+ * PENDING or IN_PROGRESS. Workers claim batches with FOR UPDATE SKIP LOCKED,
+ * so every instance and every worker thread takes a disjoint set of rows and
+ * holds it until its batch commits.
+ *
+ * Postings, deposits and withdrawals carry the transaction ID as reference,
+ * so the provider is asked first and a movement is never posted twice.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.recovery.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class TransactionRecoveryWorker {
+    private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionJournal transactionJournal;
+    private final WalletLedger walletLedger;
+    private final IntegrationService integrationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+    private final Executor recoveryExecutor;
+
+    private static final String SYSTEM_USER = "SYSTEM";
+
+    private final AtomicLong unpostedBacklog = new AtomicLong();
+    private final AtomicLong abandonedBacklog = new AtomicLong();
+
+    @Value("${wallet.recovery.stale-after:5m}")
+    private Duration staleAfter;
+
+    @Value("${wallet.recovery.batch-size:50}")
+    private int batchSize;
+
+    @Value("${wallet.recovery.workers:4}")
+    private int workers;
+
+    // Same-provider transfers are netted by the NetSettlementJob while within its lookback
+    @Value("${wallet.settlement.enabled:false}")
+    private boolean settlementEnabled;
+
+    @Value("${wallet.settlement.lookback:1h}")
+    private Duration settlementLookback;
+
+    public TransactionRecoveryWorker(
+            TransactionRepository transactionRepository,
+            WalletRepository walletRepository,
+            TransactionJournal transactionJournal,
+            WalletLedger walletLedger,
+            IntegrationService integrationService,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Qualifier("recoveryExecutor") Executor recoveryExecutor) {
+        this.transactionRepository = transactionRepository;
+        this.walletRepository = walletRepository;
+        this.transactionJournal = transactionJournal;
+        this.walletLedger = walletLedger;
+        this.integrationService = integrationService;
+        this.eventPublisher = eventPublisher;
+        this.transactionManager = transactionManager;
+        this.meterRegistry = meterRegistry;
+        this.recoveryExecutor = recoveryExecutor;
+
+        meterRegistry.gauge("wallet.recovery.backlog", List.of(Tag.of("state", "unposted")), unpostedBacklog);
+        meterRegistry.gauge("wallet.recovery.backlog", List.of(Tag.of("state", "abandoned")), abandonedBacklog);
+    }
+
+    /**
+     * Measures the backlog and, if there is one, drains it with all workers
+     */
+    @Scheduled(fixedDelayString = "${wallet.recovery.poll-interval:30000}")
+    public void recover() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(staleAfter);
+        unpostedBacklog.set(transactionRepository.countUnposted(staleBefore, sameProviderBefore(staleBefore)));
+        abandonedBacklog.set(transactionRepository.countAbandoned(staleBefore));
+        if (unpostedBacklog.get() + abandonedBacklog.get() == 0) {
+            return;
+        }
+
+        log.info("Recovering {} unposted and {} abandoned transactions",
+                unpostedBacklog.get(), abandonedBacklog.get());
+        List<CompletableFuture<Void>> runs = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            runs.add(CompletableFuture.runAsync(() -> drain(staleBefore), recoveryExecutor));
+        }
+        CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Recovers batches until one comes back short or with unresolved rows,
+     * which are left for the next run
+     */
+    void drain(LocalDateTime staleBefore) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            Integer resolved;
+            do {
+                resolved = transactionTemplate.execute(status -> recoverBatch(staleBefore));
+            } while (resolved != null && resolved == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Transaction recovery batch failed", e);
+            meterRegistry.counter("wallet.recovery.failures").increment();
+        }
+    }
+
+    /**
+     * Claims one batch and resolves what it can inside the current transaction.
+     * Returns the number of transactions resolved.
+     */
+    int recoverBatch(LocalDateTime staleBefore) {
+        List<Transaction> claimed = new ArrayList<>(
+                transactionRepository.claimUnposted(staleBefore, sameProviderBefore(staleBefore), batchSize));
+        if (claimed.size() < batchSize) {
+            claimed.addAll(transactionRepository.claimAbandoned(staleBefore, batchSize - claimed.size()));
+        }
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        int resolved = 0;
+        List<UUID> bookedIds = new ArrayList<>();
+        List<UUID> touchedWalletIds = new ArrayList<>();
+        for (Transaction transaction : claimed) {
+            String outcome;
+            try {
+                outcome = transaction.getStatus() == TransactionStatus.COMPLETED
+                        ? postUnposted(transaction)
+                        : resolveAbandoned(transaction);
+            } catch (RuntimeException e) {
+                // The outcome is unknown; the row stays as it is for the next run
+                log.warn("Could not recover transaction {}: {}", transaction.getId(), e.getMessage());
+                outcome = "error";
+            }
+
+            meterRegistry.counter("wallet.recovery.transactions", "outcome", outcome).increment();
+            if ("error".equals(outcome) || "manual".equals(outcome)) {
+                continue;
+            }
+            resolved++;
+            transaction.setUpdatedBy(SYSTEM_USER);
+            meterRegistry.timer("wallet.recovery.latency", "outcome", outcome)
+                    .record(Duration.between(transaction.getCreatedAt(), LocalDateTime.now()));
+            if ("completed".equals(outcome) || "released".equals(outcome)) {
+                bookedIds.add(transaction.getId());
+                addWallets(touchedWalletIds, transaction);
+            }
+        }
+
+        transactionJournal.appendTransitions(claimed);
+        if (!bookedIds.isEmpty()) {
+            eventPublisher.publishEvent(new LedgerBookedEvent(bookedIds, touchedWalletIds, false));
+        }
+        return resolved;
+    }
+
+    /**
+     * Creation time before which unposted same-provider transfers are posted
+     * one by one. With settlement on, that is once they have fallen out of the
+     * settlement lookback, which the settlement job no longer nets.
+     */
+    private LocalDateTime sameProviderBefore(LocalDateTime staleBefore) {
+        if (!settlementEnabled || settlementLookback.compareTo(staleAfter) <= 0) {
+            return staleBefore;
+        }
+        // staleBefore is now minus staleAfter
+        return staleBefore.minus(settlementLookback.minus(staleAfter));
+    }
+
+    /**
+     * Posts a locally booked transfer, unless the provider already has it
+     */
+    private String postUnposted(Transaction transaction) {
+        String reference = transaction.getId().toString();
+        Optional<String> posted = integrationService.findPostedTransaction(reference);
+        if (posted.isPresent()) {
+            transaction.recordExternalPosting(posted.get());
+            return "found";
+        }
+
+        Wallet sourceWallet = walletRepository.findById(transaction.getSourceWalletId()).orElseThrow();
+        Wallet targetWallet = walletRepository.findById(transaction.getTargetWalletId()).orElseThrow();
+        transaction.recordExternalPosting(integrationService.transferBetweenWallets(
+                sourceWallet, targetWallet, transaction.getAmount(), reference));
+        return "posted";
+    }
+
+    /**
+     * Completes an abandoned transaction the provider has posted and fails
+     * one it has not. An IN_PROGRESS withdrawal holds the reservation that
+     * was committed with it, so it is completed as it stands or has its
+     * reservation released. Anything else changes the ledger only together
+     * with its final status, so it is applied to the ledger once posted.
+     */
+    private String resolveAbandoned(Transaction transaction) {
+        Optional<String> posted = integrationService.findPostedTransaction(transaction.getId().toString());
+        boolean reserved = transaction.getType() == TransactionType.WITHDRAWAL
+                && transaction.getStatus() == TransactionStatus.IN_PROGRESS;
+        if (posted.isEmpty()) {
+            if (reserved) {
+                walletLedger.release(transaction.getSourceWalletId(), transaction.getAmount());
+            }
+            transaction.fail("Abandoned before completion and not posted externally");
+            return reserved ? "released" : "failed";
+        }
+        if (!reserved && !applyToLedger(transaction)) {
+            log.error("Transaction {} was posted externally as {} but cannot be applied to the local ledger",
+                    transaction.getId(), posted.get());
+            return "manual";
+        }
+        transaction.complete(posted.get());
+        return "completed";
+    }
+
+    /**
+     * Applies a transaction to the local ledger in the usual row order. A
+     * transfer whose second leg is rejected takes its first leg back, so it
+     * is applied entirely or not at all.
+     */
+    private boolean applyToLedger(Transaction transaction) {
+        UUID source = transaction.getSourceWalletId();
+        UUID target = transaction.getTargetWalletId();
+        if (source == null) {
+            return walletLedger.tryCredit(target, transaction.getAmount());
+        }
+        if (target == null) {
+            return walletLedger.tryDebit(source, transaction.getAmount());
+        }
+
+        if (WalletLedger.UPDATE_ORDER.compare(source, target) < 0) {
+            if (!walletLedger.tryDebit(source, transaction.getAmount())) {
+                return false;
+            }
+            if (!walletLedger.tryCredit(target, transaction.getAmount())) {
+                walletLedger.tryCredit(source, transaction.getAmount());
+                return false;
+            }
+        } else {
+            if (!walletLedger.tryCredit(target, transaction.getAmount())) {
+                return false;
+            }
+            if (!walletLedger.tryDebit(source, transaction.getAmount())) {
+                walletLedger.tryDebit(target, transaction.getAmount());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addWallets(List<UUID> walletIds, Transaction transaction) {
+        if (transaction.getSourceWalletId() != null) {
+            walletIds.add(transaction.getSourceWalletId());
+        }
+        if (transaction.getTargetWalletId() != null) {
+            walletIds.add(transaction.getTargetWalletId());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.TransactionStatus;
+import com.waqiti.wallet.dto.TransactionResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Server-sent event streams of accepted transfers. A subscriber gets the
+ * current status right away and the final one as soon as the transfer is
+ * booked or failed, after which the stream ends.
+ *
+ * Transfers finished on this instance are pushed by the transfer workers;
+ * those finished elsewhere are found by a periodic bulk read of every
+ * transfer still watched here.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransferStatusStream {
+    private final WalletService walletService;
+
+    private final Map<UUID, Watch> subscribers = new ConcurrentHashMap<>();
+
+    @Value("${wallet.async-transfer.stream-timeout:60s}")
+    private Duration streamTimeout;
+
+    /**
+     * Opens a stream for a transfer, starting from its current status
+     */
+    public SseEmitter subscribe(TransactionResponse current) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        if (isFinal(current)) {
+            send(emitter, current);
+            emitter.complete();
+            return emitter;
+        }
+
+        UUID transactionId = current.getId();
+        subscribers.computeIfAbsent(transactionId, id -> new Watch(current.getCreatedAt(), new CopyOnWriteArrayList<>()))
+                .emitters().add(emitter);
+        emitter.onCompletion(() -> unsubscribe(transactionId, emitter));
+        emitter.onTimeout(() -> unsubscribe(transactionId, emitter));
+        emitter.onError(e -> unsubscribe(transactionId, emitter));
+        send(emitter, current);
+        return emitter;
+    }
+
+    /**
+     * Sends the final status of a transfer to its subscribers and ends their streams
+     */
+    public void publish(TransactionResponse transaction) {
+        if (!isFinal(transaction)) {
+            return;
+        }
+        Watch watch = subscribers.remove(transaction.getId());
+        if (watch == null) {
+            return;
+        }
+        for (SseEmitter emitter : watch.emitters()) {
+            send(emitter, transaction);
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Picks up transfers finished by other instances. The read only goes back
+     * as far as the oldest watched transfer was created.
+     */
+    @Scheduled(fixedDelayString = "${wallet.async-transfer.stream-refresh:1000}")
+    public void refresh() {
+        Map<UUID, Watch> watched = Map.copyOf(subscribers);
+        if (watched.isEmpty()) {
+            return;
+        }
+        LocalDateTime since = watched.values().stream()
+                .map(Watch::createdAt)
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+        walletService.getTransactions(watched.keySet(), since).forEach(this::publish);
+    }
+
+    private void unsubscribe(UUID transactionId, SseEmitter emitter) {
+        subscribers.computeIfPresent(transactionId, (id, watch) -> {
+            watch.emitters().remove(emitter);
+            return watch.emitters().isEmpty() ? null : watch;
+        });
+    }
+
+    private void send(SseEmitter emitter, TransactionResponse transaction) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(transaction.getId() + ":" + transaction.getStatus())
+                    .name("status")
+                    .data(transaction));
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone away
+            log.debug("Dropping status stream of transaction {}: {}", transaction.getId(), e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    // The streams open on a transfer, and when the transfer was created
+    private record Watch(LocalDateTime createdAt, List<SseEmitter> emitters) {
+    }
+
+    private static boolean isFinal(TransactionResponse transaction) {
+        return TransactionStatus.COMPLETED.name().equals(transaction.getStatus())
+                || TransactionStatus.FAILED.name().equals(transaction.getStatus());
+    }
+}
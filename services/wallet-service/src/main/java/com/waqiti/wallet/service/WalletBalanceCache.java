@@ -0,0 +1,221 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.waqiti.wallet.dto.WalletResponse;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Two-tier cache of rendered wallets: an in-process Caffeine cache in front of
+ * Redis. Every entry carries the wallet version it was read at and the time it
+ * was cached, and a caller states how stale a value it will accept.
+ *
+ * Local mutations invalidate both tiers after commit by leaving a tombstone
+ * with the invalidation time. A value read before that time is never cached
+ * afterwards, so a slow reader cannot put back a balance that was already
+ * superseded. Other instances drop their local copy within the staleness bound.
+ */
+@Component
+@Slf4j
+public class WalletBalanceCache {
+
+    private static final String KEY_PREFIX = "wallet:balance:";
+
+    // Stores an entry unless it is older than the current one or was read before the last invalidation
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>(
+            "local inv = redis.call('HGET', KEYS[1], 'invalidatedAt') " +
+            "if inv and tonumber(inv) >= tonumber(ARGV[3]) then return 0 end " +
+            "local cur = redis.call('HGET', KEYS[1], 'version') " +
+            "if cur and tonumber(cur) > tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'version', ARGV[1], 'payload', ARGV[2], 'cachedAt', ARGV[4]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[5]) " +
+            "return 1",
+            Long.class);
+
+    private static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HDEL', KEYS[1], 'version', 'payload', 'cachedAt') " +
+            "redis.call('HSET', KEYS[1], 'invalidatedAt', ARGV[1]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration maxStaleness;
+    private final Duration defaultStaleness;
+    private final Cache<UUID, Entry> localCache;
+
+    public WalletBalanceCache(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${wallet.balance-cache.max-staleness:30s}") Duration maxStaleness,
+            @Value("${wallet.balance-cache.default-staleness:5s}") Duration defaultStaleness,
+            @Value("${wallet.balance-cache.local-max-size:100000}") long localMaxSize) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxStaleness = maxStaleness;
+        this.defaultStaleness = defaultStaleness;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(maxStaleness)
+                .build();
+    }
+
+    /**
+     * Gets a cached wallet using the default staleness bound
+     */
+    public Optional<WalletResponse> get(UUID walletId) {
+        return get(walletId, defaultStaleness);
+    }
+
+    /**
+     * Gets a cached wallet that is at most the given age. The bound is capped
+     * at the configured maximum; a zero bound always misses.
+     */
+    public Optional<WalletResponse> get(UUID walletId, Duration staleness) {
+        long bound = Math.min(staleness.toMillis(), maxStaleness.toMillis());
+        if (bound <= 0) {
+            return Optional.empty();
+        }
+        long oldestAccepted = System.currentTimeMillis() - bound;
+
+        Entry local = localCache.getIfPresent(walletId);
+        if (local != null && local.response != null && local.cachedAt >= oldestAccepted) {
+            meterRegistry.counter("wallet.balance.cache", "tier", "local", "result", "hit").increment();
+            return Optional.of(local.response);
+        }
+
+        try {
+            List<Object> fields = redisTemplate.opsForHash()
+                    .multiGet(KEY_PREFIX + walletId, List.of("version", "payload", "cachedAt"));
+            if (fields.get(1) != null && Long.parseLong((String) fields.get(2)) >= oldestAccepted) {
+                Entry shared = new Entry(
+                        objectMapper.readValue((String) fields.get(1), WalletResponse.class),
+                        Long.parseLong((String) fields.get(0)),
+                        Long.parseLong((String) fields.get(2)),
+                        0L);
+                putLocal(walletId, shared, shared.cachedAt);
+                meterRegistry.counter("wallet.balance.cache", "tier", "redis", "result", "hit").increment();
+                return Optional.of(shared.response);
+            }
+        } catch (Exception e) {
+            log.warn("Balance cache read failed for wallet {}", walletId, e);
+        }
+
+        meterRegistry.counter("wallet.balance.cache", "tier", "redis", "result", "miss").increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Caches a wallet read from the database
+     *
+     * @param readStartedAt when the database read started, in epoch millis
+     */
+    public void put(WalletResponse wallet, long version, long readStartedAt) {
+        long now = System.currentTimeMillis();
+        putLocal(wallet.getId(), new Entry(wallet, version, now, 0L), readStartedAt);
+
+        try {
+            redisTemplate.execute(PUT_SCRIPT, List.of(KEY_PREFIX + wallet.getId()),
+                    Long.toString(version),
+                    objectMapper.writeValueAsString(wallet),
+                    Long.toString(readStartedAt),
+                    Long.toString(now),
+                    Long.toString(maxStaleness.toMillis()));
+        } catch (Exception e) {
+            log.warn("Balance cache write failed for wallet {}", wallet.getId(), e);
+        }
+    }
+
+    /**
+     * Invalidates wallets in both tiers
+     */
+    public void evict(Collection<UUID> walletIds) {
+        long now = System.currentTimeMillis();
+        for (UUID walletId : walletIds) {
+            localCache.put(walletId, new Entry(null, 0L, 0L, now));
+            try {
+                redisTemplate.execute(EVICT_SCRIPT, List.of(KEY_PREFIX + walletId),
+                        Long.toString(now),
+                        Long.toString(maxStaleness.toMillis()));
+            } catch (Exception e) {
+                log.warn("Balance cache invalidation failed for wallet {}", walletId, e);
+            }
+        }
+    }
+
+    /**
+     * Invalidates wallets once the current transaction commits, or right away
+     * when there is none
+     */
+    public void evictAfterCommit(Collection<UUID> walletIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(walletIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(walletIds);
+            }
+        });
+    }
+
+    /**
+     * Invalidates every wallet touched by a ledger booking
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLedgerBooked(LedgerBookedEvent event) {
+        evict(event.getWalletIds());
+    }
+
+    private void putLocal(UUID walletId, Entry entry, long readStartedAt) {
+        localCache.asMap().compute(walletId, (id, current) -> {
+            if (current == null) {
+                return entry;
+            }
+            if (current.invalidatedAt >= readStartedAt || current.version > entry.version) {
+                return current;
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * A cached wallet, or a tombstone when response is null
+     */
+    private static class Entry {
+        private final WalletResponse response;
+        private final long version;
+        private final long cachedAt;
+        private final long invalidatedAt;
+
+        Entry(WalletResponse response, long version, long cachedAt, long invalidatedAt) {
+            this.response = response;
+            this.version = version;
+            this.cachedAt = cachedAt;
+            this.invalidatedAt = invalidatedAt;
+        }
+    }
+}
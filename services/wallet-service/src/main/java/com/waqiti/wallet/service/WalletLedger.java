@@ -0,0 +1,184 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.ConcurrentModificationException;
+import com.waqiti.wallet.domain.InsufficientBalanceException;
+import com.waqiti.wallet.domain.WalletNotActiveException;
+import com.waqiti.wallet.domain.WalletNotFoundException;
+import com.waqiti.wallet.domain.WalletStatus;
+import com.waqiti.wallet.repository.WalletLedgerView;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies balance changes to the wallets table with single conditional
+ * statements instead of SELECT ... FOR UPDATE. The row lock taken by each
+ * update lasts only until the surrounding transaction commits, and a rejected
+ * update is reported as a metric rather than as lock queueing.
+ *
+ * Every update bumps the wallet version, so a stale Wallet entity that is
+ * saved later in the same transaction fails its optimistic lock check.
+ *
+ * The row lock is taken by the update itself, so its duration is also
+ * recorded as the lock wait of the conditional update.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WalletLedger {
+    private final WalletRepository walletRepository;
+    private final MeterRegistry meterRegistry;
+    private final MovementMetrics movementMetrics;
+
+    private static final String SYSTEM_USER = "SYSTEM";
+
+    // Same order as PostgreSQL's uuid comparison, which the batch locking query uses
+    static final Comparator<UUID> UPDATE_ORDER = Comparator.comparing(UUID::toString);
+
+    /**
+     * Moves funds between two wallets, updating the rows in ID order so that
+     * concurrent opposing transfers cannot deadlock
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transfer(UUID sourceWalletId, UUID targetWalletId, BigDecimal amount) {
+        if (UPDATE_ORDER.compare(sourceWalletId, targetWalletId) < 0) {
+            debit(sourceWalletId, amount);
+            credit(targetWalletId, amount);
+        } else {
+            // A rejected debit rolls the credit back with the transaction
+            credit(targetWalletId, amount);
+            debit(sourceWalletId, amount);
+        }
+    }
+
+    /**
+     * Moves funds between two wallets like {@link #transfer}, but takes the
+     * first leg back when the second is rejected. Both balances are left as
+     * they were, so the caller can record the failure and still commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transferOrUndo(UUID sourceWalletId, UUID targetWalletId, BigDecimal amount) {
+        if (UPDATE_ORDER.compare(sourceWalletId, targetWalletId) < 0) {
+            debit(sourceWalletId, amount);
+            if (!tryCredit(targetWalletId, amount)) {
+                RuntimeException rejection = rejected("credit", targetWalletId, amount);
+                credit(sourceWalletId, amount);
+                throw rejection;
+            }
+        } else {
+            credit(targetWalletId, amount);
+            if (!tryDebit(sourceWalletId, amount)) {
+                RuntimeException rejection = rejected("debit", sourceWalletId, amount);
+                debit(targetWalletId, amount);
+                throw rejection;
+            }
+        }
+    }
+
+    /**
+     * Debits a wallet if it is active and holds enough funds
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void debit(UUID walletId, BigDecimal amount) {
+        if (!tryDebit(walletId, amount)) {
+            throw rejected("debit", walletId, amount);
+        }
+    }
+
+    /**
+     * Credits a wallet if it is active
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void credit(UUID walletId, BigDecimal amount) {
+        if (!tryCredit(walletId, amount)) {
+            throw rejected("credit", walletId, amount);
+        }
+    }
+
+    /**
+     * Debits a wallet if it is active and holds enough funds, returning false
+     * instead of throwing when the debit is rejected
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryDebit(UUID walletId, BigDecimal amount) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int updated = walletRepository.debitIfSufficient(walletId, amount, LocalDateTime.now(), SYSTEM_USER);
+        long nanos = sample.stop(meterRegistry.timer("wallet.ledger.update.time", "operation", "debit"));
+        movementMetrics.lockWait("conditional_update").record(nanos, TimeUnit.NANOSECONDS);
+
+        if (updated > 0) {
+            meterRegistry.counter("wallet.ledger.updates", "operation", "debit", "outcome", "applied").increment();
+        }
+        return updated > 0;
+    }
+
+    /**
+     * Credits a wallet if it is active, returning false instead of throwing
+     * when the credit is rejected
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryCredit(UUID walletId, BigDecimal amount) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int updated = walletRepository.creditIfActive(walletId, amount, LocalDateTime.now(), SYSTEM_USER);
+        long nanos = sample.stop(meterRegistry.timer("wallet.ledger.update.time", "operation", "credit"));
+        movementMetrics.lockWait("conditional_update").record(nanos, TimeUnit.NANOSECONDS);
+
+        if (updated > 0) {
+            meterRegistry.counter("wallet.ledger.updates", "operation", "credit", "outcome", "applied").increment();
+        }
+        return updated > 0;
+    }
+
+    /**
+     * Gives back funds reserved by an earlier debit, such as a withdrawal
+     * whose payout failed. The wallet may have been frozen since the debit,
+     * so the refund does not depend on its status.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(UUID walletId, BigDecimal amount) {
+        if (walletRepository.refund(walletId, amount, LocalDateTime.now(), SYSTEM_USER) == 0) {
+            throw rejected("release", walletId, amount);
+        }
+        meterRegistry.counter("wallet.ledger.updates", "operation", "release", "outcome", "applied").increment();
+    }
+
+    /**
+     * Works out why a conditional update matched no row and builds the matching exception
+     */
+    RuntimeException rejected(String operation, UUID walletId, BigDecimal amount) {
+        WalletLedgerView view = walletRepository.findLedgerViewById(walletId).orElse(null);
+
+        RuntimeException exception;
+        String outcome;
+        if (view == null) {
+            outcome = "not_found";
+            exception = new WalletNotFoundException("Wallet not found with ID: " + walletId);
+        } else if (view.getStatus() != WalletStatus.ACTIVE) {
+            outcome = "not_active";
+            exception = new WalletNotActiveException("Wallet is not active: " + walletId +
+                    ", status: " + view.getStatus());
+        } else if ("debit".equals(operation) && view.getBalance().compareTo(amount) < 0) {
+            outcome = "insufficient_funds";
+            exception = new InsufficientBalanceException(
+                    String.format("Insufficient balance: required %s, available %s", amount, view.getBalance()));
+        } else {
+            outcome = "conflict";
+            exception = new ConcurrentModificationException("Wallet was modified concurrently: " + walletId);
+        }
+
+        log.warn("Ledger {} of {} on wallet {} rejected: {}", operation, amount, walletId, outcome);
+        meterRegistry.counter("wallet.ledger.updates", "operation", operation, "outcome", outcome).increment();
+        return exception;
+    }
+}
@@ -7,20 +7,37 @@ import com.waqiti.wallet.domain.*;
 import com.waqiti.wallet.dto.*;
 import com.waqiti.wallet.domain.*;
 import com.waqiti.wallet.dto.*;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.event.TransferAcceptedEvent;
 import com.waqiti.wallet.repository.TransactionRepository;
 import com.waqiti.wallet.repository.WalletRepository;
+import com.waqiti.wallet.service.MovementMetrics.Movement;
+import com.waqiti.wallet.service.MovementMetrics.Operation;
+import com.waqiti.wallet.service.MovementMetrics.Stage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -34,8 +51,24 @@ public class WalletService {
     private final TransactionRepository transactionRepository;
     private final IntegrationService integrationService;
     private final TransactionLogger transactionLogger;
+    private final WalletLedger walletLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final HotWalletSequencer hotWalletSequencer;
+    private final TransactionJournal transactionJournal;
+    private final WalletBalanceCache walletBalanceCache;
+    private final ExternalLedgerSync externalLedgerSync;
+    private final IdempotencyStore idempotencyStore;
+    private final MovementMetrics movementMetrics;
+    private final WalletStateFeed walletStateFeed;
 
     private static final String SYSTEM_USER = "SYSTEM";
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // Statuses are mostly asked for right after a transfer; older ones are looked up in every partition
+    private static final Duration RECENT_TRANSACTION_WINDOW = Duration.ofDays(2);
+
+    @Value("${wallet.batch-transfer.group-size:500}")
+    private int batchTransferGroupSize;
 
     /**
      * Creates a new wallet
@@ -72,6 +105,7 @@ public class WalletService {
 
         wallet.setCreatedBy(SYSTEM_USER);
         wallet = walletRepository.save(wallet);
+        walletStateFeed.emitBeforeCommit(List.of(wallet.getId()));
 
         // Log wallet creation
         transactionLogger.logWalletEvent(
@@ -86,25 +120,34 @@ public class WalletService {
     }
 
     /**
-     * Gets a wallet by ID
+     * Gets a wallet by ID, served from the balance cache when a recent enough
+     * copy exists
      */
-    @Transactional(readOnly = true)
     public WalletResponse getWallet(UUID walletId) {
-        log.info("Getting wallet: {}", walletId);
-
-        Wallet wallet = getWalletEntity(walletId);
+        return getWallet(walletId, null);
+    }
 
-        // Update balance from external system
-        BigDecimal remoteBalance = integrationService.getWalletBalance(wallet);
+    /**
+     * Gets a wallet by ID, accepting a cached copy up to the given age. A null
+     * bound uses the configured default.
+     */
+    public WalletResponse getWallet(UUID walletId, Duration maxStaleness) {
+        log.info("Getting wallet: {}", walletId);
 
-        // Only update the balance if it has changed
-        if (wallet.getBalance().compareTo(remoteBalance) != 0) {
-            log.info("Wallet balance updated from {} to {}", wallet.getBalance(), remoteBalance);
-            wallet.updateBalance(remoteBalance);
-            walletRepository.save(wallet);
+        Optional<WalletResponse> cached = maxStaleness == null
+                ? walletBalanceCache.get(walletId)
+                : walletBalanceCache.get(walletId, maxStaleness);
+        if (cached.isPresent()) {
+            return cached.get();
         }
 
-        return mapToWalletResponse(wallet);
+        // The local ledger is authoritative; external balances are recorded by reconciliation
+        long readStartedAt = System.currentTimeMillis();
+        Wallet wallet = getWalletEntity(walletId);
+        WalletResponse response = mapToWalletResponse(wallet);
+        walletBalanceCache.put(response, wallet.getVersion(), readStartedAt);
+
+        return response;
     }
 
     /**
@@ -116,24 +159,15 @@ public class WalletService {
 
         List<Wallet> wallets = walletRepository.findByUserId(userId);
 
-        // Update balances from external system in parallel
-
-
-
-
-        wallets.parallelStream().forEach(wallet -> {
+        // Balances come from the local ledger; the provider figures are refreshed
+        // in the background with one bulk call
+        if (!wallets.isEmpty()) {
             try {
-                BigDecimal remoteBalance = integrationService.getWalletBalance(wallet);
-                if (wallet.getBalance().compareTo(remoteBalance) != 0) {
-                    log.info("Wallet {} balance updated from {} to {}",
-                            wallet.getId(), wallet.getBalance(), remoteBalance);
-                    wallet.updateBalance(remoteBalance);
-                    walletRepository.save(wallet);
-                }
-            } catch (Exception e) {
-                log.error("Failed to update wallet balance: {}", wallet.getId(), e);
+                externalLedgerSync.refreshExternalBalances(wallets);
+            } catch (TaskRejectedException e) {
+                log.debug("Skipping external balance refresh for user {}: executor saturated", userId);
             }
-        });
+        }
 
         return wallets.stream()
                 .map(this::mapToWalletResponse)
@@ -141,116 +175,134 @@ public class WalletService {
     }
 
     /**
-     * Transfers money between wallets with optimistic locking
+     * Transfers money between wallets
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public TransactionResponse transfer(TransferRequest request) {
+        return transfer(request, null);
+    }
+
+    /**
+     * Transfers money between wallets. The transfer is booked in the local ledger
+     * with conditional updates only; posting to the external provider happens
+     * after commit. Runs under READ COMMITTED so the conditional updates always
+     * evaluate against the latest committed balance.
+     *
+     * Transfers into a hot wallet are handed to the {@link HotWalletSequencer},
+     * which books them in micro-batches on the wallet's single writer thread.
+     * No database transaction is held while waiting for its acknowledgement.
+     *
+     * A request carrying an idempotency key that has already succeeded gets
+     * the stored result back without being booked again.
+     */
+    public TransactionResponse transfer(TransferRequest request, String idempotencyKey) {
+        return timed(Operation.TRANSFER, movement -> transfer(request, idempotencyKey, movement));
+    }
+
+    private TransactionResponse transfer(TransferRequest request, String idempotencyKey, Movement movement) {
         log.info("Transferring {} from wallet {} to wallet {}",
                 request.getAmount(), request.getSourceWalletId(), request.getTargetWalletId());
 
-        // Lock source wallet first to prevent deadlocks
-        Wallet sourceWallet = walletRepository.findByIdWithLock(request.getSourceWalletId())
+        if (request.getSourceWalletId().equals(request.getTargetWalletId())) {
+            throw new IllegalArgumentException("Source and target wallets must be different");
+        }
+
+        Optional<TransactionResponse> replay = idempotencyStore.get(idempotencyKey);
+        if (replay.isPresent()) {
+            movement.replayed();
+            return replayed(replay.get(), idempotencyKey, TransactionType.TRANSFER,
+                    request.getSourceWalletId(), request.getTargetWalletId(), request.getAmount());
+        }
+
+        if (hotWalletSequencer.isHot(request.getTargetWalletId())) {
+            TransactionResponse response = mapToTransactionResponse(hotWalletSequencer.transfer(
+                    request.getSourceWalletId(),
+                    request.getTargetWalletId(),
+                    request.getAmount(),
+                    request.getDescription(),
+                    idempotencyKey));
+            movement.stage(Stage.SEQUENCER);
+            idempotencyStore.putAfterCommit(idempotencyKey, response);
+            return response;
+        }
+
+        TransactionResponse response = new TransactionTemplate(transactionManager).execute(status -> {
+            // An accepted transfer may still be pending under the same key
+            Optional<TransactionResponse> stored = findAccepted(idempotencyKey);
+            if (stored.isPresent()) {
+                movement.replayed();
+                return replayed(stored.get(), idempotencyKey, TransactionType.TRANSFER,
+                        request.getSourceWalletId(), request.getTargetWalletId(), request.getAmount());
+            }
+            return bookTransfer(request, idempotencyKey, movement);
+        });
+        movement.stage(Stage.COMMIT);
+        return response;
+    }
+
+    /**
+     * Books a single transfer inside the current transaction
+     */
+    private TransactionResponse bookTransfer(TransferRequest request, String idempotencyKey, Movement movement) {
+        // Read without locking; balance and status are enforced again by the
+        // conditional ledger updates
+        Wallet sourceWallet = walletRepository.findById(request.getSourceWalletId())
                 .orElseThrow(() -> new WalletNotFoundException("Source wallet not found: " +
                         request.getSourceWalletId()));
 
-        Wallet targetWallet = walletRepository.findByIdWithLock(request.getTargetWalletId())
+        Wallet targetWallet = walletRepository.findById(request.getTargetWalletId())
                 .orElseThrow(() -> new WalletNotFoundException("Target wallet not found: " +
                         request.getTargetWalletId()));
 
-        // Validate wallets
-        validateWalletForTransfer(sourceWallet);
-        validateWalletForTransfer(targetWallet);
+        movement.walletType(sourceWallet.getWalletType());
+        validateTransfer(sourceWallet, targetWallet);
+        Money amount = Money.of(request.getAmount(), sourceWallet.getCurrency());
+        movement.stage(Stage.LOOKUP);
 
-        // Validate currencies match
-        if (!sourceWallet.getCurrency().equals(targetWallet.getCurrency())) {
-            throw new IllegalArgumentException(
-                    "Currency mismatch: source wallet currency is " + sourceWallet.getCurrency() +
-                            ", target wallet currency is " + targetWallet.getCurrency());
-        }
-
-        // Create transaction record
+        // Create transaction record; it is written once, in its final state
         Transaction transaction = transactionLogger.createTransactionAudit(
                 sourceWallet.getId(),
                 targetWallet.getId(),
-                request.getAmount(),
+                amount.toBigDecimal(),
                 sourceWallet.getCurrency(),
                 TransactionType.TRANSFER,
                 request.getDescription());
 
         transaction.setCreatedBy(SYSTEM_USER);
-        transaction = transactionRepository.save(transaction);
+        transaction.assignReferenceId(idempotencyKey);
 
         try {
             // Mark transaction as in progress
             transaction.markInProgress();
-            transaction = transactionRepository.save(transaction);
-
-            // First check if source wallet has sufficient balance in our system
-            if (sourceWallet.getBalance().compareTo(request.getAmount()) < 0) {
-                // Try to update balance from external system
-                BigDecimal remoteBalance = integrationService.getWalletBalance(sourceWallet);
-                sourceWallet.updateBalance(remoteBalance);
-                walletRepository.save(sourceWallet);
-
-                // Check again
-                if (sourceWallet.getBalance().compareTo(request.getAmount()) < 0) {
-                    throw new InsufficientBalanceException(
-                            "Insufficient balance: " + sourceWallet.getBalance() +
-                                    " " + sourceWallet.getCurrency());
-                }
-            }
-
-            // Perform transfer in external system
-            String externalId = integrationService.transferBetweenWallets(
-                    sourceWallet,
-                    targetWallet,
-                    request.getAmount());
-
-            // Update wallet balances
-            BigDecimal sourceBalance = integrationService.getWalletBalance(sourceWallet);
-            BigDecimal targetBalance = integrationService.getWalletBalance(targetWallet);
-
-            sourceWallet.updateBalance(sourceBalance);
-            targetWallet.updateBalance(targetBalance);
-            sourceWallet.setUpdatedBy(SYSTEM_USER);
-            targetWallet.setUpdatedBy(SYSTEM_USER);
 
-            walletRepository.save(sourceWallet);
-            walletRepository.save(targetWallet);
+            // Book the movement in the local ledger, which is authoritative. The
+            // external provider is posted and reconciled after commit.
+            walletLedger.transfer(sourceWallet.getId(), targetWallet.getId(), amount.toBigDecimal());
+            movement.stage(Stage.LEDGER);
 
             // Mark transaction as completed
-            transaction.complete(externalId);
+            transaction.complete();
             transaction.setUpdatedBy(SYSTEM_USER);
-            transaction = transactionRepository.save(transaction);
+            transaction = transactionJournal.append(transaction);
+            movement.stage(Stage.JOURNAL);
 
-            // Log transaction
-            transactionLogger.logTransaction(transaction);
+            eventPublisher.publishEvent(new LedgerBookedEvent(
+                    List.of(transaction.getId()),
+                    List.of(sourceWallet.getId(), targetWallet.getId()),
+                    true));
 
-            // Log wallet events for notification
-            transactionLogger.logWalletEvent(
-                    sourceWallet.getUserId(),
-                    sourceWallet.getId(),
-                    "TRANSFER_OUT",
-                    request.getAmount(),
-                    sourceWallet.getCurrency(),
-                    transaction.getId());
-
-            transactionLogger.logWalletEvent(
-                    targetWallet.getUserId(),
-                    targetWallet.getId(),
-                    "TRANSFER_IN",
-                    request.getAmount(),
-                    targetWallet.getCurrency(),
-                    transaction.getId());
+            transactionLogger.logTransferEvents(transaction, sourceWallet, targetWallet);
+            movement.stage(Stage.EVENTS);
 
-            return mapToTransactionResponse(transaction);
+            TransactionResponse response = mapToTransactionResponse(transaction);
+            idempotencyStore.putAfterCommit(idempotencyKey, response);
+            return response;
         } catch (Exception e) {
             log.error("Transfer failed", e);
 
             // Mark transaction as failed
             transaction.fail(e.getMessage());
             transaction.setUpdatedBy(SYSTEM_USER);
-            transactionRepository.save(transaction);
+            transaction = transactionJournal.appendFailed(transaction);
 
             // Log failure
             transactionLogger.logTransactionFailure(
@@ -267,166 +319,594 @@ public class WalletService {
     }
 
     /**
-     * Deposits money into a wallet
+     * Accepts a transfer for asynchronous booking. The request is validated
+     * and stored as PENDING; a transfer worker books it after commit. The
+     * balance check here only rejects hopeless requests early, the booking
+     * checks it again under lock.
+     *
+     * A request carrying an idempotency key that is already held by a pending
+     * or completed transfer gets that transfer back.
+     */
+    public TransactionResponse acceptTransfer(TransferRequest request, String idempotencyKey) {
+        log.info("Accepting transfer of {} from wallet {} to wallet {}",
+                request.getAmount(), request.getSourceWalletId(), request.getTargetWalletId());
+
+        if (request.getSourceWalletId().equals(request.getTargetWalletId())) {
+            throw new IllegalArgumentException("Source and target wallets must be different");
+        }
+
+        Optional<TransactionResponse> replay = idempotencyStore.get(idempotencyKey);
+        if (replay.isPresent()) {
+            return replayed(replay.get(), idempotencyKey, TransactionType.TRANSFER,
+                    request.getSourceWalletId(), request.getTargetWalletId(), request.getAmount());
+        }
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Optional<TransactionResponse> stored = findAccepted(idempotencyKey);
+            if (stored.isPresent()) {
+                return replayed(stored.get(), idempotencyKey, TransactionType.TRANSFER,
+                        request.getSourceWalletId(), request.getTargetWalletId(), request.getAmount());
+            }
+
+            Wallet sourceWallet = walletRepository.findById(request.getSourceWalletId())
+                    .orElseThrow(() -> new WalletNotFoundException("Source wallet not found: " +
+                            request.getSourceWalletId()));
+            Wallet targetWallet = walletRepository.findById(request.getTargetWalletId())
+                    .orElseThrow(() -> new WalletNotFoundException("Target wallet not found: " +
+                            request.getTargetWalletId()));
+
+            validateTransfer(sourceWallet, targetWallet);
+            Money amount = Money.of(request.getAmount(), sourceWallet.getCurrency());
+            if (!sourceWallet.hasSufficientBalance(amount)) {
+                throw new InsufficientBalanceException("Insufficient balance in wallet: " + sourceWallet.getId());
+            }
+
+            Transaction transaction = transactionLogger.createTransactionAudit(
+                    sourceWallet.getId(),
+                    targetWallet.getId(),
+                    amount.toBigDecimal(),
+                    sourceWallet.getCurrency(),
+                    TransactionType.TRANSFER,
+                    request.getDescription());
+            transaction.setCreatedBy(SYSTEM_USER);
+            transaction.assignReferenceId(idempotencyKey);
+            transaction = transactionJournal.append(transaction);
+
+            eventPublisher.publishEvent(new TransferAcceptedEvent(transaction.getId()));
+            return mapToTransactionResponse(transaction);
+        });
+    }
+
+    /**
+     * Books the oldest accepted transfer, created since the given time, that
+     * no other worker holds, the same way a synchronous transfer is booked:
+     * with conditional ledger updates, or by the sequencer when the target is
+     * a hot wallet. A transfer that can no longer be booked is failed.
+     * Returns empty when there is nothing left to claim.
      */
+    public Optional<TransactionResponse> completePendingTransfer(LocalDateTime acceptedSince) {
+        AtomicReference<Transaction> claimedRow = new AtomicReference<>();
+        Transaction transaction;
+        try {
+            transaction = new TransactionTemplate(transactionManager).execute(status ->
+                    claimAndBook(acceptedSince, claimedRow));
+        } catch (RuntimeException e) {
+            if (claimedRow.get() == null) {
+                throw e;
+            }
+            // Nothing was booked, but the row would be claimed first again on every drain
+            log.error("Booking accepted transfer {} failed", claimedRow.get().getId(), e);
+            transaction = failAcceptedTransfer(claimedRow.get(), e);
+        }
+        if (transaction == null) {
+            return Optional.empty();
+        }
+
+        if (transaction.getStatus() == TransactionStatus.IN_PROGRESS) {
+            try {
+                transaction = hotWalletSequencer.completeAccepted(transaction);
+            } catch (RuntimeException e) {
+                // The batch may still commit; otherwise the recovery worker fails the row
+                log.warn("Accepted transfer {} left in progress: {}", transaction.getId(), e.getMessage());
+            }
+        }
+
+        TransactionResponse response = mapToTransactionResponse(transaction);
+        if (transaction.getStatus() == TransactionStatus.COMPLETED) {
+            idempotencyStore.putAfterCommit(transaction.getReferenceId(), response);
+        }
+        return Optional.of(response);
+    }
+
+    /**
+     * Claims the oldest accepted transfer inside the current transaction and
+     * books it, unless it goes to a hot wallet. Returns null when there is
+     * nothing to claim.
+     */
+    private Transaction claimAndBook(LocalDateTime acceptedSince, AtomicReference<Transaction> claimedRow) {
+        List<Transaction> claimed = transactionRepository.claimPendingTransfers(acceptedSince, 1);
+        if (claimed.isEmpty()) {
+            return null;
+        }
+
+        Transaction transaction = claimed.get(0);
+        claimedRow.set(transaction);
+        transaction.markInProgress();
+        // A hot wallet's writer books it in a batch of its own, so it is
+        // only marked IN_PROGRESS here and handed over after commit
+        if (!hotWalletSequencer.isHot(transaction.getTargetWalletId())) {
+            bookAcceptedTransfer(transaction);
+        }
+        transaction.setUpdatedBy(SYSTEM_USER);
+        transactionJournal.appendTransitions(List.of(transaction));
+        return transaction;
+    }
+
+    /**
+     * Fails an accepted transfer whose booking was rolled back, unless another
+     * worker has taken it since
+     */
+    private Transaction failAcceptedTransfer(Transaction claimed, RuntimeException cause) {
+        UUID transactionId = claimed.getId();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Transaction transaction = transactionRepository
+                    .findByIdAndCreatedAtWithLock(transactionId, claimed.getCreatedAt())
+                    .orElseThrow(() -> new TransactionNotFoundException("Transaction not found: " + transactionId));
+            if (transaction.getStatus() != TransactionStatus.PENDING) {
+                return transaction;
+            }
+            transaction.fail("Booking failed: " + cause.getMessage());
+            transaction.setUpdatedBy(SYSTEM_USER);
+            transactionJournal.appendTransitions(List.of(transaction));
+            transactionLogger.logTransactionFailure(transactionId, cause.getMessage(), "TRANSFER_FAILED");
+            return transaction;
+        });
+    }
+
+    /**
+     * Books a claimed transfer in the local ledger inside the current
+     * transaction, or fails it if it is rejected
+     */
+    private void bookAcceptedTransfer(Transaction transaction) {
+        try {
+            Wallet sourceWallet = walletRepository.findById(transaction.getSourceWalletId())
+                    .orElseThrow(() -> new WalletNotFoundException("Source wallet not found: " +
+                            transaction.getSourceWalletId()));
+            Wallet targetWallet = walletRepository.findById(transaction.getTargetWalletId())
+                    .orElseThrow(() -> new WalletNotFoundException("Target wallet not found: " +
+                            transaction.getTargetWalletId()));
+            validateTransfer(sourceWallet, targetWallet);
+            Money amount = Money.ofStored(transaction.getAmount(), transaction.getCurrency());
+
+            // A rejected leg is taken back, so a failed transfer commits without moving funds
+            walletLedger.transferOrUndo(sourceWallet.getId(), targetWallet.getId(), amount.toBigDecimal());
+            transaction.complete();
+
+            eventPublisher.publishEvent(new LedgerBookedEvent(
+                    List.of(transaction.getId()),
+                    List.of(sourceWallet.getId(), targetWallet.getId()),
+                    true));
+            transactionLogger.logTransferEvents(transaction, sourceWallet, targetWallet);
+        } catch (RuntimeException e) {
+            log.warn("Accepted transfer {} rejected: {}", transaction.getId(), e.getMessage());
+            transaction.fail(e.getMessage());
+            transactionLogger.logTransactionFailure(
+                    transaction.getId(),
+                    e.getMessage(),
+                    e instanceof InsufficientBalanceException ? "INSUFFICIENT_FUNDS" : "TRANSFER_FAILED");
+        }
+    }
+
+    /**
+     * Gets a transaction, in whatever status it currently has. The newest
+     * partitions are searched first.
+     */
+    @Transactional(readOnly = true)
+    public TransactionResponse getTransaction(UUID transactionId) {
+        return transactionRepository
+                .findByIdAndCreatedAtGreaterThanEqual(transactionId,
+                        LocalDateTime.now().minus(RECENT_TRANSACTION_WINDOW))
+                .or(() -> transactionRepository.findById(transactionId))
+                .map(this::mapToTransactionResponse)
+                .orElseThrow(() -> new TransactionNotFoundException("Transaction not found: " + transactionId));
+    }
+
+    /**
+     * Gets several transactions created at or after the given time; unknown
+     * IDs are left out
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionResponse> getTransactions(Collection<UUID> transactionIds, LocalDateTime since) {
+        return transactionRepository.findByIdInAndCreatedAtGreaterThanEqual(transactionIds, since).stream()
+                .map(this::mapToTransactionResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Executes many transfers in grouped database transactions. Each group locks
+     * every involved wallet once, in ID order, and inserts its transaction rows
+     * in a single batch. A transfer that fails validation is reported in the
+     * response without affecting the rest of its group.
+     */
+    public BatchTransferResponse batchTransfer(BatchTransferRequest request) {
+        List<TransferRequest> transfers = request.getTransfers();
+        log.info("Processing batch of {} transfers", transfers.size());
+
+        // Pessimistic locks already serialize the wallets, and READ COMMITTED avoids
+        // serialization failures when a lock is granted after a concurrent update
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        BatchTransferResponse.Result[] results = new BatchTransferResponse.Result[transfers.size()];
+        int groupSize = Math.max(1, batchTransferGroupSize);
+
+        for (int from = 0; from < transfers.size(); from += groupSize) {
+            int groupStart = from;
+            int groupEnd = Math.min(from + groupSize, transfers.size());
+
+            try {
+                List<BatchTransferResponse.Result> groupResults = transactionTemplate.execute(status ->
+                        processTransferGroup(transfers.subList(groupStart, groupEnd), groupStart));
+                groupResults.forEach(result -> results[result.getIndex()] = result);
+            } catch (Exception e) {
+                log.error("Batch transfer group {}-{} failed", groupStart, groupEnd - 1, e);
+                for (int i = groupStart; i < groupEnd; i++) {
+                    results[i] = BatchTransferResponse.Result.builder()
+                            .index(i)
+                            .error("Transfer group failed: " + e.getMessage())
+                            .build();
+                }
+            }
+        }
+
+        int succeeded = 0;
+        for (BatchTransferResponse.Result result : results) {
+            if (result.getTransaction() != null) {
+                succeeded++;
+            }
+        }
+
+        return BatchTransferResponse.builder()
+                .requested(transfers.size())
+                .succeeded(succeeded)
+                .failed(transfers.size() - succeeded)
+                .results(List.of(results))
+                .build();
+    }
+
+    /**
+     * Books one group of a batch transfer inside the current transaction
+     */
+    private List<BatchTransferResponse.Result> processTransferGroup(List<TransferRequest> group, int offset) {
+        Set<UUID> walletIds = new LinkedHashSet<>();
+        for (TransferRequest transfer : group) {
+            walletIds.add(transfer.getSourceWalletId());
+            walletIds.add(transfer.getTargetWalletId());
+        }
+
+        Map<UUID, Wallet> wallets = lockWallets(walletIds);
+
+        List<BatchTransferResponse.Result> results = new ArrayList<>(group.size());
+        List<Transaction> bookedTransactions = new ArrayList<>(group.size());
+        List<Integer> bookedIndexes = new ArrayList<>(group.size());
+        Set<Wallet> touchedWallets = new LinkedHashSet<>();
+
+        for (int i = 0; i < group.size(); i++) {
+            TransferRequest transfer = group.get(i);
+            int index = offset + i;
+
+            try {
+                if (transfer.getSourceWalletId().equals(transfer.getTargetWalletId())) {
+                    throw new IllegalArgumentException("Source and target wallets must be different");
+                }
+
+                Wallet sourceWallet = requireWallet(wallets, transfer.getSourceWalletId(), "Source");
+                Wallet targetWallet = requireWallet(wallets, transfer.getTargetWalletId(), "Target");
+                validateTransfer(sourceWallet, targetWallet);
+                Money amount = Money.of(transfer.getAmount(), sourceWallet.getCurrency());
+
+                // Debit validates the balance before changing anything, so a rejected
+                // transfer leaves both wallets untouched
+                sourceWallet.debit(amount);
+                targetWallet.credit(amount);
+                sourceWallet.setUpdatedBy(SYSTEM_USER);
+                targetWallet.setUpdatedBy(SYSTEM_USER);
+                touchedWallets.add(sourceWallet);
+                touchedWallets.add(targetWallet);
+
+                Transaction transaction = transactionLogger.createTransactionAudit(
+                        sourceWallet.getId(),
+                        targetWallet.getId(),
+                        amount.toBigDecimal(),
+                        sourceWallet.getCurrency(),
+                        TransactionType.TRANSFER,
+                        transfer.getDescription());
+                transaction.setCreatedBy(SYSTEM_USER);
+                transaction.complete();
+
+                bookedTransactions.add(transaction);
+                bookedIndexes.add(index);
+            } catch (RuntimeException e) {
+                log.warn("Batch transfer {} rejected: {}", index, e.getMessage());
+                results.add(BatchTransferResponse.Result.builder()
+                        .index(index)
+                        .error(e.getMessage())
+                        .build());
+            }
+        }
+
+        if (bookedTransactions.isEmpty()) {
+            return results;
+        }
+
+        walletRepository.saveAll(touchedWallets);
+        List<Transaction> savedTransactions = transactionJournal.appendAll(bookedTransactions);
+
+        for (int i = 0; i < savedTransactions.size(); i++) {
+            Transaction transaction = savedTransactions.get(i);
+            results.add(BatchTransferResponse.Result.builder()
+                    .index(bookedIndexes.get(i))
+                    .transaction(mapToTransactionResponse(transaction))
+                    .build());
+
+            transactionLogger.logTransferEvents(transaction,
+                    wallets.get(transaction.getSourceWalletId()),
+                    wallets.get(transaction.getTargetWalletId()));
+        }
+
+        eventPublisher.publishEvent(new LedgerBookedEvent(
+                savedTransactions.stream().map(Transaction::getId).collect(Collectors.toList()),
+                touchedWallets.stream().map(Wallet::getId).collect(Collectors.toList()),
+                true));
+
+        return results;
+    }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    /**
+     * Deposits money into a wallet
+     */
     public TransactionResponse deposit(DepositRequest request) {
+        return deposit(request, null);
+    }
+
+    /**
+     * Deposits money into a wallet, or returns the stored result when the
+     * idempotency key is already held.
+     *
+     * The provider is called between two database transactions: the first
+     * stores the deposit IN_PROGRESS and the second credits the wallet. A
+     * wallet that stops accepting credits in between leaves the deposit
+     * FAILED with the provider's posting ID, so it can be reconciled. The
+     * provider gets the transaction ID as reference, so a deposit left
+     * IN_PROGRESS by a crash is settled by the recovery worker.
+     */
+    public TransactionResponse deposit(DepositRequest request, String idempotencyKey) {
+        return timed(Operation.DEPOSIT, movement -> deposit(request, idempotencyKey, movement));
+    }
+
+    private TransactionResponse deposit(DepositRequest request, String idempotencyKey, Movement movement) {
         log.info("Depositing {} into wallet {}", request.getAmount(), request.getWalletId());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Started started = transactionTemplate.execute(status -> startDeposit(request, idempotencyKey, movement));
+        movement.stage(Stage.COMMIT);
+        if (started.replay() != null) {
+            return started.replay();
+        }
+        Transaction transaction = started.transaction();
+        Wallet wallet = started.wallet();
 
-        Wallet wallet = walletRepository.findByIdWithLock(request.getWalletId())
+        String externalId;
+        try {
+            // Perform deposit in external system
+            externalId = integrationService.depositToWallet(
+                    wallet, transaction.getAmount(), transaction.getId().toString());
+            movement.stage(Stage.PROVIDER);
+        } catch (Exception e) {
+            log.error("Deposit failed", e);
+            transactionTemplate.executeWithoutResult(status ->
+                    recordFailure(transaction, e.getMessage(), "DEPOSIT_FAILED"));
+            throw new TransactionFailedException("Deposit failed: " + e.getMessage(), e);
+        }
+
+        TransactionResponse response = transactionTemplate.execute(status ->
+                finishDeposit(transaction, wallet, externalId, idempotencyKey, movement));
+        movement.stage(Stage.COMMIT);
+        if (TransactionStatus.FAILED.toString().equals(response.getStatus())) {
+            throw new TransactionFailedException("Deposit failed: " + response.getDescription());
+        }
+        return response;
+    }
+
+    /**
+     * Checks the wallet and stores the deposit IN_PROGRESS
+     */
+    private Started startDeposit(DepositRequest request, String idempotencyKey, Movement movement) {
+        Optional<TransactionResponse> replay = idempotencyStore.get(idempotencyKey);
+        if (replay.isEmpty()) {
+            replay = findAccepted(idempotencyKey);
+        }
+        if (replay.isPresent()) {
+            movement.replayed();
+            return Started.replay(replayed(replay.get(), idempotencyKey, TransactionType.DEPOSIT,
+                    null, request.getWalletId(), request.getAmount()));
+        }
+
+        Wallet wallet = walletRepository.findById(request.getWalletId())
                 .orElseThrow(() -> new WalletNotFoundException("Wallet not found: " +
                         request.getWalletId()));
 
         // Validate wallet
+        movement.walletType(wallet.getWalletType());
         validateWalletForDeposit(wallet);
+        Money amount = Money.of(request.getAmount(), wallet.getCurrency());
+        movement.stage(Stage.LOOKUP);
 
         // Create transaction record
         Transaction transaction = transactionLogger.createTransactionAudit(
                 null,
                 wallet.getId(),
-                request.getAmount(),
+                amount.toBigDecimal(),
                 wallet.getCurrency(),
                 TransactionType.DEPOSIT,
                 request.getDescription());
 
         transaction.setCreatedBy(SYSTEM_USER);
-        transaction = transactionRepository.save(transaction);
+        transaction.assignReferenceId(idempotencyKey);
+        transaction.markInProgress();
+        transaction = transactionJournal.append(transaction);
+        movement.stage(Stage.JOURNAL);
 
-        try {
-            // Mark transaction as in progress
-            transaction.markInProgress();
-            transaction = transactionRepository.save(transaction);
+        return new Started(null, transaction, wallet);
+    }
 
-            // Perform deposit in external system
-            String externalId = integrationService.depositToWallet(
-                    wallet,
-                    request.getAmount());
+    /**
+     * Credits a deposit the provider has posted. A wallet that no longer
+     * accepts credits fails the deposit, keeping the provider's posting ID.
+     */
+    private TransactionResponse finishDeposit(Transaction transaction, Wallet wallet, String externalId,
+            String idempotencyKey, Movement movement) {
+        // Credit the local ledger
+        if (!walletLedger.tryCredit(wallet.getId(), transaction.getAmount())) {
+            RuntimeException rejection = walletLedger.rejected("credit", wallet.getId(), transaction.getAmount());
+            log.error("Deposit {} was posted by the provider as {} but could not be credited; " +
+                    "left FAILED for reconciliation", transaction.getId(), externalId, rejection);
+            transaction.recordExternalPosting(externalId);
+            return mapToTransactionResponse(
+                    recordFailure(transaction, rejection.getMessage(), "DEPOSIT_NOT_CREDITED"));
+        }
+        movement.stage(Stage.LEDGER);
 
-            // Update wallet balance
-            BigDecimal newBalance = integrationService.getWalletBalance(wallet);
-            wallet.updateBalance(newBalance);
-            wallet.setUpdatedBy(SYSTEM_USER);
-            walletRepository.save(wallet);
+        // Mark transaction as completed
+        transaction.complete(externalId);
+        transaction.setUpdatedBy(SYSTEM_USER);
+        Transaction completed = transactionJournal.appendStatus(transaction);
+        movement.stage(Stage.JOURNAL);
 
-            // Mark transaction as completed
-            transaction.complete(externalId);
-            transaction.setUpdatedBy(SYSTEM_USER);
-            transaction = transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new LedgerBookedEvent(
+                List.of(completed.getId()), List.of(wallet.getId()), false));
 
-            // Log transaction
-            transactionLogger.logTransaction(transaction);
+        // Log transaction
+        transactionLogger.logTransaction(completed);
 
-            // Log wallet event for notification
-            transactionLogger.logWalletEvent(
-                    wallet.getUserId(),
-                    wallet.getId(),
-                    "DEPOSIT",
-                    request.getAmount(),
-                    wallet.getCurrency(),
-                    transaction.getId());
+        // Log wallet event for notification
+        transactionLogger.logWalletEvent(
+                wallet.getUserId(),
+                wallet.getId(),
+                "DEPOSIT",
+                completed.getAmount(),
+                wallet.getCurrency(),
+                completed.getId());
+        movement.stage(Stage.EVENTS);
 
-            return mapToTransactionResponse(transaction);
-        } catch (Exception e) {
-            log.error("Deposit failed", e);
+        TransactionResponse response = mapToTransactionResponse(completed);
+        idempotencyStore.putAfterCommit(idempotencyKey, response);
+        return response;
+    }
 
-            // Mark transaction as failed
-            transaction.fail(e.getMessage());
-            transaction.setUpdatedBy(SYSTEM_USER);
-            transactionRepository.save(transaction);
+    /**
+     * Withdraws money from a wallet
+     */
+    public TransactionResponse withdraw(WithdrawalRequest request) {
+        return withdraw(request, null);
+    }
 
-            // Log failure
-            transactionLogger.logTransactionFailure(
-                    transaction.getId(),
-                    e.getMessage(),
-                    "DEPOSIT_FAILED");
+    /**
+     * Withdraws money from a wallet, or returns the stored result when the
+     * idempotency key is already held.
+     *
+     * The debit is committed as a reservation together with the IN_PROGRESS
+     * withdrawal before the provider is called, so no row lock is held
+     * during the payout. A failed payout releases the reservation. As with
+     * deposits, the transaction ID is sent as reference for recovery.
+     */
+    public TransactionResponse withdraw(WithdrawalRequest request, String idempotencyKey) {
+        return timed(Operation.WITHDRAWAL, movement -> withdraw(request, idempotencyKey, movement));
+    }
 
-            throw new TransactionFailedException("Deposit failed: " + e.getMessage(), e);
+    private TransactionResponse withdraw(WithdrawalRequest request, String idempotencyKey, Movement movement) {
+        log.info("Withdrawing {} from wallet {}", request.getAmount(), request.getWalletId());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Started started = transactionTemplate.execute(status -> startWithdrawal(request, idempotencyKey, movement));
+        movement.stage(Stage.COMMIT);
+        if (started.replay() != null) {
+            return started.replay();
         }
+        Transaction transaction = started.transaction();
+        Wallet wallet = started.wallet();
+
+        String externalId;
+        try {
+            // Perform withdrawal in external system
+            externalId = integrationService.withdrawFromWallet(
+                    wallet, transaction.getAmount(), transaction.getId().toString());
+            movement.stage(Stage.PROVIDER);
+        } catch (Exception e) {
+            log.error("Withdrawal failed", e);
+            transactionTemplate.executeWithoutResult(status -> {
+                walletLedger.release(wallet.getId(), transaction.getAmount());
+                walletBalanceCache.evictAfterCommit(List.of(wallet.getId()));
+                walletStateFeed.emitBeforeCommit(List.of(wallet.getId()));
+                recordFailure(transaction, e.getMessage(), "WITHDRAWAL_FAILED");
+            });
+            throw new TransactionFailedException("Withdrawal failed: " + e.getMessage(), e);
+        }
+
+        TransactionResponse response = transactionTemplate.execute(status ->
+                finishWithdrawal(transaction, wallet, externalId, idempotencyKey, movement));
+        movement.stage(Stage.COMMIT);
+        return response;
     }
 
     /**
-     * Withdraws money from a wallet
+     * Checks the wallet, reserves the amount and stores the withdrawal
+     * IN_PROGRESS
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public TransactionResponse withdraw(WithdrawalRequest request) {
-        log.info("Withdrawing {} from wallet {}", request.getAmount(), request.getWalletId());
+    private Started startWithdrawal(WithdrawalRequest request, String idempotencyKey, Movement movement) {
+        Optional<TransactionResponse> replay = idempotencyStore.get(idempotencyKey);
+        if (replay.isEmpty()) {
+            replay = findAccepted(idempotencyKey);
+        }
+        if (replay.isPresent()) {
+            movement.replayed();
+            return Started.replay(replayed(replay.get(), idempotencyKey, TransactionType.WITHDRAWAL,
+                    request.getWalletId(), null, request.getAmount()));
+        }
 
-        Wallet wallet = walletRepository.findByIdWithLock(request.getWalletId())
+        Wallet wallet = walletRepository.findById(request.getWalletId())
                 .orElseThrow(() -> new WalletNotFoundException("Wallet not found: " +
                         request.getWalletId()));
 
         // Validate wallet
+        movement.walletType(wallet.getWalletType());
         validateWalletForWithdrawal(wallet);
+        Money amount = Money.of(request.getAmount(), wallet.getCurrency());
+        movement.stage(Stage.LOOKUP);
 
         // Create transaction record
         Transaction transaction = transactionLogger.createTransactionAudit(
                 wallet.getId(),
                 null,
-                request.getAmount(),
+                amount.toBigDecimal(),
                 wallet.getCurrency(),
                 TransactionType.WITHDRAWAL,
                 request.getDescription());
 
         transaction.setCreatedBy(SYSTEM_USER);
-        transaction = transactionRepository.save(transaction);
+        transaction.assignReferenceId(idempotencyKey);
+        transaction.markInProgress();
 
         try {
-            // Mark transaction as in progress
-            transaction.markInProgress();
-            transaction = transactionRepository.save(transaction);
-
-            // First check if wallet has sufficient balance in our system
-            if (wallet.getBalance().compareTo(request.getAmount()) < 0) {
-                // Try to update balance from external system
-                BigDecimal remoteBalance = integrationService.getWalletBalance(wallet);
-                wallet.updateBalance(remoteBalance);
-                walletRepository.save(wallet);
-
-                // Check again
-                if (wallet.getBalance().compareTo(request.getAmount()) < 0) {
-                    throw new InsufficientBalanceException(
-                            "Insufficient balance: " + wallet.getBalance() +
-                                    " " + wallet.getCurrency());
-                }
-            }
-
-            // Perform withdrawal in external system
-            String externalId = integrationService.withdrawFromWallet(
-                    wallet,
-                    request.getAmount());
-
-            // Update wallet balance
-            BigDecimal newBalance = integrationService.getWalletBalance(wallet);
-            wallet.updateBalance(newBalance);
-            wallet.setUpdatedBy(SYSTEM_USER);
-            walletRepository.save(wallet);
-
-            // Mark transaction as completed
-            transaction.complete(externalId);
-            transaction.setUpdatedBy(SYSTEM_USER);
-            transaction = transactionRepository.save(transaction);
-
-            // Log transaction
-            transactionLogger.logTransaction(transaction);
-
-            // Log wallet event for notification
-            transactionLogger.logWalletEvent(
-                    wallet.getUserId(),
-                    wallet.getId(),
-                    "WITHDRAWAL",
-                    request.getAmount(),
-                    wallet.getCurrency(),
-                    transaction.getId());
-
-            return mapToTransactionResponse(transaction);
-        } catch (Exception e) {
+            // Reserve the funds before paying out; a failed payout releases them
+            walletLedger.debit(wallet.getId(), amount.toBigDecimal());
+            movement.stage(Stage.LEDGER);
+        } catch (RuntimeException e) {
             log.error("Withdrawal failed", e);
 
             // Mark transaction as failed
             transaction.fail(e.getMessage());
             transaction.setUpdatedBy(SYSTEM_USER);
-            transactionRepository.save(transaction);
+            transaction = transactionJournal.appendFailed(transaction);
 
             // Log failure
             transactionLogger.logTransactionFailure(
@@ -435,38 +915,123 @@ public class WalletService {
                     e instanceof InsufficientBalanceException ? "INSUFFICIENT_FUNDS" : "WITHDRAWAL_FAILED");
 
             if (e instanceof InsufficientBalanceException) {
-                throw (InsufficientBalanceException) e;
-            } else {
-                throw new TransactionFailedException("Withdrawal failed: " + e.getMessage(), e);
+                throw e;
             }
+            throw new TransactionFailedException("Withdrawal failed: " + e.getMessage(), e);
+        }
+
+        transaction = transactionJournal.append(transaction);
+        movement.stage(Stage.JOURNAL);
+
+        // The reservation changes the balance before the withdrawal is booked
+        walletBalanceCache.evictAfterCommit(List.of(wallet.getId()));
+        walletStateFeed.emitBeforeCommit(List.of(wallet.getId()));
+
+        return new Started(null, transaction, wallet);
+    }
+
+    /**
+     * Completes a withdrawal the provider has paid out
+     */
+    private TransactionResponse finishWithdrawal(Transaction transaction, Wallet wallet, String externalId,
+            String idempotencyKey, Movement movement) {
+        // Mark transaction as completed
+        transaction.complete(externalId);
+        transaction.setUpdatedBy(SYSTEM_USER);
+        Transaction completed = transactionJournal.appendStatus(transaction);
+        movement.stage(Stage.JOURNAL);
+
+        eventPublisher.publishEvent(new LedgerBookedEvent(
+                List.of(completed.getId()), List.of(wallet.getId()), false));
+
+        // Log transaction
+        transactionLogger.logTransaction(completed);
+
+        // Log wallet event for notification
+        transactionLogger.logWalletEvent(
+                wallet.getUserId(),
+                wallet.getId(),
+                "WITHDRAWAL",
+                completed.getAmount(),
+                wallet.getCurrency(),
+                completed.getId());
+        movement.stage(Stage.EVENTS);
+
+        TransactionResponse response = mapToTransactionResponse(completed);
+        idempotencyStore.putAfterCommit(idempotencyKey, response);
+        return response;
+    }
+
+    /**
+     * Writes the failure of a deposit or withdrawal stored IN_PROGRESS
+     */
+    private Transaction recordFailure(Transaction transaction, String reason, String errorCode) {
+        transaction.fail(reason);
+        transaction.setUpdatedBy(SYSTEM_USER);
+        Transaction failed = transactionJournal.appendStatus(transaction);
+
+        // Log failure
+        transactionLogger.logTransactionFailure(failed.getId(), reason, errorCode);
+        return failed;
+    }
+
+    /**
+     * Result of the first database transaction of a deposit or withdrawal:
+     * either the stored result of a replayed request, or the IN_PROGRESS row
+     * and its wallet
+     */
+    private record Started(TransactionResponse replay, Transaction transaction, Wallet wallet) {
+        static Started replay(TransactionResponse response) {
+            return new Started(response, null, null);
         }
     }
 
     /**
-     * Gets transactions for a wallet
+     * Gets transactions for a wallet, newest first. Pages are addressed by a
+     * keyset cursor on (createdAt, id), so every page costs the same index
+     * range scan and no total count is computed.
      */
     @Transactional(readOnly = true)
-    public Page<TransactionResponse> getWalletTransactions(UUID walletId, Pageable pageable) {
+    public TransactionHistoryResponse getWalletTransactions(UUID walletId, String cursor, int size) {
         log.info("Getting transactions for wallet: {}", walletId);
 
         // Ensure the wallet exists
         getWalletEntity(walletId);
 
-        Page<Transaction> transactions = transactionRepository.findByWalletId(walletId, pageable);
+        int pageSize = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
 
-        return transactions.map(this::mapToTransactionResponse);
+        // Fetch one extra row to find out whether another page follows
+        List<Transaction> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findLatestByWalletId(walletId, pageSize + 1);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            transactions = transactionRepository.findByWalletIdBefore(
+                    walletId, position.getCreatedAt(), position.getId(), pageSize + 1);
+        }
+
+        return toHistoryResponse(transactions, pageSize);
     }
 
     /**
-     * Gets transactions for a user
+     * Gets transactions for a user, newest first, from the per-user projection
      */
     @Transactional(readOnly = true)
-    public Page<TransactionResponse> getUserTransactions(UUID userId, Pageable pageable) {
+    public TransactionHistoryResponse getUserTransactions(UUID userId, String cursor, int size) {
         log.info("Getting transactions for user: {}", userId);
 
-        Page<Transaction> transactions = transactionRepository.findByUserId(userId, pageable);
+        int pageSize = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+
+        List<Transaction> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findLatestByUserId(userId, pageSize + 1);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            transactions = transactionRepository.findByUserIdBefore(
+                    userId, position.getCreatedAt(), position.getId(), pageSize + 1);
+        }
 
-        return transactions.map(this::mapToTransactionResponse);
+        return toHistoryResponse(transactions, pageSize);
     }
 
     /**
@@ -480,6 +1045,8 @@ public class WalletService {
         wallet.freeze();
         wallet.setUpdatedBy(SYSTEM_USER);
         wallet = walletRepository.save(wallet);
+        walletBalanceCache.evictAfterCommit(List.of(wallet.getId()));
+        walletStateFeed.emitBeforeCommit(List.of(wallet.getId()));
 
         // Log wallet event for notification
         transactionLogger.logWalletEvent(
@@ -504,6 +1071,8 @@ public class WalletService {
         wallet.unfreeze();
         wallet.setUpdatedBy(SYSTEM_USER);
         wallet = walletRepository.save(wallet);
+        walletBalanceCache.evictAfterCommit(List.of(wallet.getId()));
+        walletStateFeed.emitBeforeCommit(List.of(wallet.getId()));
 
         // Log wallet event for notification
         transactionLogger.logWalletEvent(
@@ -528,6 +1097,8 @@ public class WalletService {
         wallet.close();
         wallet.setUpdatedBy(SYSTEM_USER);
         wallet = walletRepository.save(wallet);
+        walletBalanceCache.evictAfterCommit(List.of(wallet.getId()));
+        walletStateFeed.emitBeforeCommit(List.of(wallet.getId()));
 
         // Log wallet event for notification
         transactionLogger.logWalletEvent(
@@ -541,6 +1112,21 @@ public class WalletService {
         return mapToWalletResponse(wallet);
     }
 
+    /**
+     * Runs a money movement, recording its stage timings once it has finished
+     */
+    private TransactionResponse timed(Operation operation, Function<Movement, TransactionResponse> body) {
+        Movement movement = movementMetrics.start(operation);
+        try {
+            TransactionResponse response = body.apply(movement);
+            movement.finish(null);
+            return response;
+        } catch (RuntimeException e) {
+            movement.finish(e);
+            throw e;
+        }
+    }
+
     /**
      * Helper method to get a wallet entity by ID
      */
@@ -549,6 +1135,42 @@ public class WalletService {
                 .orElseThrow(() -> new WalletNotFoundException("Wallet not found with ID: " + walletId));
     }
 
+    /**
+     * Locks the given wallets in ascending ID order and indexes them by ID
+     */
+    private Map<UUID, Wallet> lockWallets(Collection<UUID> walletIds) {
+        List<Wallet> wallets = movementMetrics.lockWait("select_for_update")
+                .record(() -> walletRepository.findAllByIdInWithLock(walletIds));
+        return wallets.stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+    }
+
+    /**
+     * Gets a wallet from a set of locked wallets, failing if it does not exist
+     */
+    private Wallet requireWallet(Map<UUID, Wallet> wallets, UUID walletId, String role) {
+        Wallet wallet = wallets.get(walletId);
+        if (wallet == null) {
+            throw new WalletNotFoundException(role + " wallet not found: " + walletId);
+        }
+        return wallet;
+    }
+
+    /**
+     * Validates that two wallets can take part in a transfer
+     */
+    private void validateTransfer(Wallet sourceWallet, Wallet targetWallet) {
+        validateWalletForTransfer(sourceWallet);
+        validateWalletForTransfer(targetWallet);
+
+        // Validate currencies match
+        if (!sourceWallet.getCurrency().equals(targetWallet.getCurrency())) {
+            throw new IllegalArgumentException(
+                    "Currency mismatch: source wallet currency is " + sourceWallet.getCurrency() +
+                            ", target wallet currency is " + targetWallet.getCurrency());
+        }
+    }
+
     /**
      * Validates wallet for transfer operations
      */
@@ -579,10 +1201,65 @@ public class WalletService {
         }
     }
 
+    /**
+     * Builds a history page from up to pageSize + 1 rows in history order
+     */
+    private TransactionHistoryResponse toHistoryResponse(List<Transaction> transactions, int pageSize) {
+        boolean hasMore = transactions.size() > pageSize;
+        List<Transaction> page = hasMore ? transactions.subList(0, pageSize) : transactions;
+
+        String nextCursor = null;
+        if (hasMore) {
+            Transaction last = page.get(page.size() - 1);
+            nextCursor = new TransactionCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return TransactionHistoryResponse.builder()
+                .transactions(page.stream().map(this::mapToTransactionResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Looks up the transaction holding an idempotency key, pending or
+     * completed, first taking the key's lock so concurrent first attempts run
+     * one after the other. Only a completed result is cached.
+     */
+    private Optional<TransactionResponse> findAccepted(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        idempotencyStore.lock(idempotencyKey);
+        Optional<TransactionResponse> stored = transactionRepository.findKeyHolder(idempotencyKey)
+                .map(this::mapToTransactionResponse);
+        stored.filter(response -> TransactionStatus.COMPLETED.name().equals(response.getStatus()))
+                .ifPresent(response -> idempotencyStore.putAfterCommit(idempotencyKey, response));
+        return stored;
+    }
+
+    /**
+     * Returns a stored result for a replayed request, rejecting a key that is
+     * reused for a different request
+     */
+    private TransactionResponse replayed(TransactionResponse stored, String idempotencyKey, TransactionType type,
+            UUID sourceWalletId, UUID targetWalletId, BigDecimal amount) {
+        boolean sameRequest = type.toString().equals(stored.getType())
+                && Objects.equals(sourceWalletId, stored.getSourceWalletId())
+                && Objects.equals(targetWalletId, stored.getTargetWalletId())
+                && amount.compareTo(stored.getAmount().toBigDecimal()) == 0;
+        if (!sameRequest) {
+            throw new IdempotencyKeyReusedException(
+                    "Idempotency key was already used for a different request: " + idempotencyKey);
+        }
+        log.info("Replaying transaction {} for idempotency key {}", stored.getId(), idempotencyKey);
+        return stored;
+    }
+
     /**
      * Maps a Wallet entity to a WalletResponse DTO
      */
-    private WalletResponse mapToWalletResponse(Wallet wallet) {
+    WalletResponse mapToWalletResponse(Wallet wallet) {
         return WalletResponse.builder()
                 .id(wallet.getId())
                 .userId(wallet.getUserId())
@@ -600,13 +1277,13 @@ public class WalletService {
     /**
      * Maps a Transaction entity to a TransactionResponse DTO
      */
-    private TransactionResponse mapToTransactionResponse(Transaction transaction) {
+    TransactionResponse mapToTransactionResponse(Transaction transaction) {
         return TransactionResponse.builder()
                 .id(transaction.getId())
                 .externalId(transaction.getExternalId())
                 .sourceWalletId(transaction.getSourceWalletId())
                 .targetWalletId(transaction.getTargetWalletId())
-                .amount(transaction.getAmount())
+                .amount(Money.ofStored(transaction.getAmount(), transaction.getCurrency()))
                 .currency(transaction.getCurrency())
                 .type(transaction.getType().toString())
                 .status(transaction.getStatus().toString())
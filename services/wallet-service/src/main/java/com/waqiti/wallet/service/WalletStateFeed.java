@@ -0,0 +1,121 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waqiti.wallet.domain.OutboxEvent;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.OutboxRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import com.waqiti.wallet.repository.WalletStateView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Publishes the state of changed wallets on the compacted wallet-state topic,
+ * keyed by wallet ID, so other services can keep a local replica of balance
+ * and status instead of calling the wallet API.
+ *
+ * Changes are collected per transaction and each wallet's state is read once,
+ * just before commit, after every change of the transaction has been applied.
+ * The records go through the outbox, so they are published only if the
+ * transaction commits. Consumers should keep the record with the highest
+ * version, since a redelivered batch can repeat an older one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WalletStateFeed {
+    private final WalletRepository walletRepository;
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    static final String WALLET_STATE_TOPIC = "wallet-state";
+
+    /**
+     * Every balance movement publishes a LedgerBookedEvent inside its
+     * transaction; its wallets are published at commit
+     */
+    @EventListener
+    public void onLedgerBooked(LedgerBookedEvent event) {
+        emitBeforeCommit(event.getWalletIds());
+    }
+
+    /**
+     * Publishes the state of the given wallets as of the commit of the current
+     * transaction. Outside a transaction the current state is published right away.
+     */
+    public void emitBeforeCommit(Collection<UUID> walletIds) {
+        if (walletIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(walletIds);
+            return;
+        }
+
+        StateFlush flush = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(StateFlush.class::isInstance)
+                .map(StateFlush.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    StateFlush created = new StateFlush();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+        flush.walletIds.addAll(walletIds);
+    }
+
+    private void publish(Collection<UUID> walletIds) {
+        List<WalletStateView> states = walletRepository.findStatesByIdIn(walletIds);
+        List<OutboxEvent> events = new ArrayList<>(states.size());
+        for (WalletStateView state : states) {
+            events.add(OutboxEvent.create(WALLET_STATE_TOPIC, state.getId().toString(), toJson(state)));
+        }
+        if (!events.isEmpty()) {
+            outboxRepository.insertAll(events);
+        }
+        log.debug("Published state of {} wallets", events.size());
+    }
+
+    private String toJson(WalletStateView state) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("walletId", state.getId());
+        record.put("userId", state.getUserId());
+        record.put("balance", state.getBalance());
+        record.put("currency", state.getCurrency());
+        record.put("status", state.getStatus().toString());
+        record.put("version", state.getVersion());
+        record.put("updatedAt", state.getUpdatedAt().toString());
+        try {
+            return objectMapper.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Publishes the wallets changed by one transaction before it commits
+     */
+    private class StateFlush implements TransactionSynchronization {
+        private final Set<UUID> walletIds = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            publish(walletIds);
+        }
+    }
+}
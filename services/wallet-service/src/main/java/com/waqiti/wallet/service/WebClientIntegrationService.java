@@ -0,0 +1,320 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.client.dto.*;
+import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.repository.SettlementPosting;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Integration service client on WebClient and Reactor Netty. Requests share
+ * a bounded pool of keep-alive connections, and the circuit breaker and retry
+ * of the integrationService instance are applied as Reactor operators.
+ * Selected with wallet.integration.client=webclient.
+ *
+ * The IntegrationService contract is synchronous. Every method blocks its
+ * calling thread until the answer arrives, so a single call holds a thread
+ * just as it does with the Feign client. Only calls that fan out gain, such
+ * as bulk balance requests: their chunks are sent concurrently over the pool
+ * while one thread waits for all of them.
+ */
+@Service
+@ConditionalOnProperty(name = "wallet.integration.client", havingValue = "webclient")
+@Slf4j
+public class WebClientIntegrationService implements IntegrationService {
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+
+    private static final String UNAVAILABLE = "External service unavailable. Please try again later.";
+
+    @Value("${wallet.balance-refresh.request-size:100}")
+    private int balanceRequestSize;
+
+    @Value("${wallet.integration.webclient.balance-concurrency:4}")
+    private int balanceConcurrency;
+
+    public WebClientIntegrationService(@Qualifier("integrationWebClient") WebClient webClient,
+                                       CircuitBreakerRegistry circuitBreakerRegistry,
+                                       RetryRegistry retryRegistry) {
+        this.webClient = webClient;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("integrationService");
+        this.retry = retryRegistry.retry("integrationService");
+    }
+
+    @Override
+    public String createWallet(UUID userId, String walletType, String accountType, String currency) {
+        log.info("Creating wallet in external system for user: {}, type: {}, currency: {}",
+                userId, walletType, currency);
+
+        CreateWalletRequest request = CreateWalletRequest.builder()
+                .userId(userId)
+                .walletType(walletType)
+                .accountType(accountType)
+                .currency(currency)
+                .build();
+
+        try {
+            CreateWalletResponse response =
+                    post("/api/v1/wallets/create", request, CreateWalletResponse.class).block();
+            log.info("Wallet created in external system with ID: {}", response.getExternalId());
+
+            return response.getExternalId();
+        } catch (Exception e) {
+            throw failure("Failed to create wallet in external system", e);
+        }
+    }
+
+    @Override
+    public BigDecimal getWalletBalance(Wallet wallet) {
+        log.info("Getting balance from external system for wallet: {}, type: {}",
+                wallet.getId(), wallet.getWalletType());
+
+        GetBalanceRequest request = GetBalanceRequest.builder()
+                .externalId(wallet.getExternalId())
+                .walletType(wallet.getWalletType())
+                .build();
+
+        try {
+            GetBalanceResponse response =
+                    post("/api/v1/wallets/balance", request, GetBalanceResponse.class).block();
+            log.info("Retrieved balance from external system: {}", response.getBalance());
+
+            return response.getBalance();
+        } catch (Exception e) {
+            log.warn("Error getting balance from external system: {}", e.getMessage());
+            // Return the last known balance
+            return wallet.getBalance();
+        }
+    }
+
+    @Override
+    public Map<UUID, BigDecimal> getWalletBalances(Collection<Wallet> wallets) {
+        log.info("Getting balances from external system for {} wallets", wallets.size());
+
+        Map<String, Wallet> walletsByExternalId = wallets.stream()
+                .collect(Collectors.toMap(Wallet::getExternalId, wallet -> wallet, (first, second) -> first,
+                        LinkedHashMap::new));
+        List<GetBalanceRequest> requests = walletsByExternalId.values().stream()
+                .map(wallet -> GetBalanceRequest.builder()
+                        .externalId(wallet.getExternalId())
+                        .walletType(wallet.getWalletType())
+                        .build())
+                .collect(Collectors.toList());
+
+        List<List<GetBalanceRequest>> chunks = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += balanceRequestSize) {
+            chunks.add(new ArrayList<>(requests.subList(from, Math.min(from + balanceRequestSize, requests.size()))));
+        }
+
+        // Chunks are requested concurrently; a chunk that fails leaves its wallets unpriced
+        AtomicInteger failedChunks = new AtomicInteger();
+        Map<UUID, BigDecimal> balances = Flux.fromIterable(chunks)
+                .flatMap(chunk -> post("/api/v1/wallets/balances",
+                                GetBalancesRequest.builder().wallets(chunk).build(), GetBalancesResponse.class)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to get {} balances from external system: {}", chunk.size(), e.getMessage());
+                            failedChunks.incrementAndGet();
+                            return Mono.empty();
+                        }), Math.max(1, balanceConcurrency))
+                .filter(response -> response.getBalances() != null)
+                .collect(HashMap<UUID, BigDecimal>::new, (result, response) ->
+                        response.getBalances().forEach((externalId, balance) -> {
+                            Wallet wallet = walletsByExternalId.get(externalId);
+                            if (wallet != null && balance != null) {
+                                result.put(wallet.getId(), balance);
+                            }
+                        }))
+                .block();
+
+        // Nothing answered at all; an empty result would read as every wallet being unpriced
+        if (!chunks.isEmpty() && failedChunks.get() == chunks.size()) {
+            throw new TransactionFailedException(UNAVAILABLE);
+        }
+        log.info("Retrieved {} of {} balances from external system", balances.size(), wallets.size());
+        return balances;
+    }
+
+    @Override
+    public String transferBetweenWallets(Wallet sourceWallet, Wallet targetWallet, BigDecimal amount,
+                                         String reference) {
+        log.info("Transferring {} {} from wallet {} to wallet {} in external system",
+                amount, sourceWallet.getCurrency(), sourceWallet.getId(), targetWallet.getId());
+
+        TransferRequest request = TransferRequest.builder()
+                .sourceExternalId(sourceWallet.getExternalId())
+                .sourceWalletType(sourceWallet.getWalletType())
+                .targetExternalId(targetWallet.getExternalId())
+                .targetWalletType(targetWallet.getWalletType())
+                .amount(amount)
+                .currency(sourceWallet.getCurrency())
+                .reference(reference)
+                .build();
+
+        try {
+            TransferResponse response = post("/api/v1/wallets/transfer", request, TransferResponse.class).block();
+            log.info("Transfer completed in external system with ID: {}", response.getExternalId());
+
+            return response.getExternalId();
+        } catch (Exception e) {
+            throw failure("Failed to transfer between wallets in external system", e);
+        }
+    }
+
+    @Override
+    public Optional<String> findPostedTransaction(String reference) {
+        log.info("Looking up posting {} in external system", reference);
+
+        try {
+            // A missing posting is an answer, not a failure of the provider
+            PostedTransactionResponse response = webClient.get()
+                    .uri("/api/v1/transactions/reference/{reference}", reference)
+                    .retrieve()
+                    .bodyToMono(PostedTransactionResponse.class)
+                    .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                    .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                    .transformDeferred(RetryOperator.of(retry))
+                    .block();
+            return Optional.ofNullable(response).map(PostedTransactionResponse::getExternalId);
+        } catch (Exception e) {
+            // An unknown outcome must not be mistaken for a missing posting
+            throw failure("Failed to look up posting in external system", e);
+        }
+    }
+
+    @Override
+    public Map<Long, String> postSettlement(String walletType, List<SettlementPosting> postings) {
+        log.info("Posting settlement of {} accounts to external system, type: {}", postings.size(), walletType);
+
+        List<SettlementEntry> entries = postings.stream()
+                .map(posting -> SettlementEntry.builder()
+                        .externalId(posting.getExternalAccountId())
+                        .amount(posting.getNetAmount())
+                        .currency(posting.getCurrency())
+                        .reference(posting.getReference())
+                        .build())
+                .collect(Collectors.toList());
+
+        SettlementResponse response;
+        try {
+            response = post("/api/v1/wallets/settlements",
+                    SettlementRequest.builder().walletType(walletType).entries(entries).build(),
+                    SettlementResponse.class).block();
+        } catch (Exception e) {
+            throw failure("Failed to post settlement to external system", e);
+        }
+
+        Map<Long, String> externalIds = new HashMap<>(postings.size());
+        if (response != null && response.getExternalIds() != null) {
+            for (SettlementPosting posting : postings) {
+                String externalId = response.getExternalIds().get(posting.getReference());
+                if (externalId != null) {
+                    externalIds.put(posting.getId(), externalId);
+                }
+            }
+        }
+        log.info("Settlement posted {} of {} accounts in external system", externalIds.size(), postings.size());
+
+        return externalIds;
+    }
+
+    @Override
+    public String depositToWallet(Wallet wallet, BigDecimal amount, String reference) {
+        log.info("Depositing {} {} to wallet {} in external system",
+                amount, wallet.getCurrency(), wallet.getId());
+
+        DepositRequest request = DepositRequest.builder()
+                .externalId(wallet.getExternalId())
+                .walletType(wallet.getWalletType())
+                .amount(amount)
+                .currency(wallet.getCurrency())
+                .reference(reference)
+                .build();
+
+        try {
+            DepositResponse response = post("/api/v1/wallets/deposit", request, DepositResponse.class).block();
+            log.info("Deposit completed in external system with ID: {}", response.getExternalId());
+
+            return response.getExternalId();
+        } catch (Exception e) {
+            throw failure("Failed to deposit to wallet in external system", e);
+        }
+    }
+
+    @Override
+    public String withdrawFromWallet(Wallet wallet, BigDecimal amount, String reference) {
+        log.info("Withdrawing {} {} from wallet {} in external system",
+                amount, wallet.getCurrency(), wallet.getId());
+
+        WithdrawalRequest request = WithdrawalRequest.builder()
+                .externalId(wallet.getExternalId())
+                .walletType(wallet.getWalletType())
+                .amount(amount)
+                .currency(wallet.getCurrency())
+                .reference(reference)
+                .build();
+
+        try {
+            WithdrawalResponse response =
+                    post("/api/v1/wallets/withdraw", request, WithdrawalResponse.class).block();
+            log.info("Withdrawal completed in external system with ID: {}", response.getExternalId());
+
+            return response.getExternalId();
+        } catch (Exception e) {
+            throw failure("Failed to withdraw from wallet in external system", e);
+        }
+    }
+
+    /**
+     * Posts a request through the circuit breaker, retrying as configured for
+     * the integrationService instance
+     */
+    private <T> Mono<T> post(String path, Object body, Class<T> responseType) {
+        return webClient.post()
+                .uri(path)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(responseType)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry));
+    }
+
+    /**
+     * Maps a failed call to the exception the Feign client reports for it
+     */
+    private TransactionFailedException failure(String message, Exception e) {
+        if (e instanceof CallNotPermittedException) {
+            log.warn("Integration service call not permitted: {}", e.getMessage());
+            return new TransactionFailedException(UNAVAILABLE);
+        }
+        log.error(message, e);
+        return new TransactionFailedException(message, e);
+    }
+}
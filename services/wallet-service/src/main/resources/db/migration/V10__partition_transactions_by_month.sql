@@ -0,0 +1,134 @@
+-- Range-partition transactions by month of created_at. Queries bounded by
+-- created_at only touch the partitions they need, and old months are detached
+-- whole instead of deleted row by row.
+
+-- Existing rows are not copied. The old table becomes the partition of
+-- everything before next month, so the migration builds indexes over it but
+-- never rewrites it. It is not named like the monthly partitions, so the
+-- archival job leaves it alone; archive it by hand once its newest month is
+-- past retention.
+ALTER TABLE transactions RENAME TO transactions_history;
+ALTER TABLE transactions_history DROP CONSTRAINT transactions_pkey;
+ALTER TABLE transactions_history ADD PRIMARY KEY (id, created_at);
+-- Indexes not carried over (see below) are dropped; the history indexes are
+-- renamed so the partitioned indexes adopt them instead of building new ones
+DROP INDEX idx_transactions_external_id;
+DROP INDEX idx_transactions_status;
+DROP INDEX idx_transactions_created_at;
+DROP INDEX uk_transactions_reference_id;
+ALTER INDEX idx_transactions_source_wallet_created RENAME TO transactions_history_source_wallet_created;
+ALTER INDEX idx_transactions_target_wallet_created RENAME TO transactions_history_target_wallet_created;
+
+-- Keys of a partitioned table must include the partition key
+CREATE TABLE transactions (
+    id UUID NOT NULL,
+    external_id VARCHAR(100),
+    source_wallet_id UUID,
+    target_wallet_id UUID,
+    amount DECIMAL(19,4) NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    description VARCHAR(500),
+    reference_id VARCHAR(100),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    created_by VARCHAR(100),
+    updated_by VARCHAR(100),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Creates the partition of the month containing p_month unless it exists or
+-- the month is still covered by transactions_history. Also called by the
+-- partition maintenance job to stay months ahead.
+CREATE FUNCTION ensure_transactions_partition(p_month DATE) RETURNS VOID AS $$
+DECLARE
+    month_start DATE := date_trunc('month', p_month)::DATE;
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+        'transactions_p' || to_char(month_start, 'YYYYMM'),
+        month_start,
+        (month_start + INTERVAL '1 month')::DATE);
+EXCEPTION
+    -- Raised when the range overlaps an existing partition
+    WHEN invalid_object_definition THEN
+        RETURN;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    next_month DATE := (date_trunc('month', now()) + INTERVAL '1 month')::DATE;
+BEGIN
+    -- Reads the old rows once to check the bound; nothing is written
+    EXECUTE format('ALTER TABLE transactions ATTACH PARTITION transactions_history FOR VALUES FROM (MINVALUE) TO (%L)',
+        next_month);
+
+    FOR ahead IN 0..2 LOOP
+        PERFORM ensure_transactions_partition((next_month + make_interval(months => ahead))::DATE);
+    END LOOP;
+END;
+$$;
+
+-- Safety net for rows outside the created partitions; kept empty by the maintenance job
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+-- Indexes are created on every partition. The single-column status,
+-- external_id and created_at B-trees are not carried over: history reads use
+-- the (wallet, created_at, id) indexes, the recovery scans use the partial
+-- indexes and time ranges are pruned to whole partitions.
+CREATE INDEX idx_transactions_source_wallet_created
+    ON transactions(source_wallet_id, created_at DESC, id DESC);
+CREATE INDEX idx_transactions_target_wallet_created
+    ON transactions(target_wallet_id, created_at DESC, id DESC);
+CREATE INDEX idx_transactions_unposted ON transactions(created_at)
+    WHERE external_id IS NULL AND status = 'COMPLETED';
+CREATE INDEX idx_transactions_abandoned ON transactions(created_at)
+    WHERE status IN ('PENDING', 'IN_PROGRESS');
+CREATE INDEX idx_transactions_reference_id ON transactions(reference_id)
+    WHERE reference_id IS NOT NULL AND status <> 'FAILED';
+-- Rows arrive in created_at order, so a block range index is enough for time scans
+CREATE INDEX idx_transactions_created_at ON transactions USING BRIN (created_at);
+
+-- A unique index on a partitioned table could only make reference_id unique
+-- within a month. The idempotency key is held here instead, across all
+-- partitions: at most one successful transaction per key, as before.
+CREATE TABLE transaction_references (
+    reference_id VARCHAR(100) PRIMARY KEY,
+    transaction_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO transaction_references (reference_id, transaction_id, created_at)
+SELECT reference_id, id, created_at FROM transactions
+WHERE reference_id IS NOT NULL AND status <> 'FAILED';
+
+CREATE FUNCTION hold_transaction_reference() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND OLD.reference_id IS NOT NULL AND OLD.status <> 'FAILED' THEN
+        DELETE FROM transaction_references WHERE reference_id = OLD.reference_id AND transaction_id = OLD.id;
+    END IF;
+    -- A second holder of the key fails with a unique violation, as the old index did
+    IF NEW.reference_id IS NOT NULL AND NEW.status <> 'FAILED' THEN
+        INSERT INTO transaction_references (reference_id, transaction_id, created_at)
+        VALUES (NEW.reference_id, NEW.id, NEW.created_at);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_transactions_reference_insert
+    AFTER INSERT ON transactions
+    FOR EACH ROW EXECUTE FUNCTION hold_transaction_reference();
+
+-- Hibernate writes every column on save, so UPDATE OF alone fires on each
+-- save. The key is only moved when its holder or its status really changed.
+CREATE TRIGGER trg_transactions_reference_update
+    AFTER UPDATE OF reference_id, status ON transactions
+    FOR EACH ROW
+    WHEN (OLD.status IS DISTINCT FROM NEW.status OR OLD.reference_id IS DISTINCT FROM NEW.reference_id)
+    EXECUTE FUNCTION hold_transaction_reference();
+
+-- Detached partitions are moved here by the archival job
+CREATE SCHEMA IF NOT EXISTS transactions_archive;
@@ -0,0 +1,26 @@
+-- Net settlement of same-provider transfers. A run claims the unposted
+-- transfers of a window by setting their external_id to SETTLEMENT-<run id>,
+-- and records one net posting per external account to send to the provider.
+CREATE TABLE settlement_runs (
+    id BIGSERIAL PRIMARY KEY,
+    window_end TIMESTAMP NOT NULL,
+    transfers INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    settled_at TIMESTAMP
+);
+
+CREATE TABLE settlement_postings (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES settlement_runs(id),
+    wallet_type VARCHAR(50) NOT NULL,
+    external_account_id VARCHAR(100) NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    net_amount DECIMAL(19,4) NOT NULL,
+    external_id VARCHAR(100),
+    posted_at TIMESTAMP,
+    UNIQUE (run_id, wallet_type, external_account_id, currency)
+);
+
+-- Postings still to be sent
+CREATE INDEX idx_settlement_postings_unposted ON settlement_postings(id)
+    WHERE external_id IS NULL;
@@ -0,0 +1,9 @@
+-- A transfer between two wallets of the same user was projected twice, as OUT
+-- and IN, and listed twice in the user's history. Keep the OUT row only.
+DELETE FROM user_transactions i
+USING user_transactions o
+WHERE i.direction = 'IN'
+  AND o.direction = 'OUT'
+  AND o.user_id = i.user_id
+  AND o.created_at = i.created_at
+  AND o.transaction_id = i.transaction_id;
@@ -0,0 +1,10 @@
+-- The local ledger is authoritative; the provider balance is kept for reconciliation
+ALTER TABLE wallets ADD COLUMN external_balance DECIMAL(19,4);
+ALTER TABLE wallets ADD COLUMN external_balance_synced_at TIMESTAMP;
+
+-- Seed the reconciliation baseline from the current balances
+UPDATE wallets SET external_balance = balance, external_balance_synced_at = updated_at;
+
+-- Find transfers that have been booked locally but not yet posted externally
+CREATE INDEX idx_transactions_unposted ON transactions(created_at)
+    WHERE external_id IS NULL AND status = 'COMPLETED';
@@ -0,0 +1,9 @@
+-- Kafka messages written in the same transaction as the change they describe,
+-- published and deleted by the outbox relay in id order
+CREATE TABLE outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    topic VARCHAR(100) NOT NULL,
+    message_key VARCHAR(100) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
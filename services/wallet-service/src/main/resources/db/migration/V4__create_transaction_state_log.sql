@@ -0,0 +1,13 @@
+-- Append-only history of transaction status changes. The transactions row is
+-- written once in its final state; the steps that led there are kept here.
+CREATE SEQUENCE transaction_state_log_seq INCREMENT BY 50;
+
+CREATE TABLE transaction_state_log (
+    id BIGINT PRIMARY KEY,
+    transaction_id UUID NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    reason VARCHAR(500),
+    occurred_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_transaction_state_log_transaction_id ON transaction_state_log(transaction_id);
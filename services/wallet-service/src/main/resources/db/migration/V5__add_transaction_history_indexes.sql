@@ -0,0 +1,9 @@
+-- Keyset pagination of a wallet's history reads each side of a transfer with a
+-- range scan on (wallet, created_at, id); these replace the single-column indexes
+CREATE INDEX idx_transactions_source_wallet_created
+    ON transactions(source_wallet_id, created_at DESC, id DESC);
+CREATE INDEX idx_transactions_target_wallet_created
+    ON transactions(target_wallet_id, created_at DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_transactions_source_wallet_id;
+DROP INDEX IF EXISTS idx_transactions_target_wallet_id;
@@ -0,0 +1,19 @@
+-- Per-user projection of transactions. The primary key doubles as the index
+-- for a user's history, newest first.
+CREATE TABLE user_transactions (
+    user_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    transaction_id UUID NOT NULL,
+    direction VARCHAR(3) NOT NULL,
+    PRIMARY KEY (user_id, created_at, transaction_id, direction)
+);
+
+INSERT INTO user_transactions (user_id, created_at, transaction_id, direction)
+SELECT w.user_id, t.created_at, t.id, 'OUT'
+FROM transactions t
+JOIN wallets w ON w.id = t.source_wallet_id;
+
+INSERT INTO user_transactions (user_id, created_at, transaction_id, direction)
+SELECT w.user_id, t.created_at, t.id, 'IN'
+FROM transactions t
+JOIN wallets w ON w.id = t.target_wallet_id;
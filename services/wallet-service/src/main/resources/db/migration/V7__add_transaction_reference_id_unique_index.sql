@@ -0,0 +1,5 @@
+-- reference_id holds the client's idempotency key. At most one successful
+-- transaction per key; failed attempts are kept for audit but do not hold it.
+CREATE UNIQUE INDEX uk_transactions_reference_id
+    ON transactions(reference_id)
+    WHERE reference_id IS NOT NULL AND status <> 'FAILED';
@@ -0,0 +1,10 @@
+-- End-of-day wallet balances. A row holds the balance after every transaction
+-- created before midnight at the end of as_of_date; point-in-time queries
+-- start from the nearest row and add the movements after it.
+CREATE TABLE wallet_balance_snapshots (
+    wallet_id UUID NOT NULL,
+    as_of_date DATE NOT NULL,
+    balance DECIMAL(19,4) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (wallet_id, as_of_date)
+);
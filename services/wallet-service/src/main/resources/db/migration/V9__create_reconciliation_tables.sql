@@ -0,0 +1,37 @@
+-- One reconciliation run per night. The wallet id space is split into shards
+-- that workers on any instance lease, and each shard keeps the last wallet it
+-- reconciled so an interrupted run resumes where it stopped.
+CREATE TABLE reconciliation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    run_date DATE NOT NULL UNIQUE,
+    shards INT NOT NULL,
+    wallets_checked BIGINT NOT NULL DEFAULT 0,
+    mismatches BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL,
+    finished_at TIMESTAMP
+);
+
+CREATE TABLE reconciliation_checkpoints (
+    run_id BIGINT NOT NULL REFERENCES reconciliation_runs(id),
+    shard INT NOT NULL,
+    last_wallet_id UUID NOT NULL,
+    upper_wallet_id UUID NOT NULL,
+    done BOOLEAN NOT NULL DEFAULT FALSE,
+    leased_until TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (run_id, shard)
+);
+
+-- Wallets whose local balance differs from the provider's, or that the
+-- provider could not price (external_balance is null)
+CREATE TABLE reconciliation_diffs (
+    run_id BIGINT NOT NULL REFERENCES reconciliation_runs(id),
+    wallet_id UUID NOT NULL,
+    wallet_type VARCHAR(50) NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    local_balance DECIMAL(19,4) NOT NULL,
+    external_balance DECIMAL(19,4),
+    difference DECIMAL(19,4),
+    detected_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (run_id, wallet_id)
+);
@@ -0,0 +1,104 @@
+package com.waqiti.wallet.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waqiti.wallet.dto.TransactionResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    void testOf_UsesMinorUnitsOfTheCurrency() {
+        // Act
+        Money dollars = Money.of(new BigDecimal("12.3400"), "USD");
+        Money yen = Money.of(new BigDecimal("500"), "JPY");
+
+        // Assert - trailing zeros beyond the currency's decimals are accepted
+        assertEquals(1234L, dollars.getMinorUnits());
+        assertEquals(new BigDecimal("12.34"), dollars.toBigDecimal());
+        assertEquals(500L, yen.getMinorUnits());
+    }
+
+    @Test
+    void testOf_RejectsAmountsThatAreNotExact() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("12.345"), "USD"));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1.5"), "JPY"));
+    }
+
+    @Test
+    void testOfStored_DropsDigitsBeyondTheCurrency() {
+        // Act & Assert - rows written before amounts were exact read back rounded down
+        assertEquals(1012L, Money.ofStored(new BigDecimal("10.1299"), "USD").getMinorUnits());
+        assertEquals(-1013L, Money.ofStored(new BigDecimal("-10.1201"), "USD").getMinorUnits());
+        assertEquals(1234L, Money.ofStored(new BigDecimal("12.3400"), "USD").getMinorUnits());
+    }
+
+    @Test
+    void testWalletCredit_KeepsStoredSubMinorRemainder() {
+        // Arrange
+        Wallet wallet = Wallet.create(UUID.randomUUID(), "ext-1", "FINERACT", "SAVINGS", "USD");
+        ReflectionTestUtils.setField(wallet, "balance", new BigDecimal("10.1234"));
+
+        // Act
+        wallet.credit(Money.of(new BigDecimal("5.00"), "USD"));
+        wallet.debit(Money.of(new BigDecimal("15.12"), "USD"));
+
+        // Assert - only whole cents are available and none of the remainder is lost
+        assertEquals(new BigDecimal("0.0034"), wallet.getBalance());
+        assertFalse(wallet.hasSufficientBalance(Money.ofMinor(1L, "USD")));
+    }
+
+    @Test
+    void testJson_RoundTripsTransactionAmount() throws Exception {
+        // Arrange
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        TransactionResponse response = TransactionResponse.builder()
+                .id(UUID.randomUUID())
+                .amount(Money.of(new BigDecimal("12.34"), "USD"))
+                .currency("USD")
+                .type("TRANSFER")
+                .status("COMPLETED")
+                .createdAt(LocalDateTime.of(2024, 5, 31, 18, 0))
+                .build();
+
+        // Act
+        String json = objectMapper.writeValueAsString(response);
+        TransactionResponse read = objectMapper.readValue(json, TransactionResponse.class);
+
+        // Assert - written as a plain number, read back in the response currency
+        assertTrue(json.contains("\"amount\":12.34"));
+        assertEquals(response, read);
+    }
+
+    @Test
+    void testArithmetic_RequiresSameCurrency() {
+        // Arrange
+        Money dollars = Money.of(new BigDecimal("10.00"), "USD");
+        Money euros = Money.of(new BigDecimal("10.00"), "EUR");
+
+        // Act & Assert
+        assertEquals(Money.ofMinor(1500L, "USD"), dollars.plus(Money.ofMinor(500L, "USD")));
+        assertThrows(IllegalArgumentException.class, () -> dollars.plus(euros));
+        assertThrows(IllegalArgumentException.class, () -> dollars.isLessThan(euros));
+    }
+
+    @Test
+    void testWalletDebit_RejectsAmountAboveBalance() {
+        // Arrange
+        Wallet wallet = Wallet.create(UUID.randomUUID(), "ext-1", "FINERACT", "SAVINGS", "USD");
+        wallet.credit(Money.of(new BigDecimal("50.00"), "USD"));
+
+        // Act & Assert
+        assertTrue(wallet.hasSufficientBalance(Money.ofMinor(5000L, "USD")));
+        assertFalse(wallet.hasSufficientBalance(Money.ofMinor(5001L, "USD")));
+        assertThrows(InsufficientBalanceException.class, () -> wallet.debit(Money.ofMinor(5001L, "USD")));
+        assertEquals(new BigDecimal("50.00"), wallet.getBalance());
+    }
+}
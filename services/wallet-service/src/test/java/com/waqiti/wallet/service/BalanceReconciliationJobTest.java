@@ -0,0 +1,170 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.repository.BalanceDiff;
+import com.waqiti.wallet.repository.ExternalBalanceRepository;
+import com.waqiti.wallet.repository.ReconciliationRepository;
+import com.waqiti.wallet.repository.ReconciliationShard;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BalanceReconciliationJobTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private ReconciliationRepository reconciliationRepository;
+
+    @Mock
+    private ExternalBalanceRepository externalBalanceRepository;
+
+    @Mock
+    private IntegrationService integrationService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+
+    private BalanceReconciliationJob reconciliationJob;
+
+    private ReconciliationShard shard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciliationJob = new BalanceReconciliationJob(walletRepository, reconciliationRepository,
+                externalBalanceRepository, integrationService, transactionManager, meterRegistry, Runnable::run);
+        ReflectionTestUtils.setField(reconciliationJob, "pageSize", 2);
+        ReflectionTestUtils.setField(reconciliationJob, "concurrencyPerProvider", 4);
+        ReflectionTestUtils.setField(reconciliationJob, "lease", Duration.ofMinutes(10));
+        shard = new ReconciliationShard(7L, 3, new UUID(0L, 0L), new UUID(-1L, -1L));
+    }
+
+    @Test
+    void testShardUpperBounds_CoverWholeIdSpace() {
+        // Act
+        List<UUID> bounds = BalanceReconciliationJob.shardUpperBounds(4);
+
+        // Assert
+        assertEquals(4, bounds.size());
+        assertEquals(UUID.fromString("3fffffff-ffff-ffff-ffff-ffffffffffff"), bounds.get(0));
+        assertEquals(UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff"), bounds.get(1));
+        assertEquals(UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff"), bounds.get(3));
+    }
+
+    @Test
+    void testReconcileShard_ReportsDiffsAndCheckpointsEveryPage() {
+        // Arrange
+        Wallet matching = wallet("FINERACT", "10.00");
+        Wallet drifted = wallet("MIFOS", "20.00");
+        Wallet unpriced = wallet("FINERACT", "30.00");
+        when(walletRepository.findPageInRange(shard.getLastWalletId(), shard.getUpperWalletId(), 2))
+                .thenReturn(List.of(matching, drifted));
+        when(walletRepository.findPageInRange(drifted.getId(), shard.getUpperWalletId(), 2))
+                .thenReturn(List.of(unpriced));
+        when(integrationService.getWalletBalances(List.of(matching)))
+                .thenReturn(Map.of(matching.getId(), new BigDecimal("10.00")));
+        when(integrationService.getWalletBalances(List.of(drifted)))
+                .thenReturn(Map.of(drifted.getId(), new BigDecimal("18.50")));
+        when(integrationService.getWalletBalances(List.of(unpriced)))
+                .thenReturn(Map.of(UUID.randomUUID(), new BigDecimal("1.00")));
+
+        // Act
+        reconciliationJob.reconcileShard(shard);
+
+        // Assert - the short second page finishes the shard
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BalanceDiff>> diffs = ArgumentCaptor.forClass(List.class);
+        verify(reconciliationRepository, times(2)).insertDiffs(eq(7L), diffs.capture(), any());
+        assertEquals(drifted.getId(), diffs.getAllValues().get(0).get(0).getWalletId());
+        assertEquals(new BigDecimal("-1.50"), diffs.getAllValues().get(0).get(0).getDifference());
+        assertNull(diffs.getAllValues().get(1).get(0).getExternalBalance());
+
+        verify(reconciliationRepository).saveCheckpoint(eq(7L), eq(3), eq(drifted.getId()), eq(false), any(), any());
+        verify(reconciliationRepository).saveCheckpoint(eq(7L), eq(3), eq(unpriced.getId()), eq(true), any(), any());
+        assertEquals(1.0, meterRegistry.get("wallet.reconciliation.mismatches").tag("walletType", "MIFOS")
+                .counter().count());
+        assertEquals(2.0, meterRegistry.get("wallet.reconciliation.wallets").tag("walletType", "FINERACT")
+                .counter().count());
+    }
+
+    @Test
+    void testReconcileShard_EmptyProviderAnswerReportsWalletsAsUnpriced() {
+        // Arrange
+        Wallet wallet = wallet("FINERACT", "10.00");
+        when(walletRepository.findPageInRange(any(), any(), anyInt())).thenReturn(List.of(wallet));
+        when(integrationService.getWalletBalances(any())).thenReturn(Map.of());
+
+        // Act
+        reconciliationJob.reconcileShard(shard);
+
+        // Assert - the shard is finished with an unpriced diff, not retried forever
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BalanceDiff>> diffs = ArgumentCaptor.forClass(List.class);
+        verify(reconciliationRepository).insertDiffs(eq(7L), diffs.capture(), any());
+        assertNull(diffs.getValue().get(0).getExternalBalance());
+        verify(reconciliationRepository).saveCheckpoint(eq(7L), eq(3), eq(wallet.getId()), eq(true), any(), any());
+        assertEquals(1.0, meterRegistry.get("wallet.reconciliation.unpriced").counter().count());
+    }
+
+    @Test
+    void testWork_LeavesCheckpointOfUnreachableShardAndGoesOn() {
+        // Arrange
+        ReconciliationShard unreachable = shard;
+        ReconciliationShard next = new ReconciliationShard(7L, 4, new UUID(0L, 0L), new UUID(-1L, -1L));
+        Wallet failing = wallet("MIFOS", "10.00");
+        Wallet priced = wallet("FINERACT", "20.00");
+        when(reconciliationRepository.claimShard(anyLong(), any(), any()))
+                .thenReturn(Optional.of(unreachable), Optional.of(next), Optional.of(unreachable));
+        when(walletRepository.findPageInRange(any(), any(), anyInt()))
+                .thenReturn(List.of(failing), List.of(priced));
+        when(integrationService.getWalletBalances(List.of(failing)))
+                .thenThrow(new TransactionFailedException("External service unavailable. Please try again later."));
+        when(integrationService.getWalletBalances(List.of(priced)))
+                .thenReturn(Map.of(priced.getId(), new BigDecimal("20.00")));
+
+        // Act
+        reconciliationJob.work(7L);
+
+        // Assert - only the next shard is checkpointed; the failed one is left when it comes round again
+        verify(reconciliationRepository).saveCheckpoint(eq(7L), eq(4), eq(priced.getId()), eq(true), any(), any());
+        verify(reconciliationRepository, never()).saveCheckpoint(eq(7L), eq(3), any(), anyBoolean(), any(), any());
+        verify(reconciliationRepository, times(3)).claimShard(anyLong(), any(), any());
+        assertEquals(1.0, meterRegistry.get("wallet.reconciliation.failures").counter().count());
+    }
+
+    private Wallet wallet(String walletType, String balance) {
+        Wallet wallet = Wallet.create(UUID.randomUUID(), "ext-1", walletType, "SAVINGS", "USD");
+        ReflectionTestUtils.setField(wallet, "id", UUID.randomUUID());
+        wallet.updateBalance(new BigDecimal(balance));
+        return wallet;
+    }
+}
@@ -0,0 +1,146 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.dto.BalanceAtResponse;
+import com.waqiti.wallet.repository.AdvisoryLockRepository;
+import com.waqiti.wallet.repository.BalanceSnapshot;
+import com.waqiti.wallet.repository.BalanceSnapshotRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BalanceSnapshotServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private AdvisoryLockRepository advisoryLockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceSnapshotService balanceSnapshotService;
+
+    private UUID walletId;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        balanceSnapshotService = new BalanceSnapshotService(walletRepository, balanceSnapshotRepository,
+                advisoryLockRepository, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(balanceSnapshotService, "catchUpDays", 7);
+
+        walletId = UUID.randomUUID();
+        wallet = Wallet.create(UUID.randomUUID(), "ext-1", "FINERACT", "SAVINGS", "USD");
+        ReflectionTestUtils.setField(wallet, "id", walletId);
+        ReflectionTestUtils.setField(wallet, "createdAt", LocalDateTime.of(2024, 1, 10, 9, 0));
+    }
+
+    @Test
+    void testGetBalanceAt_AddsMovementsAfterNearestSnapshot() {
+        // Arrange
+        LocalDateTime at = LocalDateTime.of(2024, 5, 31, 18, 0);
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(balanceSnapshotRepository.findLatestBefore(walletId, LocalDate.of(2024, 5, 31)))
+                .thenReturn(Optional.of(new BalanceSnapshot(LocalDate.of(2024, 5, 30), new BigDecimal("100.00"))));
+        when(balanceSnapshotRepository.sumNetMovement(walletId, LocalDateTime.of(2024, 5, 31, 0, 0), at))
+                .thenReturn(new BigDecimal("-25.50"));
+
+        // Act
+        BalanceAtResponse response = balanceSnapshotService.getBalanceAt(walletId, at);
+
+        // Assert - only the movements of the last day are read
+        assertEquals(new BigDecimal("74.50"), response.getBalance());
+        assertEquals(LocalDate.of(2024, 5, 30), response.getSnapshotDate());
+        assertEquals("USD", response.getCurrency());
+    }
+
+    @Test
+    void testGetBalanceAt_WithoutSnapshotStartsFromWalletCreation() {
+        // Arrange
+        LocalDateTime at = LocalDateTime.of(2024, 1, 12, 12, 0);
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(balanceSnapshotRepository.findLatestBefore(walletId, LocalDate.of(2024, 1, 12)))
+                .thenReturn(Optional.empty());
+        when(balanceSnapshotRepository.sumNetMovement(walletId, wallet.getCreatedAt(), at))
+                .thenReturn(new BigDecimal("40.00"));
+
+        // Act
+        BalanceAtResponse response = balanceSnapshotService.getBalanceAt(walletId, at);
+
+        // Assert
+        assertEquals(new BigDecimal("40.00"), response.getBalance());
+        assertNull(response.getSnapshotDate());
+    }
+
+    @Test
+    void testTakeSnapshots_FillsDaysSinceLatestSnapshot() {
+        // Arrange
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        when(balanceSnapshotRepository.findLatestSnapshotDate()).thenReturn(Optional.of(yesterday.minusDays(3)));
+        when(advisoryLockRepository.tryLock(anyInt(), anyString())).thenReturn(true);
+        when(balanceSnapshotRepository.snapshotBalances(any(), any())).thenReturn(10);
+
+        // Act
+        balanceSnapshotService.takeSnapshots();
+
+        // Assert - the three missing days, oldest first
+        verify(balanceSnapshotRepository).snapshotBalances(eq(yesterday.minusDays(2)), any());
+        verify(balanceSnapshotRepository).snapshotBalances(eq(yesterday.minusDays(1)), any());
+        verify(balanceSnapshotRepository).snapshotBalances(eq(yesterday), any());
+        verify(balanceSnapshotRepository, times(3)).snapshotBalances(any(), any());
+    }
+
+    @Test
+    void testTakeSnapshots_SkipsWhenAnotherInstanceHoldsTheLock() {
+        // Arrange
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        when(balanceSnapshotRepository.findLatestSnapshotDate()).thenReturn(Optional.of(yesterday.minusDays(1)));
+        when(advisoryLockRepository.tryLock(anyInt(), anyString())).thenReturn(false);
+
+        // Act
+        balanceSnapshotService.takeSnapshots();
+
+        // Assert
+        verify(balanceSnapshotRepository, never()).snapshotBalances(any(), any());
+    }
+
+    @Test
+    void testTakeSnapshots_DefersDaysWithOpenTransactions() {
+        // Arrange - a transfer created late on the day before yesterday is still pending
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        when(balanceSnapshotRepository.findLatestSnapshotDate()).thenReturn(Optional.of(yesterday.minusDays(2)));
+        when(balanceSnapshotRepository.hasUnfinishedBefore(yesterday.atStartOfDay())).thenReturn(true);
+
+        // Act
+        balanceSnapshotService.takeSnapshots();
+
+        // Assert - neither that day nor the next is written until it completes
+        verify(balanceSnapshotRepository, never()).snapshotBalances(any(), any());
+        verifyNoInteractions(advisoryLockRepository);
+    }
+}
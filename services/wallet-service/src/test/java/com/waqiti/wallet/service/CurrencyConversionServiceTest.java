@@ -0,0 +1,71 @@
+package com.waqiti.wallet.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CurrencyConversionServiceTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private CurrencyConversionService currencyConversionService;
+
+    @BeforeEach
+    void setUp() {
+        currencyConversionService = new CurrencyConversionService(restTemplate, new SimpleMeterRegistry(),
+                "http://rates", "key", "USD", List.of("USD", "EUR", "GBP", "JPY"), Duration.ofMinutes(15));
+    }
+
+    @Test
+    void testConvert_UsesTriangulatedCrossRateWithoutRemoteCall() {
+        // Arrange
+        CurrencyConversionService.ExchangeRateResponse rates = new CurrencyConversionService.ExchangeRateResponse();
+        rates.setSuccess(true);
+        rates.setBase("USD");
+        rates.setRates(Map.of("EUR", new BigDecimal("0.80"), "GBP", new BigDecimal("0.50")));
+        when(restTemplate.getForEntity(anyString(), eq(CurrencyConversionService.ExchangeRateResponse.class)))
+                .thenReturn(ResponseEntity.ok(rates));
+        currencyConversionService.refreshRates();
+
+        // Act
+        BigDecimal rate = currencyConversionService.getExchangeRate("EUR", "GBP");
+        BigDecimal converted = currencyConversionService.convert(new BigDecimal("100.00"), "GBP", "USD");
+
+        // Assert - EUR->GBP derived through USD, one fetch for the whole table
+        assertEquals(0, new BigDecimal("0.625").compareTo(rate));
+        assertEquals(new BigDecimal("200.00"), converted);
+        verify(restTemplate, times(1))
+                .getForEntity(anyString(), eq(CurrencyConversionService.ExchangeRateResponse.class));
+    }
+
+    @Test
+    void testGetExchangeRate_FailsWhenNoRatesLoaded() {
+        // Arrange
+        when(restTemplate.getForEntity(anyString(), eq(CurrencyConversionService.ExchangeRateResponse.class)))
+                .thenThrow(new RuntimeException("provider down"));
+        currencyConversionService.refreshRates();
+
+        // Act & Assert - the failed refresh is not retried on the request path
+        assertThrows(CurrencyConversionService.CurrencyConversionException.class,
+                () -> currencyConversionService.getExchangeRate("USD", "EUR"));
+        verify(restTemplate, times(1))
+                .getForEntity(anyString(), eq(CurrencyConversionService.ExchangeRateResponse.class));
+    }
+}
@@ -0,0 +1,148 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.ExternalBalanceRepository;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExternalLedgerSyncTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private IntegrationService integrationService;
+
+    @Mock
+    private TransactionLogger transactionLogger;
+
+    @Mock
+    private ExternalBalanceRepository externalBalanceRepository;
+
+    private ExternalLedgerSync externalLedgerSync;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        externalLedgerSync = new ExternalLedgerSync(walletRepository, transactionRepository, integrationService,
+                transactionLogger, meterRegistry, externalBalanceRepository, new MovementMetrics(meterRegistry));
+    }
+
+    @Test
+    void testRefreshExternalBalances_WritesOnlyChangedBalancesInOneBatch() {
+        // Arrange
+        Wallet unchanged = wallet("ext-1", new BigDecimal("100.00"));
+        Wallet changed = wallet("ext-2", new BigDecimal("50.00"));
+        Wallet unpriced = wallet("ext-3", new BigDecimal("10.00"));
+        when(integrationService.getWalletBalances(anyCollection())).thenReturn(Map.of(
+                unchanged.getId(), new BigDecimal("100.00"),
+                changed.getId(), new BigDecimal("75.00")));
+
+        // Act
+        externalLedgerSync.refreshExternalBalances(List.of(unchanged, changed, unpriced));
+
+        // Assert - a single bulk call and a single batched write
+        verify(integrationService, times(1)).getWalletBalances(anyCollection());
+        verify(integrationService, never()).getWalletBalance(any(Wallet.class));
+        verify(externalBalanceRepository).updateExternalBalances(
+                eq(Map.of(changed.getId(), new BigDecimal("75.00"))), any());
+    }
+
+    @Test
+    void testPostTransfer_LeavesSameProviderTransfersToSettlement() {
+        // Arrange
+        ReflectionTestUtils.setField(externalLedgerSync, "settlementEnabled", true);
+        Wallet source = wallet("ext-1", new BigDecimal("100.00"));
+        Wallet target = wallet("ext-2", new BigDecimal("50.00"));
+        Transaction transaction = Transaction.createTransfer(
+                source.getId(), target.getId(), new BigDecimal("10.00"), "USD", "Order 1");
+        ReflectionTestUtils.setField(transaction, "id", UUID.randomUUID());
+        transaction.complete();
+        when(transactionRepository.findByIdAndCreatedAtGreaterThanEqual(eq(transaction.getId()), any()))
+                .thenReturn(Optional.of(transaction));
+        when(walletRepository.findById(source.getId())).thenReturn(Optional.of(source));
+        when(walletRepository.findById(target.getId())).thenReturn(Optional.of(target));
+
+        // Act
+        ExternalLedgerSync.Posting posting = externalLedgerSync.postTransfer(transaction.getId());
+
+        // Assert
+        assertFalse(posting.posted());
+        verify(integrationService, never()).transferBetweenWallets(any(), any(), any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testOnLedgerBooked_ReconcilesOnlyWalletsOfPostedTransfers() {
+        // Arrange - one transfer within a provider, left to settlement, and one across providers
+        ReflectionTestUtils.setField(externalLedgerSync, "settlementEnabled", true);
+        Wallet source = wallet("ext-1", new BigDecimal("100.00"));
+        Wallet sameProvider = wallet("ext-2", new BigDecimal("50.00"));
+        Wallet otherProvider = wallet("ext-3", new BigDecimal("20.00"));
+        ReflectionTestUtils.setField(otherProvider, "walletType", "CYCLOS");
+        Transaction deferred = transfer(source, sameProvider);
+        Transaction crossProvider = transfer(sameProvider, otherProvider);
+        when(walletRepository.findById(any())).thenAnswer(i -> Optional.of(
+                List.of(source, sameProvider, otherProvider).stream()
+                        .filter(w -> w.getId().equals(i.getArgument(0)))
+                        .findFirst().orElseThrow()));
+        when(integrationService.transferBetweenWallets(sameProvider, otherProvider, new BigDecimal("10.00"),
+                crossProvider.getId().toString())).thenReturn("ext-tx-1");
+        when(walletRepository.findAllById(List.of(otherProvider.getId()))).thenReturn(List.of(otherProvider));
+        when(integrationService.getWalletBalances(List.of(otherProvider)))
+                .thenReturn(Map.of(otherProvider.getId(), otherProvider.getBalance()));
+
+        // Act
+        externalLedgerSync.onLedgerBooked(new LedgerBookedEvent(
+                List.of(deferred.getId(), crossProvider.getId()),
+                List.of(source.getId(), sameProvider.getId(), otherProvider.getId()),
+                true));
+
+        // Assert - wallets with a posting still owed to settlement are not compared
+        verify(walletRepository).findAllById(List.of(otherProvider.getId()));
+        verify(integrationService, times(1)).getWalletBalances(anyCollection());
+        assertEquals("ext-tx-1", crossProvider.getExternalId());
+    }
+
+    private Transaction transfer(Wallet source, Wallet target) {
+        Transaction transaction = Transaction.createTransfer(
+                source.getId(), target.getId(), new BigDecimal("10.00"), "USD", "Order");
+        ReflectionTestUtils.setField(transaction, "id", UUID.randomUUID());
+        transaction.complete();
+        when(transactionRepository.findByIdAndCreatedAtGreaterThanEqual(eq(transaction.getId()), any()))
+                .thenReturn(Optional.of(transaction));
+        return transaction;
+    }
+
+    private Wallet wallet(String externalId, BigDecimal externalBalance) {
+        Wallet wallet = Wallet.create(UUID.randomUUID(), externalId, "FINERACT", "SAVINGS", "USD");
+        ReflectionTestUtils.setField(wallet, "id", UUID.randomUUID());
+        wallet.recordExternalBalance(externalBalance);
+        return wallet;
+    }
+}
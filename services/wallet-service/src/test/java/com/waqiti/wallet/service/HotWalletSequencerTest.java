@@ -0,0 +1,245 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.InsufficientBalanceException;
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.domain.TransactionType;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.domain.TransactionStatus;
+import com.waqiti.wallet.domain.TransferOutcomeUnknownException;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HotWalletSequencerTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private TransactionJournal transactionJournal;
+
+    @Mock
+    private TransactionLogger transactionLogger;
+
+    @Mock
+    private WalletLedger walletLedger;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private HotWalletSequencer sequencer;
+
+    private UUID hotWalletId;
+    private Wallet hotWallet;
+    private Wallet firstSource;
+    private Wallet secondSource;
+
+    @BeforeEach
+    void setUp() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        sequencer = new HotWalletSequencer(walletRepository, transactionJournal, transactionLogger,
+                walletLedger, eventPublisher, transactionManager, meterRegistry, transactionRepository);
+
+        hotWalletId = UUID.randomUUID();
+        hotWallet = wallet(hotWalletId);
+        firstSource = wallet(UUID.randomUUID());
+        secondSource = wallet(UUID.randomUUID());
+    }
+
+    @Test
+    void testFlush_CreditsHotWalletOncePerBatch() throws Exception {
+        // Arrange
+        HotWalletSequencer.TransferCommand first =
+                new HotWalletSequencer.TransferCommand(firstSource.getId(), new BigDecimal("10.00"), "Order 1", null);
+        HotWalletSequencer.TransferCommand second =
+                new HotWalletSequencer.TransferCommand(secondSource.getId(), new BigDecimal("15.00"), "Order 2", null);
+
+        when(walletRepository.findById(hotWalletId)).thenReturn(Optional.of(hotWallet));
+        when(walletRepository.findAllById(any())).thenReturn(List.of(firstSource, secondSource));
+        when(walletLedger.tryCredit(hotWalletId, new BigDecimal("25.00"))).thenReturn(true);
+        when(walletLedger.tryDebit(any(UUID.class), any(BigDecimal.class))).thenReturn(true);
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createTransfer(
+                        i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+        when(transactionJournal.appendAll(anyList())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        sequencer.flush(hotWalletId, List.of(first, second));
+
+        // Assert - one credit for the batch, one debit per transfer, one insert batch
+        verify(walletLedger).tryCredit(hotWalletId, new BigDecimal("25.00"));
+        verify(walletLedger).tryDebit(firstSource.getId(), new BigDecimal("10.00"));
+        verify(walletLedger).tryDebit(secondSource.getId(), new BigDecimal("15.00"));
+        verify(transactionJournal).appendAll(anyList());
+        verify(eventPublisher).publishEvent(any(LedgerBookedEvent.class));
+
+        assertEquals(TransactionType.TRANSFER, first.result.get().getType());
+        assertEquals(hotWalletId, second.result.get().getTargetWalletId());
+    }
+
+    @Test
+    void testFlush_RejectedDebitIsTakenBackFromHotWallet() throws Exception {
+        // Arrange
+        HotWalletSequencer.TransferCommand funded =
+                new HotWalletSequencer.TransferCommand(firstSource.getId(), new BigDecimal("10.00"), "Order 1", null);
+        HotWalletSequencer.TransferCommand unfunded =
+                new HotWalletSequencer.TransferCommand(secondSource.getId(), new BigDecimal("15.00"), "Order 2", null);
+
+        when(walletRepository.findById(hotWalletId)).thenReturn(Optional.of(hotWallet));
+        when(walletRepository.findAllById(any())).thenReturn(List.of(firstSource, secondSource));
+        when(walletLedger.tryCredit(hotWalletId, new BigDecimal("25.00"))).thenReturn(true);
+        when(walletLedger.tryDebit(firstSource.getId(), new BigDecimal("10.00"))).thenReturn(true);
+        when(walletLedger.tryDebit(secondSource.getId(), new BigDecimal("15.00"))).thenReturn(false);
+        when(walletLedger.rejected("debit", secondSource.getId(), new BigDecimal("15.00")))
+                .thenReturn(new InsufficientBalanceException("Insufficient balance in wallet"));
+        when(walletLedger.tryDebit(hotWalletId, new BigDecimal("15.00"))).thenReturn(true);
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createTransfer(
+                        i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+        when(transactionJournal.appendAll(anyList())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        sequencer.flush(hotWalletId, List.of(funded, unfunded));
+
+        // Assert - only the rejected transfer fails, and its credit is reversed
+        verify(walletLedger).tryDebit(hotWalletId, new BigDecimal("15.00"));
+        assertNotNull(funded.result.get());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> unfunded.result.get());
+        assertInstanceOf(InsufficientBalanceException.class, failure.getCause());
+    }
+
+    @Test
+    void testFlush_ReplayedKeyIsAnsweredWithoutBookingAgain() throws Exception {
+        // Arrange
+        Transaction stored = Transaction.createTransfer(
+                firstSource.getId(), hotWalletId, new BigDecimal("10.00"), "USD", "Order 1");
+        stored.assignReferenceId("order-1");
+        stored.complete();
+
+        HotWalletSequencer.TransferCommand replayed = new HotWalletSequencer.TransferCommand(
+                firstSource.getId(), new BigDecimal("10.00"), "Order 1", "order-1");
+        HotWalletSequencer.TransferCommand duplicate = new HotWalletSequencer.TransferCommand(
+                firstSource.getId(), new BigDecimal("10.00"), "Order 1", "order-1");
+
+        when(walletRepository.findById(hotWalletId)).thenReturn(Optional.of(hotWallet));
+        when(walletRepository.findAllById(any())).thenReturn(List.of(firstSource));
+        when(transactionRepository.findKeyHolders(Set.of("order-1"))).thenReturn(List.of(stored));
+
+        // Act
+        sequencer.flush(hotWalletId, List.of(replayed, duplicate));
+
+        // Assert - both get the stored transaction, nothing is booked
+        assertSame(stored, replayed.result.get());
+        assertSame(stored, duplicate.result.get());
+        verifyNoInteractions(walletLedger, transactionJournal);
+    }
+
+    @Test
+    void testTransfer_AckTimeoutIsUnknownOnceTakenAndFailsWhileQueued() {
+        // Arrange - the writer takes the first transfer and stalls inside its batch
+        ReflectionTestUtils.setField(sequencer, "hotWalletIds", List.of(hotWalletId));
+        ReflectionTestUtils.setField(sequencer, "maxBatchSize", 200);
+        ReflectionTestUtils.setField(sequencer, "queueCapacity", 10);
+        ReflectionTestUtils.setField(sequencer, "ackTimeout", Duration.ofMillis(300));
+        CountDownLatch stalled = new CountDownLatch(1);
+        when(walletRepository.findById(hotWalletId)).thenAnswer(i -> {
+            stalled.await();
+            return Optional.empty();
+        });
+        sequencer.start();
+
+        try {
+            // Act & Assert - the taken transfer may still commit, the queued one is withdrawn
+            assertThrows(TransferOutcomeUnknownException.class, () -> sequencer.transfer(
+                    firstSource.getId(), hotWalletId, new BigDecimal("10.00"), "Order 1", "order-1"));
+            assertThrows(TransactionFailedException.class, () -> sequencer.transfer(
+                    secondSource.getId(), hotWalletId, new BigDecimal("15.00"), "Order 2", "order-2"));
+        } finally {
+            stalled.countDown();
+            sequencer.stop();
+        }
+        verify(walletRepository, times(1)).findById(hotWalletId);
+    }
+
+    @Test
+    void testFlush_AcceptedTransfersCompleteOrFailTheirStoredRows() throws Exception {
+        // Arrange
+        Transaction fundedRow = accepted(firstSource.getId(), new BigDecimal("10.00"));
+        Transaction unfundedRow = accepted(secondSource.getId(), new BigDecimal("15.00"));
+        HotWalletSequencer.TransferCommand funded = new HotWalletSequencer.TransferCommand(
+                firstSource.getId(), new BigDecimal("10.00"), "Order 1", null, fundedRow.getId(),
+                fundedRow.getCreatedAt());
+        HotWalletSequencer.TransferCommand unfunded = new HotWalletSequencer.TransferCommand(
+                secondSource.getId(), new BigDecimal("15.00"), "Order 2", null, unfundedRow.getId(),
+                unfundedRow.getCreatedAt());
+
+        when(walletRepository.findById(hotWalletId)).thenReturn(Optional.of(hotWallet));
+        when(walletRepository.findAllById(any())).thenReturn(List.of(firstSource, secondSource));
+        when(transactionRepository.findByIdInAndCreatedAtGreaterThanEqual(
+                Set.of(fundedRow.getId(), unfundedRow.getId()), fundedRow.getCreatedAt()))
+                .thenReturn(List.of(fundedRow, unfundedRow));
+        when(walletLedger.tryCredit(hotWalletId, new BigDecimal("25.00"))).thenReturn(true);
+        when(walletLedger.tryDebit(firstSource.getId(), new BigDecimal("10.00"))).thenReturn(true);
+        when(walletLedger.tryDebit(secondSource.getId(), new BigDecimal("15.00"))).thenReturn(false);
+        when(walletLedger.rejected("debit", secondSource.getId(), new BigDecimal("15.00")))
+                .thenReturn(new InsufficientBalanceException("Insufficient balance in wallet"));
+        when(walletLedger.tryDebit(hotWalletId, new BigDecimal("15.00"))).thenReturn(true);
+
+        // Act
+        sequencer.flush(hotWalletId, List.of(funded, unfunded));
+
+        // Assert - no new rows; both outcomes commit with the batch and are acknowledged after it
+        assertSame(fundedRow, funded.result.get());
+        assertEquals(TransactionStatus.COMPLETED, fundedRow.getStatus());
+        assertSame(unfundedRow, unfunded.result.get());
+        assertEquals(TransactionStatus.FAILED, unfundedRow.getStatus());
+        verify(transactionJournal).appendTransitions(List.of(fundedRow, unfundedRow));
+        verify(transactionJournal, never()).appendAll(anyList());
+        verify(eventPublisher).publishEvent(any(LedgerBookedEvent.class));
+    }
+
+    private Transaction accepted(UUID sourceWalletId, BigDecimal amount) {
+        Transaction transaction = Transaction.createTransfer(sourceWalletId, hotWalletId, amount, "USD", "Order");
+        ReflectionTestUtils.setField(transaction, "id", UUID.randomUUID());
+        transaction.markInProgress();
+        return transaction;
+    }
+
+    private Wallet wallet(UUID id) {
+        Wallet wallet = Wallet.create(UUID.randomUUID(), "ext-" + id, "FINERACT", "SAVINGS", "USD");
+        ReflectionTestUtils.setField(wallet, "id", id);
+        return wallet;
+    }
+}
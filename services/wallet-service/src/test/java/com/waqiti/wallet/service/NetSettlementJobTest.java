@@ -0,0 +1,111 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.repository.SettlementPosting;
+import com.waqiti.wallet.repository.SettlementRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NetSettlementJobTest {
+
+    @Mock
+    private SettlementRepository settlementRepository;
+
+    @Mock
+    private IntegrationService integrationService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+
+    private NetSettlementJob settlementJob;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        settlementJob = new NetSettlementJob(settlementRepository, integrationService, transactionManager,
+                meterRegistry);
+        ReflectionTestUtils.setField(settlementJob, "lookback", Duration.ofHours(1));
+        ReflectionTestUtils.setField(settlementJob, "batchSize", 500);
+    }
+
+    @Test
+    void testCloseWindow_ClaimsTransfersOfTheLookback() {
+        // Arrange
+        LocalDateTime windowEnd = LocalDateTime.of(2024, 6, 1, 12, 0);
+        when(settlementRepository.createRun(eq(windowEnd), any())).thenReturn(3L);
+        when(settlementRepository.claimTransfers(eq(3L), eq(windowEnd.minusHours(1)), eq(windowEnd), any()))
+                .thenReturn(40);
+        when(settlementRepository.countTransfers(3L)).thenReturn(10_000);
+
+        // Act
+        settlementJob.closeWindow(windowEnd);
+
+        // Assert
+        assertEquals(10_000.0, meterRegistry.get("wallet.settlement.transfers").counter().count());
+    }
+
+    @Test
+    void testCloseWindow_RollsBackEmptyRun() {
+        // Arrange
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        when(settlementRepository.createRun(any(), any())).thenReturn(4L);
+        when(settlementRepository.countTransfers(4L)).thenReturn(0);
+
+        // Act
+        settlementJob.closeWindow(LocalDateTime.now());
+
+        // Assert - the run row is not kept
+        assertTrue(status.isRollbackOnly());
+        assertEquals(0.0, meterRegistry.get("wallet.settlement.transfers").counter().count());
+    }
+
+    @Test
+    void testPostBatch_OneCallPerProviderAndKeepsFailedOnes() {
+        // Arrange
+        SettlementPosting fineractCredit = posting(1L, "FINERACT", "acc-1", "250.00");
+        SettlementPosting fineractDebit = posting(2L, "FINERACT", "acc-2", "-250.00");
+        SettlementPosting cyclos = posting(3L, "CYCLOS", "acc-3", "5.00");
+        when(settlementRepository.claimUnposted(500)).thenReturn(List.of(fineractCredit, cyclos, fineractDebit));
+        when(integrationService.postSettlement("FINERACT", List.of(fineractCredit, fineractDebit)))
+                .thenReturn(Map.of(1L, "ext-1", 2L, "ext-2"));
+        when(integrationService.postSettlement("CYCLOS", List.of(cyclos)))
+                .thenThrow(new TransactionFailedException("External service unavailable"));
+
+        // Act
+        int posted = settlementJob.postBatch();
+
+        // Assert - the failed provider's posting stays pending for the next window
+        assertEquals(2, posted);
+        verify(settlementRepository).markPosted(eq(Map.of(1L, "ext-1", 2L, "ext-2")), any());
+        verify(integrationService, times(2)).postSettlement(any(), any());
+        assertEquals(1.0, meterRegistry.get("wallet.settlement.failures").tag("stage", "post")
+                .counter().count());
+    }
+
+    private SettlementPosting posting(long id, String walletType, String account, String amount) {
+        return new SettlementPosting(id, 1L, walletType, account, "USD", new BigDecimal(amount));
+    }
+}
@@ -0,0 +1,112 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.OutboxEvent;
+import com.waqiti.wallet.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxRepository, kafkaTemplate, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 500);
+        ReflectionTestUtils.setField(outboxRelay, "sendTimeout", Duration.ofSeconds(1));
+    }
+
+    @Test
+    void testRelayBatch_SendsInOrderAndDeletesAcknowledgedEvents() {
+        // Arrange
+        when(outboxRepository.tryAdvisoryLock(anyLong())).thenReturn(true);
+        when(outboxRepository.findOldest(500)).thenReturn(List.of(
+                event(1L, "wallet-transactions", "tx-1"),
+                event(2L, "wallet-events", "user-1")));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        // Act
+        int relayed = outboxRelay.relayBatch();
+
+        // Assert
+        assertEquals(2, relayed);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ProducerRecord<String, String>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(records.capture());
+        assertEquals("tx-1", records.getAllValues().get(0).key());
+        assertEquals("user-1", records.getAllValues().get(1).key());
+        assertArrayEquals("1".getBytes(),
+                records.getAllValues().get(0).headers().lastHeader(OutboxRelay.OUTBOX_ID_HEADER).value());
+
+        verify(outboxRepository).deleteByIds(List.of(1L, 2L));
+    }
+
+    @Test
+    void testRelayBatch_KeepsEventsWhenSendFails() {
+        // Arrange
+        when(outboxRepository.tryAdvisoryLock(anyLong())).thenReturn(true);
+        when(outboxRepository.findOldest(500)).thenReturn(List.of(event(1L, "wallet-transactions", "tx-1")));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker unavailable")));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> outboxRelay.relayBatch());
+        verify(outboxRepository, never()).deleteByIds(any());
+    }
+
+    @Test
+    void testRelayBatch_SkipsWhenAnotherInstanceHoldsTheLock() {
+        // Arrange
+        when(outboxRepository.tryAdvisoryLock(anyLong())).thenReturn(false);
+
+        // Act
+        int relayed = outboxRelay.relayBatch();
+
+        // Assert
+        assertEquals(0, relayed);
+        verify(outboxRepository, never()).findOldest(anyInt());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private OutboxEvent event(Long id, String topic, String key) {
+        return OutboxEvent.builder()
+                .id(id)
+                .topic(topic)
+                .messageKey(key)
+                .payload("{}")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.waqiti.wallet.domain.WalletNotFoundException;
+import com.waqiti.wallet.dto.StatementFormat;
+import com.waqiti.wallet.dto.StatementLine;
+import com.waqiti.wallet.repository.StatementRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StatementExporterTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private StatementRepository statementRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StatementExporter statementExporter;
+
+    private UUID walletId;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        statementExporter = new StatementExporter(walletRepository, statementRepository, transactionManager,
+                objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(statementExporter, "fetchSize", 1000);
+        ReflectionTestUtils.setField(statementExporter, "maxDays", 366L);
+        walletId = UUID.randomUUID();
+    }
+
+    @Test
+    void testExport_StreamsGzippedCsvForWholeDays() throws Exception {
+        // Arrange
+        when(walletRepository.existsById(walletId)).thenReturn(true);
+        streamLines(line("Coffee, large"), line("Rent"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        statementExporter.export(walletId, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                StatementFormat.CSV, true).writeTo(out);
+
+        // Assert - the end day is included, free text is quoted
+        verify(statementRepository).streamWalletTransactions(eq(walletId),
+                eq(LocalDateTime.of(2024, 1, 1, 0, 0)), eq(LocalDateTime.of(2025, 1, 1, 0, 0)),
+                eq(1000), any());
+        String[] rows = gunzip(out.toByteArray()).split("\n");
+        assertEquals(3, rows.length);
+        assertTrue(rows[0].startsWith("transaction_id,created_at"));
+        assertTrue(rows[1].endsWith(",DEBIT,,12.50,USD,,\"Coffee, large\""));
+        assertTrue(rows[2].endsWith(",Rent"));
+    }
+
+    @Test
+    void testExport_WritesOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        when(walletRepository.existsById(walletId)).thenReturn(true);
+        streamLines(line("Coffee"), line("Rent"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        statementExporter.export(walletId, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                StatementFormat.NDJSON, false).writeTo(out);
+
+        // Assert
+        String[] rows = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows.length);
+        assertTrue(rows[0].startsWith("{") && rows[0].contains("\"description\":\"Coffee\""));
+        assertTrue(rows[1].contains("\"createdAt\":\"2024-01-15T10:00:00\""));
+    }
+
+    @Test
+    void testExport_RejectsUnknownWalletAndLongPeriodsBeforeStreaming() {
+        // Arrange
+        when(walletRepository.existsById(walletId)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(WalletNotFoundException.class, () -> statementExporter.export(walletId,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), StatementFormat.CSV, false));
+        assertThrows(IllegalArgumentException.class, () -> statementExporter.export(walletId,
+                LocalDate.of(2023, 1, 1), LocalDate.of(2024, 6, 30), StatementFormat.CSV, false));
+        verifyNoInteractions(statementRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamLines(StatementLine... lines) {
+        doAnswer(i -> {
+            Consumer<StatementLine> consumer = i.getArgument(4);
+            for (StatementLine line : lines) {
+                consumer.accept(line);
+            }
+            return null;
+        }).when(statementRepository).streamWalletTransactions(eq(walletId), any(), any(), anyInt(), any());
+    }
+
+    private StatementLine line(String description) {
+        return StatementLine.builder()
+                .transactionId(UUID.randomUUID())
+                .createdAt(LocalDateTime.of(2024, 1, 15, 10, 0))
+                .type("WITHDRAWAL")
+                .status("COMPLETED")
+                .direction(StatementLine.Direction.DEBIT)
+                .amount(new BigDecimal("12.50"))
+                .currency("USD")
+                .description(description)
+                .build();
+    }
+
+    private String gunzip(byte[] bytes) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
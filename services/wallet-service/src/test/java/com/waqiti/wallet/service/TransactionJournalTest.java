@@ -0,0 +1,139 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.TransactionStateLogEntry;
+import com.waqiti.wallet.domain.TransactionStatus;
+import com.waqiti.wallet.domain.UserTransaction;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.TransactionStateLogRepository;
+import com.waqiti.wallet.repository.UserTransactionRepository;
+import com.waqiti.wallet.repository.WalletOwnerView;
+import com.waqiti.wallet.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionJournalTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionStateLogRepository stateLogRepository;
+
+    @Mock
+    private UserTransactionRepository userTransactionRepository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @InjectMocks
+    private TransactionJournal transactionJournal;
+
+    @Test
+    void testAppend_WritesFinalStateOnceAndLogsTransitions() {
+        // Arrange
+        UUID sourceWalletId = UUID.randomUUID();
+        UUID targetWalletId = UUID.randomUUID();
+        UUID sourceOwner = UUID.randomUUID();
+        UUID targetOwner = UUID.randomUUID();
+        Transaction transaction = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        transaction.markInProgress();
+        transaction.complete();
+
+        UUID transactionId = UUID.randomUUID();
+        when(transactionRepository.saveAll(anyList())).thenAnswer(i -> {
+            List<Transaction> saved = i.getArgument(0);
+            saved.forEach(t -> ReflectionTestUtils.setField(t, "id", transactionId));
+            return saved;
+        });
+        when(walletRepository.findOwnersByIdIn(anyCollection())).thenReturn(List.of(
+                owner(sourceWalletId, sourceOwner), owner(targetWalletId, targetOwner)));
+
+        // Act
+        Transaction saved = transactionJournal.append(transaction);
+
+        // Assert - one row write in the final state, the steps go to the state log
+        assertEquals(TransactionStatus.COMPLETED, saved.getStatus());
+        verify(transactionRepository, times(1)).saveAll(anyList());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransactionStateLogEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(stateLogRepository).saveAll(entries.capture());
+        assertEquals(
+                List.of(TransactionStatus.PENDING, TransactionStatus.IN_PROGRESS, TransactionStatus.COMPLETED),
+                entries.getValue().stream().map(TransactionStateLogEntry::getStatus).collect(Collectors.toList()));
+        assertTrue(entries.getValue().stream().allMatch(e -> transactionId.equals(e.getTransactionId())));
+
+        // Transitions are written only once
+        assertTrue(transaction.drainStateTransitions().isEmpty());
+
+        // Both owners get a row in the per-user projection
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserTransaction>> userRows = ArgumentCaptor.forClass(List.class);
+        verify(userTransactionRepository).saveAll(userRows.capture());
+        assertEquals(2, userRows.getValue().size());
+        assertEquals(sourceOwner, userRows.getValue().get(0).getUserId());
+        assertEquals(UserTransaction.Direction.OUT, userRows.getValue().get(0).getDirection());
+        assertEquals(targetOwner, userRows.getValue().get(1).getUserId());
+        assertEquals(UserTransaction.Direction.IN, userRows.getValue().get(1).getDirection());
+        assertEquals(transactionId, userRows.getValue().get(1).getTransactionId());
+    }
+
+    @Test
+    void testAppend_ProjectsTransferBetweenOwnWalletsOnce() {
+        // Arrange - both wallets belong to the same user
+        UUID sourceWalletId = UUID.randomUUID();
+        UUID targetWalletId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        Transaction transaction = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("25.00"), "USD", "Savings");
+        transaction.markInProgress();
+        transaction.complete();
+
+        when(transactionRepository.saveAll(anyList())).thenAnswer(i -> i.getArgument(0));
+        when(walletRepository.findOwnersByIdIn(anyCollection())).thenReturn(List.of(
+                owner(sourceWalletId, userId), owner(targetWalletId, userId)));
+
+        // Act
+        transactionJournal.append(transaction);
+
+        // Assert - a single row, so the user's history lists the transfer once
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserTransaction>> userRows = ArgumentCaptor.forClass(List.class);
+        verify(userTransactionRepository).saveAll(userRows.capture());
+        assertEquals(1, userRows.getValue().size());
+        assertEquals(userId, userRows.getValue().get(0).getUserId());
+        assertEquals(UserTransaction.Direction.OUT, userRows.getValue().get(0).getDirection());
+    }
+
+    private WalletOwnerView owner(UUID walletId, UUID userId) {
+        return new WalletOwnerView() {
+            @Override
+            public UUID getId() {
+                return walletId;
+            }
+
+            @Override
+            public UUID getUserId() {
+                return userId;
+            }
+        };
+    }
+}
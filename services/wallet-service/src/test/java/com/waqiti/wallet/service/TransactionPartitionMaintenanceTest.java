@@ -0,0 +1,101 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.repository.AdvisoryLockRepository;
+import com.waqiti.wallet.repository.TransactionPartitionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionPartitionMaintenanceTest {
+
+    @Mock
+    private TransactionPartitionRepository partitionRepository;
+
+    @Mock
+    private AdvisoryLockRepository advisoryLockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+
+    private TransactionPartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        maintenance = new TransactionPartitionMaintenance(partitionRepository, advisoryLockRepository,
+                transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(maintenance, "monthsAhead", 3);
+        ReflectionTestUtils.setField(maintenance, "retentionMonths", 24);
+        ReflectionTestUtils.setField(maintenance, "archiveTablespace", "");
+    }
+
+    @Test
+    void testMaintain_CreatesComingMonthsAndArchivesExpiredOnes() {
+        // Arrange
+        YearMonth current = YearMonth.now();
+        when(advisoryLockRepository.tryLock(anyInt(), anyString())).thenReturn(true);
+        when(partitionRepository.findPartitionMonths()).thenReturn(List.of(
+                current.minusMonths(26), current.minusMonths(25), current.minusMonths(24), current.minusMonths(1)));
+
+        // Act
+        maintenance.maintain();
+
+        // Assert - the current month and three ahead; the 24th month back is still kept
+        verify(partitionRepository).ensurePartition(current);
+        verify(partitionRepository).ensurePartition(current.plusMonths(3));
+        verify(partitionRepository, times(4)).ensurePartition(any());
+        verify(partitionRepository).archivePartition(current.minusMonths(26), "");
+        verify(partitionRepository).archivePartition(current.minusMonths(25), "");
+        verify(partitionRepository, times(2)).archivePartition(any(), any());
+    }
+
+    @Test
+    void testMaintain_KeepsArchivingAfterAFailedMonth() {
+        // Arrange
+        YearMonth current = YearMonth.now();
+        when(advisoryLockRepository.tryLock(anyInt(), anyString())).thenReturn(true);
+        when(partitionRepository.findPartitionMonths()).thenReturn(List.of(
+                current.minusMonths(26), current.minusMonths(25)));
+        doThrow(new RuntimeException("lock timeout")).when(partitionRepository)
+                .archivePartition(eq(current.minusMonths(26)), any());
+
+        // Act
+        maintenance.maintain();
+
+        // Assert
+        verify(partitionRepository).archivePartition(current.minusMonths(25), "");
+        assertEquals(1.0, meterRegistry.get("wallet.transactions.partitions.failures").counter().count());
+        assertEquals(1.0, meterRegistry.get("wallet.transactions.partitions.archived").counter().count());
+    }
+
+    @Test
+    void testMaintain_SkipsWhenAnotherInstanceHoldsTheLock() {
+        // Arrange
+        when(advisoryLockRepository.tryLock(anyInt(), anyString())).thenReturn(false);
+
+        // Act
+        maintenance.maintain();
+
+        // Assert
+        verifyNoInteractions(partitionRepository);
+    }
+}
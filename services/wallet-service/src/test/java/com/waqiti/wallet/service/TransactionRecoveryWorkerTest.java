@@ -0,0 +1,227 @@
+package com.waqiti.wallet.service;
+
+import com.waqiti.wallet.domain.Transaction;
+import com.waqiti.wallet.domain.TransactionStatus;
+import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.TransactionRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionRecoveryWorkerTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private TransactionJournal transactionJournal;
+
+    @Mock
+    private WalletLedger walletLedger;
+
+    @Mock
+    private IntegrationService integrationService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+
+    private TransactionRecoveryWorker recoveryWorker;
+
+    private LocalDateTime staleBefore;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recoveryWorker = new TransactionRecoveryWorker(transactionRepository, walletRepository, transactionJournal,
+                walletLedger, integrationService, eventPublisher, transactionManager, meterRegistry, Runnable::run);
+        ReflectionTestUtils.setField(recoveryWorker, "staleAfter", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(recoveryWorker, "batchSize", 50);
+        ReflectionTestUtils.setField(recoveryWorker, "workers", 2);
+        staleBefore = LocalDateTime.now().minusMinutes(5);
+    }
+
+    @Test
+    void testRecoverBatch_PostsUnpostedTransfersUnlessProviderHasThem() {
+        // Arrange
+        Transaction alreadyPosted = transaction(Transaction.createTransfer(
+                UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("10.00"), "USD", "Order 1"));
+        alreadyPosted.complete();
+        Transaction neverPosted = transaction(Transaction.createTransfer(
+                UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("20.00"), "USD", "Order 2"));
+        neverPosted.complete();
+
+        when(transactionRepository.claimUnposted(staleBefore, staleBefore, 50)).thenReturn(List.of(alreadyPosted, neverPosted));
+        when(transactionRepository.claimAbandoned(staleBefore, 48)).thenReturn(List.of());
+        when(integrationService.findPostedTransaction(alreadyPosted.getId().toString()))
+                .thenReturn(Optional.of("ext-1"));
+        when(integrationService.findPostedTransaction(neverPosted.getId().toString()))
+                .thenReturn(Optional.empty());
+        when(walletRepository.findById(any())).thenAnswer(i -> Optional.of(wallet(i.getArgument(0))));
+        when(integrationService.transferBetweenWallets(any(), any(), eq(new BigDecimal("20.00")),
+                eq(neverPosted.getId().toString()))).thenReturn("ext-2");
+
+        // Act
+        int resolved = recoveryWorker.recoverBatch(staleBefore);
+
+        // Assert - only the missing posting is sent, with the transaction ID as reference
+        assertEquals(2, resolved);
+        assertEquals("ext-1", alreadyPosted.getExternalId());
+        assertEquals("ext-2", neverPosted.getExternalId());
+        verify(integrationService, times(1)).transferBetweenWallets(any(), any(), any(), any());
+        verifyNoInteractions(walletLedger, eventPublisher);
+    }
+
+    @Test
+    void testRecoverBatch_CompletesPostedAbandonedAndFailsTheRest() {
+        // Arrange
+        Transaction posted = transaction(Transaction.createDeposit(
+                UUID.randomUUID(), new BigDecimal("30.00"), "USD", "Top up"));
+        posted.markInProgress();
+        Transaction notPosted = transaction(Transaction.createDeposit(
+                UUID.randomUUID(), new BigDecimal("40.00"), "USD", "Top up"));
+
+        when(transactionRepository.claimUnposted(staleBefore, staleBefore, 50)).thenReturn(List.of());
+        when(transactionRepository.claimAbandoned(staleBefore, 50)).thenReturn(List.of(posted, notPosted));
+        when(integrationService.findPostedTransaction(posted.getId().toString())).thenReturn(Optional.of("ext-3"));
+        when(integrationService.findPostedTransaction(notPosted.getId().toString())).thenReturn(Optional.empty());
+        when(walletLedger.tryCredit(posted.getTargetWalletId(), new BigDecimal("30.00"))).thenReturn(true);
+
+        // Act
+        int resolved = recoveryWorker.recoverBatch(staleBefore);
+
+        // Assert - the posted deposit reaches the ledger, the other one is failed
+        assertEquals(2, resolved);
+        assertEquals(TransactionStatus.COMPLETED, posted.getStatus());
+        assertEquals("ext-3", posted.getExternalId());
+        assertEquals(TransactionStatus.FAILED, notPosted.getStatus());
+        verify(walletLedger, never()).tryCredit(eq(notPosted.getTargetWalletId()), any());
+        verify(transactionJournal).appendTransitions(List.of(posted, notPosted));
+        verify(eventPublisher).publishEvent(any(LedgerBookedEvent.class));
+        assertEquals(1.0, meterRegistry.get("wallet.recovery.transactions").tag("outcome", "failed")
+                .counter().count());
+    }
+
+    @Test
+    void testRecoverBatch_CompletesPaidOutWithdrawalAndReleasesTheRest() {
+        // Arrange
+        Transaction paidOut = transaction(Transaction.createWithdrawal(
+                UUID.randomUUID(), new BigDecimal("30.00"), "USD", "Cash out"));
+        paidOut.markInProgress();
+        Transaction notPaidOut = transaction(Transaction.createWithdrawal(
+                UUID.randomUUID(), new BigDecimal("40.00"), "USD", "Cash out"));
+        notPaidOut.markInProgress();
+
+        when(transactionRepository.claimUnposted(staleBefore, staleBefore, 50)).thenReturn(List.of());
+        when(transactionRepository.claimAbandoned(staleBefore, 50)).thenReturn(List.of(paidOut, notPaidOut));
+        when(integrationService.findPostedTransaction(paidOut.getId().toString())).thenReturn(Optional.of("ext-4"));
+        when(integrationService.findPostedTransaction(notPaidOut.getId().toString())).thenReturn(Optional.empty());
+
+        // Act
+        int resolved = recoveryWorker.recoverBatch(staleBefore);
+
+        // Assert - the reservation stands for the payout and is given back for the other one
+        assertEquals(2, resolved);
+        assertEquals(TransactionStatus.COMPLETED, paidOut.getStatus());
+        assertEquals("ext-4", paidOut.getExternalId());
+        assertEquals(TransactionStatus.FAILED, notPaidOut.getStatus());
+        verify(walletLedger).release(notPaidOut.getSourceWalletId(), new BigDecimal("40.00"));
+        verify(walletLedger, never()).tryDebit(any(), any());
+        verify(walletLedger, never()).release(eq(paidOut.getSourceWalletId()), any());
+        assertEquals(1.0, meterRegistry.get("wallet.recovery.transactions").tag("outcome", "released")
+                .counter().count());
+    }
+
+    @Test
+    void testRecoverBatch_LeavesRowWhenProviderCannotBeReached() {
+        // Arrange
+        Transaction abandoned = transaction(Transaction.createDeposit(
+                UUID.randomUUID(), new BigDecimal("30.00"), "USD", "Top up"));
+
+        when(transactionRepository.claimUnposted(staleBefore, staleBefore, 50)).thenReturn(List.of());
+        when(transactionRepository.claimAbandoned(staleBefore, 50)).thenReturn(List.of(abandoned));
+        when(integrationService.findPostedTransaction(abandoned.getId().toString()))
+                .thenThrow(new RuntimeException("integration-service unavailable"));
+
+        // Act
+        int resolved = recoveryWorker.recoverBatch(staleBefore);
+
+        // Assert - an unknown outcome is never turned into a failure
+        assertEquals(0, resolved);
+        assertEquals(TransactionStatus.PENDING, abandoned.getStatus());
+        verifyNoInteractions(walletLedger);
+    }
+
+    @Test
+    void testRecoverBatch_LeavesSameProviderTransfersToSettlementWithinLookback() {
+        // Arrange
+        ReflectionTestUtils.setField(recoveryWorker, "settlementEnabled", true);
+        ReflectionTestUtils.setField(recoveryWorker, "settlementLookback", Duration.ofHours(1));
+        when(transactionRepository.claimUnposted(staleBefore, staleBefore.minusMinutes(55), 50))
+                .thenReturn(List.of());
+        when(transactionRepository.claimAbandoned(staleBefore, 50)).thenReturn(List.of());
+
+        // Act
+        int resolved = recoveryWorker.recoverBatch(staleBefore);
+
+        // Assert - only same-provider transfers older than the lookback are posted one by one
+        assertEquals(0, resolved);
+        verifyNoInteractions(integrationService);
+    }
+
+    @Test
+    void testRecover_PublishesBacklogAndSkipsClaimingWhenEmpty() {
+        // Arrange
+        when(transactionRepository.countUnposted(any(), any())).thenReturn(0L);
+        when(transactionRepository.countAbandoned(any())).thenReturn(0L);
+
+        // Act
+        recoveryWorker.recover();
+
+        // Assert
+        assertEquals(0.0, meterRegistry.get("wallet.recovery.backlog").tag("state", "unposted").gauge().value());
+        verify(transactionRepository, never()).claimUnposted(any(), any(), anyInt());
+        verify(transactionRepository, never()).claimAbandoned(any(), anyInt());
+    }
+
+    private Transaction transaction(Transaction transaction) {
+        ReflectionTestUtils.setField(transaction, "id", UUID.randomUUID());
+        return transaction;
+    }
+
+    private Wallet wallet(UUID id) {
+        Wallet wallet = Wallet.create(UUID.randomUUID(), "ext-" + id, "FINERACT", "SAVINGS", "USD");
+        ReflectionTestUtils.setField(wallet, "id", id);
+        return wallet;
+    }
+}
@@ -0,0 +1,91 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waqiti.wallet.dto.WalletResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WalletBalanceCacheTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private WalletBalanceCache cache;
+
+    private UUID walletId;
+    private WalletResponse wallet;
+
+    @BeforeEach
+    void setUp() {
+        cache = new WalletBalanceCache(redisTemplate, new ObjectMapper().findAndRegisterModules(),
+                new SimpleMeterRegistry(), Duration.ofSeconds(30), Duration.ofSeconds(5), 1000);
+
+        walletId = UUID.randomUUID();
+        wallet = WalletResponse.builder()
+                .id(walletId)
+                .balance(new BigDecimal("250.00"))
+                .currency("USD")
+                .build();
+    }
+
+    @Test
+    void testGet_HitsLocalTierAfterPut() {
+        // Act
+        cache.put(wallet, 3L, System.currentTimeMillis());
+        Optional<WalletResponse> cached = cache.get(walletId);
+
+        // Assert - served in-process without a Redis round trip
+        assertTrue(cached.isPresent());
+        assertEquals(new BigDecimal("250.00"), cached.get().getBalance());
+        verify(redisTemplate, never()).opsForHash();
+    }
+
+    @Test
+    void testPut_IgnoresValueReadBeforeInvalidation() throws InterruptedException {
+        // Arrange - a reader starts, then a mutation commits and invalidates
+        long readStartedAt = System.currentTimeMillis();
+        Thread.sleep(2);
+        cache.evict(List.of(walletId));
+
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet(anyString(), anyList())).thenReturn(Arrays.asList(null, null, null));
+
+        // Act - the slow reader tries to cache what it read
+        cache.put(wallet, 3L, readStartedAt);
+
+        // Assert
+        assertTrue(cache.get(walletId).isEmpty());
+    }
+
+    @Test
+    void testGet_ZeroStalenessAlwaysMisses() {
+        // Arrange
+        cache.put(wallet, 3L, System.currentTimeMillis());
+
+        // Act & Assert
+        assertTrue(cache.get(walletId, Duration.ZERO).isEmpty());
+        verifyNoMoreInteractions(hashOperations);
+    }
+}
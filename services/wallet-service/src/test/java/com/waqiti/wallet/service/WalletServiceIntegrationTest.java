@@ -13,6 +13,7 @@ import com.waqiti.wallet.repository.WalletRepository;
 import com.waqiti.wallet.repository.TransactionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -82,12 +83,19 @@ public class WalletServiceIntegrationTest {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @MockBean
     private IntegrationService integrationService;
 
     @MockBean
     private TransactionLogger transactionLogger;
 
+    // No Redis in this environment; every read goes to the database
+    @MockBean
+    private WalletBalanceCache walletBalanceCache;
+
     private UUID userId;
     private CreateWalletRequest createWalletRequest;
 
@@ -103,7 +111,7 @@ public class WalletServiceIntegrationTest {
 
         // Mock the external integration service
         when(integrationService.createWallet(any(), any(), any(), any())).thenReturn("ext-123");
-        when(integrationService.transferBetweenWallets(any(), any(), any())).thenReturn("tx-123");
+        when(integrationService.transferBetweenWallets(any(), any(), any(), any())).thenReturn("tx-123");
         when(integrationService.getWalletBalance(any())).thenReturn(BigDecimal.ZERO);
 
         // Create a dynamic transaction factory
@@ -157,37 +165,10 @@ public class WalletServiceIntegrationTest {
         assertNotNull(targetWalletResponse);
         assertEquals(otherUserId, targetWalletResponse.getUserId());
 
-        // Mock the external service behavior to return the expected balances
-        // This is the key fix - modify the mock behavior
-        when(integrationService.getWalletBalance(any(Wallet.class)))
-                .thenAnswer(invocation -> {
-                    Wallet wallet = invocation.getArgument(0);
-                    // If it's the source wallet, return a large balance after "deposit"
-                    if (wallet.getId().equals(sourceWalletResponse.getId())) {
-                        return new BigDecimal("1000.00");
-                    }
-                    // For any other wallet, return current balance (usually 0)
-                    return wallet.getBalance();
-                });
-
-        // We need to explicitly load the updated wallet to pick up the mocked balance
+        // Fund the source wallet in the local ledger, which is authoritative
         Wallet sourceWallet = walletRepository.findById(sourceWalletResponse.getId()).orElseThrow();
-
-        // Mock the transfer behavior
-        when(integrationService.transferBetweenWallets(any(Wallet.class), any(Wallet.class), any(BigDecimal.class)))
-                .thenReturn("mocked-transfer-id");
-
-        // Update the mock to reflect balance changes after transfer
-        when(integrationService.getWalletBalance(any(Wallet.class)))
-                .thenAnswer(invocation -> {
-                    Wallet wallet = invocation.getArgument(0);
-                    if (wallet.getId().equals(sourceWalletResponse.getId())) {
-                        return new BigDecimal("900.00"); // 1000 - 100
-                    } else if (wallet.getId().equals(targetWalletResponse.getId())) {
-                        return new BigDecimal("100.00"); // 0 + 100
-                    }
-                    return wallet.getBalance();
-                });
+        sourceWallet.credit(Money.of(new BigDecimal("1000.00"), sourceWallet.getCurrency()));
+        walletRepository.save(sourceWallet);
 
         // Create transfer request
         TransferRequest transferRequest = new TransferRequest();
@@ -203,14 +184,16 @@ public class WalletServiceIntegrationTest {
         assertNotNull(transactionResponse);
         assertEquals(sourceWalletResponse.getId(), transactionResponse.getSourceWalletId());
         assertEquals(targetWalletResponse.getId(), transactionResponse.getTargetWalletId());
-        assertEquals(new BigDecimal("100.00"), transactionResponse.getAmount());
+        assertEquals(new BigDecimal("100.00"), transactionResponse.getAmount().toBigDecimal());
 
-        // Verify balances updated
+        // Verify balances updated; the ledger writes with bulk updates, so drop the
+        // entities cached by this test's persistence context first
+        entityManager.clear();
         Wallet updatedSourceWallet = walletRepository.findById(sourceWalletResponse.getId()).orElseThrow();
         Wallet updatedTargetWallet = walletRepository.findById(targetWalletResponse.getId()).orElseThrow();
 
-        assertEquals(new BigDecimal("900.00"), updatedSourceWallet.getBalance());
-        assertEquals(new BigDecimal("100.00"), updatedTargetWallet.getBalance());
+        assertEquals(0, new BigDecimal("900.00").compareTo(updatedSourceWallet.getBalance()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(updatedTargetWallet.getBalance()));
     }
 
     @Test
@@ -223,15 +206,10 @@ public class WalletServiceIntegrationTest {
         createWalletRequest.setUserId(otherUserId);
         WalletResponse targetWalletResponse = walletService.createWallet(createWalletRequest);
 
-        // Mock the external service to return a small balance (50)
-        when(integrationService.getWalletBalance(any(Wallet.class)))
-                .thenAnswer(invocation -> {
-                    Wallet wallet = invocation.getArgument(0);
-                    if (wallet.getId().equals(sourceWalletResponse.getId())) {
-                        return new BigDecimal("50.00");
-                    }
-                    return wallet.getBalance();
-                });
+        // Fund the source wallet with a small balance (50)
+        Wallet sourceWallet = walletRepository.findById(sourceWalletResponse.getId()).orElseThrow();
+        sourceWallet.credit(Money.of(new BigDecimal("50.00"), sourceWallet.getCurrency()));
+        walletRepository.save(sourceWallet);
 
         // Create transfer request with amount greater than balance
         TransferRequest transferRequest = new TransferRequest();
@@ -6,21 +6,40 @@ import com.waqiti.wallet.domain.InsufficientBalanceException;
 import com.waqiti.wallet.domain.Transaction;
 import com.waqiti.wallet.domain.TransactionType;
 import com.waqiti.wallet.domain.Wallet;
+import com.waqiti.wallet.dto.BatchTransferRequest;
+import com.waqiti.wallet.dto.BatchTransferResponse;
 import com.waqiti.wallet.dto.CreateWalletRequest;
+import com.waqiti.wallet.dto.DepositRequest;
 import com.waqiti.wallet.dto.TransferRequest;
 import com.waqiti.wallet.dto.WalletResponse;
+import com.waqiti.wallet.dto.WithdrawalRequest;
+import com.waqiti.wallet.dto.TransactionCursor;
+import com.waqiti.wallet.dto.TransactionHistoryResponse;
 import com.waqiti.wallet.dto.TransactionResponse;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.event.TransferAcceptedEvent;
 import com.waqiti.wallet.repository.WalletRepository;
 import com.waqiti.wallet.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -46,6 +65,38 @@ public class WalletServiceTest {
     @Mock
     private TransactionLogger transactionLogger;
 
+    @Mock
+    private WalletLedger walletLedger;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private HotWalletSequencer hotWalletSequencer;
+
+    @Mock
+    private TransactionJournal transactionJournal;
+
+    @Mock
+    private WalletBalanceCache walletBalanceCache;
+
+    @Mock
+    private ExternalLedgerSync externalLedgerSync;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private WalletStateFeed walletStateFeed;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private MovementMetrics movementMetrics = new MovementMetrics(meterRegistry);
+
     @InjectMocks
     private WalletService walletService;
 
@@ -88,6 +139,9 @@ public class WalletServiceTest {
         // Only keep minimal common setup for shared repositories
         lenient().when(walletRepository.save(any(Wallet.class))).thenAnswer(i -> i.getArgument(0));
         lenient().when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArgument(0));
+        lenient().when(transactionJournal.append(any(Transaction.class))).thenAnswer(i -> i.getArgument(0));
+        lenient().when(transactionJournal.appendFailed(any(Transaction.class))).thenAnswer(i -> i.getArgument(0));
+        lenient().when(transactionJournal.appendStatus(any(Transaction.class))).thenAnswer(i -> i.getArgument(0));
     }
 
     @Test
@@ -114,8 +168,6 @@ public class WalletServiceTest {
     @Test
     void testTransfer_Success() {
         // Arrange - specific test mocks
-        String externalTransactionId = "ext-tx-123";
-
         // Create a Transaction using the factory method
         Transaction mockedTransaction = Transaction.createTransfer(
                 sourceWalletId,
@@ -137,15 +189,8 @@ public class WalletServiceTest {
                 eq("Test transfer")
         )).thenReturn(mockedTransaction);
 
-        when(walletRepository.findByIdWithLock(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
-        when(walletRepository.findByIdWithLock(targetWalletId)).thenReturn(Optional.of(targetWallet));
-        when(integrationService.transferBetweenWallets(any(), any(), any())).thenReturn(externalTransactionId);
-        when(integrationService.getWalletBalance(sourceWallet)).thenReturn(new BigDecimal("900.00"));
-        when(integrationService.getWalletBalance(targetWallet)).thenReturn(new BigDecimal("600.00"));
-
-        doNothing().when(transactionLogger).logTransaction(any(Transaction.class));
-        doNothing().when(transactionLogger).logWalletEvent(
-                any(UUID.class), any(UUID.class), anyString(), any(BigDecimal.class), anyString(), any(UUID.class));
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
 
         // Act
         TransactionResponse response = walletService.transfer(transferRequest);
@@ -154,16 +199,47 @@ public class WalletServiceTest {
         assertNotNull(response);
         assertEquals(sourceWalletId, response.getSourceWalletId());
         assertEquals(targetWalletId, response.getTargetWalletId());
-        assertEquals(new BigDecimal("100.00"), response.getAmount());
+        assertEquals(new BigDecimal("100.00"), response.getAmount().toBigDecimal());
         assertEquals("USD", response.getCurrency());
         assertEquals("Test transfer", response.getDescription());
 
-        verify(walletRepository).findByIdWithLock(sourceWalletId);
-        verify(walletRepository).findByIdWithLock(targetWalletId);
-        verify(integrationService).transferBetweenWallets(eq(sourceWallet), eq(targetWallet), eq(new BigDecimal("100.00")));
-        verify(walletRepository, times(2)).save(any(Wallet.class));
-        verify(transactionRepository, atLeastOnce()).save(any(Transaction.class));
-        verify(transactionLogger).logTransaction(any(Transaction.class));
+        // Booked with conditional ledger updates, without locking or saving the wallets;
+        // the external provider is posted after commit
+        verify(walletLedger).transfer(sourceWalletId, targetWalletId, new BigDecimal("100.00"));
+        verify(walletRepository, never()).findAllByIdInWithLock(any());
+        verify(walletRepository, never()).save(any(Wallet.class));
+        verifyNoInteractions(integrationService);
+        verify(eventPublisher).publishEvent(any(LedgerBookedEvent.class));
+        // Written once, in its final state
+        verify(transactionJournal).append(argThat(t -> t.getStatus() == TransactionStatus.COMPLETED));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(transactionLogger).logTransferEvents(any(Transaction.class), eq(sourceWallet), eq(targetWallet));
+        verify(hotWalletSequencer, never()).transfer(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testTransfer_HotWalletRoutedToSequencer() {
+        // Arrange
+        Transaction bookedTransaction = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        bookedTransaction.complete();
+        ReflectionTestUtils.setField(bookedTransaction, "id", UUID.randomUUID());
+
+        when(hotWalletSequencer.isHot(targetWalletId)).thenReturn(true);
+        when(hotWalletSequencer.transfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "Test transfer", null))
+                .thenReturn(bookedTransaction);
+
+        // Act
+        TransactionResponse response = walletService.transfer(transferRequest);
+
+        // Assert - booked by the hot wallet's writer, not on the caller's thread
+        assertEquals(bookedTransaction.getId(), response.getId());
+        assertEquals(TransactionStatus.COMPLETED.name(), response.getStatus());
+        verifyNoInteractions(walletLedger, transactionJournal, transactionManager);
+        assertEquals(1L, meterRegistry.get("wallet.movement.stage.time")
+                .tags("operation", "transfer", "stage", "sequencer", "outcome", "success")
+                .timer().count());
     }
 
     @Test
@@ -202,9 +278,10 @@ public class WalletServiceTest {
                 eq("Test insufficient funds")
         )).thenReturn(lowBalanceTransaction);
 
-        when(walletRepository.findByIdWithLock(lowBalanceWalletId)).thenReturn(Optional.of(lowBalanceWallet));
-        when(walletRepository.findByIdWithLock(targetWalletId)).thenReturn(Optional.of(targetWallet));
-        when(integrationService.getWalletBalance(lowBalanceWallet)).thenReturn(new BigDecimal("50.00"));
+        when(walletRepository.findById(lowBalanceWalletId)).thenReturn(Optional.of(lowBalanceWallet));
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        doThrow(new InsufficientBalanceException("Insufficient balance: required 100.00, available 50.00"))
+                .when(walletLedger).transfer(lowBalanceWalletId, targetWalletId, new BigDecimal("100.00"));
 
         doNothing().when(transactionLogger).logTransactionFailure(
                 any(UUID.class), anyString(), eq("INSUFFICIENT_FUNDS"));
@@ -214,11 +291,605 @@ public class WalletServiceTest {
             walletService.transfer(lowBalanceRequest);
         });
 
-        verify(walletRepository).findByIdWithLock(lowBalanceWalletId);
-        verify(walletRepository).findByIdWithLock(targetWalletId);
-        verify(integrationService).getWalletBalance(lowBalanceWallet);
-        verify(transactionRepository, atLeastOnce()).save(any(Transaction.class));
+        verify(walletLedger).transfer(lowBalanceWalletId, targetWalletId, new BigDecimal("100.00"));
+        verifyNoInteractions(integrationService);
+        verify(transactionJournal).appendFailed(argThat(t -> t.getStatus() == TransactionStatus.FAILED));
+        verify(transactionJournal, never()).append(any(Transaction.class));
         verify(transactionLogger).logTransactionFailure(
                 any(UUID.class), anyString(), eq("INSUFFICIENT_FUNDS"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBatchTransfer_RejectsOnlyFailingTransfers() {
+        // Arrange - a second target so the merchant wallet pays out twice
+        Wallet secondTargetWallet = Wallet.create(UUID.randomUUID(), "ext-999", "FINERACT", "SAVINGS", "USD");
+        UUID secondTargetWalletId = UUID.randomUUID();
+        ReflectionTestUtils.setField(secondTargetWallet, "id", secondTargetWalletId);
+        ReflectionTestUtils.setField(walletService, "batchTransferGroupSize", 500);
+
+        BatchTransferRequest batchRequest = BatchTransferRequest.builder()
+                .transfers(List.of(
+                        TransferRequest.builder()
+                                .sourceWalletId(sourceWalletId)
+                                .targetWalletId(targetWalletId)
+                                .amount(new BigDecimal("600.00"))
+                                .build(),
+                        TransferRequest.builder()
+                                .sourceWalletId(sourceWalletId)
+                                .targetWalletId(secondTargetWalletId)
+                                .amount(new BigDecimal("600.00"))
+                                .build()))
+                .build();
+
+        when(walletRepository.findAllByIdInWithLock(any()))
+                .thenReturn(List.of(sourceWallet, targetWallet, secondTargetWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createTransfer(
+                        i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+        when(transactionJournal.appendAll(anyList())).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        BatchTransferResponse response = walletService.batchTransfer(batchRequest);
+
+        // Assert - the second payout exceeds the remaining balance and is rejected on its own
+        assertEquals(2, response.getRequested());
+        assertEquals(1, response.getSucceeded());
+        assertEquals(1, response.getFailed());
+        assertNotNull(response.getResults().get(0).getTransaction());
+        assertNotNull(response.getResults().get(1).getError());
+
+        assertEquals(new BigDecimal("400.00"), sourceWallet.getBalance());
+        assertEquals(new BigDecimal("1100.00"), targetWallet.getBalance());
+        assertEquals(BigDecimal.ZERO, secondTargetWallet.getBalance());
+
+        // Every involved wallet is locked once, in a single statement
+        verify(walletRepository).findAllByIdInWithLock(any());
+        verify(transactionJournal).appendAll(anyList());
+        verify(eventPublisher).publishEvent(any(LedgerBookedEvent.class));
+    }
+
+    @Test
+    void testGetWalletTransactions_ReturnsCursorForNextPage() {
+        // Arrange - three rows for a page size of two
+        List<Transaction> rows = new java.util.ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Transaction transaction = Transaction.createTransfer(
+                    sourceWalletId, targetWalletId, new BigDecimal("10.00"), "USD", "Transfer " + i);
+            ReflectionTestUtils.setField(transaction, "id", UUID.randomUUID());
+            rows.add(transaction);
+        }
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(transactionRepository.findLatestByWalletId(sourceWalletId, 3)).thenReturn(rows);
+
+        // Act
+        TransactionHistoryResponse firstPage = walletService.getWalletTransactions(sourceWalletId, null, 2);
+
+        // Assert - the cursor points at the last row returned
+        assertEquals(2, firstPage.getTransactions().size());
+        assertTrue(firstPage.isHasMore());
+        TransactionCursor cursor = TransactionCursor.decode(firstPage.getNextCursor());
+        assertEquals(rows.get(1).getId(), cursor.getId());
+        assertEquals(rows.get(1).getCreatedAt(), cursor.getCreatedAt());
+
+        // The next page continues strictly after the cursor
+        when(transactionRepository.findByWalletIdBefore(sourceWalletId, cursor.getCreatedAt(), cursor.getId(), 3))
+                .thenReturn(List.of(rows.get(2)));
+
+        TransactionHistoryResponse secondPage =
+                walletService.getWalletTransactions(sourceWalletId, firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getTransactions().size());
+        assertFalse(secondPage.isHasMore());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void testGetWallet_ServedFromCacheWithoutRemoteCall() {
+        // Arrange
+        WalletResponse cached = WalletResponse.builder()
+                .id(sourceWalletId)
+                .balance(new BigDecimal("1000.00"))
+                .currency("USD")
+                .build();
+        when(walletBalanceCache.get(sourceWalletId)).thenReturn(Optional.of(cached));
+
+        // Act
+        WalletResponse response = walletService.getWallet(sourceWalletId);
+
+        // Assert
+        assertSame(cached, response);
+        verifyNoInteractions(walletRepository, integrationService);
+    }
+
+    @Test
+    void testGetWallet_CacheMissReadsLocalLedgerAndCachesIt() {
+        // Arrange
+        ReflectionTestUtils.setField(sourceWallet, "version", 7L);
+        when(walletBalanceCache.get(sourceWalletId)).thenReturn(Optional.empty());
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+
+        // Act
+        WalletResponse response = walletService.getWallet(sourceWalletId);
+
+        // Assert - the balance comes from the local ledger, not the provider
+        assertEquals(new BigDecimal("1000.00"), response.getBalance());
+        verify(walletBalanceCache).put(eq(response), eq(7L), anyLong());
+        verifyNoInteractions(integrationService);
+        verify(walletRepository, never()).save(any(Wallet.class));
+    }
+
+    @Test
+    void testGetUserWallets_RefreshesExternalBalancesInBackground() {
+        // Arrange
+        Wallet secondWallet = Wallet.create(userId, "ext-789", "CYCLOS", "SAVINGS", "EUR");
+        ReflectionTestUtils.setField(secondWallet, "id", UUID.randomUUID());
+        when(walletRepository.findByUserId(userId)).thenReturn(List.of(sourceWallet, secondWallet));
+
+        // Act
+        List<WalletResponse> wallets = walletService.getUserWallets(userId);
+
+        // Assert - one bulk refresh, no per-wallet remote call or save
+        assertEquals(2, wallets.size());
+        verify(externalLedgerSync).refreshExternalBalances(List.of(sourceWallet, secondWallet));
+        verifyNoInteractions(integrationService);
+        verify(walletRepository, never()).save(any(Wallet.class));
+    }
+
+    @Test
+    void testGetUserWallets_SaturatedRefreshExecutorIsIgnored() {
+        // Arrange
+        when(walletRepository.findByUserId(userId)).thenReturn(List.of(sourceWallet));
+        doThrow(new TaskRejectedException("queue full"))
+                .when(externalLedgerSync).refreshExternalBalances(anyList());
+
+        // Act
+        List<WalletResponse> wallets = walletService.getUserWallets(userId);
+
+        // Assert
+        assertEquals(new BigDecimal("1000.00"), wallets.get(0).getBalance());
+    }
+
+    @Test
+    void testTransfer_ReplayServedFromIdempotencyStoreWithoutLocks() {
+        // Arrange
+        TransactionResponse stored = TransactionResponse.builder()
+                .id(UUID.randomUUID())
+                .sourceWalletId(sourceWalletId)
+                .targetWalletId(targetWalletId)
+                .amount(Money.of(new BigDecimal("100.00"), "USD"))
+                .type(TransactionType.TRANSFER.name())
+                .status(TransactionStatus.COMPLETED.name())
+                .build();
+        when(idempotencyStore.get("key-1")).thenReturn(Optional.of(stored));
+
+        // Act
+        TransactionResponse response = walletService.transfer(transferRequest, "key-1");
+
+        // Assert - no transaction, key lock or wallet access
+        assertSame(stored, response);
+        verify(idempotencyStore, never()).lock(any());
+        verifyNoInteractions(walletRepository, walletLedger, transactionManager, hotWalletSequencer);
+    }
+
+    @Test
+    void testTransfer_ReplayFoundInDatabaseUnderKeyLock() {
+        // Arrange
+        Transaction storedTransaction = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        storedTransaction.complete();
+        ReflectionTestUtils.setField(storedTransaction, "id", UUID.randomUUID());
+        when(transactionRepository.findKeyHolder("key-1")).thenReturn(Optional.of(storedTransaction));
+
+        // Act
+        TransactionResponse response = walletService.transfer(transferRequest, "key-1");
+
+        // Assert - not booked again
+        assertEquals(storedTransaction.getId(), response.getId());
+        verify(idempotencyStore).lock("key-1");
+        verify(idempotencyStore).putAfterCommit("key-1", response);
+        verifyNoInteractions(walletLedger, transactionJournal);
+    }
+
+    @Test
+    void testTransfer_KeyHeldByPendingTransferReturnsIt() {
+        // Arrange
+        Transaction pendingTransaction = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        ReflectionTestUtils.setField(pendingTransaction, "id", UUID.randomUUID());
+        when(transactionRepository.findKeyHolder("key-1")).thenReturn(Optional.of(pendingTransaction));
+
+        // Act
+        TransactionResponse response = walletService.transfer(transferRequest, "key-1");
+
+        // Assert - the accepted transfer is answered, not booked a second time
+        assertEquals(pendingTransaction.getId(), response.getId());
+        assertEquals(TransactionStatus.PENDING.name(), response.getStatus());
+        verify(idempotencyStore, never()).putAfterCommit(any(), any());
+        verifyNoInteractions(walletLedger, transactionJournal);
+    }
+
+    @Test
+    void testTransfer_KeyHeldByDifferentPendingTransferIsRejected() {
+        // Arrange
+        Transaction pendingTransaction = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("250.00"), "USD", "Other transfer");
+        ReflectionTestUtils.setField(pendingTransaction, "id", UUID.randomUUID());
+        pendingTransaction.markInProgress();
+        when(transactionRepository.findKeyHolder("key-1")).thenReturn(Optional.of(pendingTransaction));
+
+        // Act & Assert
+        assertThrows(IdempotencyKeyReusedException.class, () -> walletService.transfer(transferRequest, "key-1"));
+        verifyNoInteractions(walletLedger, transactionJournal);
+    }
+
+    @Test
+    void testTransfer_KeyReusedForDifferentRequestIsRejected() {
+        // Arrange
+        TransactionResponse stored = TransactionResponse.builder()
+                .id(UUID.randomUUID())
+                .sourceWalletId(sourceWalletId)
+                .targetWalletId(targetWalletId)
+                .amount(Money.of(new BigDecimal("250.00"), "USD"))
+                .type(TransactionType.TRANSFER.name())
+                .build();
+        when(idempotencyStore.get("key-1")).thenReturn(Optional.of(stored));
+
+        // Act & Assert
+        assertThrows(IdempotencyKeyReusedException.class, () -> walletService.transfer(transferRequest, "key-1"));
+        verifyNoInteractions(walletLedger);
+    }
+
+    @Test
+    void testAcceptTransfer_StoresPendingAndWakesWorkers() {
+        // Arrange
+        when(idempotencyStore.get(null)).thenReturn(Optional.empty());
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> {
+                    Transaction transaction = Transaction.createTransfer(
+                            i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5));
+                    ReflectionTestUtils.setField(transaction, "id", UUID.randomUUID());
+                    return transaction;
+                });
+
+        // Act
+        TransactionResponse response = walletService.acceptTransfer(transferRequest, null);
+
+        // Assert - nothing is booked on the request thread
+        assertEquals(TransactionStatus.PENDING.name(), response.getStatus());
+        verify(eventPublisher).publishEvent(any(TransferAcceptedEvent.class));
+        verifyNoInteractions(walletLedger);
+        assertEquals(new BigDecimal("1000.00"), sourceWallet.getBalance());
+    }
+
+    @Test
+    void testCompletePendingTransfer_BooksClaimedTransfer() {
+        // Arrange
+        Transaction pending = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        ReflectionTestUtils.setField(pending, "id", UUID.randomUUID());
+        LocalDateTime since = LocalDateTime.now().minusMinutes(5);
+        when(transactionRepository.claimPendingTransfers(since, 1)).thenReturn(List.of(pending));
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+
+        // Act
+        Optional<TransactionResponse> response = walletService.completePendingTransfer(since);
+
+        // Assert - booked with conditional ledger updates, like a synchronous transfer
+        assertEquals(TransactionStatus.COMPLETED.name(), response.orElseThrow().getStatus());
+        verify(walletLedger).transferOrUndo(sourceWalletId, targetWalletId, new BigDecimal("100.00"));
+        verify(walletRepository, never()).findAllByIdInWithLock(any());
+        verify(transactionJournal).appendTransitions(List.of(pending));
+        verify(eventPublisher).publishEvent(any(LedgerBookedEvent.class));
+    }
+
+    @Test
+    void testCompletePendingTransfer_FailsTransferThatCanNoLongerBeFunded() {
+        // Arrange
+        Transaction pending = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("5000.00"), "USD", "Test transfer");
+        ReflectionTestUtils.setField(pending, "id", UUID.randomUUID());
+        when(transactionRepository.claimPendingTransfers(any(), eq(1))).thenReturn(List.of(pending));
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        doThrow(new InsufficientBalanceException("Insufficient balance in wallet"))
+                .when(walletLedger).transferOrUndo(sourceWalletId, targetWalletId, new BigDecimal("5000.00"));
+
+        // Act
+        Optional<TransactionResponse> response = walletService.completePendingTransfer(LocalDateTime.now());
+
+        // Assert - the failure commits with the claim
+        assertEquals(TransactionStatus.FAILED.name(), response.orElseThrow().getStatus());
+        verify(transactionJournal).appendTransitions(List.of(pending));
+        verify(transactionLogger).logTransactionFailure(pending.getId(), "Insufficient balance in wallet",
+                "INSUFFICIENT_FUNDS");
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testCompletePendingTransfer_HandsHotWalletTransferToSequencer() {
+        // Arrange
+        Transaction pending = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        ReflectionTestUtils.setField(pending, "id", UUID.randomUUID());
+        when(transactionRepository.claimPendingTransfers(any(), eq(1))).thenReturn(List.of(pending));
+        when(hotWalletSequencer.isHot(targetWalletId)).thenReturn(true);
+        when(hotWalletSequencer.completeAccepted(pending)).thenAnswer(i -> {
+            assertEquals(TransactionStatus.IN_PROGRESS, pending.getStatus());
+            pending.complete();
+            return pending;
+        });
+
+        // Act
+        Optional<TransactionResponse> response = walletService.completePendingTransfer(LocalDateTime.now());
+
+        // Assert - the claim commits as IN_PROGRESS and the writer thread books it
+        assertEquals(TransactionStatus.COMPLETED.name(), response.orElseThrow().getStatus());
+        verify(transactionJournal).appendTransitions(List.of(pending));
+        verifyNoInteractions(walletLedger);
+    }
+
+    @Test
+    void testCompletePendingTransfer_FailsTransferWhoseBookingThrows() {
+        // Arrange
+        UUID transactionId = UUID.randomUUID();
+        Transaction pending = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        ReflectionTestUtils.setField(pending, "id", transactionId);
+        Transaction reloaded = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Test transfer");
+        ReflectionTestUtils.setField(reloaded, "id", transactionId);
+        when(transactionRepository.claimPendingTransfers(any(), eq(1))).thenReturn(List.of(pending));
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        doThrow(new IllegalStateException("State log unavailable"))
+                .when(transactionJournal).appendTransitions(List.of(pending));
+        when(transactionRepository.findByIdAndCreatedAtWithLock(transactionId, pending.getCreatedAt()))
+                .thenReturn(Optional.of(reloaded));
+
+        // Act
+        Optional<TransactionResponse> response = walletService.completePendingTransfer(LocalDateTime.now());
+
+        // Assert - the rolled-back row is failed instead of being claimed first again
+        assertEquals(TransactionStatus.FAILED.name(), response.orElseThrow().getStatus());
+        verify(transactionJournal).appendTransitions(List.of(reloaded));
+        verify(transactionLogger).logTransactionFailure(transactionId, "State log unavailable", "TRANSFER_FAILED");
+    }
+
+    @Test
+    void testGetTransaction_SearchesEveryPartitionOnlyForOlderTransactions() {
+        // Arrange
+        Transaction recent = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("100.00"), "USD", "Recent transfer");
+        ReflectionTestUtils.setField(recent, "id", UUID.randomUUID());
+        Transaction older = Transaction.createTransfer(
+                sourceWalletId, targetWalletId, new BigDecimal("50.00"), "USD", "Older transfer");
+        ReflectionTestUtils.setField(older, "id", UUID.randomUUID());
+        ReflectionTestUtils.setField(older, "createdAt", LocalDateTime.now().minusMonths(3));
+        when(transactionRepository.findByIdAndCreatedAtGreaterThanEqual(eq(recent.getId()), any()))
+                .thenReturn(Optional.of(recent));
+        when(transactionRepository.findByIdAndCreatedAtGreaterThanEqual(eq(older.getId()), any()))
+                .thenReturn(Optional.empty());
+        when(transactionRepository.findById(older.getId())).thenReturn(Optional.of(older));
+
+        // Act
+        TransactionResponse recentResponse = walletService.getTransaction(recent.getId());
+        TransactionResponse olderResponse = walletService.getTransaction(older.getId());
+
+        // Assert
+        assertEquals(recent.getId(), recentResponse.getId());
+        assertEquals(older.getId(), olderResponse.getId());
+        verify(transactionRepository, never()).findById(recent.getId());
+    }
+
+    @Test
+    void testTransfer_RecordsStageTimingsByWalletTypeAndOutcome() {
+        // Arrange
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createTransfer(
+                        i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+
+        // Act
+        walletService.transfer(transferRequest);
+
+        // Assert - every stage of the booking is timed, and nothing is left in flight
+        for (String stage : List.of("lookup", "ledger", "journal", "events", "commit")) {
+            assertEquals(1L, meterRegistry.get("wallet.movement.stage.time")
+                    .tags("operation", "transfer", "stage", stage, "walletType", "FINERACT", "outcome", "success")
+                    .timer().count());
+        }
+        assertEquals(1L, meterRegistry.get("wallet.movement.time").tag("operation", "transfer").timer().count());
+        assertEquals(0.0, meterRegistry.get("wallet.movement.in_flight").tag("operation", "transfer")
+                .gauge().value());
+    }
+
+    @Test
+    void testDeposit_RecordsCommitOfBothTransactions() {
+        // Arrange
+        DepositRequest request = new DepositRequest();
+        request.setWalletId(targetWalletId);
+        request.setAmount(new BigDecimal("50.00"));
+        request.setDescription("Top up");
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> {
+                    Transaction transaction = Transaction.createDeposit(
+                            i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5));
+                    ReflectionTestUtils.setField(transaction, "id", UUID.randomUUID());
+                    return transaction;
+                });
+        when(integrationService.depositToWallet(eq(targetWallet), eq(new BigDecimal("50.00")), any()))
+                .thenReturn("ext-dep-3");
+        when(walletLedger.tryCredit(targetWalletId, new BigDecimal("50.00"))).thenReturn(true);
+
+        // Act
+        walletService.deposit(request);
+
+        // Assert - both commits around the provider call are timed
+        for (String stage : List.of("lookup", "journal", "commit", "provider", "ledger", "events")) {
+            assertEquals(1L, meterRegistry.get("wallet.movement.stage.time")
+                    .tags("operation", "deposit", "stage", stage, "walletType", "FINERACT", "outcome", "success")
+                    .timer().count());
+        }
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testWithdraw_RecordsInsufficientFundsOutcome() {
+        // Arrange
+        WithdrawalRequest request = new WithdrawalRequest();
+        request.setWalletId(sourceWalletId);
+        request.setAmount(new BigDecimal("100.00"));
+        request.setDescription("Cash out");
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createWithdrawal(
+                        i.getArgument(0), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+        doThrow(new InsufficientBalanceException("Insufficient balance"))
+                .when(walletLedger).debit(sourceWalletId, new BigDecimal("100.00"));
+
+        // Act
+        assertThrows(InsufficientBalanceException.class, () -> walletService.withdraw(request));
+
+        // Assert - the stages that ran carry the outcome of the whole withdrawal
+        assertEquals(1L, meterRegistry.get("wallet.movement.stage.time")
+                .tags("operation", "withdrawal", "stage", "ledger", "outcome", "insufficient_funds")
+                .timer().count());
+        assertNull(meterRegistry.find("wallet.movement.stage.time").tag("stage", "provider").timer());
+        verifyNoInteractions(integrationService);
+    }
+
+    @Test
+    void testWithdraw_CommitsReservationBeforePayoutAndReleasesItOnFailure() {
+        // Arrange
+        WithdrawalRequest request = new WithdrawalRequest();
+        request.setWalletId(sourceWalletId);
+        request.setAmount(new BigDecimal("100.00"));
+        request.setDescription("Cash out");
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createWithdrawal(
+                        i.getArgument(0), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+        when(transactionJournal.append(any(Transaction.class))).thenAnswer(i -> {
+            Transaction stored = i.getArgument(0);
+            assertEquals(TransactionStatus.IN_PROGRESS, stored.getStatus());
+            return stored;
+        });
+        when(integrationService.withdrawFromWallet(eq(sourceWallet), eq(new BigDecimal("100.00")), any()))
+                .thenThrow(new TransactionFailedException("Provider rejected the payout"));
+
+        // Act
+        assertThrows(TransactionFailedException.class, () -> walletService.withdraw(request));
+
+        // Assert - the reservation is committed before the payout and given back after it failed
+        InOrder inOrder = inOrder(walletLedger, transactionJournal, transactionManager, integrationService);
+        inOrder.verify(walletLedger).debit(sourceWalletId, new BigDecimal("100.00"));
+        inOrder.verify(transactionJournal).append(any(Transaction.class));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(integrationService).withdrawFromWallet(eq(sourceWallet), eq(new BigDecimal("100.00")), any());
+        inOrder.verify(walletLedger).release(sourceWalletId, new BigDecimal("100.00"));
+        inOrder.verify(transactionJournal).appendStatus(argThat(t -> t.getStatus() == TransactionStatus.FAILED));
+        verify(transactionLogger).logTransactionFailure(any(), eq("Provider rejected the payout"),
+                eq("WITHDRAWAL_FAILED"));
+        verify(walletBalanceCache, times(2)).evictAfterCommit(List.of(sourceWalletId));
+    }
+
+    @Test
+    void testDeposit_WalletFrozenDuringProviderCallKeepsPostingForReconciliation() {
+        // Arrange
+        DepositRequest request = new DepositRequest();
+        request.setWalletId(targetWalletId);
+        request.setAmount(new BigDecimal("50.00"));
+        request.setDescription("Top up");
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createDeposit(
+                        i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+        when(integrationService.depositToWallet(eq(targetWallet), eq(new BigDecimal("50.00")), any()))
+                .thenReturn("ext-dep-1");
+        when(walletLedger.tryCredit(targetWalletId, new BigDecimal("50.00"))).thenReturn(false);
+        when(walletLedger.rejected("credit", targetWalletId, new BigDecimal("50.00")))
+                .thenReturn(new WalletNotActiveException("Wallet is not active"));
+
+        // Act
+        assertThrows(TransactionFailedException.class, () -> walletService.deposit(request));
+
+        // Assert - the deposit is failed but keeps the provider's posting ID
+        verify(transactionJournal).appendStatus(argThat(t ->
+                t.getStatus() == TransactionStatus.FAILED && "ext-dep-1".equals(t.getExternalId())));
+        verify(transactionLogger).logTransactionFailure(any(), eq("Wallet is not active"),
+                eq("DEPOSIT_NOT_CREDITED"));
+        verify(eventPublisher, never()).publishEvent(any(LedgerBookedEvent.class));
+    }
+
+    @Test
+    void testDeposit_CrashAfterProviderCallIsRecoveredByReference() {
+        // Arrange - the database goes away between the provider call and the credit
+        DepositRequest request = new DepositRequest();
+        request.setWalletId(targetWalletId);
+        request.setAmount(new BigDecimal("50.00"));
+        request.setDescription("Top up");
+        UUID transactionId = UUID.randomUUID();
+        when(walletRepository.findById(targetWalletId)).thenReturn(Optional.of(targetWallet));
+        when(transactionLogger.createTransactionAudit(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(i -> Transaction.createDeposit(
+                        i.getArgument(1), i.getArgument(2), i.getArgument(3), i.getArgument(5)));
+        when(transactionJournal.append(any(Transaction.class))).thenAnswer(i -> {
+            Transaction stored = i.getArgument(0);
+            ReflectionTestUtils.setField(stored, "id", transactionId);
+            return stored;
+        });
+        when(integrationService.depositToWallet(targetWallet, new BigDecimal("50.00"), transactionId.toString()))
+                .thenReturn("ext-dep-2");
+        when(transactionManager.getTransaction(any()))
+                .thenReturn(null)
+                .thenThrow(new CannotCreateTransactionException("Connection lost"));
+        ArgumentCaptor<Transaction> stored = ArgumentCaptor.forClass(Transaction.class);
+
+        // Act
+        assertThrows(CannotCreateTransactionException.class, () -> walletService.deposit(request));
+
+        // Assert - the deposit was left IN_PROGRESS with the reference the provider posted
+        verify(transactionJournal).append(stored.capture());
+        Transaction abandoned = stored.getValue();
+        assertEquals(TransactionStatus.IN_PROGRESS, abandoned.getStatus());
+        verify(walletLedger, never()).tryCredit(any(), any());
+
+        // Act - the recovery worker later finds the posting by that reference
+        TransactionRecoveryWorker recoveryWorker = new TransactionRecoveryWorker(transactionRepository,
+                walletRepository, transactionJournal, walletLedger, integrationService, eventPublisher,
+                transactionManager, meterRegistry, Runnable::run);
+        ReflectionTestUtils.setField(recoveryWorker, "staleAfter", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(recoveryWorker, "batchSize", 50);
+        LocalDateTime staleBefore = LocalDateTime.now();
+        when(transactionRepository.claimUnposted(staleBefore, staleBefore, 50)).thenReturn(List.of());
+        when(transactionRepository.claimAbandoned(staleBefore, 50)).thenReturn(List.of(abandoned));
+        when(integrationService.findPostedTransaction(transactionId.toString())).thenReturn(Optional.of("ext-dep-2"));
+        when(walletLedger.tryCredit(targetWalletId, new BigDecimal("50.00"))).thenReturn(true);
+        recoveryWorker.recoverBatch(staleBefore);
+
+        // Assert - credited once and completed with the provider's posting
+        assertEquals(TransactionStatus.COMPLETED, abandoned.getStatus());
+        assertEquals("ext-dep-2", abandoned.getExternalId());
+        verify(walletLedger, times(1)).tryCredit(targetWalletId, new BigDecimal("50.00"));
+        verify(integrationService, times(1)).depositToWallet(any(), any(), any());
+    }
+
+    @Test
+    void testFreezeWallet_PublishesNewStateOnFeed() {
+        // Arrange
+        when(walletRepository.findById(sourceWalletId)).thenReturn(Optional.of(sourceWallet));
+
+        // Act
+        WalletResponse response = walletService.freezeWallet(sourceWalletId, "Suspicious activity");
+
+        // Assert
+        assertEquals(WalletStatus.FROZEN.name(), response.getStatus());
+        verify(walletStateFeed).emitBeforeCommit(List.of(sourceWalletId));
+        verify(walletBalanceCache).evictAfterCommit(List.of(sourceWalletId));
+    }
+}
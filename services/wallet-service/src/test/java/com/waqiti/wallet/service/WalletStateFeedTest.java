@@ -0,0 +1,113 @@
+package com.waqiti.wallet.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waqiti.wallet.domain.OutboxEvent;
+import com.waqiti.wallet.domain.WalletStatus;
+import com.waqiti.wallet.event.LedgerBookedEvent;
+import com.waqiti.wallet.repository.OutboxRepository;
+import com.waqiti.wallet.repository.WalletRepository;
+import com.waqiti.wallet.repository.WalletStateView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WalletStateFeedTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private WalletStateFeed walletStateFeed;
+
+    @BeforeEach
+    void setUp() {
+        walletStateFeed = new WalletStateFeed(walletRepository, outboxRepository, objectMapper);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void testEmit_PublishesEachChangedWalletOnceBeforeCommit() throws Exception {
+        // Arrange - two bookings and a freeze in one transaction
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        walletStateFeed.onLedgerBooked(new LedgerBookedEvent(List.of(UUID.randomUUID()), List.of(first, second), true));
+        walletStateFeed.onLedgerBooked(new LedgerBookedEvent(List.of(UUID.randomUUID()), List.of(first), false));
+        walletStateFeed.emitBeforeCommit(List.of(second));
+        verifyNoInteractions(walletRepository, outboxRepository);
+
+        when(walletRepository.findStatesByIdIn(Set.of(first, second))).thenReturn(List.of(
+                state(first, new BigDecimal("70.00"), WalletStatus.ACTIVE, 7L),
+                state(second, new BigDecimal("30.00"), WalletStatus.FROZEN, 3L)));
+
+        // Act
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        // Assert - one record per wallet, keyed by wallet ID, read after all changes
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).insertAll(events.capture());
+        assertEquals(2, events.getValue().size());
+
+        OutboxEvent record = events.getValue().get(1);
+        assertEquals(WalletStateFeed.WALLET_STATE_TOPIC, record.getTopic());
+        assertEquals(second.toString(), record.getMessageKey());
+        JsonNode payload = objectMapper.readTree(record.getPayload());
+        assertEquals("FROZEN", payload.get("status").asText());
+        assertEquals(3L, payload.get("version").asLong());
+        assertEquals(0, new BigDecimal("30.00").compareTo(payload.get("balance").decimalValue()));
+    }
+
+    @Test
+    void testEmit_SkipsWalletsThatNoLongerExist() {
+        // Arrange
+        walletStateFeed.emitBeforeCommit(List.of(UUID.randomUUID()));
+        when(walletRepository.findStatesByIdIn(any())).thenReturn(List.of());
+
+        // Act
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        // Assert
+        verify(outboxRepository, never()).insertAll(any());
+    }
+
+    private WalletStateView state(UUID id, BigDecimal balance, WalletStatus status, long version) {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 6, 1, 12, 0);
+        return new WalletStateView() {
+            public UUID getId() { return id; }
+            public UUID getUserId() { return userId; }
+            public BigDecimal getBalance() { return balance; }
+            public String getCurrency() { return "USD"; }
+            public WalletStatus getStatus() { return status; }
+            public Long getVersion() { return version; }
+            public LocalDateTime getUpdatedAt() { return updatedAt; }
+        };
+    }
+}
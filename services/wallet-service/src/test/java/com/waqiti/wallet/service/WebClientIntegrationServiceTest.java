@@ -0,0 +1,122 @@
+package com.waqiti.wallet.service;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.waqiti.wallet.domain.TransactionFailedException;
+import com.waqiti.wallet.domain.Wallet;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebClientIntegrationServiceTest {
+
+    private WireMockServer server;
+
+    private WebClientIntegrationService integrationService;
+
+    @BeforeEach
+    void setUp() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+
+        RetryRegistry retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(2)
+                .waitDuration(Duration.ofMillis(10))
+                .build());
+        integrationService = new WebClientIntegrationService(WebClient.builder().baseUrl(server.baseUrl()).build(),
+                CircuitBreakerRegistry.ofDefaults(), retryRegistry);
+        ReflectionTestUtils.setField(integrationService, "balanceRequestSize", 2);
+        ReflectionTestUtils.setField(integrationService, "balanceConcurrency", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void testTransferBetweenWallets_RetriesAndSendsReference() {
+        // Arrange
+        server.stubFor(post("/api/v1/wallets/transfer").inScenario("transfer")
+                .whenScenarioStateIs(STARTED)
+                .willReturn(serverError())
+                .willSetStateTo("recovered"));
+        server.stubFor(post("/api/v1/wallets/transfer").inScenario("transfer")
+                .whenScenarioStateIs("recovered")
+                .willReturn(okJson("{\"externalId\":\"ext-tx-1\"}")));
+
+        // Act
+        String externalId = integrationService.transferBetweenWallets(
+                wallet("ext-1"), wallet("ext-2"), new BigDecimal("25.00"), "tx-1");
+
+        // Assert - the second attempt carries the same reference
+        assertEquals("ext-tx-1", externalId);
+        server.verify(2, postRequestedFor(urlEqualTo("/api/v1/wallets/transfer"))
+                .withRequestBody(matchingJsonPath("$.reference", equalTo("tx-1"))));
+    }
+
+    @Test
+    void testFindPostedTransaction_TellsMissingPostingFromUnreachableProvider() {
+        // Arrange
+        server.stubFor(get("/api/v1/transactions/reference/missing").willReturn(notFound()));
+        server.stubFor(get("/api/v1/transactions/reference/unknown").willReturn(serverError()));
+
+        // Act & Assert
+        assertEquals(Optional.empty(), integrationService.findPostedTransaction("missing"));
+        assertThrows(TransactionFailedException.class, () -> integrationService.findPostedTransaction("unknown"));
+        server.verify(1, getRequestedFor(urlEqualTo("/api/v1/transactions/reference/missing")));
+    }
+
+    @Test
+    void testGetWalletBalances_LeavesFailedChunkUnpriced() {
+        // Arrange - chunks of two wallets, the second chunk fails
+        Wallet first = wallet("ext-1");
+        Wallet second = wallet("ext-2");
+        Wallet third = wallet("ext-3");
+        server.stubFor(post("/api/v1/wallets/balances").withRequestBody(containing("ext-3"))
+                .willReturn(serverError()));
+        server.stubFor(post("/api/v1/wallets/balances").withRequestBody(containing("ext-1"))
+                .willReturn(okJson("{\"balances\":{\"ext-1\":10.00,\"ext-2\":20.00}}")));
+
+        // Act
+        Map<UUID, BigDecimal> balances = integrationService.getWalletBalances(List.of(first, second, third));
+
+        // Assert
+        assertEquals(2, balances.size());
+        assertEquals(0, new BigDecimal("10.00").compareTo(balances.get(first.getId())));
+        assertEquals(0, new BigDecimal("20.00").compareTo(balances.get(second.getId())));
+        assertFalse(balances.containsKey(third.getId()));
+    }
+
+    @Test
+    void testGetWalletBalances_ThrowsWhenEveryChunkFails() {
+        // Arrange
+        server.stubFor(post("/api/v1/wallets/balances").willReturn(serverError()));
+
+        // Act & Assert - an unreachable provider is not an empty answer
+        assertThrows(TransactionFailedException.class,
+                () -> integrationService.getWalletBalances(List.of(wallet("ext-1"), wallet("ext-2"), wallet("ext-3"))));
+    }
+
+    private Wallet wallet(String externalId) {
+        Wallet wallet = Wallet.create(UUID.randomUUID(), externalId, "FINERACT", "SAVINGS", "USD");
+        ReflectionTestUtils.setField(wallet, "id", UUID.randomUUID());
+        return wallet;
+    }
+}